@@ -58,6 +58,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
   private volatile String metricsEndpoint;
   private volatile String dataStreamsEndpoint;
   private volatile boolean supportsDropping;
+  private volatile boolean supportsGzipTraces;
   private volatile String state;
   private volatile String configEndpoint;
   private volatile String debuggerEndpoint;
@@ -83,6 +84,7 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
     traceEndpoint = null;
     metricsEndpoint = null;
     supportsDropping = false;
+    supportsGzipTraces = false;
     state = null;
     configEndpoint = null;
     debuggerEndpoint = null;
@@ -212,6 +214,9 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
                 && ("true".equalsIgnoreCase(String.valueOf(canDrop))
                     || Boolean.TRUE.equals(canDrop));
       }
+      Object contentEncodings = map.get("content_encodings");
+      supportsGzipTraces =
+          contentEncodings instanceof List && ((List<?>) contentEncodings).contains("gzip");
       try {
         state = Strings.sha256(response);
       } catch (NoSuchAlgorithmException ex) {
@@ -247,6 +252,11 @@ public class DDAgentFeaturesDiscovery implements DroppingPolicy {
     return supportsDropping;
   }
 
+  /** @return whether the agent accepts gzipped trace payloads */
+  public boolean supportsGzipTraces() {
+    return supportsGzipTraces;
+  }
+
   public String getMetricsEndpoint() {
     return metricsEndpoint;
   }
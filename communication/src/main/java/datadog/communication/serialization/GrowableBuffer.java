@@ -26,11 +26,24 @@ public final class GrowableBuffer implements StreamingBuffer {
     return messageCount;
   }
 
+  /** @return the number of bytes written so far */
+  public int position() {
+    return buffer.position();
+  }
+
   @Override
   public void reset() {
-    messageCount = 0;
-    buffer.position(0);
+    retain(0, 0);
+  }
+
+  /**
+   * Resets the buffer but keeps the first messages written, which must take up exactly the given
+   * number of bytes.
+   */
+  public void retain(int messageCount, int position) {
+    this.messageCount = messageCount;
     buffer.limit(buffer.capacity());
+    buffer.position(position);
   }
 
   @Override
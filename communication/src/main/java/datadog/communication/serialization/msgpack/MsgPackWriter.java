@@ -1,7 +1,5 @@
 package datadog.communication.serialization.msgpack;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import datadog.communication.serialization.Codec;
 import datadog.communication.serialization.EncodingCache;
 import datadog.communication.serialization.Mapper;
@@ -58,10 +56,15 @@ public class MsgPackWriter implements WritableFormatter {
   public static final int FIXARRAY = 0x90;
   public static final int FIXMAP = 0x80;
 
+  // strings are encoded in chunks of this size, rather than into a new array each
+  private static final int ENCODING_BUFFER_SIZE = 256;
+
   private final Codec codec;
 
   private final StreamingBuffer buffer;
 
+  private final byte[] encodingBuffer = new byte[ENCODING_BUFFER_SIZE];
+
   public MsgPackWriter(StreamingBuffer buffer) {
     this(Codec.INSTANCE, buffer);
   }
@@ -149,7 +152,7 @@ public class MsgPackWriter implements WritableFormatter {
           return;
         }
       }
-      writeUTF8(s.getBytes(UTF_8));
+      writeUTF8(s);
     }
   }
 
@@ -178,7 +181,7 @@ public class MsgPackWriter implements WritableFormatter {
       if (s instanceof UTF8BytesString) {
         writeUTF8((UTF8BytesString) s);
       } else {
-        writeUTF8(String.valueOf(s).getBytes(UTF_8));
+        writeUTF8(s);
       }
     }
   }
@@ -200,6 +203,77 @@ public class MsgPackWriter implements WritableFormatter {
     buffer.put(string.getUtf8Bytes());
   }
 
+  /**
+   * Encodes the characters as UTF-8 straight into the buffer. Malformed surrogates are replaced
+   * with '?', like {@link String#getBytes} does.
+   */
+  private void writeUTF8(CharSequence s) {
+    int length = s.length();
+    writeStringHeader(encodedLength(s, length));
+    byte[] encoded = encodingBuffer;
+    int position = 0;
+    int i = 0;
+    while (i < length) {
+      if (position > ENCODING_BUFFER_SIZE - 4) {
+        buffer.put(encoded, 0, position);
+        position = 0;
+      }
+      char c = s.charAt(i++);
+      if (c < 0x80) {
+        encoded[position++] = (byte) c;
+      } else if (c < 0x800) {
+        encoded[position++] = (byte) (0xC0 | (c >> 6));
+        encoded[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (!Character.isSurrogate(c)) {
+        encoded[position++] = (byte) (0xE0 | (c >> 12));
+        encoded[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        encoded[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i < length
+          && Character.isLowSurrogate(s.charAt(i))) {
+        int codePoint = Character.toCodePoint(c, s.charAt(i++));
+        encoded[position++] = (byte) (0xF0 | (codePoint >> 18));
+        encoded[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        encoded[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        encoded[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else {
+        encoded[position++] = '?';
+      }
+    }
+    if (position > 0) {
+      buffer.put(encoded, 0, position);
+    }
+  }
+
+  private static int encodedLength(CharSequence s, int length) {
+    int i = 0;
+    while (i < length && s.charAt(i) < 0x80) {
+      i++;
+    }
+    if (i == length) {
+      return length; // only ASCII
+    }
+    int encodedLength = i;
+    while (i < length) {
+      char c = s.charAt(i++);
+      if (c < 0x80) {
+        encodedLength += 1;
+      } else if (c < 0x800) {
+        encodedLength += 2;
+      } else if (!Character.isSurrogate(c)) {
+        encodedLength += 3;
+      } else if (Character.isHighSurrogate(c)
+          && i < length
+          && Character.isLowSurrogate(s.charAt(i))) {
+        i++;
+        encodedLength += 4;
+      } else {
+        encodedLength += 1;
+      }
+    }
+    return encodedLength;
+  }
+
   @Override
   public void writeBinary(byte[] binary) {
     writeBinaryHeader(binary.length);
@@ -37,6 +37,8 @@ class DDAgentFeaturesDiscoveryTest extends DDSpecification {
   static final String INFO_WITHOUT_METRICS_STATE = Strings.sha256(INFO_WITHOUT_METRICS_RESPONSE)
   static final String INFO_WITHOUT_DATA_STREAMS_RESPONSE = loadJsonFile("agent-info-without-data-streams.json")
   static final String INFO_WITHOUT_DATA_STREAMS_STATE = Strings.sha256(INFO_WITHOUT_DATA_STREAMS_RESPONSE)
+  static final String INFO_WITH_COMPRESSION_RESPONSE = loadJsonFile("agent-info-with-compression.json")
+  static final String INFO_WITH_COMPRESSION_STATE = Strings.sha256(INFO_WITH_COMPRESSION_RESPONSE)
   static final String PROBE_STATE = "probestate"
 
   def "test parse /info response"() {
@@ -59,6 +61,7 @@ class DDAgentFeaturesDiscoveryTest extends DDSpecification {
     features.getConfigEndpoint() == V7_CONFIG_ENDPOINT
     features.supportsDebugger()
     features.getVersion() == "0.99.0"
+    !features.supportsGzipTraces()
   }
 
   def "test parse /info response with client dropping"() {
@@ -78,6 +81,20 @@ class DDAgentFeaturesDiscoveryTest extends DDSpecification {
     features.state() == INFO_WITH_CLIENT_DROPPING_STATE
   }
 
+  def "test parse /info response with gzip support"() {
+    setup:
+    OkHttpClient client = Mock(OkHttpClient)
+    DDAgentFeaturesDiscovery features = new DDAgentFeaturesDiscovery(client, monitoring, agentUrl, true, true)
+
+    when: "/info available"
+    features.discover()
+
+    then:
+    1 * client.newCall(_) >> { Request request -> infoResponse(request, INFO_WITH_COMPRESSION_RESPONSE) }
+    features.getTraceEndpoint() == "v0.5/traces"
+    features.supportsGzipTraces()
+    features.state() == INFO_WITH_COMPRESSION_STATE
+  }
 
   def "test parse /info response with data streams unavailable"() {
     setup:
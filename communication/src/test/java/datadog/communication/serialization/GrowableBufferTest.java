@@ -53,6 +53,28 @@ public class GrowableBufferTest {
     assertEquals(slice.get(), 42);
   }
 
+  @Test
+  public void testBufferRetain() {
+    GrowableBuffer gb = new GrowableBuffer(5);
+    gb.put((byte) 1);
+    gb.mark();
+    int position = gb.position();
+    gb.put((byte) 2);
+    gb.mark();
+    gb.slice();
+
+    gb.retain(1, position);
+    assertEquals(1, gb.messageCount());
+
+    gb.put((byte) 42);
+    gb.mark();
+    ByteBuffer slice = gb.slice();
+    assertEquals(2, gb.messageCount());
+    assertEquals(2, slice.remaining());
+    assertEquals(1, slice.get());
+    assertEquals(42, slice.get());
+  }
+
   @Test
   public void testFlush() {
     GrowableBuffer gb = new GrowableBuffer(5);
@@ -1067,6 +1067,62 @@ public class MsgPackWriterTest {
     writer.writeStringHeader(0x10000);
   }
 
+  @Test
+  public void testWriteStringEncodesLikeGetBytes() {
+    StringBuilder longString = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      longString.append("a\u00df\u9053\ud83d\ude00");
+    }
+    final String[] strings = {
+      "",
+      "ascii",
+      "tsch\u00fc\u00df",
+      "\u9053\u53ef\u9053",
+      "smile \ud83d\ude00",
+      "unpaired \ud83d high",
+      "unpaired \ude00 low",
+      "ends with high \ud83d",
+      longString.toString()
+    };
+    final List<byte[]> expected = new ArrayList<>();
+    for (String string : strings) {
+      expected.add(string.getBytes(StandardCharsets.UTF_8));
+    }
+    MessageFormatter messageFormatter =
+        new MsgPackWriter(
+            newBuffer(
+                10 << 10,
+                new ByteBufferConsumer() {
+                  @Override
+                  public void accept(int messageCount, ByteBuffer buffy) {
+                    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(buffy);
+                    try {
+                      for (byte[] utf8 : expected) {
+                        // once written from a String, once from another CharSequence
+                        for (int i = 0; i < 2; i++) {
+                          int length = unpacker.unpackRawStringHeader();
+                          assertArrayEquals(utf8, unpacker.readPayload(length));
+                        }
+                      }
+                    } catch (IOException e) {
+                      Assert.fail(e.getMessage());
+                    }
+                  }
+                }));
+    messageFormatter.format(
+        strings,
+        new Mapper<String[]>() {
+          @Override
+          public void map(String[] data, Writable writable) {
+            for (String string : data) {
+              writable.writeString(string, null);
+              writable.writeString(new StringBuilder(string), null);
+            }
+          }
+        });
+    messageFormatter.flush();
+  }
+
   private StreamingBuffer newBuffer(int capacity, ByteBufferConsumer consumer) {
     return new FlushingBuffer(capacity, consumer);
   }
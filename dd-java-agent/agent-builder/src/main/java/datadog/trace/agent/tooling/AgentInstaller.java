@@ -140,7 +140,10 @@ public class AgentInstaller {
       }
     }
 
-    AgentTransformerBuilder transformerBuilder = new AgentTransformerBuilder(agentBuilder);
+    InstallableTransformerBuilder transformerBuilder =
+        Config.get().isLegacyInstallerEnabled()
+            ? new AgentTransformerBuilder(agentBuilder)
+            : new CombiningTransformerBuilder(agentBuilder);
 
     int installedCount = 0;
     Set<Instrumenter.TargetSystem> enabledSystems = getEnabledSystems();
@@ -34,7 +34,7 @@ import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.utility.JavaModule;
 
 public class AgentTransformerBuilder
-    implements Instrumenter.TransformerBuilder, Instrumenter.AdviceTransformation {
+    implements InstallableTransformerBuilder, Instrumenter.AdviceTransformation {
 
   // Added here instead of byte-buddy's ignores because it's relatively
   // expensive. https://github.com/DataDog/dd-trace-java/pull/1045
@@ -64,9 +64,10 @@ public class AgentTransformerBuilder
     }
   }
 
+  @Override
   public ResettableClassFileTransformer installOn(Instrumentation instrumentation) {
     if (Config.get().isRuntimeContextFieldInjection()) {
-      applyContextStoreInjection();
+      agentBuilder = applyContextStoreInjection(agentBuilder, contextStoreInjection);
     }
 
     return agentBuilder.installOn(instrumentation);
@@ -99,25 +100,12 @@ public class AgentTransformerBuilder
               wrapVisitor(
                   new FieldBackedContextRequestRewriter(contextStore, instrumenter.name())));
 
-      registerContextStoreInjection(contextStore, instrumenter);
+      registerContextStoreInjection(contextStoreInjection, contextStore, instrumenter);
     }
 
-    final Instrumenter.AdviceTransformer customTransformer = instrumenter.transformer();
+    Instrumenter.AdviceTransformer customTransformer = instrumenter.transformer();
     if (customTransformer != null) {
-      adviceBuilder =
-          adviceBuilder.transform(
-              new AgentBuilder.Transformer() {
-                @Override
-                public DynamicType.Builder<?> transform(
-                    DynamicType.Builder<?> builder,
-                    TypeDescription typeDescription,
-                    ClassLoader classLoader,
-                    JavaModule module,
-                    ProtectionDomain pd) {
-                  return customTransformer.transform(
-                      builder, typeDescription, classLoader, module, pd);
-                }
-              });
+      adviceBuilder = adviceBuilder.transform(wrapTransformer(customTransformer));
     }
 
     instrumenter.adviceTransformations(this);
@@ -125,7 +113,7 @@ public class AgentTransformerBuilder
     return adviceBuilder;
   }
 
-  private AgentBuilder.RawMatcher typeMatcher(Instrumenter.Default instrumenter) {
+  static AgentBuilder.RawMatcher typeMatcher(Instrumenter.Default instrumenter) {
     ElementMatcher<? super TypeDescription> typeMatcher;
     String hierarchyHint = null;
 
@@ -186,10 +174,14 @@ public class AgentTransformerBuilder
     return new FailSafeRawMatcher(
         typeMatcher,
         classLoaderMatcher,
-        "Instrumentation matcher unexpected exception - instrumentation.names="
-            + instrumenter.names()
-            + " instrumentation.class="
-            + instrumenter.getClass().getName());
+        matcherExceptionDescription(instrumenter));
+  }
+
+  static String matcherExceptionDescription(Instrumenter.Default instrumenter) {
+    return "Instrumentation matcher unexpected exception - instrumentation.names="
+        + instrumenter.names()
+        + " instrumentation.class="
+        + instrumenter.getClass().getName();
   }
 
   private AgentBuilder buildSingleAdvice(Instrumenter.HasAdvice instrumenter) {
@@ -221,7 +213,22 @@ public class AgentTransformerBuilder
                 .advice(not(ignoreMatcher).and(matcher), name));
   }
 
-  private static AgentBuilder.Transformer wrapVisitor(final AsmVisitorWrapper visitor) {
+  static AgentBuilder.Transformer wrapTransformer(
+      final Instrumenter.AdviceTransformer customTransformer) {
+    return new AgentBuilder.Transformer() {
+      @Override
+      public DynamicType.Builder<?> transform(
+          DynamicType.Builder<?> builder,
+          TypeDescription typeDescription,
+          ClassLoader classLoader,
+          JavaModule module,
+          ProtectionDomain pd) {
+        return customTransformer.transform(builder, typeDescription, classLoader, module, pd);
+      }
+    };
+  }
+
+  static AgentBuilder.Transformer wrapVisitor(final AsmVisitorWrapper visitor) {
     return new AgentBuilder.Transformer() {
       @Override
       public DynamicType.Builder<?> transform(
@@ -235,7 +242,7 @@ public class AgentTransformerBuilder
     };
   }
 
-  private static ElementMatcher<ClassLoader> requireBoth(
+  static ElementMatcher<ClassLoader> requireBoth(
       ElementMatcher<ClassLoader> lhs, ElementMatcher<ClassLoader> rhs) {
     if (ANY_CLASS_LOADER == lhs) {
       return rhs;
@@ -247,8 +254,10 @@ public class AgentTransformerBuilder
   }
 
   /** Tracks which class-loader matchers are associated with each store request. */
-  private void registerContextStoreInjection(
-      Map<String, String> contextStore, Instrumenter.Default instrumenter) {
+  static void registerContextStoreInjection(
+      Map<Map.Entry<String, String>, ElementMatcher<ClassLoader>> contextStoreInjection,
+      Map<String, String> contextStore,
+      Instrumenter.Default instrumenter) {
     ElementMatcher<ClassLoader> activation;
 
     if (instrumenter instanceof Instrumenter.ForBootstrap) {
@@ -281,7 +290,9 @@ public class AgentTransformerBuilder
   }
 
   /** Applies context store injection guarded by the associated class-loader matchers. */
-  private void applyContextStoreInjection() {
+  static AgentBuilder applyContextStoreInjection(
+      AgentBuilder agentBuilder,
+      Map<Map.Entry<String, String>, ElementMatcher<ClassLoader>> contextStoreInjection) {
     for (Map.Entry<Map.Entry<String, String>, ElementMatcher<ClassLoader>> injection :
         contextStoreInjection.entrySet()) {
       String keyClassName = injection.getKey().getKey();
@@ -294,5 +305,6 @@ public class AgentTransformerBuilder
               .transform(
                   wrapVisitor(new FieldBackedContextInjector(keyClassName, contextClassName)));
     }
+    return agentBuilder;
   }
 }
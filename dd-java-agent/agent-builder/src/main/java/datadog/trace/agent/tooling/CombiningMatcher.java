@@ -0,0 +1,183 @@
+package datadog.trace.agent.tooling;
+
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.NOT_DECORATOR_MATCHER;
+
+import datadog.trace.agent.tooling.bytebuddy.matcher.KnownTypesMatcher;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.utility.JavaModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches a type against all instrumentations at once. Instrumentations that only match known
+ * types are looked up by type name, the rest are asked in turn. The instrumentations that matched
+ * are recorded for the {@link CombiningTransformer} which is called next for the same type.
+ */
+final class CombiningMatcher implements AgentBuilder.RawMatcher {
+  private static final Logger log = LoggerFactory.getLogger(CombiningMatcher.class);
+
+  private static final int DECORATOR_UNKNOWN = 0;
+  private static final int IS_DECORATOR = 1;
+  private static final int NOT_DECORATOR = 2;
+
+  private final KnownTypesIndex knownTypesIndex = new KnownTypesIndex();
+  private final List<AgentBuilder.RawMatcher> pendingTypeMatchers = new ArrayList<>();
+  private final List<MuzzleMatcher> pendingMuzzleMatchers = new ArrayList<>();
+  private final List<String> pendingDescriptions = new ArrayList<>();
+
+  /** Instrumentations that are not indexed by type name, so must be asked about every type. */
+  private final BitSet unindexed = new BitSet();
+
+  private AgentBuilder.RawMatcher[] typeMatchers;
+  private MuzzleMatcher[] muzzleMatchers;
+  private String[] descriptions;
+
+  private final ThreadLocal<RecordedMatches> recordedMatches =
+      new ThreadLocal<RecordedMatches>() {
+        @Override
+        protected RecordedMatches initialValue() {
+          return new RecordedMatches();
+        }
+      };
+
+  /**
+   * Adds an instrumentation, which is matched if its type matcher and muzzle matcher both match.
+   *
+   * @param knownTypes names of the types it matches, or {@code null} if it has to be asked about
+   *     every type; when given, its type matcher only has to check what the names don't cover
+   * @param typeMatcher the type matcher, {@code null} if the known types are enough
+   * @param muzzleMatcher the muzzle matcher, {@code null} if muzzle checks don't apply
+   * @param description logged along with any exception thrown while matching
+   * @return the index of the instrumentation, which is recorded when it matches
+   */
+  int add(
+      String[] knownTypes,
+      AgentBuilder.RawMatcher typeMatcher,
+      MuzzleMatcher muzzleMatcher,
+      String description) {
+    int matcherIndex = pendingTypeMatchers.size();
+    pendingTypeMatchers.add(typeMatcher);
+    pendingMuzzleMatchers.add(muzzleMatcher);
+    pendingDescriptions.add(description);
+    if (null == knownTypes) {
+      unindexed.set(matcherIndex);
+    } else if (!knownTypesIndex.add(matcherIndex, knownTypes)) {
+      // index is full, fall back to checking the names for every type
+      AgentBuilder.RawMatcher namesMatcher = new KnownTypesMatcher(knownTypes);
+      pendingTypeMatchers.set(
+          matcherIndex,
+          null == typeMatcher
+              ? namesMatcher
+              : new AgentBuilder.RawMatcher.Conjunction(namesMatcher, typeMatcher));
+      unindexed.set(matcherIndex);
+    }
+    return matcherIndex;
+  }
+
+  /** Prepares for matching, must be called once all instrumentations have been added. */
+  void build() {
+    knownTypesIndex.build();
+    typeMatchers = pendingTypeMatchers.toArray(new AgentBuilder.RawMatcher[0]);
+    muzzleMatchers = pendingMuzzleMatchers.toArray(new MuzzleMatcher[0]);
+    descriptions = pendingDescriptions.toArray(new String[0]);
+  }
+
+  @Override
+  public boolean matches(
+      TypeDescription typeDescription,
+      ClassLoader classLoader,
+      JavaModule module,
+      Class<?> classBeingRedefined,
+      ProtectionDomain protectionDomain) {
+
+    RecordedMatches recorded = recordedMatches.get();
+    recorded.typeName = typeDescription.getName();
+    recorded.decorator = DECORATOR_UNKNOWN;
+    BitSet matches = recorded.matches;
+    matches.clear();
+
+    for (int matcherIndex : knownTypesIndex.lookup(recorded.typeName)) {
+      if (matches(
+          matcherIndex,
+          recorded,
+          typeDescription,
+          classLoader,
+          module,
+          classBeingRedefined,
+          protectionDomain)) {
+        matches.set(matcherIndex);
+      }
+    }
+
+    for (int matcherIndex = unindexed.nextSetBit(0);
+        matcherIndex >= 0;
+        matcherIndex = unindexed.nextSetBit(matcherIndex + 1)) {
+      if (matches(
+          matcherIndex,
+          recorded,
+          typeDescription,
+          classLoader,
+          module,
+          classBeingRedefined,
+          protectionDomain)) {
+        matches.set(matcherIndex);
+      }
+    }
+
+    return !matches.isEmpty();
+  }
+
+  private boolean matches(
+      int matcherIndex,
+      RecordedMatches recorded,
+      TypeDescription typeDescription,
+      ClassLoader classLoader,
+      JavaModule module,
+      Class<?> classBeingRedefined,
+      ProtectionDomain protectionDomain) {
+    try {
+      AgentBuilder.RawMatcher typeMatcher = typeMatchers[matcherIndex];
+      if (null != typeMatcher
+          && !typeMatcher.matches(
+              typeDescription, classLoader, module, classBeingRedefined, protectionDomain)) {
+        return false;
+      }
+      // only checked once an instrumentation matched the type, as it's relatively expensive
+      if (recorded.decorator == DECORATOR_UNKNOWN) {
+        recorded.decorator =
+            NOT_DECORATOR_MATCHER.matches(typeDescription) ? NOT_DECORATOR : IS_DECORATOR;
+      }
+      if (recorded.decorator == IS_DECORATOR) {
+        return false;
+      }
+      MuzzleMatcher muzzleMatcher = muzzleMatchers[matcherIndex];
+      return null == muzzleMatcher
+          || muzzleMatcher.matches(
+              typeDescription, classLoader, module, classBeingRedefined, protectionDomain);
+    } catch (Exception e) {
+      // don't let one instrumentation stop the others from matching
+      log.debug(descriptions[matcherIndex], e);
+      return false;
+    }
+  }
+
+  /**
+   * @return the instrumentations that matched the type in the last call to {@link #matches} on
+   *     this thread, or {@code null} if that call was about a different type
+   */
+  BitSet recordedMatches(TypeDescription typeDescription) {
+    RecordedMatches recorded = recordedMatches.get();
+    return typeDescription.getName().equals(recorded.typeName) ? recorded.matches : null;
+  }
+
+  static final class RecordedMatches {
+    String typeName;
+    int decorator;
+    final BitSet matches = new BitSet();
+  }
+}
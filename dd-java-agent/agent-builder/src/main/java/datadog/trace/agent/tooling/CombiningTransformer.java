@@ -0,0 +1,46 @@
+package datadog.trace.agent.tooling;
+
+import static datadog.trace.agent.tooling.bytebuddy.DDTransformers.defaultTransformers;
+
+import java.security.ProtectionDomain;
+import java.util.BitSet;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.utility.JavaModule;
+
+/** Applies the transformers of the instrumentations recorded by the {@link CombiningMatcher}. */
+final class CombiningTransformer implements AgentBuilder.Transformer {
+  private final CombiningMatcher matcher;
+  private final AgentBuilder.Transformer[][] transformers;
+
+  CombiningTransformer(CombiningMatcher matcher, AgentBuilder.Transformer[][] transformers) {
+    this.matcher = matcher;
+    this.transformers = transformers;
+  }
+
+  @Override
+  public DynamicType.Builder<?> transform(
+      DynamicType.Builder<?> builder,
+      TypeDescription typeDescription,
+      ClassLoader classLoader,
+      JavaModule module,
+      ProtectionDomain pd) {
+    BitSet recordedMatches = matcher.recordedMatches(typeDescription);
+    if (null == recordedMatches) {
+      return builder;
+    }
+    // copy in case transforming this type leads to matching another one on this thread
+    BitSet matches = (BitSet) recordedMatches.clone();
+
+    builder = defaultTransformers().transform(builder, typeDescription, classLoader, module, pd);
+    for (int matcherIndex = matches.nextSetBit(0);
+        matcherIndex >= 0;
+        matcherIndex = matches.nextSetBit(matcherIndex + 1)) {
+      for (AgentBuilder.Transformer transformer : transformers[matcherIndex]) {
+        builder = transformer.transform(builder, typeDescription, classLoader, module, pd);
+      }
+    }
+    return builder;
+  }
+}
@@ -0,0 +1,201 @@
+package datadog.trace.agent.tooling;
+
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.applyContextStoreInjection;
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.matcherExceptionDescription;
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.registerContextStoreInjection;
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.typeMatcher;
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.wrapTransformer;
+import static datadog.trace.agent.tooling.AgentTransformerBuilder.wrapVisitor;
+import static datadog.trace.agent.tooling.bytebuddy.matcher.ClassLoaderMatchers.ANY_CLASS_LOADER;
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.isSynthetic;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+
+import datadog.trace.agent.tooling.bytebuddy.ExceptionHandlers;
+import datadog.trace.agent.tooling.bytebuddy.matcher.FailSafeRawMatcher;
+import datadog.trace.agent.tooling.bytebuddy.matcher.MuzzleMatcher;
+import datadog.trace.agent.tooling.context.FieldBackedContextRequestRewriter;
+import datadog.trace.api.Config;
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Registers all instrumentations as a single type transformation, instead of one per
+ * instrumentation. Instrumentations that only match known types are indexed by type name, so
+ * matching a type no longer means asking every instrumentation about it in turn.
+ */
+public class CombiningTransformerBuilder
+    implements InstallableTransformerBuilder, Instrumenter.AdviceTransformation {
+
+  /** Associates context stores with the class-loader matchers to activate them. */
+  private final Map<Map.Entry<String, String>, ElementMatcher<ClassLoader>> contextStoreInjection =
+      new HashMap<>();
+
+  private final CombiningMatcher combiningMatcher = new CombiningMatcher();
+  private final List<AgentBuilder.Transformer[]> transformers = new ArrayList<>();
+
+  private final AgentBuilder agentBuilder;
+  private ElementMatcher<? super MethodDescription> ignoreMatcher;
+  private List<AgentBuilder.Transformer> adviceTransformers;
+
+  CombiningTransformerBuilder(AgentBuilder agentBuilder) {
+    this.agentBuilder = agentBuilder;
+  }
+
+  @Override
+  public void applyInstrumentation(Instrumenter.HasAdvice instrumenter) {
+    if (instrumenter instanceof Instrumenter.Default) {
+      buildInstrumentation((Instrumenter.Default) instrumenter);
+    } else if (instrumenter instanceof Instrumenter.ForSingleType) {
+      buildSingleAdvice(instrumenter); // for testing purposes
+    } else {
+      throw new IllegalArgumentException("Unexpected Instrumenter type");
+    }
+  }
+
+  @Override
+  public ResettableClassFileTransformer installOn(Instrumentation instrumentation) {
+    combiningMatcher.build();
+
+    AgentBuilder agentBuilder =
+        this.agentBuilder
+            .type(combiningMatcher)
+            .transform(
+                new CombiningTransformer(
+                    combiningMatcher, transformers.toArray(new AgentBuilder.Transformer[0][])));
+
+    if (Config.get().isRuntimeContextFieldInjection()) {
+      agentBuilder = applyContextStoreInjection(agentBuilder, contextStoreInjection);
+    }
+
+    return agentBuilder.installOn(instrumentation);
+  }
+
+  private void buildInstrumentation(Instrumenter.Default instrumenter) {
+    InstrumenterState.registerInstrumentationNames(
+        instrumenter.instrumentationId(), instrumenter.names());
+
+    ignoreMatcher = instrumenter.methodIgnoreMatcher();
+    adviceTransformers = new ArrayList<>();
+
+    String[] helperClassNames = instrumenter.helperClassNames();
+    if (helperClassNames.length > 0) {
+      adviceTransformers.add(
+          new AgentTransformerBuilder.HelperTransformer(
+              instrumenter.getClass().getSimpleName(), helperClassNames));
+    }
+
+    Map<String, String> contextStore = instrumenter.contextStore();
+    if (!contextStore.isEmpty()) {
+      // rewrite context store access to call FieldBackedContextStores with assigned store-id
+      adviceTransformers.add(
+          wrapVisitor(new FieldBackedContextRequestRewriter(contextStore, instrumenter.name())));
+
+      registerContextStoreInjection(contextStoreInjection, contextStore, instrumenter);
+    }
+
+    Instrumenter.AdviceTransformer customTransformer = instrumenter.transformer();
+    if (customTransformer != null) {
+      adviceTransformers.add(wrapTransformer(customTransformer));
+    }
+
+    instrumenter.adviceTransformations(this);
+
+    String[] knownTypes = knownTypes(instrumenter);
+    if (null != knownTypes) {
+      combiningMatcher.add(
+          knownTypes,
+          residualTypeMatcher(instrumenter),
+          new MuzzleMatcher(instrumenter),
+          matcherExceptionDescription(instrumenter));
+    } else {
+      combiningMatcher.add(
+          null,
+          typeMatcher(instrumenter),
+          new MuzzleMatcher(instrumenter),
+          matcherExceptionDescription(instrumenter));
+    }
+    transformers.add(adviceTransformers.toArray(new AgentBuilder.Transformer[0]));
+  }
+
+  /**
+   * @return names of the types the instrumentation matches, or {@code null} if it doesn't match
+   *     by name alone
+   */
+  static String[] knownTypes(Instrumenter.Default instrumenter) {
+    if (instrumenter instanceof Instrumenter.CanShortcutTypeMatching) {
+      if (!((Instrumenter.CanShortcutTypeMatching) instrumenter).onlyMatchKnownTypes()) {
+        return null; // not taking shortcuts, so needs wider hierarchical matching
+      }
+    } else if (instrumenter instanceof Instrumenter.ForTypeHierarchy) {
+      return null; // whatever names it has, types are also matched by hierarchy
+    }
+
+    List<String> names = new ArrayList<>();
+    if (instrumenter instanceof Instrumenter.ForSingleType) {
+      names.add(((Instrumenter.ForSingleType) instrumenter).instrumentedType());
+    } else if (instrumenter instanceof Instrumenter.ForKnownTypes) {
+      Collections.addAll(names, ((Instrumenter.ForKnownTypes) instrumenter).knownMatchingTypes());
+    } else if (!(instrumenter instanceof Instrumenter.ForConfiguredType)) {
+      return null; // matched by call-site, or not at all
+    }
+
+    if (instrumenter instanceof Instrumenter.ForConfiguredType) {
+      String name = ((Instrumenter.ForConfiguredType) instrumenter).configuredMatchingType();
+      // only add this optional name when it's been configured
+      if (null != name && !name.isEmpty()) {
+        names.add(name);
+      }
+    }
+
+    return names.toArray(new String[0]);
+  }
+
+  /** @return what still needs matching once the type name is known to match, if anything */
+  private static AgentBuilder.RawMatcher residualTypeMatcher(Instrumenter.Default instrumenter) {
+    ElementMatcher<ClassLoader> classLoaderMatcher = instrumenter.classLoaderMatcher();
+
+    if (instrumenter instanceof Instrumenter.WithTypeStructure) {
+      return new FailSafeRawMatcher(
+          ((Instrumenter.WithTypeStructure) instrumenter).structureMatcher(),
+          classLoaderMatcher,
+          matcherExceptionDescription(instrumenter));
+    } else if (ANY_CLASS_LOADER != classLoaderMatcher) {
+      return new FailSafeRawMatcher(
+          any(), classLoaderMatcher, matcherExceptionDescription(instrumenter));
+    } else {
+      return null;
+    }
+  }
+
+  private void buildSingleAdvice(Instrumenter.HasAdvice instrumenter) {
+    ignoreMatcher = isSynthetic();
+    adviceTransformers = new ArrayList<>();
+
+    instrumenter.adviceTransformations(this);
+
+    combiningMatcher.add(
+        new String[] {((Instrumenter.ForSingleType) instrumenter).instrumentedType()},
+        null,
+        null,
+        instrumenter.getClass().getName());
+    transformers.add(adviceTransformers.toArray(new AgentBuilder.Transformer[0]));
+  }
+
+  @Override
+  public void applyAdvice(ElementMatcher<? super MethodDescription> matcher, String name) {
+    adviceTransformers.add(
+        new AgentBuilder.Transformer.ForAdvice()
+            .include(Utils.getBootstrapProxy(), Utils.getAgentClassLoader())
+            .withExceptionHandler(ExceptionHandlers.defaultExceptionHandler())
+            .advice(not(ignoreMatcher).and(matcher), name));
+  }
+}
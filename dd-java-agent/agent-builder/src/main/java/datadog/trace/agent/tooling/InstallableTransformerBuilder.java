@@ -0,0 +1,9 @@
+package datadog.trace.agent.tooling;
+
+import java.lang.instrument.Instrumentation;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+
+/** Collects instrumentations, then installs them on the JVM in one go. */
+interface InstallableTransformerBuilder extends Instrumenter.TransformerBuilder {
+  ResettableClassFileTransformer installOn(Instrumentation instrumentation);
+}
@@ -0,0 +1,72 @@
+package datadog.trace.agent.tooling;
+
+import datadog.trace.util.ClassNameTrie;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexes instrumentations by the names of the types they are known to match, so the candidates
+ * for a type can be found with a single lookup instead of asking each instrumentation in turn.
+ */
+final class KnownTypesIndex {
+  private static final int[] NO_MATCHES = {};
+
+  /** Maximum number of distinct names, limited by the values a {@link ClassNameTrie} can hold. */
+  static final int MAX_NAMES = 0x1FFF;
+
+  private final ClassNameTrie.Builder trieBuilder = new ClassNameTrie.Builder();
+  private final List<int[]> matchesByName = new ArrayList<>();
+
+  private ClassNameTrie trie = ClassNameTrie.Builder.EMPTY_TRIE;
+  private int[][] matches = new int[0][];
+
+  /**
+   * Records that the instrumentation with the given index matches the given type names.
+   *
+   * @return {@code false} if the index is full, in which case nothing was recorded
+   */
+  boolean add(int matcherIndex, String[] names) {
+    int newNames = 0;
+    for (String name : names) {
+      if (indexOf(name) < 0) {
+        newNames++;
+      }
+    }
+    if (matchesByName.size() + newNames > MAX_NAMES) {
+      return false;
+    }
+    for (String name : names) {
+      int nameIndex = indexOf(name);
+      if (nameIndex < 0) {
+        nameIndex = matchesByName.size();
+        trieBuilder.put(name, nameIndex);
+        matchesByName.add(new int[] {matcherIndex});
+      } else {
+        int[] existing = matchesByName.get(nameIndex);
+        if (existing[existing.length - 1] != matcherIndex) {
+          int[] updated = Arrays.copyOf(existing, existing.length + 1);
+          updated[existing.length] = matcherIndex;
+          matchesByName.set(nameIndex, updated);
+        }
+      }
+    }
+    return true;
+  }
+
+  private int indexOf(String name) {
+    return trieBuilder.isEmpty() ? -1 : trieBuilder.apply(name);
+  }
+
+  /** Compacts the index, must be called once all instrumentations have been added. */
+  void build() {
+    trie = trieBuilder.buildTrie();
+    matches = matchesByName.toArray(new int[0][]);
+  }
+
+  /** @return indices of the instrumentations known to match the type, in the order added */
+  int[] lookup(String typeName) {
+    int nameIndex = trie.apply(typeName);
+    return nameIndex >= 0 ? matches[nameIndex] : NO_MATCHES;
+  }
+}
@@ -0,0 +1,171 @@
+package datadog.trace.agent.tooling
+
+import datadog.trace.test.util.DDSpecification
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.matcher.ElementMatcher
+
+import static net.bytebuddy.matcher.ElementMatchers.isSubTypeOf
+
+class CombiningMatcherTest extends DDSpecification {
+
+  def "instrumentations matching by hierarchy are not indexed by name"() {
+    expect:
+    CombiningTransformerBuilder.knownTypes(instrumenter) == knownTypes
+
+    where:
+    instrumenter                                                   | knownTypes
+    new KnownTypesInstrumenter()                                   | ['java.util.ArrayList'] as String[]
+    new ConfiguredTypeInstrumenter('java.util.LinkedList')         | ['java.util.LinkedList'] as String[]
+    new ConfiguredTypeAndHierarchyInstrumenter('java.util.Vector') | null
+    new KnownTypesAndHierarchyInstrumenter()                       | null
+    new ShortcutInstrumenter(true)                                 | ['java.util.ArrayList'] as String[]
+    new ShortcutInstrumenter(false)                                | null
+  }
+
+  def "instrumentation matching by name and hierarchy matches types outside its names"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    def instrumenter = new ConfiguredTypeAndHierarchyInstrumenter('java.util.Vector')
+    def byName = matcher.add(['java.util.ArrayList'] as String[], null, null, 'by name')
+    def byNameAndHierarchy = matcher.add(
+      CombiningTransformerBuilder.knownTypes(instrumenter),
+      AgentTransformerBuilder.typeMatcher(instrumenter),
+      null,
+      'by name and hierarchy')
+    matcher.build()
+
+    when:
+    def matched = matches(matcher, type)
+
+    then:
+    matched == !expected.isEmpty()
+    matcher.recordedMatches(type).stream().toArray() as List == expected.collect {
+      it == 'by name' ? byName : byNameAndHierarchy
+    }
+
+    where:
+    type                                           | expected
+    new TypeDescription.ForLoadedType(ArrayList)   | ['by name']
+    new TypeDescription.ForLoadedType(LinkedList)  | ['by name and hierarchy']
+    new TypeDescription.ForLoadedType(Vector)      | ['by name and hierarchy']
+    new TypeDescription.ForLoadedType(HashMap)     | []
+  }
+
+  def "residual type matcher still applies to instrumentations found by name"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    matcher.add(['java.util.ArrayList', 'java.util.HashMap'] as String[],
+      new AgentBuilder.RawMatcher.ForElementMatchers(isSubTypeOf(List)), null, 'lists only')
+    matcher.build()
+
+    expect:
+    matches(matcher, new TypeDescription.ForLoadedType(ArrayList))
+    !matches(matcher, new TypeDescription.ForLoadedType(HashMap))
+    !matches(matcher, new TypeDescription.ForLoadedType(LinkedList))
+  }
+
+  def "an instrumentation failing to match doesn't stop the others"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    AgentBuilder.RawMatcher failing = Stub(AgentBuilder.RawMatcher) {
+      matches(*_) >> { throw new IllegalStateException("boom") }
+    }
+    matcher.add(null, failing, null, 'failing')
+    def working = matcher.add(['java.util.ArrayList'] as String[], null, null, 'working')
+    matcher.build()
+    def type = new TypeDescription.ForLoadedType(ArrayList)
+
+    expect:
+    matches(matcher, type)
+    matcher.recordedMatches(type).stream().toArray() as List == [working]
+  }
+
+  def "recorded matches are only returned for the type last matched"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    matcher.add(['java.util.ArrayList'] as String[], null, null, 'by name')
+    matcher.build()
+
+    when:
+    matches(matcher, new TypeDescription.ForLoadedType(ArrayList))
+
+    then:
+    matcher.recordedMatches(new TypeDescription.ForLoadedType(ArrayList)) != null
+    matcher.recordedMatches(new TypeDescription.ForLoadedType(LinkedList)) == null
+  }
+
+  static boolean matches(CombiningMatcher matcher, TypeDescription type) {
+    return matcher.matches(type, CombiningMatcherTest.classLoader, null, null, null)
+  }
+
+  static class KnownTypesInstrumenter extends TestInstrumenter implements Instrumenter.ForKnownTypes {
+    @Override
+    String[] knownMatchingTypes() {
+      return ['java.util.ArrayList']
+    }
+  }
+
+  static class ConfiguredTypeInstrumenter extends TestInstrumenter implements Instrumenter.ForConfiguredType {
+    final String configuredType
+
+    ConfiguredTypeInstrumenter(String configuredType) {
+      this.configuredType = configuredType
+    }
+
+    @Override
+    String configuredMatchingType() {
+      return configuredType
+    }
+  }
+
+  static class ConfiguredTypeAndHierarchyInstrumenter extends ConfiguredTypeInstrumenter implements Instrumenter.ForTypeHierarchy {
+    ConfiguredTypeAndHierarchyInstrumenter(String configuredType) {
+      super(configuredType)
+    }
+
+    @Override
+    String hierarchyMarkerType() {
+      return 'java.util.List'
+    }
+
+    @Override
+    ElementMatcher<TypeDescription> hierarchyMatcher() {
+      return isSubTypeOf(AbstractSequentialList)
+    }
+  }
+
+  static class KnownTypesAndHierarchyInstrumenter extends KnownTypesInstrumenter implements Instrumenter.ForTypeHierarchy {
+    @Override
+    String hierarchyMarkerType() {
+      return 'java.util.List'
+    }
+
+    @Override
+    ElementMatcher<TypeDescription> hierarchyMatcher() {
+      return isSubTypeOf(List)
+    }
+  }
+
+  static class ShortcutInstrumenter extends KnownTypesAndHierarchyInstrumenter implements Instrumenter.CanShortcutTypeMatching {
+    final boolean onlyMatchKnownTypes
+
+    ShortcutInstrumenter(boolean onlyMatchKnownTypes) {
+      this.onlyMatchKnownTypes = onlyMatchKnownTypes
+    }
+
+    @Override
+    boolean onlyMatchKnownTypes() {
+      return onlyMatchKnownTypes
+    }
+  }
+
+  static class TestInstrumenter extends Instrumenter.Tracing {
+    TestInstrumenter() {
+      super("combining-test")
+    }
+
+    @Override
+    void adviceTransformations(AdviceTransformation transformation) {}
+  }
+}
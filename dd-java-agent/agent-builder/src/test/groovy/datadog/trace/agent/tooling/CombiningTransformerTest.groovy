@@ -0,0 +1,56 @@
+package datadog.trace.agent.tooling
+
+import datadog.trace.test.util.DDSpecification
+import net.bytebuddy.ByteBuddy
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.dynamic.DynamicType
+
+import static net.bytebuddy.matcher.ElementMatchers.isSubTypeOf
+
+class CombiningTransformerTest extends DDSpecification {
+
+  def "only the transformers of the instrumentations that matched are applied"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    matcher.add(['java.util.ArrayList'] as String[], null, null, 'by name')
+    matcher.add(null, new AgentBuilder.RawMatcher.ForElementMatchers(isSubTypeOf(List)), null, 'by hierarchy')
+    matcher.add(['java.util.HashMap'] as String[], null, null, 'other name')
+    matcher.build()
+    AgentBuilder.Transformer byName = Mock(AgentBuilder.Transformer)
+    AgentBuilder.Transformer byHierarchy = Mock(AgentBuilder.Transformer)
+    AgentBuilder.Transformer otherName = Mock(AgentBuilder.Transformer)
+    def transformer = new CombiningTransformer(matcher,
+      [[byName], [byHierarchy], [otherName]] as AgentBuilder.Transformer[][])
+    def type = new TypeDescription.ForLoadedType(ArrayList)
+    DynamicType.Builder<?> builder = new ByteBuddy().redefine(ArrayList)
+
+    when:
+    matcher.matches(type, CombiningTransformerTest.classLoader, null, null, null)
+    transformer.transform(builder, type, CombiningTransformerTest.classLoader, null, null)
+
+    then:
+    1 * byName.transform(_, type, _, _, _) >> { args -> args[0] }
+    1 * byHierarchy.transform(_, type, _, _, _) >> { args -> args[0] }
+    0 * otherName.transform(*_)
+  }
+
+  def "types that weren't just matched on this thread are left alone"() {
+    setup:
+    def matcher = new CombiningMatcher()
+    matcher.add(['java.util.ArrayList', 'java.util.LinkedList'] as String[], null, null, 'by name')
+    matcher.build()
+    AgentBuilder.Transformer byName = Mock(AgentBuilder.Transformer)
+    def transformer = new CombiningTransformer(matcher, [[byName]] as AgentBuilder.Transformer[][])
+    DynamicType.Builder<?> builder = new ByteBuddy().redefine(LinkedList)
+
+    when:
+    matcher.matches(new TypeDescription.ForLoadedType(ArrayList), CombiningTransformerTest.classLoader, null, null, null)
+    def transformed = transformer.transform(builder, new TypeDescription.ForLoadedType(LinkedList),
+      CombiningTransformerTest.classLoader, null, null)
+
+    then:
+    transformed.is(builder)
+    0 * byName.transform(*_)
+  }
+}
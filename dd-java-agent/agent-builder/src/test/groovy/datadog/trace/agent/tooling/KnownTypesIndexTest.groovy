@@ -0,0 +1,66 @@
+package datadog.trace.agent.tooling
+
+import datadog.trace.test.util.DDSpecification
+
+class KnownTypesIndexTest extends DDSpecification {
+
+  def "instrumentations are found by the names of their known types"() {
+    setup:
+    def index = new KnownTypesIndex()
+    index.add(0, ['com.example.Foo', 'com.example.Bar'] as String[])
+    index.add(1, ['com.example.Foo$Inner'] as String[])
+    index.add(2, ['com.example.Bar', 'com.example.Baz'] as String[])
+    index.build()
+
+    expect:
+    index.lookup(name) as List == matches
+
+    where:
+    name                    | matches
+    'com.example.Foo'       | [0]
+    'com.example.Bar'       | [0, 2]
+    'com.example.Foo$Inner' | [1]
+    'com.example.Baz'       | [2]
+    'com.example.Fo'        | []
+    'com.example.FooBar'    | []
+    'com.example'           | []
+    'org.example.Foo'       | []
+  }
+
+  def "names repeated by an instrumentation are only recorded once"() {
+    setup:
+    def index = new KnownTypesIndex()
+    index.add(0, ['com.example.Foo', 'com.example.Foo'] as String[])
+    index.build()
+
+    expect:
+    index.lookup('com.example.Foo') as List == [0]
+  }
+
+  def "empty index matches nothing"() {
+    setup:
+    def index = new KnownTypesIndex()
+    index.build()
+
+    expect:
+    index.lookup('com.example.Foo') as List == []
+  }
+
+  def "instrumentations are not added once the index is full"() {
+    setup:
+    def index = new KnownTypesIndex()
+    def names = (0..<KnownTypesIndex.MAX_NAMES).collect { "com.example.Type$it" as String }
+
+    expect:
+    index.add(0, names as String[])
+    !index.add(1, ['com.example.Other'] as String[])
+    index.add(1, ['com.example.Type0'] as String[])
+
+    when:
+    index.build()
+
+    then:
+    index.lookup('com.example.Type0') as List == [0, 1]
+    index.lookup('com.example.Other') as List == []
+  }
+}
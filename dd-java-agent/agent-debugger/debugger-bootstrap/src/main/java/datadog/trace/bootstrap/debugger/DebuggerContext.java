@@ -45,7 +45,7 @@ public class DebuggerContext {
   public interface SnapshotSerializer {
     String serializeSnapshot(String serviceName, Snapshot snapshot);
 
-    String serializeValue(Snapshot.CapturedValue value);
+    String serializeValue(Snapshot.CapturedValue value, TimeoutChecker timeoutChecker);
   }
 
   private static volatile Sink sink;
@@ -162,11 +162,20 @@ public class DebuggerContext {
 
   /** Serializes the specified value as string Returns null if no implementation is available */
   public static String serializeValue(Snapshot.CapturedValue value) {
+    return serializeValue(value, TimeoutChecker.NONE);
+  }
+
+  /**
+   * Serializes the specified value as string, as far as it gets before the timeout. Returns null if
+   * no implementation is available
+   */
+  public static String serializeValue(
+      Snapshot.CapturedValue value, TimeoutChecker timeoutChecker) {
     SnapshotSerializer serializer = snapshotSerializer;
     if (serializer == null) {
       LOGGER.warn("Cannot serialize value, no serializer set");
       return null;
     }
-    return serializer.serializeValue(value);
+    return serializer.serializeValue(value, timeoutChecker);
   }
 }
@@ -11,7 +11,7 @@ import org.slf4j.LoggerFactory;
 public class FieldExtractor {
   private static final Logger LOG = LoggerFactory.getLogger(FieldExtractor.class);
 
-  private static boolean filterIn(Field field) {
+  static boolean filterIn(Field field) {
     // Jacoco insert a transient field
     if ("$jacocoData".equals(field.getName()) && Modifier.isTransient(field.getModifiers())) {
       return false;
@@ -0,0 +1,217 @@
+package datadog.trace.bootstrap.debugger;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, shallow copy of a captured value which can still change, taken in instrumented code.
+ * Only what the value holds directly is copied, as far as the {@link Limits} let it be serialized:
+ * its first fields, or the first elements of an array, collection or map. The objects these refer
+ * to are walked and serialized later, outside of instrumented code.
+ */
+public final class ShallowCopy {
+  public enum Kind {
+    FIELDS,
+    ELEMENTS,
+    ENTRIES
+  }
+
+  private static final Field[] NO_FIELDS = new Field[0];
+  private static final Object[] NO_VALUES = new Object[0];
+
+  // the fields serialized for each class, made accessible once, or the reason they can't be read
+  private static final ClassValue<Object[]> SERIALIZED_FIELDS =
+      new ClassValue<Object[]>() {
+        @Override
+        protected Object[] computeValue(Class<?> type) {
+          List<Object> fields = new ArrayList<>();
+          for (Field field : type.getDeclaredFields()) {
+            if (!FieldExtractor.filterIn(field)) {
+              continue;
+            }
+            try {
+              field.setAccessible(true);
+              fields.add(field);
+            } catch (Exception e) {
+              fields.add(new FieldFailure(field, e));
+            }
+          }
+          return fields.toArray();
+        }
+      };
+
+  private final Kind kind;
+  private final int size;
+  private final Object elements;
+  private final Field[] fields;
+  private final Exception[] fieldFailures;
+  private final boolean fieldCountReached;
+
+  private ShallowCopy(
+      Kind kind,
+      int size,
+      Object elements,
+      Field[] fields,
+      Exception[] fieldFailures,
+      boolean fieldCountReached) {
+    this.kind = kind;
+    this.size = size;
+    this.elements = elements;
+    this.fields = fields;
+    this.fieldFailures = fieldFailures;
+    this.fieldCountReached = fieldCountReached;
+  }
+
+  /**
+   * Copies what the value holds directly.
+   *
+   * @return the copy, or null if only the type of the value would be serialized
+   */
+  public static ShallowCopy of(Object value, Limits limits) {
+    if (limits.maxReferenceDepth <= 0) {
+      return null;
+    }
+    if (value.getClass().isArray()) {
+      return copyArray(value, limits.maxCollectionSize);
+    } else if (value instanceof Collection) {
+      return copyCollection((Collection<?>) value, limits.maxCollectionSize);
+    } else if (value instanceof Map) {
+      return copyMap((Map<?, ?>) value, limits.maxCollectionSize);
+    }
+    return copyFields(value, limits.maxFieldCount);
+  }
+
+  private static ShallowCopy copyArray(Object array, int maxSize) {
+    int length = Array.getLength(array);
+    int count = Math.min(length, maxSize);
+    Object copy = Array.newInstance(array.getClass().getComponentType(), count);
+    System.arraycopy(array, 0, copy, 0, count);
+    return new ShallowCopy(Kind.ELEMENTS, length, copy, null, null, false);
+  }
+
+  private static ShallowCopy copyCollection(Collection<?> collection, int maxSize) {
+    // /!\ here we assume that Collection#Size is O(1) /!\
+    int size = collection.size();
+    Object[] copy = new Object[Math.min(size, maxSize)];
+    int i = 0;
+    Iterator<?> it = collection.iterator();
+    while (i < copy.length && it.hasNext()) {
+      copy[i++] = it.next();
+    }
+    return new ShallowCopy(
+        Kind.ELEMENTS, size, i == copy.length ? copy : Arrays.copyOf(copy, i), null, null, false);
+  }
+
+  private static ShallowCopy copyMap(Map<?, ?> map, int maxSize) {
+    int size = map.size();
+    // keys and values interleaved
+    Object[] copy = new Object[Math.min(size, maxSize) * 2];
+    int i = 0;
+    Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+    while (i < copy.length && it.hasNext()) {
+      Map.Entry<?, ?> entry = it.next();
+      copy[i++] = entry.getKey();
+      copy[i++] = entry.getValue();
+    }
+    return new ShallowCopy(
+        Kind.ENTRIES, size, i == copy.length ? copy : Arrays.copyOf(copy, i), null, null, false);
+  }
+
+  /** Copies the fields {@link FieldExtractor} would extract, in the same order. */
+  private static ShallowCopy copyFields(Object obj, int maxFieldCount) {
+    Object[] serializedFields = SERIALIZED_FIELDS.get(obj.getClass());
+    if (serializedFields.length == 0) {
+      return new ShallowCopy(Kind.FIELDS, 0, NO_VALUES, NO_FIELDS, null, false);
+    }
+    Field[] fields = new Field[serializedFields.length];
+    Object[] values = new Object[serializedFields.length];
+    Exception[] failures = null;
+    int count = 0;
+    int processedFieldCount = 0;
+    boolean fieldCountReached = false;
+    for (Object serializedField : serializedFields) {
+      if (serializedField instanceof FieldFailure) {
+        FieldFailure failure = (FieldFailure) serializedField;
+        fields[count] = failure.field;
+        failures = addFailure(failures, serializedFields.length, count++, failure.exception);
+        continue;
+      }
+      Field field = (Field) serializedField;
+      fields[count] = field;
+      try {
+        values[count] = field.get(obj);
+      } catch (Exception e) {
+        failures = addFailure(failures, serializedFields.length, count++, e);
+        continue;
+      }
+      count++;
+      if (++processedFieldCount >= maxFieldCount) {
+        fieldCountReached = true;
+        break;
+      }
+    }
+    if (count < fields.length) {
+      fields = Arrays.copyOf(fields, count);
+      values = Arrays.copyOf(values, count);
+    }
+    return new ShallowCopy(Kind.FIELDS, count, values, fields, failures, fieldCountReached);
+  }
+
+  private static Exception[] addFailure(
+      Exception[] failures, int length, int index, Exception failure) {
+    if (failures == null) {
+      failures = new Exception[length];
+    }
+    failures[index] = failure;
+    return failures;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /** @return the number of elements or entries of the copied value, or the number of fields */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return for {@link Kind#ELEMENTS} the copied elements, as an array of the copied array's
+   *     component type or an Object array; for {@link Kind#ENTRIES} an Object array of keys and
+   *     values interleaved; for {@link Kind#FIELDS} an Object array of the field values
+   */
+  public Object getElements() {
+    return elements;
+  }
+
+  /** @return the copied fields, for {@link Kind#FIELDS} */
+  public Field[] getFields() {
+    return fields;
+  }
+
+  /** @return why the field at this index couldn't be read, or null if it was */
+  public Exception getFieldFailure(int index) {
+    return fieldFailures != null ? fieldFailures[index] : null;
+  }
+
+  /** @return true if the copy stopped at the maximum field count */
+  public boolean isFieldCountReached() {
+    return fieldCountReached;
+  }
+
+  private static final class FieldFailure {
+    final Field field;
+    final Exception exception;
+
+    FieldFailure(Field field, Exception exception) {
+      this.field = field;
+      this.exception = exception;
+    }
+  }
+}
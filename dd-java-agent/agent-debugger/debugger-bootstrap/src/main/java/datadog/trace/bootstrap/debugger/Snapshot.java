@@ -14,7 +14,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -237,7 +236,7 @@ public class Snapshot {
     }
     boolean ret = isCapturing();
     if (ret) {
-      capture.freeze();
+      capture.copyValues();
     }
     return ret;
   }
@@ -475,6 +474,24 @@ public class Snapshot {
       caughtExceptions.add(context);
     }
 
+    /**
+     * 'Freeze' all the captured contexts, until the timeout is reached, see {@link
+     * CapturedContext#freeze(TimeoutChecker)}.
+     */
+    public void freeze(TimeoutChecker timeoutChecker) {
+      if (entry != null) {
+        entry.freeze(timeoutChecker);
+      }
+      if (lines != null) {
+        for (CapturedContext line : lines.values()) {
+          line.freeze(timeoutChecker);
+        }
+      }
+      if (_return != null) {
+        _return.freeze(timeoutChecker);
+      }
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
@@ -510,7 +527,6 @@ public class Snapshot {
    * Stores different kind of data (arguments, locals, fields, exception) for a specific location
    */
   public static class CapturedContext implements ValueReferenceResolver {
-    private static final Pattern DOT_PATTERN = Pattern.compile("\\.");
     private final transient Map<String, Object> extensions = new HashMap<>();
 
     private Map<String, CapturedValue> arguments;
@@ -547,18 +563,17 @@ public class Snapshot {
     public Object resolve(String path) {
       // 'path' is a string which starts with a prefixed head element and can contain
       // a number of period separated tail elements denoting access to fields (of fields)
-      String prefix = path.substring(0, 1);
-      String[] parts = DOT_PATTERN.split(path.substring(1));
+      String[] parts = splitPath(path);
 
       String head = parts[0];
       Object target = Values.UNDEFINED_OBJECT;
-      if (prefix.equals(ValueReferences.FIELD_PREFIX)) {
+      if (path.startsWith(ValueReferences.FIELD_PREFIX)) {
         target = tryRetrieveField(head);
-      } else if (prefix.equals(ValueReferences.SYNTHETIC_PREFIX)) {
+      } else if (path.startsWith(ValueReferences.SYNTHETIC_PREFIX)) {
         target = tryRetrieveSynthetic(head);
-      } else if (prefix.equals(ValueReferences.LOCALVAR_PREFIX)) {
+      } else if (path.startsWith(ValueReferences.LOCALVAR_PREFIX)) {
         target = tryRetrieveLocalVar(head);
-      } else if (prefix.equals(ValueReferences.ARGUMENT_PREFIX)) {
+      } else if (path.startsWith(ValueReferences.ARGUMENT_PREFIX)) {
         target = tryRetrieveArgument(head);
       }
       target = followReferences(target, parts);
@@ -566,6 +581,32 @@ public class Snapshot {
       return target instanceof CapturedValue ? ((CapturedValue) target).getValue() : target;
     }
 
+    /**
+     * Splits the path after its prefix into its period separated elements, dropping trailing empty
+     * ones like a regex split does, but without the regex engine or copying the path first.
+     */
+    private static String[] splitPath(String path) {
+      int length = path.length();
+      while (length > 1 && path.charAt(length - 1) == '.') {
+        length--;
+      }
+      int count = 1;
+      for (int i = 1; i < length; i++) {
+        if (path.charAt(i) == '.') {
+          count++;
+        }
+      }
+      String[] parts = new String[count];
+      int start = 1;
+      for (int i = 0; i < count - 1; i++) {
+        int end = path.indexOf('.', start);
+        parts[i] = path.substring(start, end);
+        start = end + 1;
+      }
+      parts[count - 1] = path.substring(start, length);
+      return parts;
+    }
+
     private Object tryRetrieveField(String name) {
       if (fields == null) {
         return Values.UNDEFINED_OBJECT;
@@ -727,14 +768,44 @@ public class Snapshot {
      * Java instance representation into the corresponding string value.
      */
     public void freeze() {
-      if (arguments != null) {
-        arguments.values().forEach(CapturedValue::freeze);
+      freeze(TimeoutChecker.NONE);
+    }
+
+    /**
+     * 'Freeze' the context until the timeout is reached. Whatever is left to serialize then is
+     * reported as not captured because of the timeout.
+     */
+    public void freeze(TimeoutChecker timeoutChecker) {
+      freeze(arguments, timeoutChecker);
+      freeze(locals, timeoutChecker);
+      freeze(fields, timeoutChecker);
+    }
+
+    /**
+     * Copies the contained arguments, locals and fields from instrumented code, so they can be
+     * frozen later on the sink thread. See {@link CapturedValue#copyValue()}.
+     */
+    public void copyValues() {
+      copyValues(arguments);
+      copyValues(locals);
+      copyValues(fields);
+    }
+
+    private static void copyValues(Map<String, CapturedValue> values) {
+      if (values == null) {
+        return;
+      }
+      for (CapturedValue value : values.values()) {
+        value.copyValue();
       }
-      if (locals != null) {
-        locals.values().forEach(CapturedValue::freeze);
+    }
+
+    private static void freeze(Map<String, CapturedValue> values, TimeoutChecker timeoutChecker) {
+      if (values == null) {
+        return;
       }
-      if (fields != null) {
-        fields.values().forEach(CapturedValue::freeze);
+      for (CapturedValue value : values.values()) {
+        value.freeze(timeoutChecker);
       }
     }
 
@@ -772,6 +843,7 @@ public class Snapshot {
   /** Stores a captured value */
   public static class CapturedValue {
     public static final CapturedValue UNDEFINED = CapturedValue.of(null, Values.UNDEFINED_OBJECT);
+    public static final String TIMEOUT_REASON = "timeout";
 
     private String name;
     private final String type;
@@ -779,7 +851,7 @@ public class Snapshot {
     private String strValue;
     private final Map<String, CapturedValue> fields;
     private final Limits limits;
-    private final String notCapturedReason;
+    private String notCapturedReason;
 
     private CapturedValue(
         String name,
@@ -813,6 +885,10 @@ public class Snapshot {
     }
 
     public String getStrValue() {
+      if (strValue == null) {
+        // not frozen yet, serialized on demand from what was captured
+        strValue = DebuggerContext.serializeValue(this);
+      }
       return strValue;
     }
 
@@ -888,17 +964,57 @@ public class Snapshot {
     }
 
     public void freeze() {
+      freeze(TimeoutChecker.NONE);
+    }
+
+    public void freeze(TimeoutChecker timeoutChecker) {
       if (this.strValue != null) {
         // already frozen
         return;
       }
-      this.strValue = DebuggerContext.serializeValue(this);
+      this.strValue = DebuggerContext.serializeValue(this, timeoutChecker);
       if (this.strValue != null) {
         // if serialization has happened, release the value object
         this.value = null;
       }
     }
 
+    /**
+     * Copies the value from instrumented code, without walking the objects it refers to. Values
+     * which cannot change are kept as they are, the others are replaced by a {@link ShallowCopy}.
+     */
+    public void copyValue() {
+      if (strValue != null || isImmutable(value) || value instanceof ShallowCopy) {
+        return;
+      }
+      try {
+        ShallowCopy copy = ShallowCopy.of(value, limits);
+        if (copy != null) {
+          this.value = copy;
+        }
+      } catch (RuntimeException e) {
+        // e.g. a collection modified by another thread while being copied
+        this.value = null;
+        this.notCapturedReason = e.toString();
+      }
+    }
+
+    private static boolean isImmutable(Object value) {
+      if (value == null) {
+        return true;
+      }
+      Class<?> clazz = value.getClass();
+      return clazz == String.class
+          || clazz == Integer.class
+          || clazz == Long.class
+          || clazz == Boolean.class
+          || clazz == Double.class
+          || clazz == Character.class
+          || clazz == Float.class
+          || clazz == Short.class
+          || clazz == Byte.class;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
@@ -0,0 +1,33 @@
+package datadog.trace.bootstrap.debugger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks whether the time given to serialize captured values has run out. Measures elapsed time
+ * since it was created, subclasses can measure differently, e.g. the CPU time left to a probe.
+ */
+public class TimeoutChecker {
+  /** Never times out */
+  public static final TimeoutChecker NONE = new TimeoutChecker(Long.MAX_VALUE);
+
+  private final long start;
+  private final long timeoutNanos;
+
+  public TimeoutChecker(long timeout, TimeUnit unit) {
+    this(unit.toNanos(timeout));
+  }
+
+  /** For subclasses which don't measure elapsed time */
+  protected TimeoutChecker() {
+    this(Long.MAX_VALUE);
+  }
+
+  private TimeoutChecker(long timeoutNanos) {
+    this.start = System.nanoTime();
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  public boolean isTimedOut() {
+    return System.nanoTime() - start > timeoutNanos;
+  }
+}
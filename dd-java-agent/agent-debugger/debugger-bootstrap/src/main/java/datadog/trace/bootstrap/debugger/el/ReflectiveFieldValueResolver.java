@@ -2,11 +2,26 @@ package datadog.trace.bootstrap.debugger.el;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
 
-/** A helper class to resolve a reference path using reflection. */
+/**
+ * A helper class to resolve a reference path using reflection. Fields are looked up once per class
+ * and name, so conditions evaluated on every execution of a probe don't walk the hierarchy again.
+ */
 public final class ReflectiveFieldValueResolver {
+  // marks names which aren't fields of the class, or can't be made accessible
+  private static final Object NO_FIELD = new Object();
+
+  private static final ClassValue<ConcurrentHashMap<String, Object>> FIELDS =
+      new ClassValue<ConcurrentHashMap<String, Object>>() {
+        @Override
+        protected ConcurrentHashMap<String, Object> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
   public static Object resolve(Object target, Class<?> targetType, String fldName) {
-    Field fld = getField(targetType, fldName);
+    Field fld = getCachedField(targetType, fldName);
     if (fld == null) {
       return Values.UNDEFINED_OBJECT;
     }
@@ -17,6 +32,17 @@ public final class ReflectiveFieldValueResolver {
     }
   }
 
+  private static Field getCachedField(Class<?> container, String name) {
+    ConcurrentHashMap<String, Object> fields = FIELDS.get(container);
+    Object fld = fields.get(name);
+    if (fld == null) {
+      Field found = getField(container, name);
+      fld = found != null ? found : NO_FIELD;
+      fields.putIfAbsent(name, fld);
+    }
+    return fld != NO_FIELD ? (Field) fld : null;
+  }
+
   private static Field getField(Class<?> container, String name) {
     while (container != null) {
       try {
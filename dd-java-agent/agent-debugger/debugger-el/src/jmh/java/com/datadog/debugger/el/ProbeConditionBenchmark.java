@@ -0,0 +1,105 @@
+package com.datadog.debugger.el;
+
+import static com.datadog.debugger.el.DSL.and;
+import static com.datadog.debugger.el.DSL.ge;
+import static com.datadog.debugger.el.DSL.gt;
+import static com.datadog.debugger.el.DSL.lt;
+import static com.datadog.debugger.el.DSL.ref;
+import static com.datadog.debugger.el.DSL.value;
+import static com.datadog.debugger.el.DSL.when;
+
+import com.datadog.debugger.el.expressions.WhenExpression;
+import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.el.DebuggerScript;
+import datadog.trace.bootstrap.debugger.el.ValueReferenceResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Evaluates probe conditions against a captured context, walking the expression tree as the
+ * interpreter does and running the MethodHandle chain {@link ConditionCompiler} generates for the
+ * same tree, as {@link ProbeCondition} does.
+ */
+@State(Scope.Benchmark)
+public class ProbeConditionBenchmark {
+
+  @Param({"numeric", "double", "field", "and"})
+  String condition;
+
+  private ValueReferenceResolver context;
+
+  private DebuggerScript interpreted;
+
+  private DebuggerScript compiled;
+
+  @Setup(Level.Trial)
+  public void init() {
+    context =
+        new Snapshot.CapturedContext(
+            new Snapshot.CapturedValue[] {
+              Snapshot.CapturedValue.of("count", "int", 42),
+              Snapshot.CapturedValue.of("ratio", "double", 0.25d)
+            },
+            null,
+            null,
+            null,
+            new Snapshot.CapturedValue[] {
+              Snapshot.CapturedValue.of("request", Request.class.getName(), new Request(200))
+            });
+    WhenExpression expression;
+    String dsl;
+    switch (condition) {
+      case "numeric":
+        expression = when(gt(ref("^count"), value(10)));
+        dsl = "^count > 10";
+        break;
+      case "double":
+        expression = when(lt(ref("^ratio"), value(0.5d)));
+        dsl = "^ratio < 0.5";
+        break;
+      case "field":
+        expression = when(ge(ref(".request.status"), value(200)));
+        dsl = ".request.status >= 200";
+        break;
+      default:
+        expression =
+            when(
+                and(
+                    gt(ref("^count"), value(10)),
+                    lt(ref("^ratio"), value(0.5d)),
+                    ge(ref(".request.status"), value(200))));
+        dsl = "^count > 10 && ^ratio < 0.5 && .request.status >= 200";
+        break;
+    }
+    interpreted = resolver -> expression.evaluate(resolver).test();
+    if (ConditionCompiler.compile(expression) == null) {
+      throw new IllegalStateException(condition + " should compile");
+    }
+    compiled = new ProbeCondition(expression, dsl);
+    if (!interpreted.execute(context) || !compiled.execute(context)) {
+      throw new IllegalStateException(condition + " should hold for the captured context");
+    }
+  }
+
+  @Benchmark
+  public boolean interpreted() {
+    return interpreted.execute(context);
+  }
+
+  @Benchmark
+  public boolean compiled() {
+    return compiled.execute(context);
+  }
+
+  static final class Request {
+    private final int status;
+
+    Request(int status) {
+      this.status = status;
+    }
+  }
+}
@@ -0,0 +1,487 @@
+package com.datadog.debugger.el;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import com.datadog.debugger.el.expressions.BinaryExpression;
+import com.datadog.debugger.el.expressions.ComparisonExpression;
+import com.datadog.debugger.el.expressions.NotExpression;
+import com.datadog.debugger.el.expressions.PredicateExpression;
+import com.datadog.debugger.el.expressions.ValueExpression;
+import com.datadog.debugger.el.expressions.ValueRefExpression;
+import com.datadog.debugger.el.expressions.WhenExpression;
+import com.datadog.debugger.el.predicates.AndPredicate;
+import com.datadog.debugger.el.predicates.BinaryPredicate;
+import com.datadog.debugger.el.predicates.EqualsPredicate;
+import com.datadog.debugger.el.predicates.GreaterOrEqualPredicate;
+import com.datadog.debugger.el.predicates.GreaterThanPredicate;
+import com.datadog.debugger.el.predicates.LessOrEqualPredicate;
+import com.datadog.debugger.el.predicates.LessThanPredicate;
+import com.datadog.debugger.el.predicates.NumericPredicate;
+import com.datadog.debugger.el.predicates.OrPredicate;
+import com.datadog.debugger.el.predicates.ValuePredicate;
+import com.datadog.debugger.el.values.BooleanValue;
+import com.datadog.debugger.el.values.NumericValue;
+import com.datadog.debugger.el.values.StringValue;
+import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.el.ValueReferenceResolver;
+import datadog.trace.bootstrap.debugger.el.Values;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles the expression tree of a probe condition to a chain of {@link MethodHandle}s, so
+ * evaluating the condition neither walks the tree nor wraps every intermediate result. Logical
+ * operators, comparisons, literals and references are compiled, any other expression is evaluated
+ * by the interpreter from within the chain. Both operands of a logical operator are evaluated, as
+ * the interpreter does.
+ *
+ * <p>The fields of a reference are read through getters looked up once per receiver class, when
+ * the reference is resolved from a captured context. Other resolvers resolve the whole reference.
+ */
+final class ConditionCompiler {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  // (ValueReferenceResolver)boolean, what a compiled predicate is
+  private static final MethodType PREDICATE =
+      methodType(boolean.class, ValueReferenceResolver.class);
+
+  private static final int EQ = 0;
+  private static final int GT = 1;
+  private static final int GE = 2;
+  private static final int LT = 3;
+  private static final int LE = 4;
+
+  private static final MethodHandle AND =
+      findStatic("and", methodType(boolean.class, boolean.class, boolean.class));
+  private static final MethodHandle OR =
+      findStatic("or", methodType(boolean.class, boolean.class, boolean.class));
+  private static final MethodHandle NOT =
+      findStatic("not", methodType(boolean.class, boolean.class));
+  private static final MethodHandle COMPARE =
+      findStatic(
+          "compare",
+          methodType(
+              boolean.class,
+              int.class,
+              ValuePredicate.Combiner.class,
+              MethodHandle.class,
+              Object.class,
+              ValueReferenceResolver.class));
+  private static final MethodHandle COMPARE_LITERAL =
+      findStatic(
+          "compareLiteral",
+          methodType(
+              boolean.class, int.class, ValuePredicate.Combiner.class, Object.class, Object.class));
+  private static final MethodHandle INTERPRET_PREDICATE =
+      findStatic(
+          "interpret",
+          methodType(boolean.class, PredicateExpression.class, ValueReferenceResolver.class));
+  private static final MethodHandle INTERPRET_VALUE =
+      findStatic(
+          "interpret",
+          methodType(Object.class, ValueExpression.class, ValueReferenceResolver.class));
+  private static final MethodHandle RESOLVE;
+  private static final MethodHandle RESOLVE_FIELDS;
+
+  static {
+    try {
+      RESOLVE =
+          LOOKUP.findVirtual(
+              ValueReferenceResolver.class, "resolve", methodType(Object.class, String.class));
+      RESOLVE_FIELDS =
+          LOOKUP.findVirtual(
+              FieldReference.class,
+              "resolve",
+              methodType(Object.class, ValueReferenceResolver.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static final MethodHandle UNDEFINED_GETTER =
+      MethodHandles.dropArguments(
+          MethodHandles.constant(Object.class, Values.UNDEFINED_OBJECT), 0, Object.class);
+
+  // getters of the fields referenced by conditions, UNDEFINED_GETTER if there is no such field
+  private static final ClassValue<ConcurrentHashMap<String, MethodHandle>> GETTERS =
+      new ClassValue<ConcurrentHashMap<String, MethodHandle>>() {
+        @Override
+        protected ConcurrentHashMap<String, MethodHandle> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  private ConditionCompiler() {}
+
+  /**
+   * @return a (ValueReferenceResolver)boolean handle evaluating the expression, or null if only
+   *     the interpreter can evaluate it
+   */
+  static MethodHandle compile(PredicateExpression expression) {
+    if (expression instanceof WhenExpression) {
+      return compile(((WhenExpression) expression).getExpression());
+    }
+    if (expression == PredicateExpression.TRUE || expression == PredicateExpression.FALSE) {
+      return MethodHandles.dropArguments(
+          MethodHandles.constant(boolean.class, expression == PredicateExpression.TRUE),
+          0,
+          ValueReferenceResolver.class);
+    }
+    if (expression instanceof NotExpression) {
+      return MethodHandles.filterReturnValue(
+          predicate(((NotExpression) expression).getPredicate()), NOT);
+    }
+    if (expression instanceof BinaryExpression) {
+      BinaryExpression binary = (BinaryExpression) expression;
+      MethodHandle operator = logicalOperator(binary.getCombiner());
+      if (operator == null) {
+        return null;
+      }
+      MethodHandle operands =
+          MethodHandles.filterArguments(
+              operator, 0, predicate(binary.getLeft()), predicate(binary.getRight()));
+      return MethodHandles.permuteArguments(operands, PREDICATE, 0, 0);
+    }
+    if (expression instanceof ComparisonExpression) {
+      return compileComparison((ComparisonExpression) expression);
+    }
+    return null;
+  }
+
+  private static MethodHandle predicate(PredicateExpression expression) {
+    MethodHandle compiled = compile(expression);
+    return compiled != null ? compiled : INTERPRET_PREDICATE.bindTo(expression);
+  }
+
+  private static MethodHandle compileComparison(ComparisonExpression comparison) {
+    int operator = comparisonOperator(comparison.getCombiner());
+    if (operator < 0) {
+      return null;
+    }
+    MethodHandle left = value(comparison.getLeft());
+    ValueExpression<?> right = comparison.getRight();
+    if (right instanceof Literal) {
+      // nothing to evaluate lazily for a literal, pass it to compare as is
+      MethodHandle compare =
+          MethodHandles.insertArguments(
+              COMPARE_LITERAL, 0, operator, comparison.getCombiner(), right);
+      return MethodHandles.filterReturnValue(left, compare);
+    }
+    // (Object left, ValueReferenceResolver)boolean, the right value is evaluated by compare, only
+    // when the left one is defined. Checking it there rather than with guardWithTest keeps the
+    // chain cheap to run
+    MethodHandle compare =
+        MethodHandles.insertArguments(
+            COMPARE, 0, operator, comparison.getCombiner(), value(right));
+    return MethodHandles.foldArguments(compare, left);
+  }
+
+  /** @return a (ValueReferenceResolver)Object handle to a resolved object or a {@link Value} */
+  private static MethodHandle value(ValueExpression<?> expression) {
+    if (expression instanceof ValueRefExpression) {
+      return reference(((ValueRefExpression) expression).getPath());
+    }
+    if (expression instanceof Literal) {
+      return MethodHandles.dropArguments(
+          MethodHandles.constant(Object.class, expression), 0, ValueReferenceResolver.class);
+    }
+    return INTERPRET_VALUE.bindTo(expression);
+  }
+
+  private static MethodHandle reference(String path) {
+    int headEnd = path.indexOf('.', 1);
+    if (headEnd < 0 || path.endsWith(".") || path.contains("..")) {
+      return MethodHandles.insertArguments(RESOLVE, 1, path);
+    }
+    return RESOLVE_FIELDS.bindTo(new FieldReference(path, headEnd));
+  }
+
+  // combiners create the predicates, recognize them by what they create and check the predicates
+  // test their own operands
+  private static MethodHandle logicalOperator(BinaryPredicate.Combiner combiner) {
+    try {
+      BinaryPredicate predicate = combiner.get(Predicate.TRUE, Predicate.TRUE);
+      int truthTable =
+          truthTable(
+              combiner.get(Predicate.TRUE, Predicate.TRUE),
+              combiner.get(Predicate.TRUE, Predicate.FALSE),
+              combiner.get(Predicate.FALSE, Predicate.TRUE),
+              combiner.get(Predicate.FALSE, Predicate.FALSE));
+      if (predicate instanceof AndPredicate && truthTable == 0b1000) {
+        return AND;
+      } else if (predicate instanceof OrPredicate && truthTable == 0b1110) {
+        return OR;
+      }
+    } catch (RuntimeException ignored) {
+      // not a combiner of ours
+    }
+    return null;
+  }
+
+  private static int comparisonOperator(ValuePredicate.Combiner combiner) {
+    try {
+      ValuePredicate predicate = combiner.get(Value.nullValue(), Value.nullValue());
+      Value<?> one = Value.of(1);
+      Value<?> two = Value.of(2);
+      int truthTable =
+          truthTable(combiner.get(one, two), combiner.get(two, one), combiner.get(one, one));
+      if (predicate instanceof EqualsPredicate && truthTable == 0b001) {
+        return EQ;
+      } else if (predicate instanceof GreaterThanPredicate && truthTable == 0b010) {
+        return GT;
+      } else if (predicate instanceof GreaterOrEqualPredicate && truthTable == 0b011) {
+        return GE;
+      } else if (predicate instanceof LessThanPredicate && truthTable == 0b100) {
+        return LT;
+      } else if (predicate instanceof LessOrEqualPredicate && truthTable == 0b101) {
+        return LE;
+      }
+    } catch (RuntimeException ignored) {
+      // not a combiner of ours
+    }
+    return -1;
+  }
+
+  private static int truthTable(Predicate... predicates) {
+    int truthTable = 0;
+    for (Predicate predicate : predicates) {
+      truthTable = truthTable << 1 | (predicate.test() ? 1 : 0);
+    }
+    return truthTable;
+  }
+
+  private static MethodHandle findStatic(String name, MethodType type) {
+    try {
+      return LOOKUP.findStatic(ConditionCompiler.class, name, type);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static boolean and(boolean left, boolean right) {
+    return left && right;
+  }
+
+  private static boolean or(boolean left, boolean right) {
+    return left || right;
+  }
+
+  private static boolean not(boolean value) {
+    return !value;
+  }
+
+  private static boolean interpret(
+      PredicateExpression expression, ValueReferenceResolver valueRefResolver) {
+    return expression.evaluate(valueRefResolver).test();
+  }
+
+  private static Object interpret(
+      ValueExpression<?> expression, ValueReferenceResolver valueRefResolver) {
+    return expression.evaluate(valueRefResolver);
+  }
+
+  /** Whether {@link Value#of(Object)} of the resolved object or value is undefined */
+  private static boolean isUndefined(Object value) {
+    if (value == Values.UNDEFINED_OBJECT) {
+      return true;
+    }
+    // rule the usual resolved objects out first, checking against the Value interface is slow
+    if (value == null
+        || value instanceof Number
+        || value instanceof String
+        || value instanceof Boolean) {
+      return false;
+    }
+    return value instanceof Value && ((Value<?>) value).isUndefined();
+  }
+
+  private static boolean compare(
+      int operator,
+      ValuePredicate.Combiner combiner,
+      MethodHandle right,
+      Object left,
+      ValueReferenceResolver valueRefResolver)
+      throws Throwable {
+    if (isUndefined(left)) {
+      return false;
+    }
+    return compare(operator, combiner, left, (Object) right.invokeExact(valueRefResolver));
+  }
+
+  private static boolean compareLiteral(
+      int operator, ValuePredicate.Combiner combiner, Object right, Object left) {
+    return !isUndefined(left) && compare(operator, combiner, left, right);
+  }
+
+  /**
+   * Compares numbers, strings and booleans directly, anything else through the predicate the
+   * interpreter would have created.
+   */
+  private static boolean compare(
+      int operator, ValuePredicate.Combiner combiner, Object left, Object right) {
+    if (isUndefined(right)) {
+      return false;
+    }
+    if (operator == EQ) {
+      Object leftScalar = scalar(left);
+      Object rightScalar = scalar(right);
+      if (leftScalar != null && rightScalar != null) {
+        return Objects.equals(leftScalar, rightScalar);
+      }
+    } else {
+      Number leftNumber = number(left);
+      Number rightNumber = number(right);
+      if (leftNumber != null && rightNumber != null) {
+        int result = NumericPredicate.compare(leftNumber, rightNumber);
+        switch (operator) {
+          case GT:
+            return result > 0;
+          case GE:
+            return result >= 0;
+          case LT:
+            return result < 0;
+          default:
+            return result <= 0;
+        }
+      }
+    }
+    return combiner.get(Value.of(left), Value.of(right)).test();
+  }
+
+  /** @return the number as held by a numeric value, or null if it isn't one */
+  private static Number number(Object value) {
+    if (value instanceof Number) {
+      return NumericValue.widen((Number) value);
+    } else if (value instanceof NumericValue) {
+      return ((NumericValue) value).getValue();
+    }
+    return null;
+  }
+
+  /** @return the number, string or boolean as held by a value, or null if it isn't one */
+  private static Object scalar(Object value) {
+    if (value instanceof String || value instanceof Boolean) {
+      return value;
+    }
+    if (value instanceof NumericValue
+        || value instanceof StringValue
+        || value instanceof BooleanValue) {
+      return ((Literal<?>) value).getValue();
+    }
+    return number(value);
+  }
+
+  private static MethodHandle getter(Class<?> type, String name) {
+    ConcurrentHashMap<String, MethodHandle> getters = GETTERS.get(type);
+    MethodHandle getter = getters.get(name);
+    if (getter == null) {
+      getter = findGetter(type, name);
+      getters.putIfAbsent(name, getter);
+    }
+    return getter;
+  }
+
+  /** Looks the field up the way ReflectiveFieldValueResolver does */
+  private static MethodHandle findGetter(Class<?> type, String name) {
+    for (Class<?> container = type; container != null; container = container.getSuperclass()) {
+      Field field;
+      try {
+        field = container.getDeclaredField(name);
+      } catch (NoSuchFieldException ignored) {
+        continue;
+      } catch (Exception ignored) {
+        return UNDEFINED_GETTER;
+      }
+      try {
+        field.setAccessible(true);
+        MethodHandle getter = LOOKUP.unreflectGetter(field);
+        if (Modifier.isStatic(field.getModifiers())) {
+          return MethodHandles.dropArguments(
+              getter.asType(methodType(Object.class)), 0, Object.class);
+        }
+        return getter.asType(methodType(Object.class, Object.class));
+      } catch (Exception ignored) {
+        // the only other exception allowed here is InaccessibleObjectException
+        return UNDEFINED_GETTER;
+      }
+    }
+    return UNDEFINED_GETTER;
+  }
+
+  /**
+   * A reference to fields of a value. A captured context resolves the head of the reference to the
+   * captured value, and its fields from the value: follow them here with the getters of the value's
+   * class. Other resolvers resolve the whole reference.
+   */
+  private static final class FieldReference {
+    private final String path;
+    private final String head;
+    private final FieldStep[] steps;
+
+    FieldReference(String path, int headEnd) {
+      this.path = path;
+      this.head = path.substring(0, headEnd);
+      String[] fieldNames = path.substring(headEnd + 1).split("\\.");
+      this.steps = new FieldStep[fieldNames.length];
+      for (int i = 0; i < fieldNames.length; i++) {
+        steps[i] = new FieldStep(fieldNames[i]);
+      }
+    }
+
+    Object resolve(ValueReferenceResolver valueRefResolver) throws Throwable {
+      if (!(valueRefResolver instanceof Snapshot.CapturedContext)) {
+        return valueRefResolver.resolve(path);
+      }
+      Object target = valueRefResolver.resolve(head);
+      if (target == null) {
+        // a captured null value has no fields
+        return Values.UNDEFINED_OBJECT;
+      }
+      for (FieldStep step : steps) {
+        if (target == Values.UNDEFINED_OBJECT) {
+          break;
+        }
+        target = step.follow(target);
+      }
+      return target instanceof Snapshot.CapturedValue
+          ? ((Snapshot.CapturedValue) target).getValue()
+          : target;
+    }
+  }
+
+  /** Reads a field of a reference, remembering the getter for the last class it was read from */
+  private static final class FieldStep {
+    private final String name;
+    // racy but safe: a stale or missing entry only means looking the getter up again
+    private CachedGetter cached;
+
+    FieldStep(String name) {
+      this.name = name;
+    }
+
+    Object follow(Object target) throws Throwable {
+      Class<?> type = target.getClass();
+      CachedGetter cached = this.cached;
+      if (cached == null || cached.type != type) {
+        cached = new CachedGetter(type, getter(type, name));
+        this.cached = cached;
+      }
+      return (Object) cached.getter.invokeExact(target);
+    }
+  }
+
+  private static final class CachedGetter {
+    final Class<?> type;
+    final MethodHandle getter;
+
+    CachedGetter(Class<?> type, MethodHandle getter) {
+      this.type = type;
+      this.getter = getter;
+    }
+  }
+}
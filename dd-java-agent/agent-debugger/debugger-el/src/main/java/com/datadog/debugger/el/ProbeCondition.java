@@ -11,19 +11,40 @@ import datadog.trace.bootstrap.debugger.el.DebuggerScript;
 import datadog.trace.bootstrap.debugger.el.ValueReferenceResolver;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.UndeclaredThrowableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-/** Implements expression language for probe condition */
+/**
+ * Implements expression language for probe condition. The condition is compiled by {@link
+ * ConditionCompiler} when it can be, and interpreted otherwise.
+ */
 public final class ProbeCondition implements DebuggerScript {
+  private static final Logger log = LoggerFactory.getLogger(ProbeCondition.class);
+
   public static final ProbeCondition NONE = new ProbeCondition(null, "");
 
   private final String dslExpression;
   private final WhenExpression when;
   private final ThenExpression then;
+  // (ValueReferenceResolver)boolean, null to interpret the expression
+  private final MethodHandle compiled;
 
   public ProbeCondition(WhenExpression when, String dslExpression) {
     this.when = when;
     this.dslExpression = dslExpression;
     this.then = new ThenExpression();
+    this.compiled = when != null ? compile(when, dslExpression) : null;
+  }
+
+  private static MethodHandle compile(WhenExpression when, String dslExpression) {
+    try {
+      return ConditionCompiler.compile(when);
+    } catch (RuntimeException e) {
+      log.debug("Cannot compile condition '{}', interpreting it", dslExpression, e);
+      return null;
+    }
   }
 
   public String getDslExpression() {
@@ -90,10 +111,23 @@ public final class ProbeCondition implements DebuggerScript {
     if (when == null) {
       return true;
     }
-    if (when.evaluate(valueRefResolver).test()) {
+    if (test(valueRefResolver)) {
       then.evaluate(valueRefResolver);
       return true;
     }
     return false;
   }
+
+  private boolean test(ValueReferenceResolver valueRefResolver) {
+    if (compiled == null) {
+      return when.evaluate(valueRefResolver).test();
+    }
+    try {
+      return (boolean) compiled.invokeExact(valueRefResolver);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new UndeclaredThrowableException(t);
+    }
+  }
 }
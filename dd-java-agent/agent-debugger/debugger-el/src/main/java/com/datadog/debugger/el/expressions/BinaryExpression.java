@@ -24,4 +24,16 @@ public final class BinaryExpression implements PredicateExpression {
   public Predicate evaluate(ValueReferenceResolver valueRefResolver) {
     return combiner.get(left.evaluate(valueRefResolver), right.evaluate(valueRefResolver));
   }
+
+  public PredicateExpression getLeft() {
+    return left;
+  }
+
+  public PredicateExpression getRight() {
+    return right;
+  }
+
+  public BinaryPredicate.Combiner getCombiner() {
+    return combiner;
+  }
 }
@@ -25,6 +25,10 @@ public final class ValueRefExpression implements ValueExpression {
     return Value.of(valueRefResolver.resolve(path));
   }
 
+  public String getPath() {
+    return path;
+  }
+
   @Generated
   @Override
   public boolean equals(Object o) {
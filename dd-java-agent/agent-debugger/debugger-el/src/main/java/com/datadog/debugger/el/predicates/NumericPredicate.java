@@ -37,7 +37,22 @@ public abstract class NumericPredicate extends ValuePredicate {
     return value.isNull() || value.isUndefined();
   }
 
-  private static int compare(Number left, Number right) {
+  /** Compares two numbers, as widened by {@link com.datadog.debugger.el.values.NumericValue} */
+  public static int compare(Number left, Number right) {
+    // numeric values are widened to Long or Double, so most comparisons can skip BigDecimal
+    if (left instanceof Long) {
+      if (right instanceof Long) {
+        return Long.compare((Long) left, (Long) right);
+      } else if (right instanceof Double && isExactDouble((Long) left)) {
+        return compareDoubles(((Long) left).doubleValue(), (Double) right);
+      }
+    } else if (left instanceof Double) {
+      if (right instanceof Double) {
+        return compareDoubles((Double) left, (Double) right);
+      } else if (right instanceof Long && isExactDouble((Long) right)) {
+        return compareDoubles((Double) left, ((Long) right).doubleValue());
+      }
+    }
     if (isSpecial(left) || isSpecial(right)) {
       return Double.compare(left.doubleValue(), right.doubleValue());
     } else {
@@ -45,6 +60,22 @@ public abstract class NumericPredicate extends ValuePredicate {
     }
   }
 
+  /** Compares like BigDecimal would for finite values (-0.0 equals 0.0), and Double otherwise. */
+  private static int compareDoubles(double left, double right) {
+    if (left < right) {
+      return -1;
+    } else if (left > right) {
+      return 1;
+    } else if (left == right) {
+      return 0;
+    }
+    return Double.compare(left, right); // NaN
+  }
+
+  private static boolean isExactDouble(long value) {
+    return value >= -(1L << 53) && value <= (1L << 53);
+  }
+
   private static boolean isSpecial(Number x) {
     boolean specialDouble =
         x instanceof Double && (Double.isNaN((Double) x) || Double.isInfinite((Double) x));
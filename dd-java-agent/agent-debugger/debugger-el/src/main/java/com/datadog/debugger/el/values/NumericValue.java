@@ -8,7 +8,8 @@ public final class NumericValue extends Literal<Number> {
     super(widen(value));
   }
 
-  private static Number widen(Number value) {
+  /** Widens integral numbers to Long and Float to Double, as numeric values hold them */
+  public static Number widen(Number value) {
     if (value instanceof Integer || value instanceof Byte || value instanceof Short) {
       return value.longValue();
     }
@@ -0,0 +1,205 @@
+package com.datadog.debugger.el;
+
+import static com.datadog.debugger.el.DSL.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.datadog.debugger.el.expressions.BinaryExpression;
+import com.datadog.debugger.el.expressions.ComparisonExpression;
+import com.datadog.debugger.el.expressions.PredicateExpression;
+import com.datadog.debugger.el.predicates.GreaterThanPredicate;
+import com.datadog.debugger.el.predicates.OrPredicate;
+import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.el.ValueReferenceResolver;
+import datadog.trace.bootstrap.debugger.el.Values;
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class ConditionCompilerTest {
+  static class Inner {
+    private static long total = 9;
+    private final int value;
+
+    Inner(int value) {
+      this.value = value;
+    }
+  }
+
+  static class Base {
+    protected double ratio = 0.5;
+  }
+
+  static class Request extends Base {
+    private final int status;
+    private final String text = "hello";
+    private final Inner inner;
+    private final Inner none = null;
+
+    Request(int status, Inner inner) {
+      this.status = status;
+      this.inner = inner;
+    }
+  }
+
+  static class Other {
+    private final long status;
+
+    Other(long status) {
+      this.status = status;
+    }
+  }
+
+  // used by the StaticValueRefResolver tests
+  private final int count = 42;
+  private final Inner inner = new Inner(7);
+
+  private static final PredicateExpression[] EXPRESSIONS = {
+    TRUE,
+    FALSE,
+    gt(ref("^count"), value(10)),
+    ge(ref("^count"), value(42)),
+    lt(ref("^ratio"), value(0.5)),
+    le(ref("^ratio"), value(0.25)),
+    eq(ref("^count"), value(42)),
+    eq(ref("^name"), value("hello")),
+    eq(ref("^flag"), value(true)),
+    eq(ref("^nil"), value((Object) null)),
+    eq(ref("^missing"), value(1)),
+    gt(ref("^count"), ref("^ratio")),
+    gt(ref("^missing"), ref("^nil.value")),
+    gt(ref(".request.status"), value(199)),
+    eq(ref(".request.text"), value("hello")),
+    ge(ref(".request.ratio"), value(0.5)),
+    eq(ref(".request.inner.value"), value(7)),
+    eq(ref(".request.inner.total"), value(9)),
+    eq(ref(".request.missing"), value(1)),
+    eq(ref(".request.none"), value((Object) null)),
+    eq(ref("^nil.value"), value(1)),
+    gt(ref("^count.value"), value(1)),
+    gt(len(ref("^list")), value(2)),
+    or(FALSE, isEmpty(ref("^list"))),
+    not(isEmpty(ref("^name"))),
+    and(gt(ref("^count"), value(10)), lt(ref("^ratio"), value(0.5))),
+    or(gt(ref("^count"), value(100)), eq(ref(".request.status"), value(200))),
+    not(and(eq(ref("^flag"), value(false)), gt(ref("^count"), value(10)))),
+    when(or(FALSE, not(eq(ref("^name"), value("bye")))))
+  };
+
+  @Test
+  void capturedContext() throws Throwable {
+    Snapshot.CapturedContext context =
+        new Snapshot.CapturedContext(
+            new Snapshot.CapturedValue[] {
+              Snapshot.CapturedValue.of("count", "int", 42),
+              Snapshot.CapturedValue.of("ratio", "double", 0.25d),
+              Snapshot.CapturedValue.of("name", String.class.getName(), "hello"),
+              Snapshot.CapturedValue.of("flag", "boolean", true),
+              Snapshot.CapturedValue.of("nil", Object.class.getName(), null),
+              Snapshot.CapturedValue.of("list", "java.util.List", Arrays.asList(1, 2, 3))
+            },
+            null,
+            null,
+            null,
+            new Snapshot.CapturedValue[] {
+              Snapshot.CapturedValue.of(
+                  "request", Request.class.getName(), new Request(200, new Inner(7)))
+            });
+    for (PredicateExpression expression : EXPRESSIONS) {
+      assertSameResult(expression, context);
+      assertSameResult(expression, context.withExtensions(Collections.singletonMap("it", 1)));
+    }
+  }
+
+  @Test
+  void otherResolver() throws Throwable {
+    ValueReferenceResolver resolver = StaticValueRefResolver.self(this);
+    assertTrue(evaluate(gt(ref(".count"), value(10)), resolver));
+    assertTrue(evaluate(eq(ref(".inner.value"), value(7)), resolver));
+    for (PredicateExpression expression : EXPRESSIONS) {
+      assertSameResult(expression, resolver);
+    }
+  }
+
+  @Test
+  void rightValueNotEvaluatedForUndefinedLeftValue() throws Throwable {
+    ValueReferenceResolver resolver =
+        path -> path.equals("^missing") ? Values.UNDEFINED_OBJECT : fail(path);
+    assertFalse(evaluate(gt(ref("^missing"), ref("^other")), resolver));
+    assertFalse(evaluate(eq(ref("^missing"), ref(".other.field")), resolver));
+  }
+
+  @Test
+  void gettersPerClass() throws Throwable {
+    MethodHandle compiled = ConditionCompiler.compile(ge(ref(".request.status"), value(200)));
+    assertNotNull(compiled);
+    for (int i = 0; i < 3; i++) {
+      assertTrue((boolean) compiled.invokeExact(context(new Request(200, null))));
+      assertFalse((boolean) compiled.invokeExact(context(new Other(100))));
+      assertFalse((boolean) compiled.invokeExact(context("no status")));
+    }
+  }
+
+  @Test
+  void interpretedOperands() throws Throwable {
+    assertNull(ConditionCompiler.compile(isEmpty(ref("^list"))));
+    PredicateExpression expression = and(isEmpty(ref("^list")), gt(len(ref("^name")), value(2)));
+    assertNotNull(ConditionCompiler.compile(expression));
+    ValueReferenceResolver resolver =
+        new StaticValueRefResolver(
+            this, Long.MAX_VALUE, null, Collections.singletonMap("name", "hello"));
+    assertSameResult(expression, resolver);
+  }
+
+  @Test
+  void unknownCombiners() {
+    assertNull(
+        ConditionCompiler.compile(
+            new ComparisonExpression(
+                ref("^count"),
+                value(1),
+                (left, right) -> new GreaterThanPredicate(right, left))));
+    assertNull(
+        ConditionCompiler.compile(
+            new BinaryExpression(TRUE, FALSE, (left, right) -> new OrPredicate(left, Predicate.FALSE))));
+    assertNull(ConditionCompiler.compile(new BinaryExpression(TRUE, FALSE, (left, right) -> null)));
+    assertNotNull(
+        ConditionCompiler.compile(
+            new BinaryExpression(TRUE, FALSE, (left, right) -> new OrPredicate(right, left))));
+  }
+
+  private static ValueReferenceResolver context(Object request) {
+    return new Snapshot.CapturedContext(
+        null,
+        null,
+        null,
+        null,
+        new Snapshot.CapturedValue[] {
+          Snapshot.CapturedValue.of("request", request.getClass().getName(), request)
+        });
+  }
+
+  private static void assertSameResult(
+      PredicateExpression expression, ValueReferenceResolver resolver) throws Throwable {
+    String interpreted;
+    try {
+      interpreted = String.valueOf(expression.evaluate(resolver).test());
+    } catch (RuntimeException e) {
+      interpreted = e.getClass().getName();
+    }
+    String compiled;
+    try {
+      compiled = String.valueOf(evaluate(expression, resolver));
+    } catch (RuntimeException e) {
+      compiled = e.getClass().getName();
+    }
+    assertEquals(interpreted, compiled, expression.toString());
+  }
+
+  private static boolean evaluate(PredicateExpression expression, ValueReferenceResolver resolver)
+      throws Throwable {
+    MethodHandle compiled = ConditionCompiler.compile(expression);
+    assertNotNull(compiled, expression.toString());
+    return (boolean) compiled.invokeExact(resolver);
+  }
+}
@@ -3,6 +3,7 @@ package com.datadog.debugger.el.predicates;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.datadog.debugger.el.Value;
+import java.math.BigDecimal;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -38,6 +39,14 @@ class NumericPredicateTest {
         Arguments.of(Value.of(Double.NaN), Value.of(1), 1),
         Arguments.of(Value.of(1), Value.of(Double.NaN), -1),
         Arguments.of(Value.of(Float.NaN), Value.of(1), 1),
-        Arguments.of(Value.of(1), Value.of(Float.NaN), -1));
+        Arguments.of(Value.of(1), Value.of(Float.NaN), -1),
+        Arguments.of(Value.of(1), Value.of(1.0), 0),
+        Arguments.of(Value.of(1), Value.of(1.5), -1),
+        Arguments.of(Value.of(2.5), Value.of(2), 1),
+        Arguments.of(Value.of(0.0), Value.of(-0.0), 0),
+        Arguments.of(Value.of(Long.MAX_VALUE), Value.of(9.223372036854776E18), -1),
+        Arguments.of(Value.of(Long.MAX_VALUE), Value.of(Long.MAX_VALUE - 1), 1),
+        Arguments.of(Value.of(Double.NEGATIVE_INFINITY), Value.of(Long.MIN_VALUE), -1),
+        Arguments.of(Value.of(new BigDecimal("1.5")), Value.of(1.5), 0));
   }
 }
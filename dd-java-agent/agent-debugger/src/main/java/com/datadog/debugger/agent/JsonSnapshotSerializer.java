@@ -6,6 +6,8 @@ import com.squareup.moshi.Json;
 import com.squareup.moshi.JsonAdapter;
 import datadog.trace.bootstrap.debugger.DebuggerContext;
 import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
+import java.io.IOException;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +19,7 @@ public class JsonSnapshotSerializer implements DebuggerContext.SnapshotSerialize
   private static final String DD_SPAN_ID = "dd.span_id";
   private static final JsonAdapter<IntakeRequest> ADAPTER =
       MoshiHelper.createMoshiSnapshot().adapter(IntakeRequest.class);
-  private static final JsonAdapter<Snapshot.CapturedValue> VALUE_ADAPTER =
+  private static final MoshiSnapshotHelper.CapturedValueAdapter VALUE_ADAPTER =
       new MoshiSnapshotHelper.CapturedValueAdapter();
 
   @Override
@@ -30,8 +32,12 @@ public class JsonSnapshotSerializer implements DebuggerContext.SnapshotSerialize
   }
 
   @Override
-  public String serializeValue(Snapshot.CapturedValue value) {
-    return VALUE_ADAPTER.toJson(value);
+  public String serializeValue(Snapshot.CapturedValue value, TimeoutChecker timeoutChecker) {
+    try {
+      return VALUE_ADAPTER.toJson(value, timeoutChecker);
+    } catch (IOException e) {
+      throw new AssertionError(e); // writing to an in-memory buffer
+    }
   }
 
   private void handlerLogger(Snapshot snapshot, IntakeRequest request) {
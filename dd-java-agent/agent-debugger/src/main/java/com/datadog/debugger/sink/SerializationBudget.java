@@ -0,0 +1,105 @@
+package com.datadog.debugger.sink;
+
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
+import datadog.trace.core.util.SystemAccess;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the time spent serializing the captured values of each probe, per second. Time is the CPU
+ * time of the serializing thread when it can be measured, elapsed time otherwise. Once a probe has
+ * used its budget, values of its snapshots are reported as timed out until the next second. Used
+ * by the thread flushing the sink only.
+ */
+final class SerializationBudget {
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final long budgetNanos;
+  private final LongSupplier cpuTime;
+  private final LongSupplier nanoTime;
+  private final Map<String, Usage> usages = new HashMap<>();
+
+  /** @param budgetMillis per probe and per second, 0 for no limit */
+  SerializationBudget(int budgetMillis) {
+    this(budgetMillis, SystemAccess::getCurrentThreadCpuTime, System::nanoTime);
+  }
+
+  SerializationBudget(int budgetMillis, LongSupplier cpuTime, LongSupplier nanoTime) {
+    this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    this.cpuTime = cpuTime;
+    this.nanoTime = nanoTime;
+  }
+
+  /** @return the checker to serialize the next snapshot of this probe with */
+  TimeoutChecker start(String probeId) {
+    if (budgetNanos <= 0) {
+      return TimeoutChecker.NONE;
+    }
+    long now = nanoTime.getAsLong();
+    Usage usage = usages.get(probeId);
+    if (usage == null) {
+      usage = new Usage(now);
+      usages.put(probeId, usage);
+    } else if (now - usage.windowStart >= WINDOW_NANOS) {
+      usage.windowStart = now;
+      usage.used = 0;
+    }
+    long cpuStart = cpuTime.getAsLong();
+    if (cpuStart != Long.MIN_VALUE) {
+      return new Checker(usage, cpuTime, cpuStart, budgetNanos - usage.used);
+    }
+    return new Checker(usage, nanoTime, now, budgetNanos - usage.used);
+  }
+
+  /** Charges the time used by the checker to its probe */
+  void stop(TimeoutChecker checker) {
+    if (checker instanceof Checker) {
+      ((Checker) checker).stop();
+    }
+  }
+
+  /** Forgets the probes which haven't serialized anything for a second */
+  void expire() {
+    long now = nanoTime.getAsLong();
+    usages.values().removeIf(usage -> now - usage.windowStart >= WINDOW_NANOS);
+  }
+
+  // visible for testing
+  int size() {
+    return usages.size();
+  }
+
+  private static final class Usage {
+    long windowStart;
+    long used;
+
+    Usage(long windowStart) {
+      this.windowStart = windowStart;
+    }
+  }
+
+  private static final class Checker extends TimeoutChecker {
+    private final Usage usage;
+    private final LongSupplier clock;
+    private final long start;
+    private final long remaining;
+
+    Checker(Usage usage, LongSupplier clock, long start, long remaining) {
+      this.usage = usage;
+      this.clock = clock;
+      this.start = start;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public boolean isTimedOut() {
+      return clock.getAsLong() - start > remaining;
+    }
+
+    void stop() {
+      usage.used += clock.getAsLong() - start;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.datadog.debugger.util.ExceptionHelper;
 import datadog.trace.api.Config;
 import datadog.trace.bootstrap.debugger.DebuggerContext;
 import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
 import datadog.trace.util.TagsHelper;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,23 +21,35 @@ public class SnapshotSink {
   private final BlockingQueue<Snapshot> snapshots = new ArrayBlockingQueue<>(CAPACITY);
   private final String serviceName;
   private final int batchSize;
+  private final SerializationBudget budget;
 
   public SnapshotSink(Config config) {
+    this(config, new SerializationBudget(config.getDebuggerProbeSerializationBudget()));
+  }
+
+  SnapshotSink(Config config, SerializationBudget budget) {
     this.serviceName = TagsHelper.sanitize(config.getServiceName());
     this.batchSize = config.getDebuggerUploadBatchSize();
+    this.budget = budget;
   }
 
   public List<String> getSerializedSnapshots() {
     List<Snapshot> snapshots = new ArrayList<>();
     this.snapshots.drainTo(snapshots, batchSize);
     List<String> serializedSnapshots = new ArrayList<>();
+    budget.expire();
     for (Snapshot snapshot : snapshots) {
+      // captured values were only copied by the instrumented code, walk and serialize them here
+      TimeoutChecker timeoutChecker = budget.start(snapshot.getProbe().getId());
       try {
+        snapshot.getCaptures().freeze(timeoutChecker);
         String strSnapshot = serializeSnapshot(serviceName, snapshot);
         serializedSnapshots.add(strSnapshot);
         LOGGER.debug("Sending snapshot for probe: {}", snapshot.getProbe().getId());
       } catch (Exception e) {
         ExceptionHelper.logException(LOGGER, e, "Error during snapshot serialization:");
+      } finally {
+        budget.stop(timeoutChecker);
       }
     }
     return serializedSnapshots;
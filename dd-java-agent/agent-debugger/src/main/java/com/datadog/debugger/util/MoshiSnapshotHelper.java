@@ -8,7 +8,9 @@ import com.squareup.moshi.Types;
 import datadog.trace.bootstrap.debugger.FieldExtractor;
 import datadog.trace.bootstrap.debugger.Fields;
 import datadog.trace.bootstrap.debugger.Limits;
+import datadog.trace.bootstrap.debugger.ShallowCopy;
 import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -24,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.ObjIntConsumer;
+import okio.Buffer;
 import okio.Okio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +47,7 @@ public class MoshiSnapshotHelper {
   public static final String FIELD_COUNT_REASON = "fieldCount";
   public static final String COLLECTION_SIZE_REASON = "collectionSize";
   public static final String DEPTH_REASON = "depth";
+  public static final String TIMEOUT_REASON = Snapshot.CapturedValue.TIMEOUT_REASON;
   public static final String TYPE = "type";
   public static final String VALUE = "value";
   public static final String FIELDS = "fields";
@@ -491,14 +495,53 @@ public class MoshiSnapshotHelper {
     @Override
     public void toJson(JsonWriter jsonWriter, Snapshot.CapturedValue capturedValue)
         throws IOException {
+      toJson(jsonWriter, capturedValue, TimeoutChecker.NONE);
+    }
+
+    /**
+     * Serializes the value to a JSON string, see {@link #toJson(JsonWriter, Snapshot.CapturedValue,
+     * TimeoutChecker)}.
+     */
+    public String toJson(Snapshot.CapturedValue capturedValue, TimeoutChecker timeoutChecker)
+        throws IOException {
+      Buffer buffer = new Buffer();
+      toJson(JsonWriter.of(buffer), capturedValue, timeoutChecker);
+      return buffer.readUtf8();
+    }
+
+    /**
+     * Serializes the value until the timeout is reached. Whatever is left to serialize then, at any
+     * depth, is reported as not captured because of the timeout.
+     */
+    public void toJson(
+        JsonWriter jsonWriter, Snapshot.CapturedValue capturedValue, TimeoutChecker timeoutChecker)
+        throws IOException {
       if (capturedValue == null) {
         jsonWriter.nullValue();
       }
+      if (capturedValue.getValue() == null && capturedValue.getNotCapturedReason() != null) {
+        jsonWriter.beginObject();
+        jsonWriter.name(TYPE);
+        jsonWriter.value(capturedValue.getType());
+        jsonWriter.name(NOT_CAPTURED_REASON);
+        jsonWriter.value(capturedValue.getNotCapturedReason());
+        jsonWriter.endObject();
+        return;
+      }
       serializeValue(
-          jsonWriter, capturedValue.getValue(), capturedValue.getType(), capturedValue.getLimits());
+          jsonWriter,
+          capturedValue.getValue(),
+          capturedValue.getType(),
+          capturedValue.getLimits(),
+          timeoutChecker);
     }
 
-    private void serializeValue(JsonWriter jsonWriter, Object value, String type, Limits limits)
+    private void serializeValue(
+        JsonWriter jsonWriter,
+        Object value,
+        String type,
+        Limits limits,
+        TimeoutChecker timeoutChecker)
         throws IOException {
       jsonWriter.beginObject();
       jsonWriter.name(TYPE);
@@ -509,6 +552,11 @@ public class MoshiSnapshotHelper {
       } else if (isPrimitive(type)) {
         jsonWriter.name(VALUE);
         writePrimitive(jsonWriter, value, limits);
+      } else if (timeoutChecker.isTimedOut()) {
+        jsonWriter.name(NOT_CAPTURED_REASON);
+        jsonWriter.value(TIMEOUT_REASON);
+      } else if (value instanceof ShallowCopy) {
+        serializeCopy(jsonWriter, (ShallowCopy) value, limits, timeoutChecker);
       } else if (value.getClass().isArray() && (limits.maxReferenceDepth > 0)) {
         jsonWriter.name(ELEMENTS);
         jsonWriter.beginArray();
@@ -516,7 +564,7 @@ public class MoshiSnapshotHelper {
         if (value.getClass().getComponentType().isPrimitive()) {
           result = serializePrimitiveArray(jsonWriter, value, limits);
         } else {
-          result = serializeObjectArray(jsonWriter, (Object[]) value, limits);
+          result = serializeObjectArray(jsonWriter, (Object[]) value, limits, timeoutChecker);
         }
         jsonWriter.endArray();
         if (!result.isComplete) {
@@ -529,7 +577,7 @@ public class MoshiSnapshotHelper {
         Collection<?> col = (Collection<?>) value;
         jsonWriter.name(ELEMENTS);
         jsonWriter.beginArray();
-        SerializationResult result = serializeCollection(jsonWriter, col, limits);
+        SerializationResult result = serializeCollection(jsonWriter, col, limits, timeoutChecker);
         jsonWriter.endArray();
         if (!result.isComplete) {
           jsonWriter.name(NOT_CAPTURED_REASON);
@@ -542,7 +590,7 @@ public class MoshiSnapshotHelper {
         Set<? extends Map.Entry<?, ?>> entries = map.entrySet();
         jsonWriter.name(ENTRIES);
         jsonWriter.beginArray();
-        boolean isComplete = serializeMap(jsonWriter, entries, limits);
+        boolean isComplete = serializeMap(jsonWriter, entries, limits, timeoutChecker);
         jsonWriter.endArray();
         if (!isComplete) {
           jsonWriter.name(NOT_CAPTURED_REASON);
@@ -554,50 +602,12 @@ public class MoshiSnapshotHelper {
         jsonWriter.name(FIELDS);
         jsonWriter.beginObject();
         Fields.ProcessField onField =
-            (field, val, maxDepth) -> {
-              try {
-                jsonWriter.name(field.getName());
-                Limits newLimits = Limits.decDepthLimits(maxDepth, limits);
-                serializeValue(
-                    jsonWriter,
-                    val instanceof Snapshot.CapturedValue
-                        ? ((Snapshot.CapturedValue) val).getValue()
-                        : val,
-                    field.getType().getTypeName(),
-                    newLimits);
-              } catch (IOException ex) {
-                LOG.debug("Exception when extracting field={}", field.getName(), ex);
-              }
-            };
+            (field, val, maxDepth) ->
+                serializeField(jsonWriter, field, val, maxDepth, limits, timeoutChecker);
         BiConsumer<Exception, Field> exHandling =
-            (ex, field) -> {
-              String fieldName = field.getName();
-              LOG.debug(
-                  "Cannot extract field[{}] from class[{}]",
-                  fieldName,
-                  field.getDeclaringClass().getName(),
-                  ex);
-              try {
-                jsonWriter.name(fieldName);
-                jsonWriter.beginObject();
-                jsonWriter.name(TYPE);
-                jsonWriter.value(field.getType().getName());
-                jsonWriter.name(NOT_CAPTURED_REASON);
-                jsonWriter.value(ex.toString());
-                jsonWriter.endObject();
-              } catch (IOException e) {
-                LOG.debug("Error during serializing reason for failed field extraction", e);
-              }
-            };
+            (ex, field) -> serializeFieldFailure(jsonWriter, field, ex);
         ObjIntConsumer<Field> maxFieldCount =
-            (field, maxCount) -> {
-              try {
-                jsonWriter.name(NOT_CAPTURED_REASON);
-                jsonWriter.value(FIELD_COUNT_REASON);
-              } catch (IOException e) {
-                LOG.debug("Error during serializing reason for reaching max field count", e);
-              }
-            };
+            (field, maxCount) -> serializeMaxFieldCount(jsonWriter);
         FieldExtractor.extract(value, limits, onField, exHandling, maxFieldCount);
         jsonWriter.endObject();
       } else {
@@ -607,8 +617,143 @@ public class MoshiSnapshotHelper {
       jsonWriter.endObject();
     }
 
+    private void serializeField(
+        JsonWriter jsonWriter,
+        Field field,
+        Object val,
+        int maxDepth,
+        Limits limits,
+        TimeoutChecker timeoutChecker) {
+      try {
+        jsonWriter.name(field.getName());
+        Limits newLimits = Limits.decDepthLimits(maxDepth, limits);
+        serializeValue(
+            jsonWriter,
+            val instanceof Snapshot.CapturedValue ? ((Snapshot.CapturedValue) val).getValue() : val,
+            field.getType().getTypeName(),
+            newLimits,
+            timeoutChecker);
+      } catch (IOException ex) {
+        LOG.debug("Exception when extracting field={}", field.getName(), ex);
+      }
+    }
+
+    private static void serializeFieldFailure(JsonWriter jsonWriter, Field field, Exception ex) {
+      String fieldName = field.getName();
+      LOG.debug(
+          "Cannot extract field[{}] from class[{}]",
+          fieldName,
+          field.getDeclaringClass().getName(),
+          ex);
+      try {
+        jsonWriter.name(fieldName);
+        jsonWriter.beginObject();
+        jsonWriter.name(TYPE);
+        jsonWriter.value(field.getType().getName());
+        jsonWriter.name(NOT_CAPTURED_REASON);
+        jsonWriter.value(ex.toString());
+        jsonWriter.endObject();
+      } catch (IOException e) {
+        LOG.debug("Error during serializing reason for failed field extraction", e);
+      }
+    }
+
+    private static void serializeMaxFieldCount(JsonWriter jsonWriter) {
+      try {
+        jsonWriter.name(NOT_CAPTURED_REASON);
+        jsonWriter.value(FIELD_COUNT_REASON);
+      } catch (IOException e) {
+        LOG.debug("Error during serializing reason for reaching max field count", e);
+      }
+    }
+
+    /**
+     * Serializes a value copied in instrumented code the way the value itself would have been. The
+     * objects the copy refers to are serialized as they are now.
+     */
+    private void serializeCopy(
+        JsonWriter jsonWriter, ShallowCopy copy, Limits limits, TimeoutChecker timeoutChecker)
+        throws IOException {
+      switch (copy.getKind()) {
+        case ELEMENTS:
+          {
+            Object elements = copy.getElements();
+            jsonWriter.name(ELEMENTS);
+            jsonWriter.beginArray();
+            SerializationResult result;
+            if (elements.getClass().getComponentType().isPrimitive()) {
+              result = serializePrimitiveArray(jsonWriter, elements, limits);
+            } else {
+              result =
+                  serializeObjectArray(jsonWriter, (Object[]) elements, limits, timeoutChecker);
+            }
+            jsonWriter.endArray();
+            if (result.size < copy.getSize()) {
+              jsonWriter.name(NOT_CAPTURED_REASON);
+              jsonWriter.value(COLLECTION_SIZE_REASON);
+            }
+            jsonWriter.name(SIZE);
+            jsonWriter.value(String.valueOf(copy.getSize()));
+            break;
+          }
+        case ENTRIES:
+          {
+            Object[] entries = (Object[]) copy.getElements();
+            Limits newLimits = Limits.decDepthLimits(limits.maxReferenceDepth, limits);
+            jsonWriter.name(ENTRIES);
+            jsonWriter.beginArray();
+            for (int i = 0; i < entries.length; i += 2) {
+              jsonWriter.beginArray();
+              Object keyObj = entries[i];
+              Object valObj = entries[i + 1];
+              serializeValue(
+                  jsonWriter, keyObj, keyObj.getClass().getName(), newLimits, timeoutChecker);
+              serializeValue(
+                  jsonWriter, valObj, valObj.getClass().getName(), newLimits, timeoutChecker);
+              jsonWriter.endArray();
+            }
+            jsonWriter.endArray();
+            if (entries.length / 2 < copy.getSize()) {
+              jsonWriter.name(NOT_CAPTURED_REASON);
+              jsonWriter.value(COLLECTION_SIZE_REASON);
+            }
+            jsonWriter.name(SIZE);
+            jsonWriter.value(String.valueOf(copy.getSize()));
+            break;
+          }
+        default:
+          {
+            Field[] fields = copy.getFields();
+            Object[] values = (Object[]) copy.getElements();
+            jsonWriter.name(FIELDS);
+            jsonWriter.beginObject();
+            for (int i = 0; i < fields.length; i++) {
+              Exception failure = copy.getFieldFailure(i);
+              if (failure != null) {
+                serializeFieldFailure(jsonWriter, fields[i], failure);
+              } else {
+                serializeField(
+                    jsonWriter,
+                    fields[i],
+                    values[i],
+                    limits.maxReferenceDepth,
+                    limits,
+                    timeoutChecker);
+              }
+            }
+            if (copy.isFieldCountReached()) {
+              serializeMaxFieldCount(jsonWriter);
+            }
+            jsonWriter.endObject();
+          }
+      }
+    }
+
     private boolean serializeMap(
-        JsonWriter jsonWriter, Set<? extends Map.Entry<?, ?>> entries, Limits limits)
+        JsonWriter jsonWriter,
+        Set<? extends Map.Entry<?, ?>> entries,
+        Limits limits,
+        TimeoutChecker timeoutChecker)
         throws IOException {
       int mapSize = entries.size();
       int maxSize = Math.min(mapSize, limits.maxCollectionSize);
@@ -620,8 +765,8 @@ public class MoshiSnapshotHelper {
         jsonWriter.beginArray();
         Object keyObj = entry.getKey();
         Object valObj = entry.getValue();
-        serializeValue(jsonWriter, keyObj, keyObj.getClass().getName(), newLimits);
-        serializeValue(jsonWriter, valObj, valObj.getClass().getName(), newLimits);
+        serializeValue(jsonWriter, keyObj, keyObj.getClass().getName(), newLimits, timeoutChecker);
+        serializeValue(jsonWriter, valObj, valObj.getClass().getName(), newLimits, timeoutChecker);
         jsonWriter.endArray();
         i++;
       }
@@ -629,7 +774,11 @@ public class MoshiSnapshotHelper {
     }
 
     private SerializationResult serializeCollection(
-        JsonWriter jsonWriter, Collection<?> collection, Limits limits) throws IOException {
+        JsonWriter jsonWriter,
+        Collection<?> collection,
+        Limits limits,
+        TimeoutChecker timeoutChecker)
+        throws IOException {
       // /!\ here we assume that Collection#Size is O(1) /!\
       int colSize = collection.size();
       int maxSize = Math.min(colSize, limits.maxCollectionSize);
@@ -638,14 +787,15 @@ public class MoshiSnapshotHelper {
       Iterator<?> it = collection.iterator();
       while (i < maxSize && it.hasNext()) {
         Object val = it.next();
-        serializeValue(jsonWriter, val, val.getClass().getName(), newLimits);
+        serializeValue(jsonWriter, val, val.getClass().getName(), newLimits, timeoutChecker);
         i++;
       }
       return new SerializationResult(colSize, maxSize == colSize);
     }
 
     private SerializationResult serializeObjectArray(
-        JsonWriter jsonWriter, Object[] objArray, Limits limits) throws IOException {
+        JsonWriter jsonWriter, Object[] objArray, Limits limits, TimeoutChecker timeoutChecker)
+        throws IOException {
       int maxSize = Math.min(objArray.length, limits.maxCollectionSize);
       Limits newLimits = Limits.decDepthLimits(limits.maxReferenceDepth, limits);
       int i = 0;
@@ -655,7 +805,8 @@ public class MoshiSnapshotHelper {
             jsonWriter,
             val,
             val != null ? val.getClass().getName() : "java.lang.Object",
-            newLimits);
+            newLimits,
+            timeoutChecker);
         i++;
       }
       return new SerializationResult(objArray.length, maxSize == objArray.length);
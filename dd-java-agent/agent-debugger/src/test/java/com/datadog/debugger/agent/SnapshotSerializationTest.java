@@ -25,7 +25,9 @@ import com.squareup.moshi.JsonAdapter;
 import datadog.trace.bootstrap.debugger.CapturedStackFrame;
 import datadog.trace.bootstrap.debugger.DebuggerContext;
 import datadog.trace.bootstrap.debugger.Limits;
+import datadog.trace.bootstrap.debugger.ShallowCopy;
 import datadog.trace.bootstrap.debugger.Snapshot;
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
@@ -35,6 +37,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -255,6 +258,167 @@ public class SnapshotSerializationTest {
     assertPrimitiveValue(objFieldFields, "bool", "boolean", "true");
   }
 
+  @Test
+  public void copyValuesKeepsImmutableValues() {
+    Snapshot.CapturedContext context = new Snapshot.CapturedContext();
+    Snapshot.CapturedValue strField =
+        capturedValueDepth("strField", String.class.getName(), "foo", 3);
+    Snapshot.CapturedValue objField =
+        capturedValueDepth("objField", ComplexClass.class.getName(), new ComplexClass(), 3);
+    context.addFields(new Snapshot.CapturedValue[] {strField, objField});
+    context.copyValues();
+    Assert.assertEquals("foo", strField.getValue());
+    Assert.assertTrue(objField.getValue() instanceof ShallowCopy);
+    Assert.assertEquals(
+        "{\"type\":\"java.lang.String\",\"value\":\"foo\"}", strField.getStrValue());
+    context.freeze();
+    Assert.assertNull(objField.getValue());
+    Assert.assertEquals(
+        DebuggerContext.serializeValue(
+            capturedValueDepth("objField", ComplexClass.class.getName(), new ComplexClass(), 3)),
+        objField.getStrValue());
+  }
+
+  static class ManyFields {
+    int f0 = 0;
+    int f1 = 1;
+    int f2 = 2;
+    int f3 = 3;
+    int f4 = 4;
+  }
+
+  @Test
+  public void copyValuesSerializesAsOriginal() {
+    List<Integer> list = new ArrayList<>();
+    Map<String, Integer> map = new HashMap<>();
+    int[] intArray = new int[300];
+    Object[] objArray = new Object[300];
+    for (int i = 0; i < 300; i++) {
+      list.add(i);
+      map.put("key" + i, i);
+      intArray[i] = i;
+      objArray[i] = i % 2 == 0 ? null : new AnotherClass();
+    }
+    Object[] values = {
+      list, map, intArray, objArray, new ComplexClass(), new ManyFields(), new Node(10)
+    };
+    for (Object value : values) {
+      for (int limit = 0; limit < 4; limit++) {
+        Snapshot.CapturedValue original =
+            Snapshot.CapturedValue.of(
+                "value", value.getClass().getName(), value, limit, limit, 255, limit);
+        Snapshot.CapturedValue copied =
+            Snapshot.CapturedValue.of(
+                "value", value.getClass().getName(), value, limit, limit, 255, limit);
+        copied.copyValue();
+        Assert.assertEquals(
+            value.getClass().getName() + " limit " + limit,
+            DebuggerContext.serializeValue(original),
+            copied.getStrValue());
+      }
+    }
+  }
+
+  static class Mutable {
+    int count = 1;
+    String name = "before";
+    List<String> items = new ArrayList<>(Arrays.asList("a"));
+  }
+
+  @Test
+  public void copyValuesBeforeMutation() throws IOException {
+    Mutable mutable = new Mutable();
+    List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+    Snapshot.CapturedContext context = new Snapshot.CapturedContext();
+    Snapshot.CapturedValue mutableField =
+        capturedValueDepth("mutable", Mutable.class.getName(), mutable, 3);
+    Snapshot.CapturedValue listField =
+        capturedValueDepth("list", ArrayList.class.getName(), list, 3);
+    context.addFields(new Snapshot.CapturedValue[] {mutableField, listField});
+    context.copyValues();
+    mutable.count = 2;
+    mutable.name = "after";
+    mutable.items = new ArrayList<>();
+    list.add("c");
+    context.freeze(TimeoutChecker.NONE);
+    Map<String, Object> mutableJson =
+        MoshiHelper.createGenericAdapter().fromJson(mutableField.getStrValue());
+    Map<String, Object> mutableFields = (Map<String, Object>) mutableJson.get(FIELDS);
+    assertPrimitiveValue(mutableFields, "count", "int", "1");
+    assertPrimitiveValue(mutableFields, "name", String.class.getName(), "before");
+    Map<String, Object> items = (Map<String, Object>) mutableFields.get("items");
+    Assert.assertEquals("1", items.get(SIZE));
+    Map<String, Object> listJson =
+        MoshiHelper.createGenericAdapter().fromJson(listField.getStrValue());
+    Assert.assertEquals("2", listJson.get(SIZE));
+    Assert.assertEquals(2, ((List<Object>) listJson.get(ELEMENTS)).size());
+  }
+
+  @Test
+  public void freezeTimeout() throws IOException {
+    JsonAdapter<Snapshot> adapter = MoshiHelper.createMoshiSnapshot().adapter(Snapshot.class);
+    Snapshot snapshot =
+        new Snapshot(Thread.currentThread(), new Snapshot.ProbeDetails(PROBE_ID, PROBE_LOCATION));
+    Snapshot.Captures captures = snapshot.getCaptures();
+    Snapshot.CapturedContext context = new Snapshot.CapturedContext();
+    Snapshot.CapturedValue strField =
+        capturedValueDepth("strField", String.class.getName(), "foo", 3);
+    Snapshot.CapturedValue objField =
+        capturedValueDepth("objField", ComplexClass.class.getName(), new ComplexClass(), 3);
+    context.addFields(new Snapshot.CapturedValue[] {strField, objField});
+    // already timed out when freezing starts
+    context.freeze(new TimeoutChecker(-1, TimeUnit.MILLISECONDS));
+    captures.setReturn(context);
+    String buffer = adapter.toJson(snapshot);
+    System.out.println(buffer);
+    Map<String, Object> json = MoshiHelper.createGenericAdapter().fromJson(buffer);
+    Map<String, Object> capturesJson = (Map<String, Object>) json.get(CAPTURES);
+    Map<String, Object> returnJson = (Map<String, Object>) capturesJson.get(RETURN);
+    Map<String, Object> arguments = (Map<String, Object>) returnJson.get(ARGUMENTS);
+    Map<String, Object> thisArg = (Map<String, Object>) arguments.get(THIS);
+    Map<String, Object> strFieldJson = (Map<String, Object>) thisArg.get("strField");
+    Assert.assertEquals("foo", strFieldJson.get(VALUE));
+    Map<String, Object> objFieldJson = (Map<String, Object>) thisArg.get("objField");
+    Assert.assertEquals(ComplexClass.class.getName(), objFieldJson.get(TYPE));
+    Assert.assertEquals(
+        Snapshot.CapturedValue.TIMEOUT_REASON, objFieldJson.get(NOT_CAPTURED_REASON));
+  }
+
+  static class Node {
+    final Node next;
+
+    Node(int depth) {
+      this.next = depth > 1 ? new Node(depth - 1) : null;
+    }
+  }
+
+  @Test
+  public void freezeTimeoutInsideDeepValue() throws IOException {
+    Snapshot.CapturedValue deepField =
+        capturedValueDepth("deep", Node.class.getName(), new Node(10), 10);
+    // times out once the value and its first two levels of fields have been serialized
+    deepField.freeze(
+        new TimeoutChecker(1, TimeUnit.HOURS) {
+          int checks;
+
+          @Override
+          public boolean isTimedOut() {
+            return ++checks > 3;
+          }
+        });
+    Assert.assertNull(deepField.getValue());
+    Map<String, Object> level =
+        MoshiHelper.createGenericAdapter().fromJson(deepField.getStrValue());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(Node.class.getName(), level.get(TYPE));
+      Assert.assertNull(level.get(NOT_CAPTURED_REASON));
+      level = (Map<String, Object>) ((Map<String, Object>) level.get(FIELDS)).get("next");
+    }
+    Assert.assertEquals(Node.class.getName(), level.get(TYPE));
+    Assert.assertEquals(Snapshot.CapturedValue.TIMEOUT_REASON, level.get(NOT_CAPTURED_REASON));
+    Assert.assertNull(level.get(FIELDS));
+  }
+
   @Test
   public void objectArray() throws IOException {
     JsonAdapter<Snapshot> adapter = MoshiHelper.createMoshiSnapshot().adapter(Snapshot.class);
@@ -0,0 +1,76 @@
+package com.datadog.debugger.sink;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import datadog.trace.bootstrap.debugger.TimeoutChecker;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class SerializationBudgetTest {
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private long cpuTime;
+  private long nanoTime;
+
+  @Test
+  void noBudget() {
+    SerializationBudget budget = new SerializationBudget(0, () -> cpuTime, () -> nanoTime);
+    assertSame(TimeoutChecker.NONE, budget.start("probe"));
+  }
+
+  @Test
+  void budgetIsPerProbe() {
+    SerializationBudget budget = new SerializationBudget(10, () -> cpuTime, () -> nanoTime);
+    TimeoutChecker checker = budget.start("probe1");
+    cpuTime += 6 * MS;
+    assertFalse(checker.isTimedOut());
+    budget.stop(checker);
+    checker = budget.start("probe1");
+    assertFalse(checker.isTimedOut());
+    cpuTime += 5 * MS;
+    assertTrue(checker.isTimedOut());
+    budget.stop(checker);
+    // exhausted for probe1 until the next second
+    assertTrue(budget.start("probe1").isTimedOut());
+    assertFalse(budget.start("probe2").isTimedOut());
+    nanoTime += TimeUnit.SECONDS.toNanos(1);
+    assertFalse(budget.start("probe1").isTimedOut());
+  }
+
+  @Test
+  void measuresCpuTime() {
+    SerializationBudget budget = new SerializationBudget(10, () -> cpuTime, () -> nanoTime);
+    TimeoutChecker checker = budget.start("probe");
+    // waiting doesn't use the budget
+    nanoTime += 500 * MS;
+    assertFalse(checker.isTimedOut());
+    cpuTime += 11 * MS;
+    assertTrue(checker.isTimedOut());
+  }
+
+  @Test
+  void fallsBackToElapsedTime() {
+    SerializationBudget budget = new SerializationBudget(10, () -> Long.MIN_VALUE, () -> nanoTime);
+    TimeoutChecker checker = budget.start("probe");
+    nanoTime += 5 * MS;
+    assertFalse(checker.isTimedOut());
+    nanoTime += 6 * MS;
+    assertTrue(checker.isTimedOut());
+  }
+
+  @Test
+  void expire() {
+    SerializationBudget budget = new SerializationBudget(10, () -> cpuTime, () -> nanoTime);
+    budget.stop(budget.start("probe1"));
+    nanoTime += 500 * MS;
+    budget.stop(budget.start("probe2"));
+    budget.expire();
+    assertEquals(2, budget.size());
+    nanoTime += 600 * MS;
+    budget.expire();
+    assertEquals(1, budget.size());
+  }
+}
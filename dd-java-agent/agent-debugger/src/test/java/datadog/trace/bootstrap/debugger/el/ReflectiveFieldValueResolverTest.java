@@ -0,0 +1,43 @@
+package datadog.trace.bootstrap.debugger.el;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ReflectiveFieldValueResolverTest {
+  static class Base {
+    private static final String CONSTANT = "constant";
+    private final String inherited = "inherited";
+  }
+
+  static class Derived extends Base {
+    private final int value;
+
+    Derived(int value) {
+      this.value = value;
+    }
+  }
+
+  @Test
+  void resolveFields() {
+    // resolve twice to go through both the lookup and the cached field
+    for (int i = 0; i < 2; i++) {
+      Derived derived = new Derived(i);
+      assertEquals(i, ReflectiveFieldValueResolver.resolve(derived, Derived.class, "value"));
+      assertEquals(
+          "inherited", ReflectiveFieldValueResolver.resolve(derived, Derived.class, "inherited"));
+      assertEquals(
+          "constant", ReflectiveFieldValueResolver.resolve(derived, Derived.class, "CONSTANT"));
+    }
+  }
+
+  @Test
+  void resolveMissingField() {
+    for (int i = 0; i < 2; i++) {
+      assertSame(
+          Values.UNDEFINED_OBJECT,
+          ReflectiveFieldValueResolver.resolve(new Derived(i), Derived.class, "missing"));
+    }
+  }
+}
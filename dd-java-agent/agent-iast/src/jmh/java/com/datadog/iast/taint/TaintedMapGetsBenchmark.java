@@ -9,14 +9,18 @@ import java.util.List;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -31,13 +35,16 @@ public class TaintedMapGetsBenchmark {
   private static final int INITIAL_OP_COUNT = DefaultTaintedMap.DEFAULT_FLAT_MODE_THRESHOLD;
   private static final int OP_COUNT = 1024;
 
+  @Param({"default", "concurrent"})
+  String implementation;
+
   private TaintedMap map;
   private List<Object> objectList;
   private List<Object> initialObjectList;
 
   @Setup(Level.Iteration)
   public void setup() {
-    map = new DefaultTaintedMap();
+    map = TaintedMapPutsBenchmark.newMap(implementation);
     initialObjectList = new ArrayList<>(INITIAL_OP_COUNT);
     objectList = new ArrayList<>(OP_COUNT);
     for (int i = 0; i < INITIAL_OP_COUNT; i++) {
@@ -67,4 +74,36 @@ public class TaintedMapGetsBenchmark {
       bh.consume(map.get(objectList.get(i)));
     }
   }
+
+  @Benchmark
+  @Threads(8)
+  @OperationsPerInvocation(OP_COUNT)
+  public void getsConcurrently(final Blackhole bh) {
+    for (int i = 0; i < OP_COUNT; i++) {
+      bh.consume(map.get(objectList.get(i)));
+    }
+  }
+
+  /** Gets from several threads while another thread keeps putting into the same map. */
+  @Benchmark
+  @Group("getsWhilePutting")
+  @GroupThreads(7)
+  @OperationsPerInvocation(OP_COUNT)
+  public void getsWhilePutting(final Blackhole bh) {
+    for (int i = 0; i < OP_COUNT; i++) {
+      bh.consume(map.get(objectList.get(i)));
+    }
+  }
+
+  @Benchmark
+  @Group("getsWhilePutting")
+  @GroupThreads(1)
+  @OperationsPerInvocation(OP_COUNT)
+  public void putsWhileGetting(final TaintedMapPutsBenchmark.ThreadObjects objects) {
+    for (int i = 0; i < OP_COUNT; i++) {
+      final Object k = new Object();
+      objects.buffer.add(k);
+      map.put(new TaintedObject(k, new Range[0], map.getReferenceQueue()));
+    }
+  }
 }
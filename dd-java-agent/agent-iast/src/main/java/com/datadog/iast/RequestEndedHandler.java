@@ -18,11 +18,16 @@ public class RequestEndedHandler implements BiFunction<RequestContext, IGSpanInf
 
   @Override
   public Flow<Void> apply(final RequestContext requestContext, final IGSpanInfo igSpanInfo) {
-    if (requestContext != null && requestContext.getData(RequestContextSlot.IAST) != null) {
+    if (requestContext == null) {
+      return Flow.ResultFlow.empty();
+    }
+    final IastRequestContext iastRequestContext = requestContext.getData(RequestContextSlot.IAST);
+    if (iastRequestContext != null) {
       final TraceSegment traceSeg = requestContext.getTraceSegment();
       if (traceSeg != null) {
         traceSeg.setTagTop("_dd.iast.enabled", 1);
       }
+      iastRequestContext.getTaintedObjects().release();
       overheadController.releaseRequest();
     }
     return Flow.ResultFlow.empty();
@@ -0,0 +1,267 @@
+package com.datadog.iast.taint;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TaintedMap} for concurrent use, which doesn't lose entries.
+ *
+ * <p>The table is split in segments, selected by a mix of the identity hash code bits. Puts and
+ * removals lock their segment only, while gets don't lock at all unless they miss while the segment
+ * is being resized. Each segment starts small and doubles or halves its table as entries are added
+ * and purged, so a map tracking a few objects stays cheap and a busy one doesn't degrade into long
+ * chains.
+ *
+ * <p>Entries of garbage collected keys are purged incrementally: every put removes a few entries
+ * from the reference queue, so there is no global purge for puts to wait on or skip.
+ */
+public final class ConcurrentTaintedMap implements TaintedMap {
+
+  /** Initial number of buckets of each segment. It MUST be a power of 2. */
+  static final int INITIAL_SEGMENT_CAPACITY = 1 << 4;
+  /** Maximum number of buckets of each segment, chains grow past that. */
+  static final int MAX_SEGMENT_CAPACITY = 1 << 16;
+  /** Maximum number of collected entries removed by a single put. */
+  private static final int PURGE_BATCH = 4;
+
+  private final Segment[] segments;
+  /** Bitmask for fast modulo with the number of segments. */
+  private final int segmentMask;
+
+  private volatile ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+
+  /** Uses one segment per available processor, rounded up to a power of 2 and at most 64. */
+  public ConcurrentTaintedMap() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /** @param concurrency expected number of threads updating the map at the same time */
+  ConcurrentTaintedMap(final int concurrency) {
+    final int segmentCount =
+        Math.min(64, Integer.highestOneBit(Math.max(1, concurrency) * 2 - 1));
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment();
+    }
+    segmentMask = segmentCount - 1;
+  }
+
+  @Override
+  @Nullable
+  public TaintedObject get(final @Nonnull Object key) {
+    final int hash = System.identityHashCode(key) & DefaultTaintedMap.POSITIVE_MASK;
+    return segmentFor(hash).get(key, hash);
+  }
+
+  @Override
+  public void put(final @Nonnull TaintedObject entry) {
+    segmentFor(entry.positiveHashCode).put(entry);
+    purge(PURGE_BATCH);
+  }
+
+  /** Removes up to {@code limit} entries whose key has been garbage collected. */
+  void purge(final int limit) {
+    final ReferenceQueue<Object> queue = referenceQueue;
+    Reference<?> ref;
+    for (int i = 0; i < limit && (ref = queue.poll()) != null; i++) {
+      if (ref instanceof TaintedObject) {
+        final TaintedObject entry = (TaintedObject) ref;
+        segmentFor(entry.positiveHashCode).remove(entry);
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    // entries enqueued from now on belong to the old queue, which is dropped with them
+    referenceQueue = new ReferenceQueue<>();
+    for (final Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  @Override
+  public ReferenceQueue<Object> getReferenceQueue() {
+    return referenceQueue;
+  }
+
+  /** @return the number of entries, including the ones of collected keys not purged yet */
+  int size() {
+    int size = 0;
+    for (final Segment segment : segments) {
+      size += segment.count;
+    }
+    return size;
+  }
+
+  @Override
+  public Iterator<TaintedObject> iterator() {
+    return new EntryIterator();
+  }
+
+  private Segment segmentFor(final int positiveHashCode) {
+    // the low bits select the bucket within the segment, so mix the middle bits in
+    final int h = positiveHashCode * 0x9E3779B9;
+    return segments[(h >>> 16) & segmentMask];
+  }
+
+  private static final class Segment {
+    private volatile AtomicReferenceArray<TaintedObject> table =
+        new AtomicReferenceArray<>(INITIAL_SEGMENT_CAPACITY);
+    /**
+     * Incremented before and after the entries are moved to a new table, so a reader can tell
+     * whether a miss could be caused by a resize.
+     */
+    private volatile int resizes;
+    /** Number of entries, only written while holding the segment lock. */
+    private volatile int count;
+
+    TaintedObject get(final Object key, final int hash) {
+      final int resizesBefore = resizes;
+      final TaintedObject found = find(table, key, hash);
+      if (found != null || ((resizesBefore & 1) == 0 && resizesBefore == resizes)) {
+        return found;
+      }
+      synchronized (this) {
+        return find(table, key, hash);
+      }
+    }
+
+    synchronized void put(final TaintedObject entry) {
+      AtomicReferenceArray<TaintedObject> table = this.table;
+      if (count >= threshold(table.length()) && table.length() < MAX_SEGMENT_CAPACITY) {
+        table = resize(table.length() << 1);
+      }
+      final int index = entry.positiveHashCode & (table.length() - 1);
+      final Object key = entry.get();
+      // an entry for the same key is replaced, chains are short enough to check
+      TaintedObject head = table.get(index);
+      TaintedObject prev = null;
+      for (TaintedObject cur = head; cur != null; prev = cur, cur = cur.next) {
+        if (cur.get() == key) {
+          if (prev == null) {
+            head = cur.next;
+          } else {
+            prev.next = cur.next;
+          }
+          count = count - 1;
+          break;
+        }
+      }
+      entry.next = head;
+      table.set(index, entry);
+      count = count + 1;
+    }
+
+    synchronized void remove(final TaintedObject entry) {
+      final AtomicReferenceArray<TaintedObject> table = this.table;
+      final int index = entry.positiveHashCode & (table.length() - 1);
+      TaintedObject cur = table.get(index);
+      if (cur == entry) {
+        table.set(index, entry.next);
+      } else {
+        TaintedObject prev = null;
+        while (cur != null && cur != entry) {
+          prev = cur;
+          cur = cur.next;
+        }
+        if (cur == null) {
+          // already removed by clear()
+          return;
+        }
+        prev.next = entry.next;
+      }
+      count = count - 1;
+      if (count < table.length() >> 3 && table.length() > INITIAL_SEGMENT_CAPACITY) {
+        resize(table.length() >> 1);
+      }
+    }
+
+    synchronized void clear() {
+      table = new AtomicReferenceArray<>(INITIAL_SEGMENT_CAPACITY);
+      count = 0;
+    }
+
+    private AtomicReferenceArray<TaintedObject> resize(final int capacity) {
+      final AtomicReferenceArray<TaintedObject> oldTable = table;
+      final AtomicReferenceArray<TaintedObject> newTable = new AtomicReferenceArray<>(capacity);
+      final int mask = capacity - 1;
+      resizes = resizes + 1;
+      for (int i = 0; i < oldTable.length(); i++) {
+        TaintedObject entry = oldTable.get(i);
+        while (entry != null) {
+          final TaintedObject next = entry.next;
+          final int index = entry.positiveHashCode & mask;
+          entry.next = newTable.get(index);
+          newTable.set(index, entry);
+          entry = next;
+        }
+      }
+      table = newTable;
+      resizes = resizes + 1;
+      return newTable;
+    }
+
+    private static TaintedObject find(
+        final AtomicReferenceArray<TaintedObject> table, final Object key, final int hash) {
+      TaintedObject entry = table.get(hash & (table.length() - 1));
+      while (entry != null) {
+        if (key == entry.get()) {
+          return entry;
+        }
+        entry = entry.next;
+      }
+      return null;
+    }
+
+    private static int threshold(final int capacity) {
+      return capacity - (capacity >> 2);
+    }
+  }
+
+  private final class EntryIterator implements Iterator<TaintedObject> {
+    private int segmentIndex = 0;
+    private AtomicReferenceArray<TaintedObject> table = segments[0].table;
+    private int bucket = 0;
+    private TaintedObject next = advance(null);
+
+    private TaintedObject advance(final TaintedObject current) {
+      if (current != null && current.next != null) {
+        return current.next;
+      }
+      while (true) {
+        while (bucket < table.length()) {
+          final TaintedObject entry = table.get(bucket++);
+          if (entry != null) {
+            return entry;
+          }
+        }
+        if (++segmentIndex >= segments.length) {
+          return null;
+        }
+        table = segments[segmentIndex].table;
+        bucket = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public TaintedObject next() {
+      final TaintedObject current = next;
+      if (current == null) {
+        throw new NoSuchElementException();
+      }
+      next = advance(current);
+      return current;
+    }
+  }
+}
@@ -21,7 +21,7 @@ import javax.annotation.Nullable;
  * removed before this threshold is checked.
  *
  * <p>This implementation works reasonably well under high concurrency, but it will lose some writes
- * in that case.
+ * in that case. {@link ConcurrentTaintedMap} doesn't lose writes and sizes itself to its entries.
  */
 public final class DefaultTaintedMap implements TaintedMap {
 
@@ -9,13 +9,21 @@ public class TaintedObjects {
   private final TaintedMap map;
 
   public TaintedObjects() {
-    this(new DefaultTaintedMap());
+    this(new ConcurrentTaintedMap());
   }
 
   public TaintedObjects(final @Nonnull TaintedMap map) {
     this.map = map;
   }
 
+  /**
+   * Creates the tainted objects of a single request. These are seldom updated by more than one
+   * thread at a time, so a single segment is enough and keeps the request start cheap.
+   */
+  public static TaintedObjects forRequest() {
+    return new TaintedObjects(new ConcurrentTaintedMap(1));
+  }
+
   public void taintInputString(final @Nonnull String obj, final @Nonnull Source source) {
     map.put(new TaintedObject(obj, Ranges.forString(obj, source), map.getReferenceQueue()));
   }
@@ -27,4 +35,12 @@ public class TaintedObjects {
   public TaintedObject get(final @Nonnull Object obj) {
     return map.get(obj);
   }
+
+  /**
+   * Drops every tainted object at once when the request ends, rather than waiting for the request
+   * context to be collected and the entries to be purged one by one.
+   */
+  public void release() {
+    map.clear();
+  }
 }
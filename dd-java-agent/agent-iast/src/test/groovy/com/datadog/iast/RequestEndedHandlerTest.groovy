@@ -2,6 +2,7 @@ package com.datadog.iast
 
 
 import com.datadog.iast.overhead.OverheadController
+import com.datadog.iast.taint.TaintedObjects
 import datadog.trace.api.TraceSegment
 import datadog.trace.api.gateway.Flow
 import datadog.trace.api.gateway.IGSpanInfo
@@ -16,6 +17,7 @@ class RequestEndedHandlerTest extends DDSpecification {
     final OverheadController overheadController = Mock(OverheadController)
     final handler = new RequestEndedHandler(overheadController)
     final iastCtx = Mock(IastRequestContext)
+    final taintedObjects = Mock(TaintedObjects)
     final TraceSegment traceSegment = Mock(TraceSegment)
     final reqCtx = Mock(RequestContext)
     reqCtx.getTraceSegment() >> traceSegment
@@ -31,6 +33,8 @@ class RequestEndedHandlerTest extends DDSpecification {
     1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
     1 * reqCtx.getTraceSegment() >> traceSegment
     1 * traceSegment.setTagTop("_dd.iast.enabled", 1)
+    1 * iastCtx.getTaintedObjects() >> taintedObjects
+    1 * taintedObjects.release()
     1 * overheadController.releaseRequest()
     0 * _
   }
@@ -0,0 +1,151 @@
+package com.datadog.iast.taint
+
+import com.datadog.iast.model.Range
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class ConcurrentTaintedMapTest extends DDSpecification {
+
+  def 'simple workflow'() {
+    given:
+    def map = new ConcurrentTaintedMap()
+    final o = new Object()
+    final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+
+    expect:
+    map.size() == 0
+    map.toList().size() == 0
+
+    when:
+    map.put(to)
+
+    then:
+    map.size() == 1
+    map.toList() == [to]
+    map.get(o) == to
+    map.get(new Object()) == null
+
+    when:
+    map.clear()
+
+    then:
+    map.size() == 0
+    map.toList().size() == 0
+    map.get(o) == null
+  }
+
+  def 'putting the same key again replaces its entry'() {
+    given:
+    def map = new ConcurrentTaintedMap()
+    final o = new Object()
+    final first = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+    final second = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+
+    when:
+    map.put(first)
+    map.put(second)
+
+    then:
+    map.size() == 1
+    map.get(o) == second
+  }
+
+  def 'no entry is lost past the default map flat mode threshold'() {
+    given:
+    int nTotalObjects = DefaultTaintedMap.DEFAULT_FLAT_MODE_THRESHOLD * 4
+    def map = new ConcurrentTaintedMap(concurrency)
+    def objects = new ArrayList<Tuple2<Object, TaintedObject>>(nTotalObjects)
+
+    when:
+    for (int i = 0; i < nTotalObjects; i++) {
+      final o = new Object()
+      final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+      objects.add(new Tuple2(o, to))
+      map.put(to)
+    }
+
+    then:
+    map.size() == nTotalObjects
+    map.toList().size() == nTotalObjects
+    objects.every { map.get(it.get(0)) == it.get(1) }
+
+    where:
+    concurrency << [1, 8, 32]
+  }
+
+  def 'collected entries are purged by later puts and the table shrinks back'() {
+    given:
+    int nObjects = 4096
+    int nRetainedObjects = 8
+    def map = new ConcurrentTaintedMap(1)
+    def retained = (1..nRetainedObjects).collect {
+      final o = new Object()
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+      return o
+    }
+    def dropped = (1..nObjects).collect {
+      final to = new TaintedObject(new Object(), [] as Range[], map.getReferenceQueue())
+      map.put(to)
+      return to
+    }
+
+    when: 'the keys are collected'
+    dropped.each { it.enqueue() }
+    (1..nObjects).each {
+      final to = new TaintedObject(retained[it % nRetainedObjects], [] as Range[], map.getReferenceQueue())
+      map.put(to)
+    }
+
+    then:
+    map.size() == nRetainedObjects
+    retained.every { map.get(it) != null }
+    map.toList().size() == nRetainedObjects
+  }
+
+  def 'multi-threaded puts and gets do not lose entries'() {
+    given:
+    int nThreads = 32
+    int nObjectsPerThread = 1024
+    def executorService = Executors.newFixedThreadPool(nThreads)
+    def startLatch = new CountDownLatch(nThreads)
+    def map = new ConcurrentTaintedMap()
+    def objectHolder = new ConcurrentHashMap<Object, TaintedObject>()
+
+    when:
+    def futures = (1..nThreads).collect { thread ->
+      executorService.submit({
+        ->
+        final tuples = new ArrayList<Tuple2<Object, TaintedObject>>(nObjectsPerThread)
+        for (int i = 0; i < nObjectsPerThread; i++) {
+          final o = new Object()
+          final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+          tuples.add(new Tuple2<Object, TaintedObject>(o, to))
+          objectHolder.put(o, to)
+        }
+        startLatch.countDown()
+        startLatch.await()
+        int missing = 0
+        tuples.each {
+          map.put(it.get(1))
+          if (map.get(it.get(0)) != it.get(1)) {
+            missing++
+          }
+        }
+        return missing
+      } as Callable<Integer>)
+    }
+    def missing = futures.sum { it.get() }
+
+    then:
+    missing == 0
+    map.size() == nThreads * nObjectsPerThread
+    objectHolder.every { map.get(it.key) == it.value }
+
+    cleanup:
+    executorService?.shutdown()
+  }
+}
@@ -0,0 +1,26 @@
+package com.datadog.iast.taint
+
+import com.datadog.iast.model.Source
+import com.datadog.iast.model.SourceType
+import datadog.trace.test.util.DDSpecification
+
+class TaintedObjectsTest extends DDSpecification {
+
+  def 'request tainted objects are dropped when released'() {
+    given:
+    final taintedObjects = TaintedObjects.forRequest()
+    final value = 'value'
+
+    when:
+    taintedObjects.taintInputString(value, new Source(SourceType.REQUEST_PARAMETER_VALUE, 'name', value))
+
+    then:
+    taintedObjects.get(value) != null
+
+    when:
+    taintedObjects.release()
+
+    then:
+    taintedObjects.get(value) == null
+  }
+}
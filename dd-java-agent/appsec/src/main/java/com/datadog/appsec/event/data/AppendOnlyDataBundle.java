@@ -0,0 +1,131 @@
+package com.datadog.appsec.event.data;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Data bundle whose values can be added but never replaced nor removed. Values are stored in an
+ * array indexed by {@link Address#getSerial()}, so lookups don't hash, and the addresses are kept
+ * in the order they were added in.
+ *
+ * <p>Values can be added from several threads. Reads don't lock and see a consistent prefix of the
+ * added addresses.
+ */
+public final class AppendOnlyDataBundle implements DataBundle {
+  private volatile AtomicReferenceArray<Object> values =
+      new AtomicReferenceArray<>(Address.instanceCount());
+  // written before size, so readers reading size first see all the addresses it covers
+  private volatile Address<?>[] addresses = new Address<?>[8];
+  private volatile int size;
+
+  /**
+   * Adds the value of an address, unless the address already has one.
+   *
+   * @return the value the address already had, or null if {@code value} was added
+   * @throws NullPointerException if {@code value} is null, which would read as no value
+   */
+  public synchronized Object putIfAbsent(Address<?> address, Object value) {
+    if (value == null) {
+      throw new NullPointerException("null value for address " + address);
+    }
+    int serial = address.getSerial();
+    AtomicReferenceArray<Object> values = this.values;
+    if (serial >= values.length()) {
+      // the address was created after this bundle
+      AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(Address.instanceCount());
+      for (int i = 0; i < values.length(); i++) {
+        grown.set(i, values.get(i));
+      }
+      values = grown;
+      this.values = grown;
+    }
+    Object prev = values.get(serial);
+    if (prev != null) {
+      return prev;
+    }
+    values.set(serial, value);
+
+    int size = this.size;
+    Address<?>[] addresses = this.addresses;
+    if (size == addresses.length) {
+      addresses = Arrays.copyOf(addresses, size << 1);
+    }
+    addresses[size] = address;
+    this.addresses = addresses;
+    this.size = size + 1;
+    return null;
+  }
+
+  @Override
+  public boolean hasAddress(Address<?> addr) {
+    return get(addr) != null;
+  }
+
+  @Override
+  public Collection<Address<?>> getAllAddresses() {
+    final int size = this.size;
+    final Address<?>[] addresses = this.addresses;
+    return new AbstractCollection<Address<?>>() {
+      @Override
+      public Iterator<Address<?>> iterator() {
+        return new Iterator<Address<?>>() {
+          private int next;
+
+          @Override
+          public boolean hasNext() {
+            return next < size;
+          }
+
+          @Override
+          public Address<?> next() {
+            if (next >= size) {
+              throw new NoSuchElementException();
+            }
+            return addresses[next++];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Address<T> addr) {
+    AtomicReferenceArray<Object> values = this.values;
+    int serial = addr.getSerial();
+    return serial < values.length() ? (T) values.get(serial) : null;
+  }
+
+  @Override
+  public Iterator<Map.Entry<Address<?>, Object>> iterator() {
+    final Iterator<Address<?>> addresses = getAllAddresses().iterator();
+    return new Iterator<Map.Entry<Address<?>, Object>>() {
+      @Override
+      public boolean hasNext() {
+        return addresses.hasNext();
+      }
+
+      @Override
+      public Map.Entry<Address<?>, Object> next() {
+        Address<?> address = addresses.next();
+        return new AbstractMap.SimpleImmutableEntry<>(address, get(address));
+      }
+    };
+  }
+}
@@ -16,6 +16,18 @@ public final class ObjectIntrospection {
 
   private static final Method trySetAccessible;
 
+  private static final byte OBJECT_FIELD = 0;
+  private static final byte NUMERIC_FIELD = 1;
+  private static final byte STRING_FIELD = 2;
+
+  private static final ClassValue<ClassPlan> PLANS =
+      new ClassValue<ClassPlan>() {
+        @Override
+        protected ClassPlan computeValue(Class<?> type) {
+          return ClassPlan.of(type);
+        }
+      };
+
   static {
     // Method AccessibleObject.trySetAccessible introduced in Java 9
     Method method = null;
@@ -39,7 +51,8 @@ public final class ObjectIntrospection {
    * in other threads.
    *
    * <p>Certain instance fields are excluded. Right now, this includes metaClass fields in Groovy
-   * objects and this$0 fields in inner classes.
+   * objects and this$0 fields in inner classes. Which fields of a class are converted, and how, is
+   * worked out once per class and reused afterwards.
    *
    * @param obj an arbitrary object
    * @return the converted object
@@ -104,6 +117,14 @@ public final class ObjectIntrospection {
     if (clazz.isArray()) {
       int length = Array.getLength(obj);
       List<Object> newList = new ArrayList<>(length);
+      if (isNumericPrimitive(clazz.getComponentType())) {
+        // elements can't be null nor nest further, no need to go through doConversion
+        for (int i = 0; i < length && elemsLeft[0] > 0; i++) {
+          newList.add(
+              --elemsLeft[0] <= 0 || depth >= MAX_DEPTH ? null : String.valueOf(Array.get(obj, i)));
+        }
+        return newList;
+      }
       for (int i = 0; i < length && elemsLeft[0] > 0; i++) {
         newList.add(guardedConversion(Array.get(obj, i), depth + 1, elemsLeft));
       }
@@ -111,46 +132,107 @@ public final class ObjectIntrospection {
     }
 
     // else general objects
-    Map<String, Object> newMap = new HashMap<>();
-    List<Field[]> allFields = new ArrayList<>();
-    for (Class<?> classToLook = clazz;
-        classToLook != null && classToLook != Object.class;
-        classToLook = classToLook.getSuperclass()) {
-      allFields.add(classToLook.getDeclaredFields());
+    ClassPlan plan = PLANS.get(clazz);
+    if (plan.opaque) {
+      // One of fields is inaccessible, might be it's Strongly Encapsulated Internal class
+      // consider it as integral object without introspection
+      return obj.toString();
     }
 
-    outer:
-    for (Field[] fields : allFields) {
-      for (Field f : fields) {
-        if (elemsLeft[0] <= 0) {
-          break outer;
-        }
-        if (Modifier.isStatic(f.getModifiers())) {
-          continue;
-        }
-        if (f.getType().getName().equals("groovy.lang.MetaClass")) {
-          continue;
+    Field[] fields = plan.fields;
+    Map<String, Object> newMap = new HashMap<>(plan.mapCapacity);
+    for (int i = 0; i < fields.length && elemsLeft[0] > 0; i++) {
+      Field f = fields[i];
+      try {
+        newMap.put(f.getName(), convertField(f, plan.kinds[i], obj, depth + 1, elemsLeft));
+      } catch (IllegalAccessException e) {
+        log.error("Unable to get field value", e);
+      }
+    }
+
+    return newMap;
+  }
+
+  private static Object convertField(
+      Field field, byte kind, Object obj, int depth, int[] elemsLeft)
+      throws IllegalAccessException {
+    switch (kind) {
+      case NUMERIC_FIELD:
+        // same outcome as doConversion on the boxed number, without the type checks
+        if (--elemsLeft[0] <= 0 || depth > MAX_DEPTH) {
+          return null;
         }
-        String name = f.getName();
-        if (name.equals("this$0")) {
-          continue;
+        return String.valueOf(field.get(obj));
+      case STRING_FIELD:
+        if (--elemsLeft[0] <= 0 || depth > MAX_DEPTH) {
+          return null;
         }
+        return field.get(obj);
+      default:
+        return guardedConversion(field.get(obj), depth, elemsLeft);
+    }
+  }
+
+  private static boolean isNumericPrimitive(Class<?> type) {
+    // boolean and char aren't boxed into numbers, so they take the general path
+    return type != null && type.isPrimitive() && type != boolean.class && type != char.class;
+  }
+
+  /**
+   * The instance fields to convert for a class, along with how to convert each of them. Computing
+   * it walks the class hierarchy and makes the fields accessible, so it's only done once per class.
+   */
+  private static final class ClassPlan {
+    private static final ClassPlan OPAQUE = new ClassPlan(new Field[0], new byte[0], true);
+
+    final Field[] fields;
+    final byte[] kinds;
+    final boolean opaque;
+    final int mapCapacity;
+
+    private ClassPlan(Field[] fields, byte[] kinds, boolean opaque) {
+      this.fields = fields;
+      this.kinds = kinds;
+      this.opaque = opaque;
+      this.mapCapacity = (int) Math.ceil(fields.length / .75);
+    }
 
-        if (setAccessible(f)) {
-          try {
-            newMap.put(f.getName(), guardedConversion(f.get(obj), depth + 1, elemsLeft));
-          } catch (IllegalAccessException e) {
-            log.error("Unable to get field value", e);
+    static ClassPlan of(Class<?> clazz) {
+      List<Field> included = new ArrayList<>();
+      for (Class<?> classToLook = clazz;
+          classToLook != null && classToLook != Object.class;
+          classToLook = classToLook.getSuperclass()) {
+        for (Field f : classToLook.getDeclaredFields()) {
+          if (Modifier.isStatic(f.getModifiers())) {
+            continue;
+          }
+          if (f.getType().getName().equals("groovy.lang.MetaClass")) {
+            continue;
+          }
+          if (f.getName().equals("this$0")) {
+            continue;
           }
+          if (!setAccessible(f)) {
+            return OPAQUE;
+          }
+          included.add(f);
+        }
+      }
+
+      Field[] fields = included.toArray(new Field[0]);
+      byte[] kinds = new byte[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        Class<?> type = fields[i].getType();
+        if (isNumericPrimitive(type)) {
+          kinds[i] = NUMERIC_FIELD;
+        } else if (type == String.class) {
+          kinds[i] = STRING_FIELD;
         } else {
-          // One of fields is inaccessible, might be it's Strongly Encapsulated Internal class
-          // consider it as integral object without introspection
-          return obj.toString();
+          kinds[i] = OBJECT_FIELD;
         }
       }
+      return new ClassPlan(fields, kinds, false);
     }
-
-    return newMap;
   }
 
   /**
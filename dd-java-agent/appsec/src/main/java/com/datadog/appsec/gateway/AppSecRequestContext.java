@@ -1,18 +1,20 @@
 package com.datadog.appsec.gateway;
 
 import com.datadog.appsec.event.data.Address;
+import com.datadog.appsec.event.data.AppendOnlyDataBundle;
 import com.datadog.appsec.event.data.DataBundle;
 import com.datadog.appsec.event.data.KnownAddresses;
 import com.datadog.appsec.report.raw.events.AppSecEvent100;
 import com.datadog.appsec.util.StandardizedLogging;
 import datadog.trace.api.TraceSegment;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.http.StoredBodySupplier;
 import io.sqreen.powerwaf.Additive;
 import io.sqreen.powerwaf.PowerwafContext;
 import io.sqreen.powerwaf.PowerwafMetrics;
 import java.io.Closeable;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +48,11 @@ public class AppSecRequestContext implements DataBundle, Closeable {
               "accept-encoding",
               "accept-language"));
 
-  private final ConcurrentHashMap<Address<?>, Object> persistentData = new ConcurrentHashMap<>();
+  // header names seen by an application are a small set, lowercase each of them only once
+  private static final DDCache<String, String> LOWERCASE_HEADER_NAMES =
+      DDCaches.newFixedSizeCache(256);
+
+  private final AppendOnlyDataBundle persistentData = new AppendOnlyDataBundle();
   private Collection<AppSecEvent100> collectedEvents; // guarded by this
 
   // assume these will always be written and read by the same thread
@@ -135,12 +141,12 @@ public class AppSecRequestContext implements DataBundle, Closeable {
 
   @Override
   public boolean hasAddress(Address<?> addr) {
-    return persistentData.containsKey(addr);
+    return persistentData.hasAddress(addr);
   }
 
   @Override
   public Collection<Address<?>> getAllAddresses() {
-    return persistentData.keySet();
+    return persistentData.getAllAddresses();
   }
 
   @Override
@@ -149,14 +155,13 @@ public class AppSecRequestContext implements DataBundle, Closeable {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T> T get(Address<T> addr) {
-    return (T) persistentData.get(addr);
+    return persistentData.get(addr);
   }
 
   @Override
   public Iterator<Map.Entry<Address<?>, Object>> iterator() {
-    return persistentData.entrySet().iterator();
+    return persistentData.iterator();
   }
 
   /* Interface for use of GatewayBridge */
@@ -199,10 +204,14 @@ public class AppSecRequestContext implements DataBundle, Closeable {
     }
 
     List<String> strings =
-        requestHeaders.computeIfAbsent(name.toLowerCase(), h -> new ArrayList<>(1));
+        requestHeaders.computeIfAbsent(lowercaseHeaderName(name), h -> new ArrayList<>(1));
     strings.add(value);
   }
 
+  private static String lowercaseHeaderName(String name) {
+    return LOWERCASE_HEADER_NAMES.computeIfAbsent(name, n -> n.toLowerCase(Locale.ROOT));
+  }
+
   void finishRequestHeaders() {
     this.finishedRequestHeaders = true;
   }
@@ -225,7 +234,7 @@ public class AppSecRequestContext implements DataBundle, Closeable {
     }
 
     List<String> strings =
-        responseHeaders.computeIfAbsent(name.toLowerCase(), h -> new ArrayList<>(1));
+        responseHeaders.computeIfAbsent(lowercaseHeaderName(name), h -> new ArrayList<>(1));
     strings.add(value);
   }
 
@@ -301,7 +310,7 @@ public class AppSecRequestContext implements DataBundle, Closeable {
   }
 
   public boolean isPathParamsPublished() {
-    return persistentData.containsKey(KnownAddresses.REQUEST_PATH_PARAMS);
+    return persistentData.hasAddress(KnownAddresses.REQUEST_PATH_PARAMS);
   }
 
   public boolean isRawReqBodyPublished() {
@@ -95,6 +95,8 @@ public class PowerWAFModule implements AppSecModule {
 
   private static class CtxAndAddresses {
     final Collection<Address<?>> addressesOfInterest;
+    // indexed by address serial, checked for every address passed to the WAF
+    final boolean[] isAddressOfInterest;
     final PowerwafContext ctx;
     final Map<String, RuleInfo> rulesInfoMap;
     final Map<String /* id */, ActionInfo> actionInfoMap;
@@ -105,6 +107,10 @@ public class PowerWAFModule implements AppSecModule {
         Map<String, RuleInfo> rulesInfoMap,
         Map<String, ActionInfo> actionInfoMap) {
       this.addressesOfInterest = addressesOfInterest;
+      this.isAddressOfInterest = new boolean[Address.instanceCount()];
+      for (Address<?> address : addressesOfInterest) {
+        this.isAddressOfInterest[address.getSerial()] = true;
+      }
       this.ctx = ctx;
       this.rulesInfoMap = rulesInfoMap;
       this.actionInfoMap = actionInfoMap;
@@ -464,7 +470,7 @@ public class PowerWAFModule implements AppSecModule {
         Additive additive, PowerwafMetrics metrics, DataBundle newData, CtxAndAddresses ctxAndAddr)
         throws AbstractPowerwafException {
       return additive.run(
-          new DataBundleMapWrapper(ctxAndAddr.addressesOfInterest, newData), LIMITS, metrics);
+          new DataBundleMapWrapper(ctxAndAddr.isAddressOfInterest, newData), LIMITS, metrics);
     }
   }
 
@@ -472,7 +478,7 @@ public class PowerWAFModule implements AppSecModule {
       PowerwafMetrics metrics, DataBundle bundle, CtxAndAddresses ctxAndAddr)
       throws AbstractPowerwafException {
     return ctxAndAddr.ctx.runRules(
-        new DataBundleMapWrapper(ctxAndAddr.addressesOfInterest, bundle), LIMITS, metrics);
+        new DataBundleMapWrapper(ctxAndAddr.isAddressOfInterest, bundle), LIMITS, metrics);
   }
 
   private Collection<AppSecEvent100> buildEvents(
@@ -544,12 +550,11 @@ public class PowerWAFModule implements AppSecModule {
   }
 
   private static final class DataBundleMapWrapper implements Map<String, Object> {
-    private final Collection<Address<?>> addressesOfInterest;
+    private final boolean[] isAddressOfInterest;
     private final DataBundle dataBundle;
 
-    private DataBundleMapWrapper(
-        Collection<Address<?>> addressesOfInterest, DataBundle dataBundle) {
-      this.addressesOfInterest = addressesOfInterest;
+    private DataBundleMapWrapper(boolean[] isAddressOfInterest, DataBundle dataBundle) {
+      this.isAddressOfInterest = isAddressOfInterest;
       this.dataBundle = dataBundle;
     }
 
@@ -595,8 +600,7 @@ public class PowerWAFModule implements AppSecModule {
             }
             // the usage pattern in powerwaf allows object recycling here
             entry.key = next.getKey();
-            entry.value =
-                addressesOfInterest.contains(next) ? dataBundle.get(next) : Collections.emptyMap();
+            entry.value = isOfInterest(next) ? dataBundle.get(next) : Collections.emptyMap();
             next = computeNextAddress();
             return entry;
           }
@@ -604,6 +608,11 @@ public class PowerWAFModule implements AppSecModule {
       }
     }
 
+    private boolean isOfInterest(Address<?> address) {
+      int serial = address.getSerial();
+      return serial < isAddressOfInterest.length && isAddressOfInterest[serial];
+    }
+
     @Override
     public int size() {
       return dataBundle.size();
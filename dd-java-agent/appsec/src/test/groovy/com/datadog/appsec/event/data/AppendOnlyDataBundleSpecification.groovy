@@ -0,0 +1,75 @@
+package com.datadog.appsec.event.data
+
+import datadog.trace.test.util.DDSpecification
+
+class AppendOnlyDataBundleSpecification extends DDSpecification {
+
+  AppendOnlyDataBundle bundle = new AppendOnlyDataBundle()
+
+  void 'values are kept in the order they were added in'() {
+    when:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+    bundle.putIfAbsent(KnownAddresses.REQUEST_BODY_OBJECT, [a: 'b'])
+    bundle.putIfAbsent(KnownAddresses.REQUEST_CLIENT_IP, '::1')
+
+    then:
+    bundle.size() == 3
+    bundle.allAddresses as List == [
+      KnownAddresses.REQUEST_URI_RAW,
+      KnownAddresses.REQUEST_BODY_OBJECT,
+      KnownAddresses.REQUEST_CLIENT_IP
+    ]
+    bundle.collect { [it.key, it.value] } == [
+      [KnownAddresses.REQUEST_URI_RAW, '/a'],
+      [KnownAddresses.REQUEST_BODY_OBJECT, [a: 'b']],
+      [KnownAddresses.REQUEST_CLIENT_IP, '::1']
+    ]
+    bundle.get(KnownAddresses.REQUEST_BODY_OBJECT) == [a: 'b']
+    bundle.hasAddress(KnownAddresses.REQUEST_CLIENT_IP)
+    !bundle.hasAddress(KnownAddresses.REQUEST_METHOD)
+    bundle.get(KnownAddresses.REQUEST_METHOD) == null
+  }
+
+  void 'values are not replaced'() {
+    when:
+    def first = bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+    def second = bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/b')
+
+    then:
+    first == null
+    second == '/a'
+    bundle.size() == 1
+    bundle.get(KnownAddresses.REQUEST_URI_RAW) == '/a'
+  }
+
+  void 'null values are rejected'() {
+    when:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, null)
+
+    then:
+    thrown(NullPointerException)
+    bundle.size() == 0
+    !bundle.hasAddress(KnownAddresses.REQUEST_URI_RAW)
+
+    when:
+    def prev = bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+
+    then:
+    prev == null
+    bundle.size() == 1
+    bundle.allAddresses as List == [KnownAddresses.REQUEST_URI_RAW]
+  }
+
+  void 'address views taken before an addition are not affected by it'() {
+    setup:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+    def addresses = bundle.allAddresses
+
+    when:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_CLIENT_IP, '::1')
+
+    then:
+    addresses as List == [KnownAddresses.REQUEST_URI_RAW]
+    bundle.allAddresses.size() == 2
+  }
+}
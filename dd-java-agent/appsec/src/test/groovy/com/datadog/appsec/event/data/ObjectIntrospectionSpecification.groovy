@@ -73,6 +73,31 @@ class ObjectIntrospectionSpecification extends Specification {
     convert(new ClassToBeConvertedExt()) == [c: 'd', a: 'b', l: ['1', '2']]
   }
 
+  @SuppressWarnings('UnusedPrivateField')
+  static class ClassWithPrimitives {
+    private int i = 1
+    private double d = 0.5
+    private boolean b = true
+    private String s = 's'
+    private String nullString = null
+    private long[] longs = [2L, 3L] as long[]
+  }
+
+  void 'primitive and string fields are converted like their boxed values'() {
+    setup:
+    def expected = [i: '1', d: '0.5', b: convert(Boolean.TRUE), s: 's', nullString: null, longs: ['2', '3']]
+
+    expect:
+    convert(new ClassWithPrimitives()) == expected
+    convert(new ClassWithPrimitives()) == expected // again, with the cached class plan
+  }
+
+  void 'max number of elements is honored for primitive arrays'() {
+    expect:
+    convert([[1] * 255 as int[]])[0].size() == 254 // +2 for the lists
+    convert([[1] * 255 as int[]])[0][253] == null
+  }
+
   void 'max number of elements is honored'() {
     setup:
     def m = [:]
@@ -59,6 +59,8 @@ public final class ConfigDefaults {
   static final String DEFAULT_PROPAGATION_STYLE_INJECT = PropagationStyle.DATADOG.name();
   static final boolean DEFAULT_JMX_FETCH_ENABLED = true;
   static final boolean DEFAULT_TRACE_AGENT_V05_ENABLED = false;
+  static final int DEFAULT_TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES = 0;
+  static final boolean DEFAULT_TRACE_COMPRESSION_ENABLED = false;
 
   static final boolean DEFAULT_CLIENT_IP_ENABLED = false;
 
@@ -114,6 +116,7 @@ public final class ConfigDefaults {
   static final int DEFAULT_DEBUGGER_MAX_PAYLOAD_SIZE = 1024; // KiB
   static final boolean DEFAULT_DEBUGGER_VERIFY_BYTECODE = false;
   static final boolean DEFAULT_DEBUGGER_INSTRUMENT_THE_WORLD = false;
+  static final int DEFAULT_DEBUGGER_PROBE_SERIALIZATION_BUDGET = 20; // ms per second, 0 = none
 
   static final boolean DEFAULT_TRACE_REPORT_HOSTNAME = false;
   static final String DEFAULT_TRACE_ANNOTATIONS = null;
@@ -137,6 +140,9 @@ public final class ConfigDefaults {
   static final int DEFAULT_TELEMETRY_HEARTBEAT_INTERVAL = 60; // in seconds
 
   public static final int DEFAULT_TRACE_X_DATADOG_TAGS_MAX_LENGTH = 512;
+  static final int DEFAULT_TRACE_SERIALIZATION_THREADS = 1;
+  static final int DEFAULT_TRACE_SEND_THREADS = 0; // 0 = send on the serializer thread
+  static final int DEFAULT_TRACE_SEND_QUEUE_SIZE = 4;
 
   private ConfigDefaults() {}
 }
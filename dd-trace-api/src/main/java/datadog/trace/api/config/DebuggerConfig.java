@@ -21,6 +21,8 @@ public final class DebuggerConfig {
   public static final String DEBUGGER_INSTRUMENT_THE_WORLD =
       "dynamic.instrumentation.instrument.the.world";
   public static final String DEBUGGER_EXCLUDE_FILE = "dynamic.instrumentation.exclude.file";
+  public static final String DEBUGGER_PROBE_SERIALIZATION_BUDGET =
+      "dynamic.instrumentation.probe.serialization.budget";
 
   private DebuggerConfig() {}
 }
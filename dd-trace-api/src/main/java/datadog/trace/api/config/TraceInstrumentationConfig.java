@@ -92,5 +92,7 @@ public final class TraceInstrumentationConfig {
   public static final String RESOLVER_TYPE_POOL_SIZE = "resolver.type.pool.size";
   public static final String RESOLVER_USE_LOADCLASS = "resolver.use.loadclass";
 
+  public static final String LEGACY_INSTALLER_ENABLED = "legacy.installer.enabled";
+
   private TraceInstrumentationConfig() {}
 }
@@ -69,6 +69,9 @@ public final class TracerConfig {
   public static final String PROPAGATION_STYLE_INJECT = "propagation.style.inject";
 
   public static final String ENABLE_TRACE_AGENT_V05 = "trace.agent.v0.5.enabled";
+  public static final String TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES =
+      "trace.agent.v0.5.dictionary.retained.entries";
+  public static final String TRACE_COMPRESSION_ENABLED = "trace.compression.enabled";
 
   public static final String CLIENT_IP_ENABLED = "trace.client-ip.enabled";
 
@@ -86,6 +89,9 @@ public final class TracerConfig {
   public static final String TRACE_X_DATADOG_TAGS_MAX_LENGTH = "trace.x-datadog-tags.max.length";
 
   public static final String CLOCK_SYNC_PERIOD = "trace.clock.sync.period";
+  public static final String TRACE_SERIALIZATION_THREADS = "trace.serialization.threads";
+  public static final String TRACE_SEND_THREADS = "trace.send.threads";
+  public static final String TRACE_SEND_QUEUE_SIZE = "trace.send.queue.size";
 
   private TracerConfig() {}
 }
@@ -0,0 +1,66 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.core.histogram.Histogram;
+import datadog.trace.core.histogram.HistogramFactory;
+import datadog.trace.core.histogram.Histograms;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the histogram backends used for the latencies of an {@link AggregateMetric}. Run with
+ * {@code -prof gc}: the allocation reported for {@link #newAggregateHistograms()} is the memory an
+ * aggregate's pair of histograms takes before any value has been recorded.
+ */
+@State(Scope.Benchmark)
+public class AggregateHistogramBenchmark {
+
+  @Param({"ddsketch", "compact"})
+  String backend;
+
+  @Param({"10", "1000"})
+  int distinctLatencies;
+
+  private HistogramFactory factory;
+  private Histogram histogram;
+  private long[] batch;
+
+  @Setup(Level.Trial)
+  public void init() {
+    factory =
+        "compact".equals(backend)
+            ? Histograms.newCompactHistogramFactory()
+            : Histograms.newHistogramFactory();
+    histogram = factory.newHistogram();
+    batch = new long[64];
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < batch.length; ++i) {
+      // latencies between 1ms and 1s, with only so many distinct values
+      batch[i] = 1_000_000L * (1 + random.nextInt(distinctLatencies));
+    }
+    for (int i = 0; i < distinctLatencies; ++i) {
+      histogram.accept(1_000_000L * (1 + i));
+    }
+  }
+
+  @Benchmark
+  public Object newAggregateHistograms() {
+    return new Histogram[] {factory.newHistogram(), factory.newHistogram()};
+  }
+
+  @Benchmark
+  public Histogram recordBatch() {
+    histogram.accept(batch, 0, batch.length);
+    return histogram;
+  }
+
+  @Benchmark
+  public ByteBuffer serialize() {
+    return histogram.serialize();
+  }
+}
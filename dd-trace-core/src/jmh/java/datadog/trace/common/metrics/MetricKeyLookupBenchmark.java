@@ -0,0 +1,68 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import org.jctools.maps.NonBlockingHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares finding a known metric key from a span's fields against creating a key to look it up,
+ * run with {@code -prof gc} to check the probing lookup doesn't allocate.
+ */
+@State(Scope.Benchmark)
+public class MetricKeyLookupBenchmark {
+
+  @Param({"16", "1024"})
+  int keyCount;
+
+  private String[] resources;
+  private UTF8BytesString service;
+  private UTF8BytesString operationName;
+  private String type;
+
+  private MetricKeys metricKeys;
+  private NonBlockingHashMap<MetricKey, MetricKey> keys;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void init() {
+    resources = new String[keyCount];
+    service = UTF8BytesString.create("service");
+    operationName = UTF8BytesString.create("servlet.request");
+    type = "web";
+    metricKeys = new MetricKeys(keyCount * 2);
+    keys = new NonBlockingHashMap<>();
+    for (int i = 0; i < keyCount; ++i) {
+      resources[i] = "GET /api/v1/resource/" + i;
+      MetricKey key = new MetricKey(resources[i], service, operationName, type, 200, false);
+      metricKeys.putIfAbsent(key);
+      keys.put(key, key);
+    }
+  }
+
+  @Benchmark
+  public MetricKey probeExistingKey() {
+    String resource = nextResource();
+    int hash = MetricKey.hash(resource, service, operationName, type, 200, false);
+    return metricKeys.find(hash, resource, service, operationName, type, 200, false);
+  }
+
+  @Benchmark
+  public MetricKey createKeyToLookUp() {
+    MetricKey key = new MetricKey(nextResource(), service, operationName, type, 200, false);
+    return keys.get(key);
+  }
+
+  private String nextResource() {
+    int index = next++;
+    if (next == keyCount) {
+      next = 0;
+    }
+    return resources[index];
+  }
+}
@@ -0,0 +1,65 @@
+package datadog.trace.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes tag values which are too varied to be found in an encoding cache, like URLs and SQL.
+ * Compares writing them as they are with encoding them to a byte array first, run with {@code
+ * -prof gc} to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+public class MsgPackStringBenchmark {
+
+  private static final int VALUE_COUNT = 1000;
+
+  @Param({"url", "sql", "non-ascii"})
+  String kind;
+
+  private final String[] values = new String[VALUE_COUNT];
+
+  private MsgPackWriter writer;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    writer = new MsgPackWriter(new BlackholeBuffer(blackhole));
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      values[i] = value(i);
+    }
+  }
+
+  private String value(int i) {
+    switch (kind) {
+      case "url":
+        return "https://www.example.com/api/v2/users/" + i + "/orders?page=" + (i % 7) + "&size=50";
+      case "sql":
+        return "SELECT id, name, email, created_at FROM users WHERE organization_id = "
+            + i
+            + " AND deleted_at IS NULL ORDER BY created_at DESC LIMIT 100";
+      default:
+        return "/catalogue/stra\u00dfenschilder/" + i + "/\u9053\u53ef\u9053/" + (i % 13);
+    }
+  }
+
+  @Benchmark
+  public void writeString() {
+    for (String value : values) {
+      writer.writeString(value, null);
+    }
+  }
+
+  @Benchmark
+  public void writeEncodedBytes() {
+    for (String value : values) {
+      writer.writeUTF8(value.getBytes(UTF_8));
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package datadog.trace.core;
+
+import static datadog.communication.http.OkHttpUtils.gzippedMsgpackRequestBodyOf;
+import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
+
+import datadog.communication.serialization.ByteBufferConsumer;
+import datadog.communication.serialization.FlushingBuffer;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.api.DDId;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.ddagent.TraceMapper;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_5;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Writes a full trace payload out as a request body, as it is or gzipped. The time taken is the
+ * CPU cost of compression, the {@code bytes} counter is what actually goes over the network.
+ */
+@State(Scope.Benchmark)
+public class PayloadCompressionBenchmark {
+
+  private static final int TRACE_COUNT = 1000;
+  private static final int BUFFER_SIZE = 2 << 20;
+
+  private static final CoreTracer tracer =
+      CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+
+  @Param({"v0.4", "v0.5"})
+  String endpoint;
+
+  private int traceCount;
+  private ByteBuffer body;
+  private byte[] request;
+
+  @Setup(Level.Trial)
+  public void init() throws IOException {
+    TraceMapper mapper = "v0.5".equals(endpoint) ? new TraceMapperV0_5() : new TraceMapperV0_4();
+    MsgPackWriter writer =
+        new MsgPackWriter(
+            new FlushingBuffer(
+                BUFFER_SIZE,
+                new ByteBufferConsumer() {
+                  @Override
+                  public void accept(int messageCount, ByteBuffer buffer) {
+                    traceCount = messageCount;
+                    body = ByteBuffer.allocate(buffer.remaining());
+                    body.put(buffer);
+                    body.flip();
+                  }
+                }));
+    for (int i = 1; i <= TRACE_COUNT; i++) {
+      writer.format(Collections.singletonList(createSpan(i)), mapper);
+    }
+    writer.flush();
+    // payloads are single use, so keep the complete request body to write it again and again
+    Buffer requestBody = new Buffer();
+    mapper.newPayload().withBody(traceCount, body).toRequest().writeTo(requestBody);
+    request = requestBody.readByteArray();
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Bytes {
+    long bytes;
+
+    public long bytes() {
+      return bytes;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Benchmark
+  public void uncompressed(Bytes counter) throws IOException {
+    writeRequest(false, counter);
+  }
+
+  @Benchmark
+  public void gzipped(Bytes counter) throws IOException {
+    writeRequest(true, counter);
+  }
+
+  private void writeRequest(boolean compressed, Bytes counter) throws IOException {
+    List<ByteBuffer> buffers = Collections.singletonList(ByteBuffer.wrap(request));
+    RequestBody requestBody =
+        compressed ? gzippedMsgpackRequestBodyOf(buffers) : msgpackRequestBodyOf(buffers);
+    CountingSink sink = new CountingSink();
+    BufferedSink bufferedSink = Okio.buffer(sink);
+    requestBody.writeTo(bufferedSink);
+    bufferedSink.close();
+    counter.bytes += sink.bytes;
+  }
+
+  private static final class CountingSink implements Sink {
+    long bytes;
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      bytes += byteCount;
+      source.skip(byteCount);
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  private static DDSpan createSpan(int iter) {
+    final DDId traceId = DDId.from(iter);
+    final PendingTrace trace = tracer.createTrace(traceId);
+    final DDSpan span =
+        DDSpan.create(
+            System.currentTimeMillis() * 1000,
+            new DDSpanContext(
+                traceId,
+                DDId.from(1000 + iter),
+                DDId.ZERO,
+                null,
+                "service",
+                "servlet.request",
+                "GET /api/v2/users/" + iter + "/orders",
+                PrioritySampling.SAMPLER_KEEP,
+                null,
+                Collections.<String, String>emptyMap(),
+                false,
+                "web",
+                0,
+                trace,
+                null,
+                null,
+                NoopPathwayContext.INSTANCE,
+                false,
+                null));
+    span.setTag("http.url", "https://www.example.com/api/v2/users/" + iter + "/orders");
+    span.setTag("http.method", "GET");
+    span.setTag("http.status_code", 200);
+    return span;
+  }
+}
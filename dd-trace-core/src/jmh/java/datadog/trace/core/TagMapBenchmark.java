@@ -0,0 +1,92 @@
+package datadog.trace.core;
+
+import datadog.trace.api.function.BiConsumer;
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the span tag store against the HashMap it replaced, run with {@code -prof gc} to see
+ * the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+public class TagMapBenchmark {
+
+  @Param({"5", "10", "20"})
+  int tagCount;
+
+  private String[] keys;
+  private Object[] values;
+
+  private Map<String, Object> hashMap;
+  private TagMap tagMap;
+
+  @Setup(Level.Trial)
+  public void init() {
+    keys = new String[tagCount];
+    values = new Object[tagCount];
+    for (int i = 0; i < tagCount; ++i) {
+      keys[i] = ("tag.key." + i).intern();
+      values[i] = i % 3 == 0 ? i : "value-" + i;
+    }
+    hashMap = fill(new HashMap<String, Object>(tagCount * 4 / 3 + 1));
+    tagMap = fill(new TagMap(tagCount));
+  }
+
+  private <M extends Map<String, Object>> M fill(M map) {
+    for (int i = 0; i < tagCount; ++i) {
+      map.put(keys[i], values[i]);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public Map<String, Object> populateHashMap() {
+    return fill(new HashMap<String, Object>(tagCount * 4 / 3 + 1));
+  }
+
+  @Benchmark
+  public Map<String, Object> populateTagMap() {
+    return fill(new TagMap(tagCount));
+  }
+
+  @Benchmark
+  public void getHashMap(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(hashMap.get(key));
+    }
+  }
+
+  @Benchmark
+  public void getTagMap(Blackhole blackhole) {
+    for (String key : keys) {
+      blackhole.consume(tagMap.get(key));
+    }
+  }
+
+  @Benchmark
+  public void iterateHashMap(Blackhole blackhole) {
+    for (Map.Entry<String, Object> entry : hashMap.entrySet()) {
+      blackhole.consume(entry.getKey());
+      blackhole.consume(entry.getValue());
+    }
+  }
+
+  @Benchmark
+  public void iterateTagMap(final Blackhole blackhole) {
+    tagMap.forEachTag(
+        new BiConsumer<String, Object>() {
+          @Override
+          public void accept(String key, Object value) {
+            blackhole.consume(key);
+            blackhole.consume(value);
+          }
+        });
+  }
+}
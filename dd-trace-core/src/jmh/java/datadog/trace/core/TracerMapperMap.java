@@ -7,9 +7,11 @@ import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContex
 import datadog.trace.common.writer.LoggingWriter;
 import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
 import datadog.trace.common.writer.ddagent.TraceMapperV0_5;
+import datadog.trace.core.propagation.DatadogTags;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Scope;
@@ -31,6 +33,7 @@ public class TracerMapperMap {
   private final List<DDSpan> enrichedSpans = new ArrayList<>(SPAN_COUNT);
   private final List<DDSpan> spansWithOrigin = new ArrayList<>(SPAN_COUNT);
   private final List<DDSpan> enrichedSpansWithOrigin = new ArrayList<>(SPAN_COUNT);
+  private final List<DDSpan> propagatedSpans = new ArrayList<>(SPAN_COUNT);
 
   private MsgPackWriter writer;
 
@@ -43,6 +46,7 @@ public class TracerMapperMap {
       enrichedSpans.add(createEnrichedSpanWithOrigin(i, null));
       spansWithOrigin.add(createSpanWithOrigin(i, "some-origin"));
       enrichedSpansWithOrigin.add(createEnrichedSpanWithOrigin(i, "some-origin"));
+      propagatedSpans.add(createPropagatedSpan(i));
     }
   }
 
@@ -66,6 +70,11 @@ public class TracerMapperMap {
     mapperV4.map(enrichedSpansWithOrigin, writer);
   }
 
+  @Benchmark
+  public void mapPropagatedTracesV4() {
+    mapperV4.map(propagatedSpans, writer);
+  }
+
   @Benchmark
   public void mapTracesV5() {
     mapperV5.map(spans, writer);
@@ -86,6 +95,11 @@ public class TracerMapperMap {
     mapperV5.map(enrichedSpansWithOrigin, writer);
   }
 
+  @Benchmark
+  public void mapPropagatedTracesV5() {
+    mapperV5.map(propagatedSpans, writer);
+  }
+
   private DDSpan createEnrichedSpanWithOrigin(int iter, final String origin) {
     final DDSpan span = createSpanWithOrigin(iter, origin);
     span.setTag("some-tag-key", "some-tag-value");
@@ -93,7 +107,27 @@ public class TracerMapperMap {
     return span;
   }
 
+  private DDSpan createPropagatedSpan(int iter) {
+    final DDSpan span =
+        createSpan(
+            iter,
+            null,
+            Collections.singletonMap("some-baggage-key", "some-baggage-value"),
+            DatadogTags.factory().fromHeaderValue("_dd.p.dm=9bf3439f2f-1,_dd.p.usr=123"));
+    span.setTag("some-tag-key", "some-tag-value");
+    span.setMetric("some-metric-key", 1.0);
+    return span;
+  }
+
   private DDSpan createSpanWithOrigin(int iter, final String origin) {
+    return createSpan(iter, origin, Collections.<String, String>emptyMap(), null);
+  }
+
+  private DDSpan createSpan(
+      int iter,
+      final String origin,
+      final Map<String, String> baggage,
+      final DatadogTags datadogTags) {
     final DDId traceId = DDId.from(iter);
     final PendingTrace trace = tracer.createTrace(traceId);
     return DDSpan.create(
@@ -108,7 +142,7 @@ public class TracerMapperMap {
             "resource",
             PrioritySampling.SAMPLER_KEEP,
             origin,
-            Collections.<String, String>emptyMap(),
+            baggage,
             false,
             "type",
             0,
@@ -117,6 +151,6 @@ public class TracerMapperMap {
             null,
             NoopPathwayContext.INSTANCE,
             false,
-            null));
+            datadogTags));
   }
 }
@@ -0,0 +1,76 @@
+package datadog.trace.core.datastreams;
+
+import datadog.trace.api.WellKnownTags;
+import datadog.trace.api.function.Consumer;
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
+import datadog.trace.util.FNV64Hash;
+import java.util.LinkedHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures setting a checkpoint on a pathway context the way a consumer and then a producer would,
+ * against building the node hash from concatenated strings as checkpoints used to. Run with {@code
+ * -prof gc} to see the allocation rate per operation.
+ */
+@State(Scope.Thread)
+public class PathwayCheckpointBenchmark {
+
+  private final WellKnownTags wellKnownTags =
+      new WellKnownTags("runtimeid", "hostname", "env", "service", "version", "java");
+
+  private LinkedHashMap<String, String> consumeTags;
+  private LinkedHashMap<String, String> produceTags;
+  private BlackholeConsumer pointConsumer;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    consumeTags = new LinkedHashMap<>();
+    consumeTags.put(TagsProcessor.GROUP_TAG, "orders-consumer");
+    consumeTags.put(TagsProcessor.PARTITION_TAG, "3");
+    consumeTags.put(TagsProcessor.TOPIC_TAG, "orders");
+    consumeTags.put(TagsProcessor.TYPE_TAG, "kafka");
+    produceTags = new LinkedHashMap<>();
+    produceTags.put(TagsProcessor.TOPIC_TAG, "shipments");
+    produceTags.put(TagsProcessor.TYPE_TAG, "kafka");
+    pointConsumer = new BlackholeConsumer(blackhole);
+  }
+
+  @Benchmark
+  public DefaultPathwayContext consumeThenProduce() {
+    DefaultPathwayContext context =
+        new DefaultPathwayContext(SystemTimeSource.INSTANCE, wellKnownTags);
+    context.setCheckpoint(consumeTags, pointConsumer);
+    context.setCheckpoint(produceTags, pointConsumer);
+    return context;
+  }
+
+  @Benchmark
+  public long concatenatedNodeHash() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(wellKnownTags.getService());
+    builder.append(wellKnownTags.getEnv());
+    builder.append("group:orders-consumer");
+    builder.append("topic:orders");
+    builder.append("type:kafka");
+    return FNV64Hash.generateHash(builder.toString(), FNV64Hash.Version.v1);
+  }
+
+  private static final class BlackholeConsumer implements Consumer<StatsPoint> {
+    private final Blackhole blackhole;
+
+    BlackholeConsumer(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void accept(StatsPoint point) {
+      blackhole.consume(point);
+    }
+  }
+}
@@ -1,12 +1,11 @@
 package datadog.trace.civisibility.writer.ddintake;
 
-import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
-
 import datadog.communication.serialization.Writable;
 import datadog.trace.api.WellKnownTags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.common.writer.Payload;
 import datadog.trace.common.writer.RemoteMapper;
+import datadog.trace.common.writer.TagsAndBaggageWriter;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
@@ -16,7 +15,6 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import okhttp3.RequestBody;
 
 public class CiTestCycleMapperV1 implements RemoteMapper {
@@ -141,52 +139,35 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
 
     private Writable writable;
 
+    private final TagsAndBaggageWriter entryWriter =
+        new TagsAndBaggageWriter(TagsAndBaggageWriter.INLINE);
+
     MetaWriter withWritable(Writable writable) {
       this.writable = writable;
+      entryWriter.withWritable(writable);
       return this;
     }
 
     @Override
     public void accept(Metadata metadata) {
+      int metricsSize = countNumericTags(metadata);
       int metaSize =
-          metadata.getBaggage().size()
+          metadata.baggageItemCount()
               + metadata.getTags().size()
+              - metricsSize
               + (null == metadata.getHttpStatusCode() ? 0 : 1);
-      int metricsSize = 0;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
-          ++metricsSize;
-          --metaSize;
-        }
-      }
       writable.writeUTF8(METRICS);
       writable.startMap(metricsSize);
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
-        }
-      }
+      entryWriter.writeNumericTags(metadata);
 
       writable.writeUTF8(META);
       writable.startMap(metaSize);
-      // we don't need to deduplicate any overlap between tags and baggage here
-      // since they will be accumulated into maps in the same order downstream,
-      // we just need to be sure that the size is the same as the number of elements
-      for (Map.Entry<String, String> entry : metadata.getBaggage().entrySet()) {
-        writable.writeString(entry.getKey(), null);
-        writable.writeString(entry.getValue(), null);
-      }
+      entryWriter.writeBaggage(metadata);
       if (null != metadata.getHttpStatusCode()) {
         writable.writeUTF8(HTTP_STATUS);
         writable.writeUTF8(metadata.getHttpStatusCode());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
-        }
-      }
+      entryWriter.writeStringTags(metadata);
     }
   }
 
@@ -216,9 +197,9 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
     public RequestBody toRequest() {
       // If traceCount is 0, we write a map with 0 elements in MsgPack format.
       if (traceCount() == 0) {
-        return msgpackRequestBodyOf(Collections.singletonList(msgpackMapHeader(0)));
+        return requestBodyOf(Collections.singletonList(msgpackMapHeader(0)));
       } else {
-        return msgpackRequestBodyOf(Collections.singletonList(body));
+        return requestBodyOf(Collections.singletonList(body));
       }
     }
   }
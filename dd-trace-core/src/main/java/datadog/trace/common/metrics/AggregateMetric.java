@@ -11,7 +11,8 @@ public final class AggregateMetric {
   static final long ERROR_TAG = 0x8000000000000000L;
   static final long TOP_LEVEL_TAG = 0x4000000000000000L;
 
-  private static final HistogramFactory HISTOGRAM_FACTORY = Histograms.newHistogramFactory();
+  private static final HistogramFactory DEFAULT_HISTOGRAM_FACTORY =
+      Histograms.newHistogramFactory();
 
   private final Histogram okLatencies;
   private final Histogram errorLatencies;
@@ -19,15 +20,35 @@ public final class AggregateMetric {
   private int hitCount;
   private int topLevelCount;
   private long duration;
+  // only allocated for callers which don't bring their own buffer
+  private long[] scratch;
 
   public AggregateMetric() {
-    okLatencies = HISTOGRAM_FACTORY.newHistogram();
-    errorLatencies = HISTOGRAM_FACTORY.newHistogram();
+    this(DEFAULT_HISTOGRAM_FACTORY);
   }
 
+  public AggregateMetric(HistogramFactory histogramFactory) {
+    okLatencies = histogramFactory.newHistogram();
+    errorLatencies = histogramFactory.newHistogram();
+  }
+
+  /** Records the durations in bulk, through a buffer this aggregate keeps for later calls. */
   public AggregateMetric recordDurations(int count, AtomicLongArray durations) {
+    return recordDurations(count, durations, scratch(Math.min(count, durations.length())));
+  }
+
+  /**
+   * Records the durations in bulk, ok durations are collected at the front of {@code scratch} and
+   * error durations at the back so each histogram takes them in a single call.
+   *
+   * @param scratch must hold at least {@code count} values, its contents are overwritten
+   */
+  public AggregateMetric recordDurations(int count, AtomicLongArray durations, long[] scratch) {
     this.hitCount += count;
-    for (int i = 0; i < count && i < durations.length(); ++i) {
+    int limit = Math.min(count, durations.length());
+    int okCount = 0;
+    int errorStart = limit;
+    for (int i = 0; i < limit; ++i) {
       long duration = durations.getAndSet(i, 0);
       if ((duration & TOP_LEVEL_TAG) == TOP_LEVEL_TAG) {
         duration ^= TOP_LEVEL_TAG;
@@ -36,16 +57,29 @@ public final class AggregateMetric {
       if ((duration & ERROR_TAG) == ERROR_TAG) {
         // then it's an error
         duration ^= ERROR_TAG;
-        errorLatencies.accept(duration);
+        scratch[--errorStart] = duration;
         ++errorCount;
       } else {
-        okLatencies.accept(duration);
+        scratch[okCount++] = duration;
       }
       this.duration += duration;
     }
+    if (okCount > 0) {
+      okLatencies.accept(scratch, 0, okCount);
+    }
+    if (errorStart < limit) {
+      errorLatencies.accept(scratch, errorStart, limit - errorStart);
+    }
     return this;
   }
 
+  long[] scratch(int size) {
+    if (null == scratch || scratch.length < size) {
+      scratch = new long[Math.max(size, Batch.MAX_BATCH_SIZE)];
+    }
+    return scratch;
+  }
+
   public int getErrorCount() {
     return errorCount;
   }
@@ -4,14 +4,14 @@ import static datadog.trace.common.metrics.Batch.REPORT;
 import static datadog.trace.common.metrics.ConflatingMetricsAggregator.POISON_PILL;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import datadog.trace.core.histogram.HistogramFactory;
 import datadog.trace.core.util.LRUCache;
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
-import org.jctools.maps.NonBlockingHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,37 +19,40 @@ final class Aggregator implements Runnable {
 
   private static final Logger log = LoggerFactory.getLogger(Aggregator.class);
 
-  private final Queue<Batch> batchPool;
   private final BlockingQueue<Batch> inbox;
   private final LRUCache<MetricKey, AggregateMetric> aggregates;
-  private final NonBlockingHashMap<MetricKey, Batch> pending;
   private final Set<MetricKey> commonKeys;
   private final MetricWriter writer;
   // the reporting interval controls how much history will be buffered
   // when the agent is unresponsive (only 10 pending requests will be
   // buffered by OkHttpSink)
   private final long reportingIntervalNanos;
+  // durations are split into ok and error latencies here before being recorded in bulk
+  private final long[] scratch = new long[Batch.MAX_BATCH_SIZE];
+  // aggregates expunged for being idle, kept with their histogram arrays for keys seen later
+  private final ArrayDeque<AggregateMetric> spareAggregates = new ArrayDeque<>();
+  private final int maxSpareAggregates;
+  private final HistogramFactory histogramFactory;
 
   private boolean dirty;
 
   Aggregator(
       MetricWriter writer,
-      Queue<Batch> batchPool,
       BlockingQueue<Batch> inbox,
-      NonBlockingHashMap<MetricKey, Batch> pending,
       final Set<MetricKey> commonKeys,
       int maxAggregates,
       long reportingInterval,
-      TimeUnit reportingIntervalTimeUnit) {
+      TimeUnit reportingIntervalTimeUnit,
+      HistogramFactory histogramFactory) {
     this.writer = writer;
-    this.batchPool = batchPool;
     this.inbox = inbox;
     this.commonKeys = commonKeys;
     this.aggregates =
         new LRUCache<>(
             new CommonKeyCleaner(commonKeys), maxAggregates * 4 / 3, 0.75f, maxAggregates);
-    this.pending = pending;
     this.reportingIntervalNanos = reportingIntervalTimeUnit.toNanos(reportingInterval);
+    this.maxSpareAggregates = Math.max(maxAggregates / 16, 1);
+    this.histogramFactory = histogramFactory;
   }
 
   public void clearAggregates() {
@@ -69,17 +72,18 @@ final class Aggregator implements Runnable {
           report(wallClockTime());
         } else {
           MetricKey key = batch.getKey();
-          // important that it is still *this* batch pending, must not remove otherwise
-          pending.remove(key, batch);
           AggregateMetric aggregate = aggregates.get(key);
           if (null == aggregate) {
-            aggregate = new AggregateMetric();
+            aggregate = spareAggregates.poll();
+            if (null == aggregate) {
+              aggregate = new AggregateMetric(histogramFactory);
+            }
             aggregates.put(key, aggregate);
           }
-          batch.contributeTo(aggregate);
+          batch.contributeTo(aggregate, scratch);
           dirty = true;
-          // return the batch for reuse
-          batchPool.offer(batch);
+          // return the batch for reuse, once consumed it won't accept any more durations
+          batch.recycle();
         }
       } catch (InterruptedException e) {
         currentThread.interrupt();
@@ -124,6 +128,9 @@ final class Aggregator implements Runnable {
       if (metric.getHitCount() == 0) {
         it.remove();
         commonKeys.remove(pair.getKey());
+        if (spareAggregates.size() < maxSpareAggregates) {
+          spareAggregates.offer(metric);
+        }
       }
     }
   }
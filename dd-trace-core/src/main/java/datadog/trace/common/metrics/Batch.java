@@ -1,5 +1,6 @@
 package datadog.trace.common.metrics;
 
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongArray;
 
@@ -14,7 +15,7 @@ import java.util.concurrent.atomic.AtomicLongArray;
  */
 public final class Batch {
 
-  private static final int MAX_BATCH_SIZE = 64;
+  static final int MAX_BATCH_SIZE = 64;
   private static final AtomicIntegerFieldUpdater<Batch> COUNT =
       AtomicIntegerFieldUpdater.newUpdater(Batch.class, "count");
   private static final AtomicIntegerFieldUpdater<Batch> COMMITTED =
@@ -36,18 +37,29 @@ public final class Batch {
 
   private MetricKey key;
   private final AtomicLongArray durations;
+  // where the batch goes back to once it has been consumed, may be null
+  private final Queue<Batch> pool;
 
   Batch(MetricKey key) {
-    this(new AtomicLongArray(MAX_BATCH_SIZE));
+    this(key, null);
+  }
+
+  Batch(MetricKey key, Queue<Batch> pool) {
+    this(new AtomicLongArray(MAX_BATCH_SIZE), pool);
     this.key = key;
   }
 
   Batch() {
-    this(new AtomicLongArray(MAX_BATCH_SIZE));
+    this(new AtomicLongArray(MAX_BATCH_SIZE), null);
   }
 
   private Batch(AtomicLongArray durations) {
+    this(durations, null);
+  }
+
+  private Batch(AtomicLongArray durations, Queue<Batch> pool) {
     this.durations = durations;
+    this.pool = pool;
   }
 
   public MetricKey getKey() {
@@ -76,7 +88,19 @@ public final class Batch {
     return false;
   }
 
+  /** Returns the batch to the pool it was taken from, once it has been consumed. */
+  void recycle() {
+    if (null != pool) {
+      pool.offer(this);
+    }
+  }
+
   public void contributeTo(AggregateMetric aggregate) {
+    contributeTo(aggregate, aggregate.scratch(MAX_BATCH_SIZE));
+  }
+
+  /** @param scratch reusable buffer of at least {@link #MAX_BATCH_SIZE} values */
+  public void contributeTo(AggregateMetric aggregate, long[] scratch) {
     int count = Math.min(COUNT.getAndSet(this, Integer.MIN_VALUE), MAX_BATCH_SIZE);
     if (count >= 0) {
       // wait for the duration to have been set.
@@ -85,7 +109,7 @@ public final class Batch {
         Thread.yield();
       }
       COMMITTED.lazySet(this, 0);
-      aggregate.recordDurations(count, durations);
+      aggregate.recordDurations(count, durations, scratch);
     }
   }
 }
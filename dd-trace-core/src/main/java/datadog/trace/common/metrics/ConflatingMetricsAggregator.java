@@ -20,17 +20,17 @@ import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.DDTraceCoreInfo;
+import datadog.trace.core.histogram.HistogramFactory;
+import datadog.trace.core.histogram.Histograms;
 import datadog.trace.util.AgentTaskScheduler;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
-import org.jctools.maps.NonBlockingHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jctools.queues.MpscBlockingConsumerArrayQueue;
-import org.jctools.queues.SpmcArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,10 +48,12 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   static final Batch POISON_PILL = Batch.NULL;
 
+  private static final int MAX_STRIPES = 64;
+
   private final Set<String> ignoredResources;
-  private final Queue<Batch> batchPool;
-  private final NonBlockingHashMap<MetricKey, Batch> pending;
-  private final NonBlockingHashMap<MetricKey, MetricKey> keys;
+  private final PendingBatches[] pending;
+  private final int stripeMask;
+  private final MetricKeys keys;
   private final Thread thread;
   private final BlockingQueue<Batch> inbox;
   private final Sink sink;
@@ -59,6 +61,8 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   private final long reportingInterval;
   private final TimeUnit reportingIntervalTimeUnit;
   private final DDAgentFeaturesDiscovery features;
+  // batches the inbox was too full to take, since the last report
+  private final AtomicLong droppedBatches = new AtomicLong();
 
   private volatile AgentTaskScheduler.Scheduled<?> cancellation;
 
@@ -76,7 +80,10 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             false,
             DEFAULT_HEADERS),
         config.getTracerMetricsMaxAggregates(),
-        config.getTracerMetricsMaxPending());
+        config.getTracerMetricsMaxPending(),
+        10,
+        SECONDS,
+        histogramFactory(config));
   }
 
   ConflatingMetricsAggregator(
@@ -98,6 +105,28 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        wellKnownTags,
+        ignoredResources,
+        features,
+        sink,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        Histograms.newHistogramFactory());
+  }
+
+  ConflatingMetricsAggregator(
+      WellKnownTags wellKnownTags,
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      HistogramFactory histogramFactory) {
     this(
         ignoredResources,
         features,
@@ -106,7 +135,8 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         maxAggregates,
         queueSize,
         reportingInterval,
-        timeUnit);
+        timeUnit,
+        histogramFactory);
   }
 
   ConflatingMetricsAggregator(
@@ -118,23 +148,53 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        metricWriter,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        Histograms.newHistogramFactory());
+  }
+
+  ConflatingMetricsAggregator(
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      MetricWriter metricWriter,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      HistogramFactory histogramFactory) {
     this.ignoredResources = ignoredResources;
     this.inbox = new MpscBlockingConsumerArrayQueue<>(queueSize);
-    this.batchPool = new SpmcArrayQueue<>(maxAggregates);
-    this.pending = new NonBlockingHashMap<>(maxAggregates * 4 / 3);
-    this.keys = new NonBlockingHashMap<>();
+    // a stripe per core, so threads publishing spans at the same time rarely share batches
+    int stripes =
+        Math.min(
+            Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 1) * 2 - 1),
+            MAX_STRIPES);
+    this.pending = new PendingBatches[stripes];
+    for (int i = 0; i < stripes; ++i) {
+      pending[i] =
+          new PendingBatches(Math.max(maxAggregates * 2 / stripes, 16), maxAggregates / stripes);
+    }
+    this.stripeMask = stripes - 1;
+    this.keys = new MetricKeys(maxAggregates * 2);
     this.features = features;
     this.sink = sink;
     this.aggregator =
         new Aggregator(
             metricWriter,
-            batchPool,
             inbox,
-            pending,
             keys.keySet(),
             maxAggregates,
             reportingInterval,
-            timeUnit);
+            timeUnit,
+            histogramFactory);
     this.thread = newAgentThread(METRICS_AGGREGATOR, aggregator);
     this.reportingInterval = reportingInterval;
     this.reportingIntervalTimeUnit = timeUnit;
@@ -172,9 +232,18 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     if (!published) {
       log.debug("Skipped metrics reporting because the queue is full");
     }
+    long dropped = droppedBatches.getAndSet(0);
+    if (dropped > 0) {
+      log.debug("Dropped {} metrics batches because the queue was full", dropped);
+    }
     return published;
   }
 
+  /** @return the number of batches dropped because the queue was full, since the last report */
+  long droppedBatches() {
+    return droppedBatches.get();
+  }
+
   @Override
   public boolean publish(List<? extends CoreSpan<?>> trace) {
     boolean forceKeep = false;
@@ -194,23 +263,18 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
-    MetricKey newKey =
-        new MetricKey(
-            span.getResourceName(),
-            SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE),
-            span.getOperationName(),
-            span.getType(),
-            span.getHttpStatusCode(),
-            isSynthetic(span));
-    boolean isNewKey = false;
-    MetricKey key = keys.putIfAbsent(newKey, newKey);
-    if (null == key) {
-      key = newKey;
-      isNewKey = true;
-    }
+    CharSequence resource = span.getResourceName();
+    CharSequence service = SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE);
+    CharSequence operationName = span.getOperationName();
+    CharSequence type = span.getType();
+    int httpStatusCode = span.getHttpStatusCode();
+    boolean synthetics = isSynthetic(span);
+    int hash = MetricKey.hash(resource, service, operationName, type, httpStatusCode, synthetics);
     long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
     long durationNanos = span.getDurationNano();
-    Batch batch = pending.get(key);
+    PendingBatches stripe = pending[(int) Thread.currentThread().getId() & stripeMask];
+    Batch batch =
+        stripe.get(hash, resource, service, operationName, type, httpStatusCode, synthetics);
     if (null != batch) {
       // there is a pending batch, try to win the race to add to it
       // returning false means that either the batch can't take any
@@ -221,31 +285,49 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         // the key isn't rare enough to override the sampler)
         return false;
       }
+    }
+    MetricKey key;
+    boolean isNewKey = false;
+    if (null != batch) {
       // recycle the older key
       key = batch.getKey();
-      isNewKey = false;
+    } else {
+      key = keys.find(hash, resource, service, operationName, type, httpStatusCode, synthetics);
+      if (null == key) {
+        // only create a key when it's not being tracked yet
+        MetricKey newKey =
+            new MetricKey(resource, service, operationName, type, httpStatusCode, synthetics);
+        key = keys.putIfAbsent(newKey);
+        if (null == key) {
+          key = newKey;
+          isNewKey = true;
+        }
+      }
     }
-    batch = newBatch(key);
+    batch = stripe.newBatch(key);
     batch.add(tag, durationNanos);
     // overwrite the last one if present, it was already full
     // or had been consumed by the time we tried to add to it
-    pending.put(key, batch);
+    stripe.put(batch);
     // must offer to the queue after adding to pending
-    inbox.offer(batch);
+    if (!inbox.offer(batch)) {
+      // the aggregator is falling behind, stop adding to a batch it will never see
+      stripe.remove(batch);
+      droppedBatches.incrementAndGet();
+    }
     // force keep keys we haven't seen before or errors
     return isNewKey || span.getError() > 0;
   }
 
-  private static boolean isSynthetic(CoreSpan<?> span) {
-    return span.getOrigin() != null && SYNTHETICS_ORIGIN.equals(span.getOrigin().toString());
+  private static HistogramFactory histogramFactory(Config config) {
+    // compact histograms serialize like DDSketch, but hold idle and sparse aggregates in less memory
+    return config.isTracerMetricsCompactHistogramsEnabled()
+        ? Histograms.newCompactHistogramFactory()
+        : Histograms.newHistogramFactory();
   }
 
-  private Batch newBatch(MetricKey key) {
-    Batch batch = batchPool.poll();
-    if (null == batch) {
-      return new Batch(key);
-    }
-    return batch.reset(key);
+  private static boolean isSynthetic(CoreSpan<?> span) {
+    return span.getOrigin() != null && SYNTHETICS_ORIGIN.equals(span.getOrigin().toString());
   }
 
   public void stop() {
@@ -290,8 +372,9 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         cancellation.cancel();
       }
       this.thread.interrupt();
-      this.pending.clear();
-      this.batchPool.clear();
+      for (PendingBatches stripe : pending) {
+        stripe.clear();
+      }
       this.inbox.clear();
       this.aggregator.clearAggregates();
     }
@@ -27,15 +27,76 @@ public final class MetricKey {
     this.type = null == type ? EMPTY : UTF8BytesString.create(type);
     this.httpStatusCode = httpStatusCode;
     this.synthetics = synthetics;
+    this.hash =
+        hash(
+            this.resource,
+            this.service,
+            this.operationName,
+            this.type,
+            httpStatusCode,
+            synthetics);
+  }
+
+  /**
+   * The hash code of the key these fields would make, computed without creating the key, so that
+   * a key can be looked up from a span's fields.
+   */
+  static int hash(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
     // unrolled polynomial hashcode which avoids allocating varargs
     // the constants are 31^5, 31^4, 31^3, 31^2, 31^1, 31^0
-    this.hash =
-        28629151 * this.resource.hashCode()
-            + 923521 * this.service.hashCode()
-            + 29791 * this.operationName.hashCode()
-            + 961 * this.type.hashCode()
-            + 31 * httpStatusCode
-            + (this.synthetics ? 1 : 0);
+    return 28629151 * hashOf(resource)
+        + 923521 * hashOf(service)
+        + 29791 * hashOf(operationName)
+        + 961 * hashOf(type)
+        + 31 * httpStatusCode
+        + (synthetics ? 1 : 0);
+  }
+
+  /** Whether this key would be equal to a key made from these fields. */
+  boolean matches(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
+    return this.synthetics == synthetics
+        && this.httpStatusCode == httpStatusCode
+        && contentEquals(this.resource, resource)
+        && contentEquals(this.service, service)
+        && contentEquals(this.operationName, operationName)
+        && contentEquals(this.type, type);
+  }
+
+  // same as the hash code of the UTF8BytesString the sequence would be turned into
+  private static int hashOf(CharSequence sequence) {
+    if (null == sequence) {
+      return 0;
+    }
+    if (sequence instanceof String || sequence instanceof UTF8BytesString) {
+      return sequence.hashCode();
+    }
+    int hash = 0;
+    for (int i = 0; i < sequence.length(); ++i) {
+      hash = 31 * hash + sequence.charAt(i);
+    }
+    return hash;
+  }
+
+  private static boolean contentEquals(UTF8BytesString field, CharSequence sequence) {
+    if (null == sequence) {
+      return field.length() == 0;
+    }
+    if (sequence instanceof UTF8BytesString) {
+      return field.equals(sequence);
+    }
+    return field.toString().contentEquals(sequence);
   }
 
   public UTF8BytesString getResource() {
@@ -0,0 +1,77 @@
+package datadog.trace.common.metrics;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jctools.maps.NonBlockingHashMap;
+
+/**
+ * The keys of the aggregates currently tracked. Besides the usual lookup by key, a key can be found
+ * by probing with the fields it would be made of, so a span whose key is already known doesn't
+ * need a {@link MetricKey} to be created only to be thrown away again.
+ */
+final class MetricKeys {
+  private static final int MAX_PROBES = 4;
+
+  private final NonBlockingHashMap<MetricKey, MetricKey> keys = new NonBlockingHashMap<>();
+  // open-addressed index over the keys, slots are overwritten but never cleared
+  private final AtomicReferenceArray<MetricKey> index;
+  private final int mask;
+
+  MetricKeys(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.index = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /** @return the tracked key made of these fields, or null if there isn't one */
+  MetricKey find(
+      int hash,
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
+    int start = spread(hash);
+    for (int i = 0; i < MAX_PROBES; ++i) {
+      MetricKey key = index.get((start + i) & mask);
+      if (null == key) {
+        return null;
+      }
+      if (key.hashCode() == hash
+          && key.matches(resource, service, operationName, type, httpStatusCode, synthetics)) {
+        // the index can be behind on keys which have been expunged since
+        return keys.containsKey(key) ? key : null;
+      }
+    }
+    return null;
+  }
+
+  /** @return the key already being tracked, or null if the given key was added */
+  MetricKey putIfAbsent(MetricKey key) {
+    MetricKey existing = keys.putIfAbsent(key, key);
+    MetricKey tracked = null == existing ? key : existing;
+    int start = spread(tracked.hashCode());
+    int slot = start & mask;
+    for (int i = 0; i < MAX_PROBES; ++i) {
+      MetricKey indexed = index.get((start + i) & mask);
+      if (null == indexed) {
+        slot = (start + i) & mask;
+        break;
+      }
+      if (indexed.equals(tracked)) {
+        return existing;
+      }
+    }
+    index.set(slot, tracked);
+    return existing;
+  }
+
+  Set<MetricKey> keySet() {
+    return keys.keySet();
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,108 @@
+package datadog.trace.common.metrics;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jctools.queues.SpmcArrayQueue;
+
+/**
+ * One stripe of the batches waiting to be picked up by the {@link Aggregator}. Application threads
+ * are spread over the stripes, so they don't compete for the same batches, and batches are looked up
+ * from the span's fields by hash, so adding to a pending batch doesn't allocate a {@link MetricKey}.
+ *
+ * <p>The table is set-associative: a key hashes to a bucket of {@link #WAYS} slots, so a few keys
+ * sharing a bucket each keep their own pending batch. Only when a bucket is full of batches for
+ * other keys, none of them consumed, does a new batch replace one of them. A replaced batch has
+ * already been offered to the aggregator, so its values are still counted unless that offer failed.
+ */
+final class PendingBatches {
+
+  static final int WAYS = 4;
+
+  private final AtomicReferenceArray<Batch> batches;
+  private final int mask;
+  private final Queue<Batch> pool;
+
+  PendingBatches(int capacity, int poolSize) {
+    int size = Integer.highestOneBit(Math.max(capacity, WAYS) - 1) << 1;
+    this.batches = new AtomicReferenceArray<>(size);
+    this.mask = size - WAYS;
+    this.pool = new SpmcArrayQueue<>(Math.max(poolSize, 2));
+  }
+
+  /** @return the pending batch for the key made of these fields, or null if there isn't one */
+  Batch get(
+      int hash,
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
+    int bucket = bucketOf(hash);
+    for (int i = bucket; i < bucket + WAYS; ++i) {
+      Batch batch = batches.get(i);
+      if (null != batch) {
+        MetricKey key = batch.getKey();
+        if (null != key
+            && key.hashCode() == hash
+            && key.matches(resource, service, operationName, type, httpStatusCode, synthetics)) {
+          return batch;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Makes the batch the pending one for its key, in place of the key's previous batch, or else of
+   * an empty or consumed slot of its bucket. Only evicts another key's batch when there's neither.
+   */
+  void put(Batch batch) {
+    MetricKey key = batch.getKey();
+    int hash = key.hashCode();
+    int bucket = bucketOf(hash);
+    int free = -1;
+    for (int i = bucket; i < bucket + WAYS; ++i) {
+      Batch pending = batches.get(i);
+      if (null == pending || pending.isUsed()) {
+        if (free < 0) {
+          free = i;
+        }
+      } else if (key.equals(pending.getKey())) {
+        batches.set(i, batch);
+        return;
+      }
+    }
+    // spread the evictions over the bucket with the hash bits the bucket index didn't use
+    batches.set(free >= 0 ? free : bucket + ((hash >>> 24) & (WAYS - 1)), batch);
+  }
+
+  /** Stops new values from going to a batch which didn't make it to the aggregator. */
+  void remove(Batch batch) {
+    int bucket = bucketOf(batch.getKey().hashCode());
+    for (int i = bucket; i < bucket + WAYS; ++i) {
+      if (batches.compareAndSet(i, batch, null)) {
+        return;
+      }
+    }
+  }
+
+  Batch newBatch(MetricKey key) {
+    Batch batch = pool.poll();
+    if (null == batch) {
+      return new Batch(key, pool);
+    }
+    return batch.reset(key);
+  }
+
+  void clear() {
+    for (int i = 0; i < batches.length(); ++i) {
+      batches.lazySet(i, null);
+    }
+    pool.clear();
+  }
+
+  private int bucketOf(int hash) {
+    return ((hash ^ (hash >>> 16)) * WAYS) & mask;
+  }
+}
@@ -14,6 +14,8 @@ import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.common.writer.ddagent.DDAgentMapperDiscovery;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -39,7 +41,11 @@ public class DDAgentWriter extends RemoteWriter {
     Monitoring monitoring = Monitoring.DISABLED;
     boolean traceAgentV05Enabled = Config.get().isTraceAgentV05Enabled();
     boolean metricsReportingEnabled = Config.get().isTracerMetricsEnabled();
+    boolean compressionEnabled = Config.get().isTraceCompressionEnabled();
     boolean alwaysFlush = false;
+    int serializationThreads = Config.get().getTraceSerializationThreads();
+    int sendThreads = Config.get().getTraceSendThreads();
+    int sendQueueSize = Config.get().getTraceSendQueueSize();
 
     private DDAgentApi agentApi;
     private Prioritization prioritization;
@@ -110,6 +116,11 @@ public class DDAgentWriter extends RemoteWriter {
       return this;
     }
 
+    public DDAgentWriterBuilder compressionEnabled(boolean compressionEnabled) {
+      this.compressionEnabled = compressionEnabled;
+      return this;
+    }
+
     public DDAgentWriterBuilder featureDiscovery(DDAgentFeaturesDiscovery featureDiscovery) {
       this.featureDiscovery = featureDiscovery;
       return this;
@@ -120,6 +131,21 @@ public class DDAgentWriter extends RemoteWriter {
       return this;
     }
 
+    public DDAgentWriterBuilder serializationThreads(int serializationThreads) {
+      this.serializationThreads = serializationThreads;
+      return this;
+    }
+
+    public DDAgentWriterBuilder sendThreads(int sendThreads) {
+      this.sendThreads = sendThreads;
+      return this;
+    }
+
+    public DDAgentWriterBuilder sendQueueSize(int sendQueueSize) {
+      this.sendQueueSize = sendQueueSize;
+      return this;
+    }
+
     public DDAgentWriter build() {
       final HttpUrl agentUrl = HttpUrl.get("http://" + agentHost + ":" + traceAgentPort);
       final OkHttpClient client =
@@ -133,17 +159,40 @@ public class DDAgentWriter extends RemoteWriter {
       }
       if (null == agentApi) {
         agentApi =
-            new DDAgentApi(client, agentUrl, featureDiscovery, monitoring, metricsReportingEnabled);
+            new DDAgentApi(
+                client,
+                agentUrl,
+                featureDiscovery,
+                monitoring,
+                metricsReportingEnabled,
+                compressionEnabled);
       }
 
-      final DDAgentMapperDiscovery mapperDiscovery = new DDAgentMapperDiscovery(featureDiscovery);
-      final PayloadDispatcher dispatcher =
-          new PayloadDispatcher(mapperDiscovery, agentApi, healthMetrics, monitoring);
+      final PayloadSendingWorker sendingWorker =
+          sendThreads > 0
+              ? new PayloadSendingWorker(sendQueueSize, sendThreads, agentApi, healthMetrics)
+              : null;
+      // each serializer shard needs its own mapper, because mappers are stateful,
+      // but traces dropped before serialization are counted once for all of them
+      final PayloadDispatcher.DroppedCounts droppedCounts = new PayloadDispatcher.DroppedCounts();
+      final List<PayloadDispatcher> dispatchers = new ArrayList<>();
+      for (int i = 0; i < Math.max(serializationThreads, 1); ++i) {
+        dispatchers.add(
+            new PayloadDispatcher(
+                new DDAgentMapperDiscovery(featureDiscovery),
+                agentApi,
+                healthMetrics,
+                monitoring,
+                sendingWorker,
+                droppedCounts));
+      }
+      // any dispatcher can count dropped traces, as they all share the same counts
+      final PayloadDispatcher dispatcher = dispatchers.get(0);
       final TraceProcessingWorker traceProcessingWorker =
           new TraceProcessingWorker(
               traceBufferSize,
               healthMetrics,
-              dispatcher,
+              dispatchers,
               featureDiscovery,
               null == prioritization ? FAST_LANE : prioritization,
               flushFrequencySeconds,
@@ -155,10 +204,30 @@ public class DDAgentWriter extends RemoteWriter {
           healthMetrics,
           dispatcher,
           traceProcessingWorker,
+          sendingWorker,
           alwaysFlush);
     }
   }
 
+  private DDAgentWriter(
+      DDAgentFeaturesDiscovery discovery,
+      DDAgentApi api,
+      HealthMetrics healthMetrics,
+      PayloadDispatcher dispatcher,
+      TraceProcessingWorker worker,
+      PayloadSendingWorker sendingWorker,
+      boolean alwaysFlush) {
+    super(
+        api,
+        worker,
+        sendingWorker,
+        dispatcher,
+        healthMetrics,
+        1,
+        TimeUnit.SECONDS,
+        alwaysFlush);
+  }
+
   private DDAgentWriter(
       DDAgentFeaturesDiscovery discovery,
       DDAgentApi api,
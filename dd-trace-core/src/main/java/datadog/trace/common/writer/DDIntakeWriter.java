@@ -11,6 +11,8 @@ import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.common.writer.ddintake.DDIntakeApi;
 import datadog.trace.common.writer.ddintake.DDIntakeMapperDiscovery;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class DDIntakeWriter extends RemoteWriter {
@@ -40,6 +42,9 @@ public class DDIntakeWriter extends RemoteWriter {
     private int flushTimeout = 5;
     private TimeUnit flushTimeoutUnit = TimeUnit.SECONDS;
     private boolean alwaysFlush = true;
+    private int serializationThreads = Config.get().getTraceSerializationThreads();
+    private int sendThreads = Config.get().getTraceSendThreads();
+    private int sendQueueSize = Config.get().getTraceSendQueueSize();
 
     private DDIntakeApi intakeApi;
     private String apiKey;
@@ -126,6 +131,21 @@ public class DDIntakeWriter extends RemoteWriter {
       return this;
     }
 
+    public DDIntakeWriterBuilder serializationThreads(final int serializationThreads) {
+      this.serializationThreads = serializationThreads;
+      return this;
+    }
+
+    public DDIntakeWriterBuilder sendThreads(final int sendThreads) {
+      this.sendThreads = sendThreads;
+      return this;
+    }
+
+    public DDIntakeWriterBuilder sendQueueSize(final int sendQueueSize) {
+      this.sendQueueSize = sendQueueSize;
+      return this;
+    }
+
     public DDIntakeWriter build() {
       if (null == intakeApi) {
         intakeApi =
@@ -139,15 +159,31 @@ public class DDIntakeWriter extends RemoteWriter {
                 .build();
       }
 
-      final DDIntakeMapperDiscovery mapperDiscovery =
-          new DDIntakeMapperDiscovery(trackType, wellKnownTags);
-      final PayloadDispatcher dispatcher =
-          new PayloadDispatcher(mapperDiscovery, intakeApi, healthMetrics, monitoring);
+      final PayloadSendingWorker sendingWorker =
+          sendThreads > 0
+              ? new PayloadSendingWorker(sendQueueSize, sendThreads, intakeApi, healthMetrics)
+              : null;
+      // each serializer shard needs its own mapper, because mappers are stateful,
+      // but traces dropped before serialization are counted once for all of them
+      final PayloadDispatcher.DroppedCounts droppedCounts = new PayloadDispatcher.DroppedCounts();
+      final List<PayloadDispatcher> dispatchers = new ArrayList<>();
+      for (int i = 0; i < Math.max(serializationThreads, 1); ++i) {
+        dispatchers.add(
+            new PayloadDispatcher(
+                new DDIntakeMapperDiscovery(trackType, wellKnownTags),
+                intakeApi,
+                healthMetrics,
+                monitoring,
+                sendingWorker,
+                droppedCounts));
+      }
+      // any dispatcher can count dropped traces, as they all share the same counts
+      final PayloadDispatcher dispatcher = dispatchers.get(0);
       final TraceProcessingWorker traceProcessingWorker =
           new TraceProcessingWorker(
               traceBufferSize,
               healthMetrics,
-              dispatcher,
+              dispatchers,
               droppingPolicy,
               prioritization,
               flushFrequencySeconds,
@@ -158,6 +194,7 @@ public class DDIntakeWriter extends RemoteWriter {
           healthMetrics,
           dispatcher,
           traceProcessingWorker,
+          sendingWorker,
           flushTimeout,
           flushTimeoutUnit,
           alwaysFlush);
@@ -204,4 +241,24 @@ public class DDIntakeWriter extends RemoteWriter {
         flushTimeoutUnit,
         alwaysFlush);
   }
+
+  protected DDIntakeWriter(
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      PayloadDispatcher dispatcher,
+      TraceProcessingWorker traceProcessingWorker,
+      PayloadSendingWorker payloadSendingWorker,
+      int flushTimeout,
+      TimeUnit flushTimeoutUnit,
+      boolean alwaysFlush) {
+    super(
+        api,
+        traceProcessingWorker,
+        payloadSendingWorker,
+        dispatcher,
+        healthMetrics,
+        flushTimeout,
+        flushTimeoutUnit,
+        alwaysFlush);
+  }
 }
@@ -1,5 +1,7 @@
 package datadog.trace.common.writer;
 
+import static datadog.communication.http.OkHttpUtils.gzippedMsgpackRequestBodyOf;
+import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
 import static datadog.communication.serialization.msgpack.MsgPackWriter.ARRAY16;
 import static datadog.communication.serialization.msgpack.MsgPackWriter.ARRAY32;
 import static datadog.communication.serialization.msgpack.MsgPackWriter.FIXARRAY;
@@ -10,6 +12,7 @@ import static datadog.communication.serialization.msgpack.MsgPackWriter.MAP32;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import okhttp3.RequestBody;
 
 public abstract class Payload {
@@ -20,6 +23,9 @@ public abstract class Payload {
   private long droppedTraces = 0;
   private long droppedSpans = 0;
   protected ByteBuffer body = EMPTY_ARRAY.duplicate();
+  private PayloadBufferPool bufferPool;
+  private ByteBuffer pooledBuffer;
+  private boolean compressed;
 
   public Payload withBody(int traceCount, ByteBuffer body) {
     this.traceCount = traceCount;
@@ -29,6 +35,40 @@ public abstract class Payload {
     return this;
   }
 
+  /** The buffer will be given back to the pool when the payload is released. */
+  public Payload withPooledBody(int traceCount, ByteBuffer body, PayloadBufferPool bufferPool) {
+    this.bufferPool = bufferPool;
+    this.pooledBuffer = body;
+    return withBody(traceCount, body);
+  }
+
+  /** Called once the payload has been sent (or dropped) and its body is no longer needed. */
+  public void release() {
+    if (null != bufferPool) {
+      bufferPool.release(pooledBuffer);
+      bufferPool = null;
+      pooledBuffer = null;
+    }
+  }
+
+  /**
+   * Copies whatever the payload still shares with its mapper, which is reset as soon as the payload
+   * has been created. Only needed when the payload is sent later, from another thread.
+   */
+  public Payload detach() {
+    return this;
+  }
+
+  /** The request body will be gzipped as it is written out, if set. */
+  public Payload withCompression(boolean compressed) {
+    this.compressed = compressed;
+    return this;
+  }
+
+  public boolean isCompressed() {
+    return compressed;
+  }
+
   public Payload withDroppedTraces(long droppedTraceCount) {
     this.droppedTraces += droppedTraceCount;
     return this;
@@ -57,6 +97,10 @@ public abstract class Payload {
 
   public abstract RequestBody toRequest();
 
+  protected RequestBody requestBodyOf(List<ByteBuffer> buffers) {
+    return compressed ? gzippedMsgpackRequestBodyOf(buffers) : msgpackRequestBodyOf(buffers);
+  }
+
   protected int msgpackArrayHeaderSize(int count) {
     if (count < 0x10) {
       return 1;
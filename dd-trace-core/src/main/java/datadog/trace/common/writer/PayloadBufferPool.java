@@ -0,0 +1,78 @@
+package datadog.trace.common.writer;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of buffers holding serialized payloads while they wait to be sent. A buffer is taken
+ * when a payload is handed over to the {@link PayloadSendingWorker} and given back once the request
+ * body has been written, so at high trace rates payloads don't churn through large allocations.
+ *
+ * <p>Buffers are allocated lazily, up to the maximum number of payloads which can be outstanding at
+ * once, and sized from the payloads they hold rather than from the serialization buffer, so the
+ * pool only keeps as much memory as recent payloads needed. When no buffer is available {@link
+ * #acquire(int)} returns null and the caller is expected to allocate its own.
+ */
+public final class PayloadBufferPool {
+
+  private final ArrayBlockingQueue<ByteBuffer> available;
+  private final int maxBuffers;
+  private final AtomicInteger allocated = new AtomicInteger();
+  private final HealthMetrics healthMetrics;
+
+  public PayloadBufferPool(final int maxBuffers, final HealthMetrics healthMetrics) {
+    this.maxBuffers = Math.max(maxBuffers, 1);
+    this.available = new ArrayBlockingQueue<>(this.maxBuffers);
+    this.healthMetrics = healthMetrics;
+  }
+
+  private static final int MIN_CAPACITY = 4 << 10;
+
+  /**
+   * @return a cleared buffer with at least {@code capacity} bytes, or null if the pool is exhausted
+   */
+  public ByteBuffer acquire(final int capacity) {
+    ByteBuffer buffer = available.poll();
+    if (null != buffer) {
+      if (buffer.capacity() >= capacity) {
+        buffer.clear();
+        healthMetrics.onPayloadBufferAcquired(true, available.size());
+        return buffer;
+      }
+      // sized for a smaller payload, let it go and allocate one large enough
+      allocated.decrementAndGet();
+    }
+    if (allocated.incrementAndGet() <= maxBuffers) {
+      healthMetrics.onPayloadBufferAcquired(false, available.size());
+      return ByteBuffer.allocate(sizeFor(capacity));
+    }
+    allocated.decrementAndGet();
+    healthMetrics.onPayloadBufferAcquired(false, available.size());
+    return null;
+  }
+
+  /** Rounds up to a power of two, so payloads of similar sizes can share buffers. */
+  private static int sizeFor(final int capacity) {
+    if (capacity <= MIN_CAPACITY) {
+      return MIN_CAPACITY;
+    }
+    int size = Integer.highestOneBit(capacity);
+    return size == capacity || size >= (1 << 30) ? capacity : size << 1;
+  }
+
+  public void release(final ByteBuffer buffer) {
+    if (!available.offer(buffer)) {
+      allocated.decrementAndGet();
+    }
+  }
+
+  public int available() {
+    return available.size();
+  }
+
+  public int allocated() {
+    return allocated.get();
+  }
+}
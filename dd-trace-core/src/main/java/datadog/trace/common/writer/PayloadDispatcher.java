@@ -1,5 +1,7 @@
 package datadog.trace.common.writer;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import datadog.communication.monitor.Monitoring;
 import datadog.communication.monitor.Recording;
 import datadog.communication.serialization.ByteBufferConsumer;
@@ -19,6 +21,8 @@ public class PayloadDispatcher implements ByteBufferConsumer {
 
   private static final Logger log = LoggerFactory.getLogger(PayloadDispatcher.class);
 
+  private static final long SEND_SYNC_TIMEOUT_SECONDS = 10;
+
   private final RemoteApi api;
   private final RemoteMapperDiscovery mapperDiscovery;
   private final HealthMetrics healthMetrics;
@@ -28,20 +32,58 @@ public class PayloadDispatcher implements ByteBufferConsumer {
   private RemoteMapper mapper;
   private WritableFormatter packer;
 
-  private final FixedSizeStripedLongCounter droppedSpanCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
-  private final FixedSizeStripedLongCounter droppedTraceCount =
-      CountersFactory.createFixedSizeStripedCounter(8);
+  private final DroppedCounts droppedCounts;
+
+  private final PayloadSendingWorker sendingWorker;
+
+  /**
+   * Counts traces dropped before they were serialized. Serializer shards share one instance, so the
+   * counts are reported with the next payload any shard sends.
+   */
+  public static final class DroppedCounts {
+    private final FixedSizeStripedLongCounter droppedSpanCount =
+        CountersFactory.createFixedSizeStripedCounter(8);
+    private final FixedSizeStripedLongCounter droppedTraceCount =
+        CountersFactory.createFixedSizeStripedCounter(8);
+  }
 
   public PayloadDispatcher(
       RemoteMapperDiscovery mapperDiscovery,
       RemoteApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, null);
+  }
+
+  /**
+   * @param sendingWorker when not null payloads are handed over to this worker instead of being
+   *     sent on the serializing thread
+   */
+  public PayloadDispatcher(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      PayloadSendingWorker sendingWorker) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, sendingWorker, new DroppedCounts());
+  }
+
+  /**
+   * @param droppedCounts where dropped traces are counted, shared by the dispatchers of a writer
+   */
+  public PayloadDispatcher(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      PayloadSendingWorker sendingWorker,
+      DroppedCounts droppedCounts) {
     this.mapperDiscovery = mapperDiscovery;
     this.api = api;
     this.healthMetrics = healthMetrics;
     this.monitoring = monitoring;
+    this.sendingWorker = sendingWorker;
+    this.droppedCounts = droppedCounts;
   }
 
   void flush() {
@@ -50,17 +92,22 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     }
   }
 
+  /** Waits for payloads handed over to the sending worker to be sent, if there is one. */
+  void awaitSent() {
+    if (null != sendingWorker) {
+      sendingWorker.awaitSent(SEND_SYNC_TIMEOUT_SECONDS, SECONDS);
+    }
+  }
+
   public void onDroppedTrace(int spanCount) {
-    droppedSpanCount.inc(spanCount);
-    droppedTraceCount.inc();
+    droppedCounts.droppedSpanCount.inc(spanCount);
+    droppedCounts.droppedTraceCount.inc();
   }
 
   void addTrace(List<? extends CoreSpan<?>> trace) {
     selectMapper();
-    // the call below is blocking and will trigger IO if a flush is necessary
-    // there are alternative approaches to avoid blocking here, such as
-    // introducing an unbound queue and another thread to do the IO
-    // however, we can't block the application threads from here.
+    // the call below will trigger IO if a flush is necessary and there is
+    // no sending worker, otherwise the payload is handed over to the worker
     if (null == mapper || !packer.format(trace, mapper)) {
       healthMetrics.onFailedPublish(trace.get(0).samplingPriority());
     }
@@ -86,8 +133,8 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     return mapper
         .newPayload()
         .withBody(messageCount, buffer)
-        .withDroppedSpans(droppedSpanCount.getAndReset())
-        .withDroppedTraces(droppedTraceCount.getAndReset());
+        .withDroppedSpans(droppedCounts.droppedSpanCount.getAndReset())
+        .withDroppedTraces(droppedCounts.droppedTraceCount.getAndReset());
   }
 
   @Override
@@ -96,23 +143,55 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     // or when the packer is flushed at a heartbeat
     if (messageCount > 0) {
       batchTimer.reset();
-      Payload payload = newPayload(messageCount, buffer);
-      final int sizeInBytes = payload.sizeInBytes();
-      healthMetrics.onSerialize(sizeInBytes);
-      RemoteApi.Response response = api.sendSerializedTraces(payload);
-      mapper.reset();
-      if (response.success()) {
-        if (log.isDebugEnabled()) {
-          log.debug("Successfully sent {} traces to the API", messageCount);
-        }
-        healthMetrics.onSend(messageCount, sizeInBytes, response);
+      if (null == sendingWorker) {
+        Payload payload = newPayload(messageCount, buffer);
+        healthMetrics.onSerialize(payload.sizeInBytes());
+        // the api is safe to call from several threads, so when serialization
+        // is sharded each shard sends its own payloads without waiting for the others
+        sendPayload(api, healthMetrics, payload);
+        mapper.reset();
       } else {
-        if (log.isDebugEnabled()) {
-          log.debug(
-              "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
-        }
-        healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
+        // the buffer will be reused as soon as this method returns,
+        // so the payload needs its own copy to outlive it
+        Payload payload = newPayloadWithCopy(messageCount, buffer).detach();
+        mapper.reset();
+        healthMetrics.onSerialize(payload.sizeInBytes());
+        sendingWorker.send(payload);
+      }
+    }
+  }
+
+  private Payload newPayloadWithCopy(int messageCount, ByteBuffer buffer) {
+    PayloadBufferPool bufferPool = sendingWorker.getBufferPool();
+    ByteBuffer pooled = bufferPool.acquire(buffer.remaining());
+    if (null == pooled) {
+      // every pooled buffer is in use, fall back to the heap
+      return newPayload(messageCount, copy(buffer, ByteBuffer.allocate(buffer.remaining())));
+    }
+    return newPayload(0, null).withPooledBody(messageCount, copy(buffer, pooled), bufferPool);
+  }
+
+  private static ByteBuffer copy(ByteBuffer buffer, ByteBuffer copy) {
+    copy.put(buffer);
+    copy.flip();
+    return copy;
+  }
+
+  static void sendPayload(RemoteApi api, HealthMetrics healthMetrics, Payload payload) {
+    final int messageCount = payload.traceCount();
+    final int sizeInBytes = payload.sizeInBytes();
+    RemoteApi.Response response = api.sendSerializedTraces(payload);
+    if (response.success()) {
+      if (log.isDebugEnabled()) {
+        log.debug("Successfully sent {} traces to the API", messageCount);
+      }
+      healthMetrics.onSend(messageCount, sizeInBytes, response);
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
       }
+      healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
     }
   }
 }
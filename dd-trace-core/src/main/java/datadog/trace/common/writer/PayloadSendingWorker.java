@@ -0,0 +1,163 @@
+package datadog.trace.common.writer;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_SENDER;
+import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends serialized payloads to the {@link RemoteApi} off the serializer threads. Payloads are handed
+ * over through a bounded queue and a small number of sender threads keep requests in flight.
+ *
+ * <p>Handing over a payload never blocks: if the queue is full the whole payload is dropped and
+ * accounted for in the {@link HealthMetrics}, so a slow agent can't back up the serializers and
+ * cause traces to be dropped before they are serialized.
+ */
+public class PayloadSendingWorker implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadSendingWorker.class);
+
+  private final BlockingQueue<Payload> queue;
+  private final RemoteApi api;
+  private final HealthMetrics healthMetrics;
+  private final PayloadBufferPool bufferPool;
+  private final Thread[] senderThreads;
+
+  private final AtomicLong handedOff = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+
+  public PayloadSendingWorker(
+      final int queueSize,
+      final int senderThreads,
+      final RemoteApi api,
+      final HealthMetrics healthMetrics) {
+    this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+    this.api = api;
+    this.healthMetrics = healthMetrics;
+    this.senderThreads = new Thread[Math.max(senderThreads, 1)];
+    // enough buffers for every payload which can be waiting or in flight
+    this.bufferPool =
+        new PayloadBufferPool(queue.remainingCapacity() + this.senderThreads.length, healthMetrics);
+    for (int i = 0; i < this.senderThreads.length; ++i) {
+      this.senderThreads[i] =
+          this.senderThreads.length == 1
+              ? newAgentThread(TRACE_SENDER, new Sender())
+              : newAgentThread(TRACE_SENDER, "-" + i, new Sender());
+    }
+  }
+
+  public void start() {
+    for (Thread senderThread : senderThreads) {
+      senderThread.start();
+    }
+  }
+
+  /**
+   * Hands a payload over to the sender threads.
+   *
+   * @return false if the payload was dropped because too many payloads are already waiting
+   */
+  public boolean send(final Payload payload) {
+    // count the payload before publishing it, so it can't complete before being counted
+    handedOff.incrementAndGet();
+    if (queue.offer(payload)) {
+      return true;
+    }
+    final int sizeInBytes = payload.sizeInBytes();
+    payload.release();
+    completed.incrementAndGet();
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Dropping {} traces of size {} bytes, too many payloads waiting to be sent",
+          payload.traceCount(),
+          sizeInBytes);
+    }
+    healthMetrics.onDroppedPayload(payload.traceCount(), sizeInBytes);
+    return false;
+  }
+
+  /**
+   * Blocks until every payload handed over before this call has been sent, or the timeout expires.
+   *
+   * @return true if all payloads were sent in time
+   */
+  public boolean awaitSent(final long timeout, final TimeUnit timeUnit) {
+    final long target = handedOff.get();
+    final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+    while (completed.get() < target) {
+      if (Thread.currentThread().isInterrupted()
+          || !isRunning()
+          || System.nanoTime() - deadline > 0) {
+        return false;
+      }
+      LockSupport.parkNanos(MILLISECONDS.toNanos(1));
+    }
+    return true;
+  }
+
+  public PayloadBufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  private boolean isRunning() {
+    for (Thread senderThread : senderThreads) {
+      if (senderThread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() {
+    for (Thread senderThread : senderThreads) {
+      senderThread.interrupt();
+    }
+    for (Thread senderThread : senderThreads) {
+      try {
+        senderThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
+    }
+  }
+
+  private final class Sender implements Runnable {
+    @Override
+    public void run() {
+      Thread thread = Thread.currentThread();
+      try {
+        while (!thread.isInterrupted()) {
+          Payload payload = queue.poll(100, MILLISECONDS);
+          if (null != payload) {
+            try {
+              PayloadDispatcher.sendPayload(api, healthMetrics, payload);
+            } catch (Throwable e) {
+              if (log.isDebugEnabled()) {
+                log.debug("Error while sending traces", e);
+              }
+            } finally {
+              payload.release();
+              completed.incrementAndGet();
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        thread.interrupt();
+      }
+      log.debug("Datadog trace sender exited. Sending traces stopped");
+    }
+  }
+}
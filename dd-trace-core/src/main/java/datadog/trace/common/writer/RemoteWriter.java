@@ -18,7 +18,9 @@ import org.slf4j.LoggerFactory;
  * <p>[Application] -> [trace processing buffer] -> [serialized trace batching buffer] -> [dd-agent]
  *
  * <p>Note: the first buffer is non-blocking and will discard if full, the second is blocking and
- * will cause back pressure on the trace processing (serializing) thread.
+ * will cause back pressure on the trace processing (serializing) thread, unless a {@link
+ * PayloadSendingWorker} is used in which case whole payloads are discarded when too many are
+ * waiting to be sent.
  *
  * <p>If the buffer is filled traces are discarded before serializing. Once serialized every effort
  * is made to keep, to avoid wasting the serialization effort.
@@ -29,6 +31,7 @@ public abstract class RemoteWriter implements Writer {
 
   private final RemoteApi api;
   protected final TraceProcessingWorker traceProcessingWorker;
+  private final PayloadSendingWorker payloadSendingWorker;
   private final PayloadDispatcher dispatcher;
   private final boolean alwaysFlush;
   private final int flushTimeout;
@@ -45,8 +48,29 @@ public abstract class RemoteWriter implements Writer {
       final int flushTimeout,
       final TimeUnit flushTimeoutUnit,
       final boolean alwaysFlush) {
+    this(
+        api,
+        traceProcessingWorker,
+        null,
+        dispatcher,
+        healthMetrics,
+        flushTimeout,
+        flushTimeoutUnit,
+        alwaysFlush);
+  }
+
+  protected RemoteWriter(
+      final RemoteApi api,
+      final TraceProcessingWorker traceProcessingWorker,
+      final PayloadSendingWorker payloadSendingWorker,
+      final PayloadDispatcher dispatcher,
+      final HealthMetrics healthMetrics,
+      final int flushTimeout,
+      final TimeUnit flushTimeoutUnit,
+      final boolean alwaysFlush) {
     this.api = api;
     this.traceProcessingWorker = traceProcessingWorker;
+    this.payloadSendingWorker = payloadSendingWorker;
     this.dispatcher = dispatcher;
     this.healthMetrics = healthMetrics;
     this.flushTimeout = flushTimeout;
@@ -127,6 +151,9 @@ public abstract class RemoteWriter implements Writer {
   @Override
   public void start() {
     if (!closed) {
+      if (null != payloadSendingWorker) {
+        payloadSendingWorker.start();
+      }
       traceProcessingWorker.start();
       healthMetrics.start();
       healthMetrics.onStart((int) getCapacity());
@@ -138,6 +165,9 @@ public abstract class RemoteWriter implements Writer {
     final boolean flushed = flush();
     closed = true;
     traceProcessingWorker.close();
+    if (null != payloadSendingWorker) {
+      payloadSendingWorker.close();
+    }
     healthMetrics.close();
     healthMetrics.onShutdown(flushed);
   }
@@ -0,0 +1,95 @@
+package datadog.trace.common.writer;
+
+import datadog.communication.serialization.Writable;
+import datadog.trace.api.function.BiConsumer;
+import datadog.trace.core.Metadata;
+
+/**
+ * Streams a span's tags and baggage into the meta and metrics maps the mappers write. The mappers
+ * only differ in how they write strings, which they provide as a {@link StringWriting}.
+ */
+public final class TagsAndBaggageWriter {
+
+  /** How a mapper writes the string keys and values of the meta and metrics maps. */
+  public interface StringWriting {
+    void writeString(Writable writable, CharSequence value);
+
+    void writeObjectString(Writable writable, Object value);
+  }
+
+  /** Writes the strings inline, without any encoding cache. */
+  public static final StringWriting INLINE =
+      new StringWriting() {
+        @Override
+        public void writeString(Writable writable, CharSequence value) {
+          writable.writeString(value, null);
+        }
+
+        @Override
+        public void writeObjectString(Writable writable, Object value) {
+          writable.writeObjectString(value, null);
+        }
+      };
+
+  private final StringWriting strings;
+  private final TagWriter numericTagWriter = new TagWriter(true);
+  private final TagWriter stringTagWriter = new TagWriter(false);
+  private final BaggageWriter baggageWriter = new BaggageWriter();
+
+  private Writable writable;
+
+  public TagsAndBaggageWriter(StringWriting strings) {
+    this.strings = strings;
+  }
+
+  public TagsAndBaggageWriter withWritable(Writable writable) {
+    this.writable = writable;
+    return this;
+  }
+
+  /** Writes the numeric tags, as entries of the metrics map. */
+  public void writeNumericTags(Metadata metadata) {
+    metadata.forEachTag(numericTagWriter);
+  }
+
+  /** Writes the non-numeric tags, as entries of the meta map. */
+  public void writeStringTags(Metadata metadata) {
+    metadata.forEachTag(stringTagWriter);
+  }
+
+  /** Writes the baggage items, as {@link Metadata#baggageItemCount()} entries of the meta map. */
+  public void writeBaggage(Metadata metadata) {
+    // we don't need to deduplicate any overlap between tags and baggage here
+    // since they will be accumulated into maps in the same order downstream,
+    // we just need to be sure that the size is the same as the number of elements
+    metadata.forEachBaggageItem(baggageWriter);
+  }
+
+  private final class TagWriter implements BiConsumer<String, Object> {
+    private final boolean numeric;
+
+    TagWriter(boolean numeric) {
+      this.numeric = numeric;
+    }
+
+    @Override
+    public void accept(String key, Object value) {
+      if (value instanceof Number == numeric) {
+        strings.writeString(writable, key);
+        if (numeric) {
+          writable.writeObject(value, null);
+        } else {
+          strings.writeObjectString(writable, value);
+        }
+      }
+    }
+  }
+
+  private final class BaggageWriter implements BiConsumer<String, String> {
+    @Override
+    public void accept(String key, String value) {
+      strings.writeString(writable, key);
+      strings.writeString(writable, value);
+    }
+  }
+}
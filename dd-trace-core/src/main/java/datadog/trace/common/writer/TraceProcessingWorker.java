@@ -12,6 +12,7 @@ import datadog.trace.common.writer.ddagent.PrioritizationStrategy;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.DDSpan;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -26,16 +27,20 @@ import org.slf4j.LoggerFactory;
  *
  * <p>publishing to the buffer will not block the calling thread, but instead will return false if
  * the buffer is full. This is to avoid impacting an application thread.
+ *
+ * <p>Serialization can be spread over several shards, each with its own queues, serializer thread
+ * and {@link PayloadDispatcher}. Traces are routed to a shard by trace id, so the spans of a trace
+ * are always serialized by the same thread and in the order they were published.
  */
 public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
-  private final PrioritizationStrategy prioritizationStrategy;
-  private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
-  private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
-  private final TraceSerializingHandler serializingHandler;
-  private final Thread serializerThread;
+  private final PrioritizationStrategy[] prioritizationStrategies;
+  private final MpscBlockingConsumerArrayQueue<Object>[] primaryQueues;
+  private final MpscBlockingConsumerArrayQueue<Object>[] secondaryQueues;
+  private final TraceSerializingHandler[] serializingHandlers;
+  private final Thread[] serializerThreads;
   private final int capacity;
 
   public TraceProcessingWorker(
@@ -46,28 +51,70 @@ public class TraceProcessingWorker implements AutoCloseable {
       final Prioritization prioritization,
       final long flushInterval,
       final TimeUnit timeUnit) {
+    this(
+        capacity,
+        healthMetrics,
+        Collections.singletonList(dispatcher),
+        droppingPolicy,
+        prioritization,
+        flushInterval,
+        timeUnit);
+  }
+
+  @SuppressWarnings("unchecked")
+  public TraceProcessingWorker(
+      final int capacity,
+      final HealthMetrics healthMetrics,
+      final List<PayloadDispatcher> dispatchers,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final long flushInterval,
+      final TimeUnit timeUnit) {
     this.capacity = capacity;
-    this.primaryQueue = createQueue(capacity);
-    this.secondaryQueue = createQueue(capacity);
-    this.prioritizationStrategy =
-        prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
-    this.serializingHandler =
-        new TraceSerializingHandler(
-            primaryQueue, secondaryQueue, healthMetrics, dispatcher, flushInterval, timeUnit);
-    this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
+    final int shards = dispatchers.size();
+    // the capacity is shared between the shards
+    final int shardCapacity = Math.max(capacity / shards, 2);
+    this.prioritizationStrategies = new PrioritizationStrategy[shards];
+    this.primaryQueues = new MpscBlockingConsumerArrayQueue[shards];
+    this.secondaryQueues = new MpscBlockingConsumerArrayQueue[shards];
+    this.serializingHandlers = new TraceSerializingHandler[shards];
+    this.serializerThreads = new Thread[shards];
+    for (int i = 0; i < shards; ++i) {
+      primaryQueues[i] = createQueue(shardCapacity);
+      secondaryQueues[i] = createQueue(shardCapacity);
+      prioritizationStrategies[i] =
+          prioritization.create(primaryQueues[i], secondaryQueues[i], droppingPolicy);
+      serializingHandlers[i] =
+          new TraceSerializingHandler(
+              primaryQueues[i],
+              secondaryQueues[i],
+              healthMetrics,
+              dispatchers.get(i),
+              flushInterval,
+              timeUnit);
+      serializerThreads[i] =
+          shards == 1
+              ? newAgentThread(TRACE_PROCESSOR, serializingHandlers[i])
+              : newAgentThread(TRACE_PROCESSOR, "-" + i, serializingHandlers[i]);
+    }
   }
 
   public void start() {
-    this.serializerThread.start();
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.start();
+    }
   }
 
   public boolean flush(long timeout, TimeUnit timeUnit) {
-    CountDownLatch latch = new CountDownLatch(1);
+    // every shard has to acknowledge the flush before it is considered done
+    CountDownLatch latch = new CountDownLatch(primaryQueues.length);
     FlushEvent flush = new FlushEvent(latch);
-    boolean offered;
-    do {
-      offered = primaryQueue.offer(flush);
-    } while (!offered && serializerThread.isAlive());
+    for (int i = 0; i < primaryQueues.length; ++i) {
+      boolean offered;
+      do {
+        offered = primaryQueues[i].offer(flush);
+      } while (!offered && serializerThreads[i].isAlive());
+    }
     try {
       return latch.await(timeout, timeUnit);
     } catch (InterruptedException e) {
@@ -78,25 +125,47 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   @Override
   public void close() {
-    serializerThread.interrupt();
-    try {
-      serializerThread.join(THREAD_JOIN_TIMOUT_MS);
-    } catch (InterruptedException ignored) {
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.interrupt();
+    }
+    for (Thread serializerThread : serializerThreads) {
+      try {
+        serializerThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
     }
   }
 
   public <T extends CoreSpan<T>> boolean publish(
       T root, int samplingPriority, final List<T> trace) {
-    return prioritizationStrategy.publish(root, samplingPriority, trace);
+    return prioritizationStrategies[shardOf(root)].publish(root, samplingPriority, trace);
+  }
+
+  private int shardOf(CoreSpan<?> root) {
+    if (prioritizationStrategies.length == 1) {
+      return 0;
+    }
+    long traceId = root.getTraceId().toLong();
+    // trace ids are random, but mix in the high bits anyway in case the low bits aren't
+    return ((int) (traceId ^ (traceId >>> 32)) & Integer.MAX_VALUE)
+        % prioritizationStrategies.length;
   }
 
   public int getCapacity() {
     return capacity;
   }
 
+  public int getShardCount() {
+    return serializerThreads.length;
+  }
+
   public long getRemainingCapacity() {
     // only advertise primary capacity (partly to keep test which aims to saturate the queue happy)
-    return primaryQueue.remainingCapacity();
+    long remainingCapacity = 0;
+    for (MpscBlockingConsumerArrayQueue<Object> primaryQueue : primaryQueues) {
+      remainingCapacity += primaryQueue.remainingCapacity();
+    }
+    return remainingCapacity;
   }
 
   private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
@@ -146,6 +215,7 @@ public class TraceProcessingWorker implements AutoCloseable {
           payloadDispatcher.addTrace(trace);
         } else if (event instanceof FlushEvent) {
           payloadDispatcher.flush();
+          payloadDispatcher.awaitSent();
           ((FlushEvent) event).sync();
         }
       } catch (final Throwable e) {
@@ -121,7 +121,8 @@ public class WriterFactory {
               commObjects.agentUrl,
               commObjects.featuresDiscovery(config),
               commObjects.monitoring,
-              config.isTracerMetricsEnabled());
+              config.isTracerMetricsEnabled(),
+              config.isTraceCompressionEnabled());
 
       remoteWriter =
           DDAgentWriter.builder()
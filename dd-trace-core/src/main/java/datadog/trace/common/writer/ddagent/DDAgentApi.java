@@ -15,11 +15,12 @@ import datadog.trace.common.writer.RemoteResponseListener;
 import datadog.trace.core.DDTraceCoreInfo;
 import datadog.trace.relocate.api.IOLogger;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -41,14 +42,16 @@ public class DDAgentApi implements RemoteApi {
   private static final String DATADOG_DROPPED_TRACE_COUNT = "Datadog-Client-Dropped-P0-Traces";
   private static final String DATADOG_DROPPED_SPAN_COUNT = "Datadog-Client-Dropped-P0-Spans";
   private static final String DATADOG_AGENT_STATE = "Datadog-Agent-State";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
 
-  private final List<RemoteResponseListener> responseListeners = new ArrayList<>();
+  private final List<RemoteResponseListener> responseListeners = new CopyOnWriteArrayList<>();
   private final boolean metricsEnabled;
+  private final boolean compressionEnabled;
 
-  private long totalTraces = 0;
-  private long receivedTraces = 0;
-  private long sentTraces = 0;
-  private long failedTraces = 0;
+  private final AtomicLong totalTraces = new AtomicLong();
+  private final AtomicLong receivedTraces = new AtomicLong();
+  private final AtomicLong sentTraces = new AtomicLong();
+  private final AtomicLong failedTraces = new AtomicLong();
 
   private final Recording sendPayloadTimer;
   private final Counter agentErrorCounter;
@@ -75,12 +78,28 @@ public class DDAgentApi implements RemoteApi {
       DDAgentFeaturesDiscovery featuresDiscovery,
       Monitoring monitoring,
       boolean metricsEnabled) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, false);
+  }
+
+  /**
+   * @param compressionEnabled whether payloads should be gzipped when the agent reports it accepts
+   *     them
+   */
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      boolean compressionEnabled) {
     this.featuresDiscovery = featuresDiscovery;
     this.agentUrl = agentUrl;
     this.httpClient = client;
-    this.sendPayloadTimer = monitoring.newTimer("trace.agent.send.time");
+    // payloads can be sent from several sender threads at once
+    this.sendPayloadTimer = monitoring.newThreadLocalTimer("trace.agent.send.time");
     this.agentErrorCounter = monitoring.newCounter("trace.agent.error.counter");
     this.metricsEnabled = metricsEnabled;
+    this.compressionEnabled = compressionEnabled;
 
     this.headers = new HashMap<>();
     this.headers.put(DATADOG_CLIENT_COMPUTED_TOP_LEVEL, "true");
@@ -107,19 +126,23 @@ public class DDAgentApi implements RemoteApi {
     }
 
     HttpUrl tracesUrl = agentUrl.resolve(tracesEndpoint);
+    boolean compressed = compressionEnabled && featuresDiscovery.supportsGzipTraces();
     try {
-      final Request request =
+      final Request.Builder builder =
           prepareRequest(tracesUrl, headers)
               .addHeader(X_DATADOG_TRACE_COUNT, Integer.toString(payload.traceCount()))
               .addHeader(DATADOG_DROPPED_TRACE_COUNT, Long.toString(payload.droppedTraces()))
               .addHeader(DATADOG_DROPPED_SPAN_COUNT, Long.toString(payload.droppedSpans()))
               .addHeader(
                   DATADOG_CLIENT_COMPUTED_STATS,
-                  metricsEnabled && featuresDiscovery.supportsMetrics() ? "true" : "")
-              .put(payload.toRequest())
-              .build();
-      this.totalTraces += payload.traceCount();
-      this.receivedTraces += payload.traceCount();
+                  metricsEnabled && featuresDiscovery.supportsMetrics() ? "true" : "");
+      if (compressed) {
+        // the body is gzipped while it is streamed, so its length isn't known up front
+        builder.addHeader(CONTENT_ENCODING, "gzip");
+      }
+      final Request request = builder.put(payload.withCompression(compressed).toRequest()).build();
+      this.totalTraces.addAndGet(payload.traceCount());
+      this.receivedTraces.addAndGet(payload.traceCount());
       try (final Recording recording = sendPayloadTimer.start();
           final okhttp3.Response response = httpClient.newCall(request).execute()) {
         handleAgentChange(response.header(DATADOG_AGENT_STATE));
@@ -161,7 +184,7 @@ public class DDAgentApi implements RemoteApi {
 
   private void countAndLogSuccessfulSend(final int traceCount, final int sizeInBytes) {
     // count the successful traces
-    this.sentTraces += traceCount;
+    this.sentTraces.addAndGet(traceCount);
 
     ioLogger.success(createSendLogMessage(traceCount, sizeInBytes, "Success"));
   }
@@ -172,7 +195,7 @@ public class DDAgentApi implements RemoteApi {
       final okhttp3.Response response,
       final IOException outer) {
     // count the failed traces
-    this.failedTraces += traceCount;
+    this.failedTraces.addAndGet(traceCount);
     // these are used to catch and log if there is a failure in debug logging the response body
     String agentError = getResponseBody(response);
     String sendErrorString =
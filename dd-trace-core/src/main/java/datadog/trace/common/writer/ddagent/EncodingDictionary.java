@@ -0,0 +1,118 @@
+package datadog.trace.common.writer.ddagent;
+
+import java.util.Arrays;
+
+/**
+ * Maps the values written to a v0.5 dictionary to their codes, which are assigned in insertion
+ * order starting from zero. Keys are held in an open-addressed table (linear probing) next to their
+ * hashes and codes, so lookups don't box and keys which are the same instance, like interned {@link
+ * datadog.trace.bootstrap.instrumentation.api.UTF8BytesString}s, are found without calling equals.
+ * Not thread-safe.
+ */
+final class EncodingDictionary {
+  static final int NOT_FOUND = -1;
+
+  private static final int MIN_CAPACITY = 64;
+
+  private Object[] keys;
+  private int[] hashes;
+  private int[] codes;
+  private int mask;
+  // keys by code, so a prefix of the dictionary can be kept when it is cleared
+  private Object[] keysByCode;
+  private int size;
+
+  EncodingDictionary() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /** @return the code of the key, or {@link #NOT_FOUND} if it hasn't been added */
+  int get(Object key) {
+    int hash = key.hashCode();
+    for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+      Object candidate = keys[slot];
+      if (candidate == key) {
+        return codes[slot];
+      }
+      if (null == candidate) {
+        return NOT_FOUND;
+      }
+      if (hashes[slot] == hash && candidate.equals(key)) {
+        return codes[slot];
+      }
+    }
+  }
+
+  /**
+   * Adds a key which isn't in the dictionary yet.
+   *
+   * @return the code assigned to the key
+   */
+  int add(Object key) {
+    if (size + 1 > (keys.length >> 1)) {
+      resize(keys.length << 1);
+    }
+    int code = size++;
+    keysByCode[code] = key;
+    insert(key, key.hashCode(), code);
+    return code;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Removes all keys except the first {@code retained} added, which keep their codes. */
+  void retain(int retained) {
+    if (retained >= size) {
+      return;
+    }
+    Arrays.fill(keys, null);
+    Arrays.fill(keysByCode, retained, size, null);
+    for (int code = 0; code < retained; ++code) {
+      Object key = keysByCode[code];
+      insert(key, key.hashCode(), code);
+    }
+    size = retained;
+  }
+
+  void clear() {
+    retain(0);
+  }
+
+  private void insert(Object key, int hash, int code) {
+    int slot = spread(hash) & mask;
+    while (null != keys[slot]) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    hashes[slot] = hash;
+    codes[slot] = code;
+  }
+
+  private void resize(int capacity) {
+    Object[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    int[] oldCodes = codes;
+    Object[] oldKeysByCode = keysByCode;
+    allocate(capacity);
+    System.arraycopy(oldKeysByCode, 0, keysByCode, 0, size);
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (null != oldKeys[i]) {
+        insert(oldKeys[i], oldHashes[i], oldCodes[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    hashes = new int[capacity];
+    codes = new int[capacity];
+    mask = capacity - 1;
+    keysByCode = new Object[capacity >> 1];
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
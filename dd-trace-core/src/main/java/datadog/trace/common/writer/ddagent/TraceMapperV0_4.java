@@ -1,10 +1,9 @@
 package datadog.trace.common.writer.ddagent;
 
-import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
-
 import datadog.communication.serialization.Writable;
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
 import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.TagsAndBaggageWriter;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
@@ -13,7 +12,6 @@ import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import okhttp3.RequestBody;
 
 public final class TraceMapperV0_4 implements TraceMapper {
@@ -33,8 +31,12 @@ public final class TraceMapperV0_4 implements TraceMapper {
     private Writable writable;
     private boolean writeSamplingPriority;
 
+    private final TagsAndBaggageWriter entryWriter =
+        new TagsAndBaggageWriter(TagsAndBaggageWriter.INLINE);
+
     MetaWriter withWritable(Writable writable) {
       this.writable = writable;
+      entryWriter.withWritable(writable);
       return this;
     }
 
@@ -45,9 +47,11 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
+      int numericTags = countNumericTags(metadata);
       int metaSize =
-          metadata.getBaggage().size()
+          metadata.baggageItemCount()
               + metadata.getTags().size()
+              - numericTags
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
@@ -55,13 +59,8 @@ public final class TraceMapperV0_4 implements TraceMapper {
           (writeSamplingPriority && metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
-              + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
-          ++metricsSize;
-          --metaSize;
-        }
-      }
+              + 1
+              + numericTags;
       writable.writeUTF8(METRICS);
       writable.startMap(metricsSize);
       if (writeSamplingPriority && metadata.hasSamplingPriority()) {
@@ -78,22 +77,11 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       writable.writeUTF8(THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
-        }
-      }
+      entryWriter.writeNumericTags(metadata);
 
       writable.writeUTF8(META);
       writable.startMap(metaSize);
-      // we don't need to deduplicate any overlap between tags and baggage here
-      // since they will be accumulated into maps in the same order downstream,
-      // we just need to be sure that the size is the same as the number of elements
-      for (Map.Entry<String, String> entry : metadata.getBaggage().entrySet()) {
-        writable.writeString(entry.getKey(), null);
-        writable.writeString(entry.getValue(), null);
-      }
+      entryWriter.writeBaggage(metadata);
       writable.writeUTF8(THREAD_NAME);
       writable.writeUTF8(metadata.getThreadName());
       if (null != metadata.getHttpStatusCode()) {
@@ -104,12 +92,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
         writable.writeUTF8(ORIGIN_KEY);
         writable.writeString(metadata.getOrigin(), null);
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
-        }
-      }
+      entryWriter.writeStringTags(metadata);
     }
   }
 
@@ -197,7 +180,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     public RequestBody toRequest() {
-      return msgpackRequestBodyOf(Arrays.asList(msgpackArrayHeader(traceCount()), body));
+      return requestBodyOf(Arrays.asList(msgpackArrayHeader(traceCount()), body));
     }
   }
 }
@@ -1,15 +1,15 @@
 package datadog.trace.common.writer.ddagent;
 
-import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
-
 import datadog.communication.serialization.GrowableBuffer;
 import datadog.communication.serialization.Mapper;
 import datadog.communication.serialization.Writable;
 import datadog.communication.serialization.WritableFormatter;
 import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.api.Config;
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.TagsAndBaggageWriter;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
@@ -17,31 +17,44 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import okhttp3.RequestBody;
 
 public final class TraceMapperV0_5 implements TraceMapper {
 
+  /** Upper bound on the size of the dictionary prefix carried over between payloads. */
+  private static final int MAX_RETAINED_BYTES = 8 << 10;
+
   private final WritableFormatter dictionaryWriter;
   private final DictionaryMapper dictionaryMapper = new DictionaryMapper();
-  private final Map<Object, Integer> encoding = new HashMap<>();
+  private final EncodingDictionary encoding = new EncodingDictionary();
   private final GrowableBuffer dictionary;
 
   private final MetaWriter metaWriter = new MetaWriter();
   private final int size;
 
+  // the first entries of the dictionary, typically service names, operation names and
+  // common tag keys, can be kept for the following payloads instead of being re-encoded
+  private final int maxRetainedEntries;
+  private int retainedEntries;
+  private int retainedBytes;
+  private boolean retainedPrefixComplete;
+
   public TraceMapperV0_5() {
-    this(2 << 20);
+    this(2 << 20, 2 << 20, Config.get().getTraceAgentV05DictionaryRetainedEntries());
   }
 
   public TraceMapperV0_5(int dictionarySize, int bufferSize) {
+    this(dictionarySize, bufferSize, 0);
+  }
+
+  public TraceMapperV0_5(int dictionarySize, int bufferSize, int maxRetainedEntries) {
     // growable buffer is implicitly bounded by the fixed size buffer
     // the messages themselves are written into
     this.dictionary = new GrowableBuffer(bufferSize);
     this.dictionaryWriter = new MsgPackWriter(dictionary);
     this.size = bufferSize;
+    this.maxRetainedEntries = maxRetainedEntries;
     reset();
   }
 
@@ -85,11 +98,13 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   private void writeDictionaryEncoded(final Writable writable, final Object value) {
     final Object target = null == value ? "" : value;
-    final Integer encoded = encoding.get(target);
-    if (null == encoded) {
+    final int encoded = encoding.get(target);
+    if (EncodingDictionary.NOT_FOUND == encoded) {
       dictionaryWriter.format(target, dictionaryMapper);
-      final int dictionaryCode = dictionary.messageCount() - 1;
-      encoding.put(target, dictionaryCode);
+      final int dictionaryCode = encoding.add(target);
+      if (!retainedPrefixComplete) {
+        extendRetainedPrefix(dictionaryCode);
+      }
       // this call can fail, but the dictionary has been written to now
       // so should make sure dictionary state is consistent first
       writable.writeInt(dictionaryCode);
@@ -98,6 +113,16 @@ public final class TraceMapperV0_5 implements TraceMapper {
     }
   }
 
+  private void extendRetainedPrefix(int dictionaryCode) {
+    int position = dictionary.position();
+    if (dictionaryCode < maxRetainedEntries && position <= MAX_RETAINED_BYTES) {
+      retainedEntries = dictionaryCode + 1;
+      retainedBytes = position;
+    } else {
+      retainedPrefixComplete = true;
+    }
+  }
+
   @Override
   public Payload newPayload() {
     return new PayloadV0_5(dictionary.slice(), dictionary.messageCount());
@@ -110,8 +135,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   @Override
   public void reset() {
-    dictionary.reset();
-    encoding.clear();
+    // the prefix is made of the first entries of the first payload, and is fixed from then on
+    retainedPrefixComplete |= encoding.size() > 0;
+    dictionary.retain(retainedEntries, retainedBytes);
+    encoding.retain(retainedEntries);
   }
 
   @Override
@@ -133,7 +160,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   private static class PayloadV0_5 extends Payload {
 
-    private final ByteBuffer dictionary;
+    private ByteBuffer dictionary;
     private final int stringCount;
 
     private PayloadV0_5(ByteBuffer dictionary, int stringCount) {
@@ -141,6 +168,16 @@ public final class TraceMapperV0_5 implements TraceMapper {
       this.stringCount = stringCount;
     }
 
+    @Override
+    public Payload detach() {
+      // the dictionary is reset for the next payload while this one waits to be sent
+      ByteBuffer copy = ByteBuffer.allocate(dictionary.remaining());
+      copy.put(dictionary);
+      copy.flip();
+      dictionary = copy;
+      return this;
+    }
+
     @Override
     public int sizeInBytes() {
       return 1
@@ -161,7 +198,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     @Override
     public RequestBody toRequest() {
-      return msgpackRequestBodyOf(toList());
+      return requestBodyOf(toList());
     }
 
     private List<ByteBuffer> toList() {
@@ -180,8 +217,12 @@ public final class TraceMapperV0_5 implements TraceMapper {
     private Writable writable;
     private boolean writeSamplingPriority;
 
+    private final TagsAndBaggageWriter entryWriter =
+        new TagsAndBaggageWriter(new DictionaryEncodedStrings());
+
     MetaWriter withWritable(final Writable writable) {
       this.writable = writable;
+      entryWriter.withWritable(writable);
       return this;
     }
 
@@ -192,9 +233,11 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
+      int numericTags = countNumericTags(metadata);
       int metaSize =
-          metadata.getBaggage().size()
+          metadata.baggageItemCount()
               + metadata.getTags().size()
+              - numericTags
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
@@ -202,21 +245,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
           (writeSamplingPriority && metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
-              + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
-          ++metricsSize;
-          --metaSize;
-        }
-      }
+              + 1
+              + numericTags;
       writable.startMap(metaSize);
-      // we don't need to deduplicate any overlap between tags and baggage here
-      // since they will be accumulated into maps in the same order downstream,
-      // we just need to be sure that the size is the same as the number of elements
-      for (Map.Entry<String, String> entry : metadata.getBaggage().entrySet()) {
-        writeDictionaryEncoded(writable, entry.getKey());
-        writeDictionaryEncoded(writable, entry.getValue());
-      }
+      entryWriter.writeBaggage(metadata);
       writeDictionaryEncoded(writable, THREAD_NAME);
       writeDictionaryEncoded(writable, metadata.getThreadName());
       if (null != metadata.getHttpStatusCode()) {
@@ -227,12 +259,7 @@ public final class TraceMapperV0_5 implements TraceMapper {
         writeDictionaryEncoded(writable, ORIGIN_KEY);
         writeDictionaryEncoded(writable, metadata.getOrigin());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writeDictionaryEncoded(writable, entry.getValue());
-        }
-      }
+      entryWriter.writeStringTags(metadata);
       writable.startMap(metricsSize);
       if (writeSamplingPriority && metadata.hasSamplingPriority()) {
         writeDictionaryEncoded(writable, SAMPLING_PRIORITY_KEY);
@@ -248,12 +275,19 @@ public final class TraceMapperV0_5 implements TraceMapper {
       }
       writeDictionaryEncoded(writable, THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writable.writeObject(entry.getValue(), null);
-        }
-      }
+      entryWriter.writeNumericTags(metadata);
+    }
+  }
+
+  private final class DictionaryEncodedStrings implements TagsAndBaggageWriter.StringWriting {
+    @Override
+    public void writeString(Writable writable, CharSequence value) {
+      writeDictionaryEncoded(writable, value);
+    }
+
+    @Override
+    public void writeObjectString(Writable writable, Object value) {
+      writeDictionaryEncoded(writable, value);
     }
   }
 }
@@ -15,6 +15,7 @@ import datadog.trace.relocate.api.IOLogger;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -25,13 +26,14 @@ import org.slf4j.LoggerFactory;
 public class DDIntakeApi implements RemoteApi {
 
   private static final String DD_API_KEY_HEADER = "dd-api-key";
+  private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
   private static final Logger log = LoggerFactory.getLogger(DDIntakeApi.class);
   private final IOLogger ioLogger = new IOLogger(log);
 
-  private long totalTraces = 0;
-  private long receivedTraces = 0;
-  private long sentTraces = 0;
-  private long failedTraces = 0;
+  private final AtomicLong totalTraces = new AtomicLong();
+  private final AtomicLong receivedTraces = new AtomicLong();
+  private final AtomicLong sentTraces = new AtomicLong();
+  private final AtomicLong failedTraces = new AtomicLong();
 
   public static DDIntakeApiBuilder builder() {
     return new DDIntakeApiBuilder();
@@ -42,6 +44,7 @@ public class DDIntakeApi implements RemoteApi {
     private String apiVersion = DEFAULT_INTAKE_VERSION;
     private TrackType trackType = TrackType.NOOP;
     private long timeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_INTAKE_TIMEOUT);
+    private boolean compressionEnabled = Config.get().isTraceCompressionEnabled();
 
     HttpUrl hostUrl = null;
     OkHttpClient httpClient = null;
@@ -74,6 +77,11 @@ public class DDIntakeApi implements RemoteApi {
       return this;
     }
 
+    public DDIntakeApiBuilder compressionEnabled(final boolean compressionEnabled) {
+      this.compressionEnabled = compressionEnabled;
+      return this;
+    }
+
     public DDIntakeApiBuilder hostUrl(final HttpUrl hostUrl) {
       this.hostUrl = hostUrl;
       return this;
@@ -103,7 +111,7 @@ public class DDIntakeApi implements RemoteApi {
         retryPolicy = RetryPolicy.builder().withMaxRetry(5).withBackoff(100).build();
       }
 
-      return new DDIntakeApi(client, intakeUrl, apiKey, retryPolicy);
+      return new DDIntakeApi(client, intakeUrl, apiKey, retryPolicy, compressionEnabled);
     }
   }
 
@@ -111,13 +119,19 @@ public class DDIntakeApi implements RemoteApi {
   private final HttpUrl intakeUrl;
   private final String apiKey;
   private final RetryPolicy retryPolicy;
+  private final boolean compressionEnabled;
 
   private DDIntakeApi(
-      OkHttpClient httpClient, HttpUrl intakeUrl, String apiKey, RetryPolicy retryPolicy) {
+      OkHttpClient httpClient,
+      HttpUrl intakeUrl,
+      String apiKey,
+      RetryPolicy retryPolicy,
+      boolean compressionEnabled) {
     this.httpClient = httpClient;
     this.intakeUrl = intakeUrl;
     this.apiKey = apiKey;
     this.retryPolicy = retryPolicy;
+    this.compressionEnabled = compressionEnabled;
   }
 
   @Override
@@ -127,14 +141,16 @@ public class DDIntakeApi implements RemoteApi {
     int retry = 1;
 
     try {
+      final Request.Builder builder =
+          new Request.Builder().url(intakeUrl).addHeader(DD_API_KEY_HEADER, apiKey);
+      if (compressionEnabled) {
+        // the intake always accepts gzip, the body is compressed while it is streamed
+        builder.addHeader(CONTENT_ENCODING_HEADER, "gzip");
+      }
       final Request request =
-          new Request.Builder()
-              .url(intakeUrl)
-              .addHeader(DD_API_KEY_HEADER, apiKey)
-              .post(payload.toRequest())
-              .build();
-      this.totalTraces += payload.traceCount();
-      this.receivedTraces += payload.traceCount();
+          builder.post(payload.withCompression(compressionEnabled).toRequest()).build();
+      this.totalTraces.addAndGet(payload.traceCount());
+      this.receivedTraces.addAndGet(payload.traceCount());
 
       int httpCode = 0;
       IOException lastException = null;
@@ -180,7 +196,7 @@ public class DDIntakeApi implements RemoteApi {
 
   private void countAndLogSuccessfulSend(final int traceCount, final int sizeInBytes) {
     // count the successful traces
-    this.sentTraces += traceCount;
+    this.sentTraces.addAndGet(traceCount);
 
     ioLogger.success(createSendLogMessage(traceCount, sizeInBytes, "Success"));
   }
@@ -191,7 +207,7 @@ public class DDIntakeApi implements RemoteApi {
       final DDIntakeApi.Response response,
       final IOException outer) {
     // count the failed traces
-    this.failedTraces += traceCount;
+    this.failedTraces.addAndGet(traceCount);
     // these are used to catch and log if there is a failure in debug logging the response body
     String intakeError = response != null ? response.body : "";
     String sendErrorString =
@@ -495,7 +495,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     this.pendingTraceBuffer =
         strictTraceWrites
             ? PendingTraceBuffer.discarding()
-            : PendingTraceBuffer.delaying(this.timeSource);
+            : PendingTraceBuffer.delaying(this.timeSource, this.statsDClient);
     pendingTraceFactory =
         new PendingTrace.Factory(this, pendingTraceBuffer, this.timeSource, strictTraceWrites);
     pendingTraceBuffer.start();
@@ -519,7 +519,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
     if (dataStreamsCheckpointer == null) {
       this.dataStreamsCheckpointer =
-          createDataStreamsCheckpointer(config, sharedCommunicationObjects, this.timeSource);
+          createDataStreamsCheckpointer(
+              config, sharedCommunicationObjects, this.timeSource, this.statsDClient);
     } else {
       this.dataStreamsCheckpointer = dataStreamsCheckpointer;
     }
@@ -1052,7 +1053,10 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
   @SuppressForbidden
   private static DataStreamsCheckpointer createDataStreamsCheckpointer(
-      Config config, SharedCommunicationObjects sharedCommunicationObjects, TimeSource timeSource) {
+      Config config,
+      SharedCommunicationObjects sharedCommunicationObjects,
+      TimeSource timeSource,
+      StatsDClient statsDClient) {
 
     if (config.isDataStreamsEnabled() && Platform.isJavaVersionAtLeast(8)) {
       try {
@@ -1060,8 +1064,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
 
         return (DataStreamsCheckpointer)
             Class.forName("datadog.trace.core.datastreams.DefaultDataStreamsCheckpointer")
-                .getConstructor(Config.class, SharedCommunicationObjects.class, TimeSource.class)
-                .newInstance(config, sharedCommunicationObjects, timeSource);
+                .getConstructor(
+                    Config.class,
+                    SharedCommunicationObjects.class,
+                    TimeSource.class,
+                    StatsDClient.class)
+                .newInstance(config, sharedCommunicationObjects, timeSource, statsDClient);
       } catch (InstantiationException
           | InvocationTargetException
           | NoSuchMethodException
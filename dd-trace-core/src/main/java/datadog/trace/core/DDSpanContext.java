@@ -20,6 +20,7 @@ import datadog.trace.bootstrap.instrumentation.api.ResourceNamePriorities;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.core.propagation.DatadogTags;
+import datadog.trace.core.propagation.InjectionCache;
 import datadog.trace.core.taginterceptor.TagInterceptor;
 import datadog.trace.core.tagprocessor.QueryObfuscator;
 import datadog.trace.core.tagprocessor.TagsPostProcessor;
@@ -83,8 +84,11 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
    * threads, they will rarely, if ever, be read and modified concurrently by multiple threads but
    * rather read and accessed in a serial fashion on thread after thread. The synchronization can
    * then be wrapped around bulk operations to minimize the costly atomic operations.
+   *
+   * <p>The tags are kept in a {@link TagMap} rather than a HashMap, so that setting a tag doesn't
+   * allocate an entry and the tags can be visited without allocating when the span is serialized.
    */
-  private final Map<String, Object> unsafeTags;
+  private final TagMap unsafeTags;
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -123,6 +127,9 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
 
   private volatile PathwayContext pathwayContext;
 
+  // header values rendered when this context is injected, created on the first injection
+  private volatile InjectionCache injectionCache;
+
   public DDSpanContext(
       final DDId traceId,
       final DDId spanId,
@@ -168,9 +175,8 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     this.pathwayContext = pathwayContext;
 
     // The +1 is the magic number from the tags below that we set at the end,
-    // and "* 4 / 3" is to make sure that we don't resize immediately
-    final int capacity = Math.max((tagsSize <= 0 ? 3 : (tagsSize + 1)) * 4 / 3, 8);
-    this.unsafeTags = new HashMap<>(capacity);
+    // the map sizes itself so that we don't resize immediately
+    this.unsafeTags = new TagMap(tagsSize <= 0 ? 3 : (tagsSize + 1));
 
     setServiceName(serviceName);
     this.operationName = operationName;
@@ -571,14 +577,13 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
 
   public void processTagsAndBaggage(final MetadataConsumer consumer) {
     synchronized (unsafeTags) {
-      Map<String, String> baggageItemsWithDatadogTags = new HashMap<>(baggageItems);
-      datadogTags.fillTagMap(baggageItemsWithDatadogTags);
       consumer.accept(
           new Metadata(
               threadId,
               threadName,
               postProcessor.processTags(unsafeTags),
-              baggageItemsWithDatadogTags,
+              baggageItems,
+              datadogTags,
               samplingPriority != PrioritySampling.UNSET ? samplingPriority : getSamplingPriority(),
               measured,
               topLevel,
@@ -663,6 +668,15 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     return datadogTags;
   }
 
+  public InjectionCache getInjectionCache() {
+    InjectionCache cache = injectionCache;
+    if (null == cache) {
+      // racing injections may each create a cache, losing one only costs rendering again
+      injectionCache = cache = new InjectionCache();
+    }
+    return cache;
+  }
+
   /** TraceSegment Implementation */
   @Override
   public void setTagTop(String key, Object value) {
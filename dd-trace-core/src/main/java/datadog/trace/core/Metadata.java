@@ -2,15 +2,23 @@ package datadog.trace.core;
 
 import static datadog.trace.api.sampling.PrioritySampling.UNSET;
 
+import datadog.trace.api.function.BiConsumer;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.propagation.DatadogTags;
 import java.util.Map;
 
+/**
+ * The span data mappers need besides the span's fields. Tags and baggage are read straight from the
+ * span's own stores, so use {@link #forEachTag(BiConsumer)} and {@link #forEachBaggageItem} rather
+ * than copying them.
+ */
 public final class Metadata {
   private final long threadId;
   private final UTF8BytesString threadName;
   private final UTF8BytesString httpStatusCode;
   private final Map<String, Object> tags;
   private final Map<String, String> baggage;
+  private final DatadogTags datadogTags;
 
   private final int samplingPriority;
   private final boolean measured;
@@ -27,11 +35,38 @@ public final class Metadata {
       boolean topLevel,
       UTF8BytesString httpStatusCode,
       CharSequence origin) {
+    this(
+        threadId,
+        threadName,
+        tags,
+        baggage,
+        null,
+        samplingPriority,
+        measured,
+        topLevel,
+        httpStatusCode,
+        origin);
+  }
+
+  /** @param datadogTags propagated tags written along with the baggage, may be null */
+  public Metadata(
+      long threadId,
+      UTF8BytesString threadName,
+      Map<String, Object> tags,
+      Map<String, String> baggage,
+      DatadogTags datadogTags,
+      int samplingPriority,
+      boolean measured,
+      boolean topLevel,
+      UTF8BytesString httpStatusCode,
+      CharSequence origin) {
     this.threadId = threadId;
     this.threadName = threadName;
     this.httpStatusCode = httpStatusCode;
     this.tags = tags;
     this.baggage = baggage;
+    // the count written in the map header must match the tags written after it
+    this.datadogTags = null == datadogTags ? null : datadogTags.snapshot();
     this.samplingPriority = samplingPriority;
     this.measured = measured;
     this.topLevel = topLevel;
@@ -58,10 +93,39 @@ public final class Metadata {
     return tags;
   }
 
+  /** @return the baggage items, without the propagated Datadog tags */
   public Map<String, String> getBaggage() {
     return baggage;
   }
 
+  /** Visits the span tags, without allocating when they're held in a {@link TagMap}. */
+  public void forEachTag(BiConsumer<String, Object> consumer) {
+    if (tags instanceof TagMap) {
+      ((TagMap) tags).forEachTag(consumer);
+    } else {
+      for (Map.Entry<String, Object> entry : tags.entrySet()) {
+        consumer.accept(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /** The number of entries {@link #forEachBaggageItem(BiConsumer)} visits. */
+  public int baggageItemCount() {
+    return baggage.size() + (null == datadogTags ? 0 : datadogTags.tagCount());
+  }
+
+  /** Visits the baggage items followed by the propagated Datadog tags. */
+  public void forEachBaggageItem(BiConsumer<String, String> consumer) {
+    if (!baggage.isEmpty()) {
+      for (Map.Entry<String, String> entry : baggage.entrySet()) {
+        consumer.accept(entry.getKey(), entry.getValue());
+      }
+    }
+    if (null != datadogTags) {
+      datadogTags.forEachTag(consumer);
+    }
+  }
+
   public boolean measured() {
     return measured;
   }
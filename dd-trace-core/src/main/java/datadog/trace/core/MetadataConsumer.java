@@ -1,5 +1,27 @@
 package datadog.trace.core;
 
+import datadog.trace.api.function.BiConsumer;
+
 public abstract class MetadataConsumer {
+  private final NumericTagCounter numericTagCounter = new NumericTagCounter();
+
   public abstract void accept(Metadata metadata);
+
+  /** Counts the tags with numeric values, which mappers write as metrics rather than meta. */
+  protected final int countNumericTags(Metadata metadata) {
+    numericTagCounter.count = 0;
+    metadata.forEachTag(numericTagCounter);
+    return numericTagCounter.count;
+  }
+
+  private static final class NumericTagCounter implements BiConsumer<String, Object> {
+    int count;
+
+    @Override
+    public void accept(String key, Object value) {
+      if (value instanceof Number) {
+        ++count;
+      }
+    }
+  }
 }
@@ -0,0 +1,219 @@
+package datadog.trace.core;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Collects the finished spans of a {@link PendingTrace} in a chain of array chunks. Adding a span
+ * claims a slot with a single atomic increment, which unlike a CAS never has to be retried, and
+ * doesn't allocate a node per span. Chunks start small and double in size, so small traces stay
+ * cheap while fan-out traces with thousands of spans only allocate a handful of chunks.
+ *
+ * <p>{@link #drain()} detaches the chunks filled so far and hands them out as a list backed by the
+ * chunks, so the spans don't have to be copied before being written. Iterating doesn't take the
+ * spans, and like {@link #drain()} visits the most recently added span first.
+ */
+final class PendingSpans implements Iterable<DDSpan> {
+  private static final int MIN_CHUNK_SHIFT = 3; // 8
+  private static final int MAX_CHUNK_DEPTH = 5; // chunks stop growing at 8 << 5 = 256
+
+  private static final List<DDSpan> EMPTY = Collections.emptyList();
+
+  private static final AtomicReferenceFieldUpdater<PendingSpans, Chunk> TAIL =
+      AtomicReferenceFieldUpdater.newUpdater(PendingSpans.class, Chunk.class, "tail");
+
+  private volatile Chunk tail = new Chunk(null);
+
+  void add(final DDSpan span) {
+    while (true) {
+      final Chunk chunk = tail;
+      final int slot = Chunk.CLAIMED.getAndIncrement(chunk);
+      if (slot < chunk.capacity) {
+        chunk.spans.lazySet(slot, span);
+        return;
+      }
+      // the chunk is full or has just been drained, move on to the next one
+      if (chunk == tail) {
+        TAIL.compareAndSet(this, chunk, new Chunk(chunk));
+      }
+    }
+  }
+
+  boolean isEmpty() {
+    final Chunk chunk = tail;
+    return null == chunk.prev && chunk.claimed == 0;
+  }
+
+  /** @return Long.MAX_VALUE if no spans finished. */
+  long oldestFinishedTime() {
+    long oldest = Long.MAX_VALUE;
+    for (Chunk chunk = tail; null != chunk; chunk = chunk.prev) {
+      final int count = Math.min(chunk.claimed, chunk.capacity);
+      for (int i = 0; i < count; ++i) {
+        final DDSpan span = chunk.spans.get(i);
+        if (null != span) {
+          oldest = Math.min(oldest, span.getStartTime() + span.getDurationNano());
+        }
+      }
+    }
+    return oldest;
+  }
+
+  /**
+   * Takes every span added so far. Spans added concurrently either make it into the returned list
+   * or are left for the next drain.
+   *
+   * @return the spans, most recently added first
+   */
+  List<DDSpan> drain() {
+    if (isEmpty()) {
+      return EMPTY;
+    }
+    final Chunk last = TAIL.getAndSet(this, new Chunk(null));
+    // seal the last chunk so any further claims on it fail and move on to the new tail
+    final int lastCount = Math.min(Chunk.CLAIMED.getAndAdd(last, last.capacity), last.capacity);
+    final Chunk[] chunks = new Chunk[last.depth + 1];
+    for (Chunk chunk = last; null != chunk; chunk = chunk.prev) {
+      chunks[chunk.depth] = chunk;
+    }
+    final int size = start(last.depth) + lastCount;
+    if (size == 0) {
+      return EMPTY;
+    }
+    // wait for spans which have claimed a slot, but haven't been stored yet
+    for (int position = 0; position < size; ++position) {
+      final Chunk chunk = chunks[depthOf(position)];
+      final int slot = position - start(chunk.depth);
+      while (null == chunk.spans.get(slot)) {
+        Thread.yield();
+      }
+    }
+    return new DrainedSpans(chunks, size);
+  }
+
+  @Override
+  public Iterator<DDSpan> iterator() {
+    return new Iterator<DDSpan>() {
+      private Chunk chunk = tail;
+      private int slot = Math.min(chunk.claimed, chunk.capacity);
+      private DDSpan next = advance();
+
+      private DDSpan advance() {
+        while (null != chunk) {
+          while (--slot >= 0) {
+            DDSpan span = chunk.spans.get(slot);
+            if (null != span) {
+              return span;
+            }
+          }
+          chunk = chunk.prev;
+          slot = null == chunk ? 0 : Math.min(chunk.claimed, chunk.capacity);
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return null != next;
+      }
+
+      @Override
+      public DDSpan next() {
+        if (null == next) {
+          throw new NoSuchElementException();
+        }
+        DDSpan span = next;
+        next = advance();
+        return span;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /** @return the position of the first span in a chunk of the given depth */
+  private static int start(final int depth) {
+    if (depth <= MAX_CHUNK_DEPTH) {
+      return ((1 << depth) - 1) << MIN_CHUNK_SHIFT;
+    }
+    return start(MAX_CHUNK_DEPTH) + (depth - MAX_CHUNK_DEPTH) * capacity(MAX_CHUNK_DEPTH);
+  }
+
+  private static int capacity(final int depth) {
+    return 1 << (MIN_CHUNK_SHIFT + Math.min(depth, MAX_CHUNK_DEPTH));
+  }
+
+  private static int depthOf(final int position) {
+    final int growing = start(MAX_CHUNK_DEPTH + 1);
+    if (position < growing) {
+      return 31 - Integer.numberOfLeadingZeros((position >>> MIN_CHUNK_SHIFT) + 1);
+    }
+    return MAX_CHUNK_DEPTH + 1 + (position - growing) / capacity(MAX_CHUNK_DEPTH);
+  }
+
+  private static final class Chunk {
+    static final AtomicIntegerFieldUpdater<Chunk> CLAIMED =
+        AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "claimed");
+
+    final Chunk prev;
+    final int depth;
+    final int capacity;
+    final AtomicReferenceArray<DDSpan> spans;
+    volatile int claimed;
+
+    Chunk(final Chunk prev) {
+      this.prev = prev;
+      this.depth = null == prev ? 0 : prev.depth + 1;
+      this.capacity = capacity(depth);
+      this.spans = new AtomicReferenceArray<>(capacity);
+    }
+  }
+
+  /** Read-only view of drained chunks, apart from {@link #set} so the trace can be sorted. */
+  private static final class DrainedSpans extends AbstractList<DDSpan> implements RandomAccess {
+    private final Chunk[] chunks;
+    private final int size;
+
+    DrainedSpans(final Chunk[] chunks, final int size) {
+      this.chunks = chunks;
+      this.size = size;
+    }
+
+    @Override
+    public DDSpan get(final int index) {
+      final int position = positionOf(index);
+      final Chunk chunk = chunks[depthOf(position)];
+      return chunk.spans.get(position - start(chunk.depth));
+    }
+
+    @Override
+    public DDSpan set(final int index, final DDSpan span) {
+      final int position = positionOf(index);
+      final Chunk chunk = chunks[depthOf(position)];
+      return chunk.spans.getAndSet(position - start(chunk.depth), span);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    private int positionOf(final int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      // the most recently added span comes first
+      return size - 1 - index;
+    }
+  }
+}
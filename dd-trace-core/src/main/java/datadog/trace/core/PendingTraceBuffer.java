@@ -4,7 +4,9 @@ import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_MONITOR;
 import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
 import static datadog.trace.util.AgentThreadFactory.newAgentThread;
 
+import datadog.trace.api.StatsDClient;
 import datadog.trace.api.time.TimeSource;
+import java.util.ArrayDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.jctools.queues.MessagePassingQueue;
@@ -14,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 public abstract class PendingTraceBuffer implements AutoCloseable {
   private static final int BUFFER_SIZE = 1 << 12; // 4096
+  private static final int MAX_SHARDS = 8;
 
   public interface Element {
     long oldestFinishedTime();
@@ -37,11 +40,18 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
   private static class DelayingPendingTraceBuffer extends PendingTraceBuffer {
     private static final long FORCE_SEND_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
     private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
-    private static final long SLEEP_TIME_MS = 100;
+    private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(10);
+    // traces which aren't ready yet are checked again once they haven't been referenced for a while
+    private static final int DELAY_TICKS = (int) (SEND_DELAY_NS / TICK_NS);
+    private static final int WHEEL_SIZE = 8; // power of two larger than DELAY_TICKS
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
 
     private final MpscBlockingConsumerArrayQueue<Element> queue;
     private final Thread worker;
     private final TimeSource timeSource;
+    private final StatsDClient statsDClient;
+    private final String[] occupancyTags;
 
     private volatile boolean closed = false;
     private final AtomicInteger flushCounter = new AtomicInteger(0);
@@ -140,53 +150,176 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
     }
 
+    /**
+     * Traces which aren't ready to be written are parked in a timer wheel local to the worker and
+     * checked again when their slot comes around, rather than being put back in the queue. This way
+     * a trace which is too new doesn't hold up the traces behind it.
+     */
     private final class Worker implements Runnable {
 
+      private final ArrayDeque<Element>[] wheel = newWheel();
+      private long tick;
+      private long nextTickNanos;
+      private long nextReportNanos = System.nanoTime();
+      // bounded by the queue capacity, so parked traces can't pile up without limit
+      private int parked;
+
       @Override
       public void run() {
         try {
           while (!closed && !Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (now - nextReportNanos >= 0) {
+              statsDClient.gauge("pending.buffer.occupancy", queue.size() + parked, occupancyTags);
+              nextReportNanos = now + REPORT_INTERVAL_NS;
+            }
+            long waitNanos = nextReportNanos - now;
+            if (parked > 0) {
+              waitNanos = Math.min(waitNanos, nextTickNanos - now);
+            }
 
-            Element pendingTrace = queue.take(); // block until available.
+            Element pendingTrace = queue.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
 
             if (pendingTrace instanceof FlushElement) {
               // Since this is an MPSC queue, the drain needs to be called on the consumer thread
               queue.drain(WriteDrain.WRITE_DRAIN);
+              writeParked();
               flushCounter.incrementAndGet();
               continue;
             }
 
-            // The element is no longer in the queue
-            pendingTrace.setEnqueued(false);
-
-            long oldestFinishedTime = pendingTrace.oldestFinishedTime();
-
-            long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
-            if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS) {
-              // Root span is getting old. Send the trace to avoid being discarded by agent.
-              pendingTrace.write();
-              continue;
-            }
-
-            if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
-              // Trace has been unmodified long enough, go ahead and write whatever is finished.
-              pendingTrace.write();
-            } else {
-              // Trace is too new.  Requeue it and sleep to avoid a hot loop.
-              enqueue(pendingTrace);
-              Thread.sleep(SLEEP_TIME_MS);
+            if (null != pendingTrace) {
+              process(pendingTrace);
             }
+            advance();
           }
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
         }
       }
+
+      private void process(Element pendingTrace) {
+        long oldestFinishedTime = pendingTrace.oldestFinishedTime();
+
+        long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
+        if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS) {
+          // Root span is getting old. Send the trace to avoid being discarded by agent.
+          write(pendingTrace);
+        } else if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
+          // Trace has been unmodified long enough, go ahead and write whatever is finished.
+          write(pendingTrace);
+        } else if (parked >= queue.capacity()) {
+          // Too many traces waiting already, write what we have rather than holding on to it.
+          write(pendingTrace);
+        } else {
+          // Trace is too new. Park it, it stays marked as enqueued until it is written.
+          if (parked++ == 0) {
+            nextTickNanos = System.nanoTime() + TICK_NS;
+          }
+          wheel[(int) ((tick + DELAY_TICKS) & WHEEL_MASK)].offer(pendingTrace);
+        }
+      }
+
+      private void advance() {
+        long now = System.nanoTime();
+        while (parked > 0 && now - nextTickNanos >= 0) {
+          ArrayDeque<Element> slot = wheel[(int) (tick & WHEEL_MASK)];
+          ++tick;
+          nextTickNanos += TICK_NS;
+          Element pendingTrace;
+          while (null != (pendingTrace = slot.poll())) {
+            --parked;
+            process(pendingTrace);
+          }
+        }
+      }
+
+      private void writeParked() {
+        for (ArrayDeque<Element> slot : wheel) {
+          Element pendingTrace;
+          while (null != (pendingTrace = slot.poll())) {
+            --parked;
+            write(pendingTrace);
+          }
+        }
+      }
+
+      private void write(Element pendingTrace) {
+        // The element is no longer in the buffer
+        pendingTrace.setEnqueued(false);
+        pendingTrace.write();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Element>[] newWheel() {
+      ArrayDeque<Element>[] wheel = new ArrayDeque[WHEEL_SIZE];
+      for (int i = 0; i < wheel.length; ++i) {
+        wheel[i] = new ArrayDeque<>();
+      }
+      return wheel;
     }
 
     public DelayingPendingTraceBuffer(int bufferSize, TimeSource timeSource) {
+      this(bufferSize, timeSource, StatsDClient.NO_OP, -1);
+    }
+
+    /** @param shard index of this buffer when part of a sharded buffer, -1 otherwise */
+    DelayingPendingTraceBuffer(
+        int bufferSize, TimeSource timeSource, StatsDClient statsDClient, int shard) {
       this.queue = new MpscBlockingConsumerArrayQueue<>(bufferSize);
-      this.worker = newAgentThread(TRACE_MONITOR, new Worker());
+      this.worker =
+          shard < 0
+              ? newAgentThread(TRACE_MONITOR, new Worker())
+              : newAgentThread(TRACE_MONITOR, "-" + shard, new Worker());
       this.timeSource = timeSource;
+      this.statsDClient = statsDClient;
+      this.occupancyTags = new String[] {"shard:" + Math.max(shard, 0)};
+    }
+  }
+
+  /**
+   * Spreads pending traces over several {@link DelayingPendingTraceBuffer}s, each with its own
+   * queue and worker, so a burst of long running traces neither fills up a single queue nor has to
+   * wait for a single worker to get through them.
+   */
+  private static class ShardedPendingTraceBuffer extends PendingTraceBuffer {
+    private final DelayingPendingTraceBuffer[] shards;
+
+    ShardedPendingTraceBuffer(
+        int shardCount, int bufferSize, TimeSource timeSource, StatsDClient statsDClient) {
+      this.shards = new DelayingPendingTraceBuffer[shardCount];
+      for (int i = 0; i < shardCount; ++i) {
+        shards[i] = new DelayingPendingTraceBuffer(bufferSize, timeSource, statsDClient, i);
+      }
+    }
+
+    @Override
+    public void enqueue(Element pendingTrace) {
+      // a trace is only ever in one shard at a time, so any shard will do
+      int hash = System.identityHashCode(pendingTrace);
+      shards[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % shards.length].enqueue(pendingTrace);
+    }
+
+    @Override
+    public void start() {
+      for (DelayingPendingTraceBuffer shard : shards) {
+        shard.start();
+      }
+    }
+
+    @Override
+    public void close() {
+      for (DelayingPendingTraceBuffer shard : shards) {
+        shard.close();
+      }
+    }
+
+    @Override
+    public void flush() {
+      for (DelayingPendingTraceBuffer shard : shards) {
+        shard.flush();
+      }
     }
   }
 
@@ -213,6 +346,14 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
     return new DelayingPendingTraceBuffer(BUFFER_SIZE, timeSource);
   }
 
+  /** A delaying buffer with a shard per available core, up to {@value #MAX_SHARDS}. */
+  public static PendingTraceBuffer delaying(TimeSource timeSource, StatsDClient statsDClient) {
+    int shards = Math.min(Math.max(Runtime.getRuntime().availableProcessors(), 1), MAX_SHARDS);
+    return shards == 1
+        ? new DelayingPendingTraceBuffer(BUFFER_SIZE, timeSource, statsDClient, -1)
+        : new ShardedPendingTraceBuffer(shards, BUFFER_SIZE, timeSource, statsDClient);
+  }
+
   public static PendingTraceBuffer discarding() {
     return new DiscardingPendingTraceBuffer();
   }
@@ -0,0 +1,291 @@
+package datadog.trace.core;
+
+import datadog.trace.api.function.BiConsumer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact map for span tags, sized for the usual handful of tags a span carries. Keys and values
+ * are held in parallel open-addressed arrays (linear probing, backward shift deletion) so adding a
+ * tag doesn't allocate an entry object, and the tags can be visited without allocating through
+ * {@link #forEachTag(BiConsumer)}.
+ *
+ * <p>Like {@link java.util.HashMap} this class is not thread-safe, callers are expected to guard
+ * access to it. The entries returned by the {@link #entrySet()} iterator are reused, so they are
+ * only valid until the iterator is advanced.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+
+  private static final int MIN_CAPACITY = 8;
+
+  private String[] keys;
+  private Object[] values;
+  private int size;
+
+  public TagMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /** @param expectedSize number of tags which can be added before the arrays have to grow */
+  public TagMap(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    // keep the load factor at or below 3/4
+    while (capacity * 3 < expectedSize * 4) {
+      capacity <<= 1;
+    }
+    this.keys = new String[capacity];
+    this.values = new Object[capacity];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && indexOf((String) key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int index = indexOf((String) key);
+    return index < 0 ? null : values[index];
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    if (null == key) {
+      throw new NullPointerException("null tag key");
+    }
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    String existing;
+    while (null != (existing = keys[index])) {
+      if (existing == key || existing.equals(key)) {
+        Object previous = values[index];
+        values[index] = value;
+        return previous;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    if (++size * 4 > keys.length * 3) {
+      resize(keys.length << 1);
+    }
+    return null;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int index = indexOf((String) key);
+    if (index < 0) {
+      return null;
+    }
+    Object previous = values[index];
+    deleteAt(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, null);
+      Arrays.fill(values, null);
+      size = 0;
+    }
+  }
+
+  /** Visits every tag without allocating. */
+  public void forEachTag(BiConsumer<String, Object> consumer) {
+    final String[] keys = this.keys;
+    final Object[] values = this.values;
+    for (int i = 0; i < keys.length; ++i) {
+      if (null != keys[i]) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private int indexOf(String key) {
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    String existing;
+    while (null != (existing = keys[index])) {
+      if (existing == key || existing.equals(key)) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void deleteAt(int index) {
+    // shift back any following entries of the probe sequence, so lookups don't need tombstones
+    int mask = keys.length - 1;
+    int hole = index;
+    int next = (hole + 1) & mask;
+    String key;
+    while (null != (key = keys[next])) {
+      int home = hash(key) & mask;
+      // move the entry if its home slot isn't cyclically within (hole, next]
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = key;
+        values[hole] = values[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[hole] = null;
+    values[hole] = null;
+    --size;
+  }
+
+  private void resize(int capacity) {
+    String[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new String[capacity];
+    values = new Object[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      String key = oldKeys[i];
+      if (null != key) {
+        int index = hash(key) & mask;
+        while (null != keys[index]) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** @return the index of an empty slot, there is always one since the map is never full */
+  private int emptySlot() {
+    int index = 0;
+    while (null != keys[index]) {
+      ++index;
+    }
+    return index;
+  }
+
+  /**
+   * Iterates over the slots starting just after an empty one, so no probe sequence wraps around
+   * the iteration order. Entries shifted back when removing the current one then come from slots
+   * which haven't been visited yet, and land in slots from the current one onwards.
+   */
+  private final class EntryIterator
+      implements Iterator<Entry<String, Object>>, Entry<String, Object> {
+    private final int start = emptySlot();
+    // offsets from start
+    private int next = advance(1);
+    private int currentOffset = -1;
+    private int current = -1;
+
+    private int advance(int offset) {
+      int mask = keys.length - 1;
+      while (offset < keys.length && null == keys[(start + offset) & mask]) {
+        ++offset;
+      }
+      return offset;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < keys.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (next >= keys.length) {
+        throw new NoSuchElementException();
+      }
+      currentOffset = next;
+      current = (start + next) & (keys.length - 1);
+      next = advance(next + 1);
+      return this;
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      deleteAt(current);
+      // the slot may now hold an entry shifted back from further along, which is still to visit
+      next = advance(currentOffset);
+      current = -1;
+    }
+
+    @Override
+    public String getKey() {
+      return keys[current];
+    }
+
+    @Override
+    public Object getValue() {
+      return values[current];
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      Object previous = values[current];
+      values[current] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+      Object value = getValue();
+      return getKey().equals(e.getKey())
+          && (null == value ? null == e.getValue() : value.equals(e.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      Object value = getValue();
+      return getKey().hashCode() ^ (null == value ? 0 : value.hashCode());
+    }
+  }
+}
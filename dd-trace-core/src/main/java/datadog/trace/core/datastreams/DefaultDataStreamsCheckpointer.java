@@ -8,6 +8,7 @@ import static datadog.trace.util.AgentThreadFactory.newAgentThread;
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
+import datadog.trace.api.StatsDClient;
 import datadog.trace.api.WellKnownTags;
 import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
@@ -24,12 +25,20 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jctools.queues.MpscBlockingConsumerArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Aggregates the points of each thread in a {@link StatsStripe} for the bucket they fall in, and
+ * merges the stripes' buckets on the reporting thread when buckets are flushed. Points only go
+ * through the inbox when the reporting thread is busy with the calling thread's stripe.
+ */
 public class DefaultDataStreamsCheckpointer
     implements DataStreamsCheckpointer, AutoCloseable, EventListener {
   private static final Logger log = LoggerFactory.getLogger(DefaultDataStreamsCheckpointer.class);
@@ -44,7 +53,19 @@ public class DefaultDataStreamsCheckpointer
 
   private final Map<Long, StatsBucket> timeToBucket = new HashMap<>();
   private final BlockingQueue<StatsPoint> inbox = new MpscBlockingConsumerArrayQueue<>(1024);
+  // buckets handed over by stripes whose points moved on to a later bucket
+  private final Queue<StatsBucket> completedBuckets = new ConcurrentLinkedQueue<>();
+  private final Queue<StatsStripe> stripes = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<StatsStripe> threadStripe =
+      new ThreadLocal<StatsStripe>() {
+        @Override
+        protected StatsStripe initialValue() {
+          return newStripe();
+        }
+      };
+  private final AtomicLong droppedPoints = new AtomicLong();
   private final DatastreamsPayloadWriter payloadWriter;
+  private final StatsDClient statsDClient;
   private final DDAgentFeaturesDiscovery features;
   private final TimeSource timeSource;
   private final WellKnownTags wellKnownTags;
@@ -56,6 +77,14 @@ public class DefaultDataStreamsCheckpointer
 
   public DefaultDataStreamsCheckpointer(
       Config config, SharedCommunicationObjects sharedCommunicationObjects, TimeSource timeSource) {
+    this(config, sharedCommunicationObjects, timeSource, StatsDClient.NO_OP);
+  }
+
+  public DefaultDataStreamsCheckpointer(
+      Config config,
+      SharedCommunicationObjects sharedCommunicationObjects,
+      TimeSource timeSource,
+      StatsDClient statsDClient) {
     this(
         new OkHttpSink(
             sharedCommunicationObjects.okHttpClient,
@@ -66,11 +95,21 @@ public class DefaultDataStreamsCheckpointer
             Collections.<String, String>emptyMap()),
         sharedCommunicationObjects.featuresDiscovery(config),
         timeSource,
-        config);
+        config,
+        statsDClient);
   }
 
   public DefaultDataStreamsCheckpointer(
       Sink sink, DDAgentFeaturesDiscovery features, TimeSource timeSource, Config config) {
+    this(sink, features, timeSource, config, StatsDClient.NO_OP);
+  }
+
+  public DefaultDataStreamsCheckpointer(
+      Sink sink,
+      DDAgentFeaturesDiscovery features,
+      TimeSource timeSource,
+      Config config,
+      StatsDClient statsDClient) {
     this(
         sink,
         features,
@@ -78,7 +117,8 @@ public class DefaultDataStreamsCheckpointer
         config.getWellKnownTags(),
         new MsgPackDatastreamsPayloadWriter(
             sink, config.getWellKnownTags(), DDTraceCoreInfo.VERSION, config.getPrimaryTag()),
-        DEFAULT_BUCKET_DURATION_NANOS);
+        DEFAULT_BUCKET_DURATION_NANOS,
+        statsDClient);
   }
 
   public DefaultDataStreamsCheckpointer(
@@ -88,11 +128,30 @@ public class DefaultDataStreamsCheckpointer
       WellKnownTags wellKnownTags,
       DatastreamsPayloadWriter payloadWriter,
       long bucketDurationNanos) {
+    this(
+        sink,
+        features,
+        timeSource,
+        wellKnownTags,
+        payloadWriter,
+        bucketDurationNanos,
+        StatsDClient.NO_OP);
+  }
+
+  public DefaultDataStreamsCheckpointer(
+      Sink sink,
+      DDAgentFeaturesDiscovery features,
+      TimeSource timeSource,
+      WellKnownTags wellKnownTags,
+      DatastreamsPayloadWriter payloadWriter,
+      long bucketDurationNanos,
+      StatsDClient statsDClient) {
     this.features = features;
     this.timeSource = timeSource;
     this.wellKnownTags = wellKnownTags;
     this.payloadWriter = payloadWriter;
     this.bucketDurationNanos = bucketDurationNanos;
+    this.statsDClient = statsDClient;
 
     thread = newAgentThread(DATA_STREAMS_MONITORING, new InboxProcessor());
     sink.register(this);
@@ -122,11 +181,30 @@ public class DefaultDataStreamsCheckpointer
   // With Java 8, this becomes unnecessary
   @Override
   public void accept(StatsPoint statsPoint) {
+    // points are aggregated even if the agent doesn't support data streams yet, because the
+    // reporting thread only finds out about an upgrade after the points following it
     if (thread.isAlive()) {
-      inbox.offer(statsPoint);
+      long bucket = currentBucket(statsPoint.getTimestampNanos());
+      StatsStripe stripe = threadStripe.get();
+      int result = stripe.add(statsPoint, bucket);
+      if (result == StatsStripe.RETIRED) {
+        // the thread was idle for long enough for its stripe to be dropped
+        stripe = newStripe();
+        threadStripe.set(stripe);
+        result = stripe.add(statsPoint, bucket);
+      }
+      if (result != StatsStripe.ADDED && !inbox.offer(statsPoint)) {
+        droppedPoints.incrementAndGet();
+      }
     }
   }
 
+  private StatsStripe newStripe() {
+    StatsStripe stripe = new StatsStripe(bucketDurationNanos, completedBuckets);
+    stripes.offer(stripe);
+    return stripe;
+  }
+
   @Override
   public PathwayContext newPathwayContext() {
     return new DefaultPathwayContext(timeSource, wellKnownTags);
@@ -168,8 +246,13 @@ public class DefaultDataStreamsCheckpointer
           if (statsPoint == REPORT) {
             if (supportsDataStreams) {
               flush(timeSource.getCurrentTimeNanos());
-            } else if (timeSource.getCurrentTimeNanos() >= nextFeatureCheck) {
-              checkFeatures();
+            } else {
+              if (timeSource.getCurrentTimeNanos() >= nextFeatureCheck) {
+                checkFeatures();
+              }
+              if (!supportsDataStreams) {
+                discard(timeSource.getCurrentTimeNanos());
+              }
             }
           } else if (statsPoint == POISON_PILL) {
             if (supportsDataStreams) {
@@ -205,6 +288,7 @@ public class DefaultDataStreamsCheckpointer
 
   private void flush(long timestampNanos) {
     long currentBucket = currentBucket(timestampNanos);
+    mergeStripes(currentBucket);
 
     List<StatsBucket> includedBuckets = new ArrayList<>();
     Iterator<Map.Entry<Long, StatsBucket>> mapIterator = timeToBucket.entrySet().iterator();
@@ -224,6 +308,48 @@ public class DefaultDataStreamsCheckpointer
     }
   }
 
+  private void discard(long timestampNanos) {
+    mergeStripes(currentBucket(timestampNanos));
+    timeToBucket.clear();
+  }
+
+  private void mergeStripes(long currentBucket) {
+    long startTicks = timeSource.getNanoTicks();
+    StatsBucket completed;
+    while (null != (completed = completedBuckets.poll())) {
+      mergeBucket(completed);
+    }
+    Iterator<StatsStripe> it = stripes.iterator();
+    while (it.hasNext()) {
+      StatsStripe stripe = it.next();
+      StatsBucket collected = stripe.collect(currentBucket);
+      if (collected != null) {
+        mergeBucket(collected);
+      } else if (stripe.isRetired()) {
+        it.remove();
+      }
+    }
+    // the owning thread may have handed over its bucket while being collected
+    while (null != (completed = completedBuckets.poll())) {
+      mergeBucket(completed);
+    }
+    statsDClient.histogram("datastreams.merge.latency", timeSource.getNanoTicks() - startTicks);
+    long dropped = droppedPoints.getAndSet(0);
+    if (dropped > 0) {
+      log.debug("Dropped {} points because the inbox was full", dropped);
+      statsDClient.count("datastreams.inbox.dropped", dropped);
+    }
+  }
+
+  private void mergeBucket(StatsBucket bucket) {
+    StatsBucket existing = timeToBucket.get(bucket.getStartTimeNanos());
+    if (existing == null) {
+      timeToBucket.put(bucket.getStartTimeNanos(), bucket);
+    } else {
+      existing.merge(bucket);
+    }
+  }
+
   void report() {
     inbox.offer(REPORT);
   }
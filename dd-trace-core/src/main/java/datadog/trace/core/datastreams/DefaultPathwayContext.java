@@ -7,7 +7,10 @@ import com.datadoghq.sketch.ddsketch.encoding.GrowingByteArrayOutput;
 import com.datadoghq.sketch.ddsketch.encoding.VarEncodingHelper;
 import datadog.trace.api.Config;
 import datadog.trace.api.WellKnownTags;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.function.Consumer;
+import datadog.trace.api.function.Function;
 import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.bootstrap.instrumentation.api.PathwayContext;
@@ -24,18 +27,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A pathway context belongs to the message being produced or consumed, and like the span carrying
+ * it is only used by one thread at a time, so checkpoints are set without locking.
+ *
+ * <p>The node hash of a checkpoint covers the service, env, primary tag and the hashable edge tags.
+ * The service, env and primary tag part is hashed once and cached, and the edge tags are folded into
+ * it from cached UTF-8 bytes, so setting a checkpoint doesn't build or encode any strings.
+ */
 public class DefaultPathwayContext implements PathwayContext {
   private static final Logger log = LoggerFactory.getLogger(DefaultPathwayContext.class);
-  private final Lock lock = new ReentrantLock();
   private final WellKnownTags wellKnownTags;
   private final TimeSource timeSource;
-  private final GrowingByteArrayOutput outputBuffer =
-      GrowingByteArrayOutput.withInitialCapacity(20);
 
   // pathwayStartNanos is nanoseconds since epoch
   // Nano ticks is necessary because time differences should use a monotonically increasing clock
@@ -54,6 +60,17 @@ public class DefaultPathwayContext implements PathwayContext {
               TagsProcessor.TOPIC_TAG,
               TagsProcessor.EXCHANGE_TAG));
 
+  private static final DDCache<String, byte[]> TAG_BYTES = DDCaches.newFixedSizeCache(64);
+  private static final Function<String, byte[]> TO_UTF8 =
+      new Function<String, byte[]>() {
+        @Override
+        public byte[] apply(String tag) {
+          return tag.getBytes(UTF_8);
+        }
+      };
+
+  private static volatile NodeHashPrefix nodeHashPrefix;
+
   public DefaultPathwayContext(TimeSource timeSource, WellKnownTags wellKnownTags) {
     this.timeSource = timeSource;
     this.wellKnownTags = wellKnownTags;
@@ -85,76 +102,68 @@ public class DefaultPathwayContext implements PathwayContext {
       LinkedHashMap<String, String> sortedTags, Consumer<StatsPoint> pointConsumer) {
     long startNanos = timeSource.getCurrentTimeNanos();
     long nanoTicks = timeSource.getNanoTicks();
-    lock.lock();
-    try {
-      // So far, each tag key has only one tag value, so we're initializing the capacity to match
-      // the number of tag keys for now. We should revisit this later if it's no longer the case.
-      List<String> allTags = new ArrayList<>(sortedTags.size());
-      PathwayHashBuilder pathwayHashBuilder = new PathwayHashBuilder(wellKnownTags);
-
-      if (!started) {
-        pathwayStartNanos = startNanos;
-        pathwayStartNanoTicks = nanoTicks;
-        edgeStartNanoTicks = nanoTicks;
-        hash = 0;
-        started = true;
-        log.debug("Started {}", this);
-      }
+    // So far, each tag key has only one tag value, so we're initializing the capacity to match
+    // the number of tag keys for now. We should revisit this later if it's no longer the case.
+    List<String> allTags = new ArrayList<>(sortedTags.size());
+    long nodeHash = nodeHashPrefix(wellKnownTags);
+
+    if (!started) {
+      pathwayStartNanos = startNanos;
+      pathwayStartNanoTicks = nanoTicks;
+      edgeStartNanoTicks = nanoTicks;
+      hash = 0;
+      started = true;
+      log.debug("Started {}", this);
+    }
 
-      for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
-        String tag = TagsProcessor.createTag(entry.getKey(), entry.getValue());
-        if (hashableTagKeys.contains(entry.getKey())) {
-          pathwayHashBuilder.addTag(tag);
-        }
-        allTags.add(tag);
+    for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
+      String tag = TagsProcessor.createTag(entry.getKey(), entry.getValue());
+      if (hashableTagKeys.contains(entry.getKey())) {
+        nodeHash =
+            FNV64Hash.continueHash(
+                nodeHash, TAG_BYTES.computeIfAbsent(tag, TO_UTF8), FNV64Hash.Version.v1);
       }
+      allTags.add(tag);
+    }
 
-      long newHash = generatePathwayHash(pathwayHashBuilder, hash);
+    long newHash = generatePathwayHash(nodeHash, hash);
 
-      long pathwayLatencyNano = nanoTicks - pathwayStartNanoTicks;
-      long edgeLatencyNano = nanoTicks - edgeStartNanoTicks;
+    long pathwayLatencyNano = nanoTicks - pathwayStartNanoTicks;
+    long edgeLatencyNano = nanoTicks - edgeStartNanoTicks;
 
-      StatsPoint point =
-          new StatsPoint(
-              allTags,
-              newHash,
-              hash,
-              timeSource.getCurrentTimeNanos(),
-              pathwayLatencyNano,
-              edgeLatencyNano);
-      edgeStartNanoTicks = nanoTicks;
-      hash = newHash;
+    StatsPoint point =
+        new StatsPoint(
+            allTags,
+            newHash,
+            hash,
+            timeSource.getCurrentTimeNanos(),
+            pathwayLatencyNano,
+            edgeLatencyNano);
+    edgeStartNanoTicks = nanoTicks;
+    hash = newHash;
 
-      pointConsumer.accept(point);
-      log.debug("Checkpoint set {}", this);
-    } finally {
-      lock.unlock();
-    }
+    pointConsumer.accept(point);
+    log.debug("Checkpoint set {}", this);
   }
 
   @Override
   public byte[] encode() throws IOException {
-    lock.lock();
-    try {
-      if (!started) {
-        throw new IllegalStateException("Context must be started to encode");
-      }
+    if (!started) {
+      throw new IllegalStateException("Context must be started to encode");
+    }
 
-      outputBuffer.clear();
-      outputBuffer.writeLongLE(hash);
+    GrowingByteArrayOutput outputBuffer = GrowingByteArrayOutput.withInitialCapacity(20);
+    outputBuffer.writeLongLE(hash);
 
-      long pathwayStartMillis = TimeUnit.NANOSECONDS.toMillis(pathwayStartNanos);
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, pathwayStartMillis);
+    long pathwayStartMillis = TimeUnit.NANOSECONDS.toMillis(pathwayStartNanos);
+    VarEncodingHelper.encodeSignedVarLong(outputBuffer, pathwayStartMillis);
 
-      long edgeStartMillis =
-          pathwayStartMillis
-              + TimeUnit.NANOSECONDS.toMillis(edgeStartNanoTicks - pathwayStartNanoTicks);
+    long edgeStartMillis =
+        pathwayStartMillis
+            + TimeUnit.NANOSECONDS.toMillis(edgeStartNanoTicks - pathwayStartNanoTicks);
 
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, edgeStartMillis);
-      return outputBuffer.trimmedCopy();
-    } finally {
-      lock.unlock();
-    }
+    VarEncodingHelper.encodeSignedVarLong(outputBuffer, edgeStartMillis);
+    return outputBuffer.trimmedCopy();
   }
 
   @Override
@@ -168,25 +177,20 @@ public class DefaultPathwayContext implements PathwayContext {
 
   @Override
   public String toString() {
-    lock.lock();
-    try {
-      if (started) {
-        return "PathwayContext[ Hash "
-            + toUnsignedString(hash)
-            + ", Start: "
-            + pathwayStartNanos
-            + ", StartTicks: "
-            + pathwayStartNanoTicks
-            + ", Edge Start Ticks: "
-            + edgeStartNanoTicks
-            + ", objectHashcode:"
-            + hashCode()
-            + "]";
-      } else {
-        return "PathwayContext [Not Started]";
-      }
-    } finally {
-      lock.unlock();
+    if (started) {
+      return "PathwayContext[ Hash "
+          + toUnsignedString(hash)
+          + ", Start: "
+          + pathwayStartNanos
+          + ", StartTicks: "
+          + pathwayStartNanoTicks
+          + ", Edge Start Ticks: "
+          + edgeStartNanoTicks
+          + ", objectHashcode:"
+          + hashCode()
+          + "]";
+    } else {
+      return "PathwayContext [Not Started]";
     }
   }
 
@@ -315,45 +319,48 @@ public class DefaultPathwayContext implements PathwayContext {
         hash);
   }
 
-  private static class PathwayHashBuilder {
-    private StringBuilder builder;
+  /** The hash of the service, env and primary tag which every node hash starts from. */
+  private static final class NodeHashPrefix {
+    final WellKnownTags wellKnownTags;
+    final String primaryTag;
+    final long hash;
 
-    public PathwayHashBuilder(WellKnownTags wellKnownTags) {
-      builder = new StringBuilder();
-      builder.append(wellKnownTags.getService());
-      builder.append(wellKnownTags.getEnv());
-
-      String primaryTag = Config.get().getPrimaryTag();
+    NodeHashPrefix(WellKnownTags wellKnownTags, String primaryTag) {
+      this.wellKnownTags = wellKnownTags;
+      this.primaryTag = primaryTag;
+      long hash = FNV64Hash.initialHash();
+      hash =
+          FNV64Hash.continueHash(
+              hash, wellKnownTags.getService().getUtf8Bytes(), FNV64Hash.Version.v1);
+      hash =
+          FNV64Hash.continueHash(hash, wellKnownTags.getEnv().getUtf8Bytes(), FNV64Hash.Version.v1);
       if (primaryTag != null) {
-        builder.append(primaryTag);
+        hash = FNV64Hash.continueHash(hash, primaryTag.getBytes(UTF_8), FNV64Hash.Version.v1);
       }
+      this.hash = hash;
     }
 
-    public void addTag(String tag) {
-      builder.append(tag);
-    }
-
-    public long generateHash() {
-      return FNV64Hash.generateHash(builder.toString(), FNV64Hash.Version.v1);
+    boolean matches(WellKnownTags wellKnownTags, String primaryTag) {
+      return this.wellKnownTags == wellKnownTags
+          && (this.primaryTag == null ? primaryTag == null : this.primaryTag.equals(primaryTag));
     }
   }
 
-  private long generateNodeHash(PathwayHashBuilder pathwayHashBuilder) {
-    return pathwayHashBuilder.generateHash();
+  private static long nodeHashPrefix(WellKnownTags wellKnownTags) {
+    // the primary tag is looked up every time because the config can be replaced
+    String primaryTag = Config.get().getPrimaryTag();
+    NodeHashPrefix prefix = nodeHashPrefix;
+    if (null == prefix || !prefix.matches(wellKnownTags, primaryTag)) {
+      // racing threads compute the same prefix
+      prefix = new NodeHashPrefix(wellKnownTags, primaryTag);
+      nodeHashPrefix = prefix;
+    }
+    return prefix.hash;
   }
 
-  private long generatePathwayHash(PathwayHashBuilder pathwayHashBuilder, long parentHash) {
-    long nodeHash = generateNodeHash(pathwayHashBuilder);
-
-    lock.lock();
-    try {
-      outputBuffer.clear();
-      outputBuffer.writeLongLE(nodeHash);
-      outputBuffer.writeLongLE(parentHash);
-
-      return FNV64Hash.generateHash(outputBuffer.backingArray(), 0, 16, FNV64Hash.Version.v1);
-    } finally {
-      lock.unlock();
-    }
+  private static long generatePathwayHash(long nodeHash, long parentHash) {
+    // same as hashing the little endian bytes of the node hash followed by those of the parent
+    long hash = FNV64Hash.continueHash(FNV64Hash.initialHash(), nodeHash, FNV64Hash.Version.v1);
+    return FNV64Hash.continueHash(hash, parentHash, FNV64Hash.Version.v1);
   }
 }
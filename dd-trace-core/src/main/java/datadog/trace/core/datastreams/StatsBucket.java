@@ -1,14 +1,22 @@
 package datadog.trace.core.datastreams;
 
 import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
+/**
+ * The groups of points whose timestamp falls in one bucket, keyed by hash and parent hash. Groups
+ * are indexed by an open-addressed table so adding a point doesn't box either hash. Not
+ * thread-safe.
+ */
 public class StatsBucket {
+  private static final int INITIAL_CAPACITY = 8;
+
   private final long startTimeNanos;
   private final long bucketDurationNanos;
-  private final Map<Long, StatsGroup> hashToGroup = new HashMap<>();
+  private final List<StatsGroup> groups = new ArrayList<>();
+  private StatsGroup[] index = new StatsGroup[INITIAL_CAPACITY];
 
   public StatsBucket(long startTimeNanos, long bucketDurationNanos) {
     this.startTimeNanos = startTimeNanos;
@@ -16,19 +24,33 @@ public class StatsBucket {
   }
 
   public void addPoint(StatsPoint statsPoint) {
-    StatsGroup statsGroup = hashToGroup.get(statsPoint.getHash());
-
-    // FIXME Java 7
+    StatsGroup statsGroup = find(statsPoint.getHash(), statsPoint.getParentHash());
     if (statsGroup == null) {
       statsGroup =
           new StatsGroup(
               statsPoint.getEdgeTags(), statsPoint.getHash(), statsPoint.getParentHash());
-      hashToGroup.put(statsPoint.getHash(), statsGroup);
+      insert(statsGroup);
     }
 
     statsGroup.add(statsPoint.getPathwayLatencyNano(), statsPoint.getEdgeLatencyNano());
   }
 
+  /**
+   * Adds the groups of another bucket with the same start time to this one. Groups this bucket
+   * doesn't have yet are taken over rather than copied, so the other bucket must not be used
+   * afterwards.
+   */
+  public void merge(StatsBucket other) {
+    for (StatsGroup group : other.groups) {
+      StatsGroup existing = find(group.getHash(), group.getParentHash());
+      if (existing == null) {
+        insert(group);
+      } else {
+        existing.merge(group);
+      }
+    }
+  }
+
   public long getStartTimeNanos() {
     return startTimeNanos;
   }
@@ -38,6 +60,46 @@ public class StatsBucket {
   }
 
   public Collection<StatsGroup> getGroups() {
-    return hashToGroup.values();
+    return groups;
+  }
+
+  private StatsGroup find(long hash, long parentHash) {
+    int mask = index.length - 1;
+    int slot = slot(hash, parentHash) & mask;
+    StatsGroup group;
+    while (null != (group = index[slot])) {
+      if (group.getHash() == hash && group.getParentHash() == parentHash) {
+        return group;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  private void insert(StatsGroup group) {
+    groups.add(group);
+    // keep the index at most half full
+    if (groups.size() * 2 > index.length) {
+      index = new StatsGroup[index.length << 1];
+      for (StatsGroup existing : groups) {
+        place(existing);
+      }
+    } else {
+      place(group);
+    }
+  }
+
+  private void place(StatsGroup group) {
+    int mask = index.length - 1;
+    int slot = slot(group.getHash(), group.getParentHash()) & mask;
+    while (null != index[slot]) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = group;
+  }
+
+  private static int slot(long hash, long parentHash) {
+    long h = hash * 0x9E3779B97F4A7C15L + parentHash;
+    return (int) (h ^ (h >>> 32));
   }
 }
@@ -28,6 +28,12 @@ public class StatsGroup {
     edgeLatency.accept(((double) edgeLatencyNano) / NANOSECONDS_TO_SECOND);
   }
 
+  /** Adds the latencies recorded by a group with the same hashes to this one. */
+  public void merge(StatsGroup other) {
+    pathwayLatency.mergeWith(other.pathwayLatency);
+    edgeLatency.mergeWith(other.edgeLatency);
+  }
+
   public List<String> getEdgeTags() {
     return edgeTags;
   }
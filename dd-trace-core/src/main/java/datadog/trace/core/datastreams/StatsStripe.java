@@ -0,0 +1,99 @@
+package datadog.trace.core.datastreams;
+
+import datadog.trace.bootstrap.instrumentation.api.StatsPoint;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Pre-aggregates the points of one thread into the bucket they fall in, so points don't have to be
+ * handed over to the reporting thread one by one. The bucket is handed over instead, either by the
+ * owning thread once its points move on to a later bucket, or collected by the reporting thread
+ * when the bucket is due to be flushed.
+ *
+ * <p>The owning thread and the reporting thread take turns on the bucket through {@link #state},
+ * the owner never waits for the reporting thread and gives up on the stripe if it can't claim it.
+ */
+final class StatsStripe {
+  static final int ADDED = 0;
+  static final int BUSY = 1;
+  static final int RETIRED = 2;
+
+  private static final int IDLE = 0;
+  private static final int WRITING = 1;
+  private static final int COLLECTING = 2;
+  private static final int RETIRED_STATE = 3;
+
+  // stripes of threads which haven't recorded any points for this many flushes are dropped
+  private static final int MAX_IDLE_COLLECTIONS = 6;
+
+  private static final AtomicIntegerFieldUpdater<StatsStripe> STATE =
+      AtomicIntegerFieldUpdater.newUpdater(StatsStripe.class, "state");
+
+  private final long bucketDurationNanos;
+  private final Queue<StatsBucket> completedBuckets;
+  private volatile int state = IDLE;
+
+  // only accessed by whichever thread has moved the state away from IDLE
+  private StatsBucket bucket;
+  private int idleCollections;
+
+  StatsStripe(long bucketDurationNanos, Queue<StatsBucket> completedBuckets) {
+    this.bucketDurationNanos = bucketDurationNanos;
+    this.completedBuckets = completedBuckets;
+  }
+
+  /**
+   * Called by the owning thread only.
+   *
+   * @return {@link #ADDED} if the point was recorded, {@link #BUSY} if the reporting thread is
+   *     collecting the bucket, or {@link #RETIRED} if this stripe mustn't be used any more
+   */
+  int add(StatsPoint statsPoint, long bucketStartNanos) {
+    if (!STATE.compareAndSet(this, IDLE, WRITING)) {
+      return state == RETIRED_STATE ? RETIRED : BUSY;
+    }
+    try {
+      if (bucket == null || bucket.getStartTimeNanos() != bucketStartNanos) {
+        if (bucket != null) {
+          completedBuckets.offer(bucket);
+        }
+        bucket = new StatsBucket(bucketStartNanos, bucketDurationNanos);
+      }
+      bucket.addPoint(statsPoint);
+      return ADDED;
+    } finally {
+      STATE.lazySet(this, IDLE);
+    }
+  }
+
+  /**
+   * Called by the reporting thread only, waits for the owning thread to finish recording a point.
+   *
+   * @return the bucket if it started before {@code currentBucketNanos}, otherwise null
+   */
+  StatsBucket collect(long currentBucketNanos) {
+    while (!STATE.compareAndSet(this, IDLE, COLLECTING)) {
+      if (state == RETIRED_STATE) {
+        return null;
+      }
+      Thread.yield();
+    }
+    StatsBucket collected = null;
+    int nextState = IDLE;
+    if (bucket != null) {
+      idleCollections = 0;
+      if (bucket.getStartTimeNanos() < currentBucketNanos) {
+        collected = bucket;
+        bucket = null;
+      }
+    } else if (++idleCollections >= MAX_IDLE_COLLECTIONS) {
+      nextState = RETIRED_STATE;
+    }
+    STATE.set(this, nextState);
+    return collected;
+  }
+
+  boolean isRetired() {
+    return state == RETIRED_STATE;
+  }
+}
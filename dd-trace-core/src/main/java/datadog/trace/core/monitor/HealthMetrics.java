@@ -166,6 +166,18 @@ public class HealthMetrics implements AutoCloseable {
     onSendAttempt(traceCount, sizeInBytes, response);
   }
 
+  public void onDroppedPayload(final int traceCount, final int sizeInBytes) {
+    statsd.incrementCounter("send.dropped.payloads", NO_TAGS);
+    statsd.count("send.dropped.traces", traceCount, NO_TAGS);
+    statsd.count("send.dropped.bytes", sizeInBytes, NO_TAGS);
+  }
+
+  public void onPayloadBufferAcquired(final boolean pooled, final int available) {
+    statsd.incrementCounter(
+        pooled ? "payload.buffer.pool.hits" : "payload.buffer.pool.misses", NO_TAGS);
+    statsd.gauge("payload.buffer.pool.available", available, NO_TAGS);
+  }
+
   private void onSendAttempt(
       final int traceCount, final int sizeInBytes, final RemoteApi.Response response) {
     statsd.incrementCounter("api.requests.total", NO_TAGS);
@@ -25,11 +25,11 @@ class B3HttpCodec {
 
   private static final String B3_TRACE_ID = "b3.traceid";
   private static final String B3_SPAN_ID = "b3.spanid";
-  private static final String TRACE_ID_KEY = "X-B3-TraceId";
-  private static final String SPAN_ID_KEY = "X-B3-SpanId";
-  private static final String SAMPLING_PRIORITY_KEY = "X-B3-Sampled";
+  static final String TRACE_ID_KEY = "X-B3-TraceId";
+  static final String SPAN_ID_KEY = "X-B3-SpanId";
+  static final String SAMPLING_PRIORITY_KEY = "X-B3-Sampled";
   // See https://github.com/openzipkin/b3-propagation#single-header for b3 header documentation
-  private static final String B3_KEY = "b3";
+  static final String B3_KEY = "b3";
   private static final String SAMPLING_PRIORITY_ACCEPT = String.valueOf(1);
   private static final String SAMPLING_PRIORITY_DROP = String.valueOf(0);
 
@@ -45,24 +45,15 @@ class B3HttpCodec {
     public <C> void inject(
         final DDSpanContext context, final C carrier, final AgentPropagation.Setter<C> setter) {
       try {
-        final String injectedTraceId = context.getTraceId().toHexStringOrOriginal();
-        final String injectedSpanId = context.getSpanId().toHexStringOrOriginal();
-        setter.set(carrier, TRACE_ID_KEY, injectedTraceId);
-        setter.set(carrier, SPAN_ID_KEY, injectedSpanId);
-
-        final StringBuilder injectedB3Id = new StringBuilder(100);
-        injectedB3Id.append(injectedTraceId).append('-').append(injectedSpanId);
-
-        if (context.lockSamplingPriority()) {
-          final String injectedSamplingPriority =
-              convertSamplingPriority(context.getSamplingPriority());
-          setter.set(carrier, SAMPLING_PRIORITY_KEY, injectedSamplingPriority);
-
-          injectedB3Id.append('-').append(injectedSamplingPriority);
+        final CachedHeaders headers = headers(context);
+        setter.set(carrier, TRACE_ID_KEY, headers.traceId);
+        setter.set(carrier, SPAN_ID_KEY, headers.spanId);
+        if (headers.samplingPriority != null) {
+          setter.set(carrier, SAMPLING_PRIORITY_KEY, headers.samplingPriority);
         }
-        setter.set(carrier, B3_KEY, injectedB3Id.toString());
+        setter.set(carrier, B3_KEY, headers.b3);
 
-        log.debug("{} - B3 parent context injected - {}", context.getTraceId(), injectedTraceId);
+        log.debug("{} - B3 parent context injected - {}", context.getTraceId(), headers.traceId);
       } catch (final NumberFormatException e) {
         if (log.isDebugEnabled()) {
           log.debug(
@@ -71,132 +62,127 @@ class B3HttpCodec {
       }
     }
 
-    private String convertSamplingPriority(final int samplingPriority) {
+    private static CachedHeaders headers(final DDSpanContext context) {
+      final int samplingPriority =
+          context.lockSamplingPriority() ? context.getSamplingPriority() : PrioritySampling.UNSET;
+      final InjectionCache cache = context.getInjectionCache();
+      CachedHeaders headers = cache.b3;
+      if (null == headers || headers.samplingPriorityValue != samplingPriority) {
+        cache.b3 = headers = new CachedHeaders(context, samplingPriority);
+      }
+      return headers;
+    }
+
+    private static String convertSamplingPriority(final int samplingPriority) {
       return samplingPriority > 0 ? SAMPLING_PRIORITY_ACCEPT : SAMPLING_PRIORITY_DROP;
     }
   }
 
+  static final class CachedHeaders {
+    final int samplingPriorityValue;
+    final String traceId;
+    final String spanId;
+    final String samplingPriority;
+    final String b3;
+
+    CachedHeaders(final DDSpanContext context, final int samplingPriority) {
+      this.samplingPriorityValue = samplingPriority;
+      this.traceId = context.getTraceId().toHexStringOrOriginal();
+      this.spanId = context.getSpanId().toHexStringOrOriginal();
+
+      final StringBuilder injectedB3Id = new StringBuilder(100);
+      injectedB3Id.append(traceId).append('-').append(spanId);
+      if (samplingPriority != PrioritySampling.UNSET) {
+        this.samplingPriority = Injector.convertSamplingPriority(samplingPriority);
+        injectedB3Id.append('-').append(this.samplingPriority);
+      } else {
+        this.samplingPriority = null;
+      }
+      this.b3 = injectedB3Id.toString();
+    }
+  }
+
   public static HttpCodec.Extractor newExtractor(final Map<String, String> tagMapping) {
+    return newExtractor(tagMapping, HeaderClassifier.create(tagMapping, Config.get()));
+  }
+
+  static HttpCodec.Extractor newExtractor(
+      final Map<String, String> tagMapping, final HeaderClassifier classifier) {
     return new TagContextExtractor(
         tagMapping,
+        classifier,
         new ContextInterpreter.Factory() {
           @Override
-          protected ContextInterpreter construct(final Map<String, String> mapping) {
-            return new B3ContextInterpreter(mapping);
+          protected ContextInterpreter construct(
+              final Map<String, String> mapping, final HeaderClassifier classifier) {
+            return new B3ContextInterpreter(mapping, classifier);
           }
         });
   }
 
   private static class B3ContextInterpreter extends ContextInterpreter {
 
-    private static final int TRACE_ID = 0;
-    private static final int SPAN_ID = 1;
-    private static final int TAGS = 2;
-    private static final int SAMPLING_PRIORITY = 3;
-    private static final int B3_ID = 4;
-    private static final int IGNORE = -1;
-
-    private B3ContextInterpreter(final Map<String, String> taggedHeaders) {
-      super(taggedHeaders, Config.get());
+    private B3ContextInterpreter(
+        final Map<String, String> taggedHeaders, final HeaderClassifier classifier) {
+      super(taggedHeaders, classifier, Config.get());
     }
 
     @Override
-    public boolean accept(final String key, final String value) {
-      if (null == key || key.isEmpty()) {
-        return true;
-      }
-      if (LOG_EXTRACT_HEADER_NAMES) {
-        log.debug("Header: {}", key);
-      }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      // Prioritize b3 header. If b3 has already propagated traceId, spanId, and Sampling, we won't
-      // overwrite those
-      if (B3_KEY.equals(key)) {
-        classification = B3_ID;
-      } else {
-        char first = Character.toLowerCase(key.charAt(0));
-        switch (first) {
-          case 'x':
-            if ((traceId == null || traceId == DDId.ZERO) && TRACE_ID_KEY.equalsIgnoreCase(key)) {
-              classification = TRACE_ID;
-            } else if ((spanId == null || spanId == DDId.ZERO)
-                && SPAN_ID_KEY.equalsIgnoreCase(key)) {
-              classification = SPAN_ID;
-            } else if (samplingPriority == defaultSamplingPriority()
-                && SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-              classification = SAMPLING_PRIORITY;
-            } else if (handledXForwarding(key, value)) {
+    protected boolean accept(
+        final HeaderClassifier.Header header, final String key, final String value) {
+      try {
+        // Prioritize b3 header. If b3 has already propagated traceId, spanId, and Sampling, we
+        // won't overwrite those
+        switch (header.id) {
+          case HeaderClassifier.B3:
+            if (B3_KEY.equals(key)) {
+              final String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
+                extractB3(firstValue);
+              }
               return true;
             }
             break;
-          case 'f':
-            if (handledForwarding(key, value)) {
+          case HeaderClassifier.B3_TRACE_ID:
+            if (traceId == null || traceId == DDId.ZERO) {
+              final String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
+                setTraceId(firstValue);
+              }
               return true;
             }
             break;
-          case 'u':
-            if (handledUserAgent(key, value)) {
+          case HeaderClassifier.B3_SPAN_ID:
+            if (spanId == null || spanId == DDId.ZERO) {
+              final String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
+                setSpanId(firstValue);
+              }
+              return true;
+            }
+            break;
+          case HeaderClassifier.B3_SAMPLED:
+            if (samplingPriority == defaultSamplingPriority()) {
+              final String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
+                samplingPriority = convertSamplingPriority(firstValue);
+              }
               return true;
             }
             break;
           default:
         }
-      }
 
-      if (handledIpHeaders(key, value)) {
-        return true;
-      }
-
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
-          classification = TAGS;
-        }
-      }
-      if (classification != IGNORE) {
-        try {
-          final String firstValue = firstHeaderValue(value);
-          if (null != firstValue) {
-            switch (classification) {
-              case B3_ID:
-                if (extractB3(firstValue)) {
-                  return true;
-                }
-                break;
-              case TRACE_ID:
-                {
-                  if (setTraceId(firstValue)) {
-                    return true;
-                  }
-                  break;
-                }
-              case SPAN_ID:
-                setSpanId(firstValue);
-                break;
-              case SAMPLING_PRIORITY:
-                samplingPriority = convertSamplingPriority(firstValue);
-                break;
-              case TAGS:
-                {
-                  final String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(firstValue));
-                  }
-                  break;
-                }
-            }
-          }
-        } catch (final RuntimeException e) {
-          invalidateContext();
-          log.debug("Exception when extracting context", e);
-          return false;
+        if (handledIpHeaders(header, value)) {
+          return true;
         }
+        handleTaggedHeader(header, firstHeaderValue(value));
+        return true;
+      } catch (final RuntimeException e) {
+        invalidateContext();
+        log.debug("Exception when extracting context", e);
+        return false;
       }
-      return true;
     }
 
     private boolean extractB3(final String firstValue) {
@@ -1,18 +1,18 @@
 package datadog.trace.core.propagation;
 
-import static datadog.trace.core.propagation.HttpCodec.CLIENT_IP_KEY;
-import static datadog.trace.core.propagation.HttpCodec.FORWARDED_FOR_KEY;
-import static datadog.trace.core.propagation.HttpCodec.FORWARDED_KEY;
-import static datadog.trace.core.propagation.HttpCodec.TRUE_CLIENT_IP_KEY;
-import static datadog.trace.core.propagation.HttpCodec.USER_AGENT_KEY;
-import static datadog.trace.core.propagation.HttpCodec.VIA_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_CLUSTER_CLIENT_IP_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_FOR_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_HOST_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PORT_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PROTO_KEY;
-import static datadog.trace.core.propagation.HttpCodec.X_REAL_IP_KEY;
+import static datadog.trace.core.propagation.HeaderClassifier.CLIENT_IP;
+import static datadog.trace.core.propagation.HeaderClassifier.FORWARDED;
+import static datadog.trace.core.propagation.HeaderClassifier.FORWARDED_FOR;
+import static datadog.trace.core.propagation.HeaderClassifier.TRUE_CLIENT_IP;
+import static datadog.trace.core.propagation.HeaderClassifier.USER_AGENT;
+import static datadog.trace.core.propagation.HeaderClassifier.VIA;
+import static datadog.trace.core.propagation.HeaderClassifier.X_CLUSTER_CLIENT_IP;
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED;
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED_FOR;
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED_HOST;
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED_PORT;
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED_PROTO;
+import static datadog.trace.core.propagation.HeaderClassifier.X_REAL_IP;
 
 import datadog.trace.api.Config;
 import datadog.trace.api.DDId;
@@ -26,10 +26,16 @@ import datadog.trace.bootstrap.instrumentation.api.TagContext;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class ContextInterpreter implements AgentPropagation.KeyClassifier {
 
+  private static final Logger log = LoggerFactory.getLogger(ContextInterpreter.class);
+
   protected final Map<String, String> taggedHeaders;
+  protected final HeaderClassifier classifier;
 
   protected DDId traceId;
   protected DDId spanId;
@@ -42,7 +48,6 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
   protected DatadogTags datadogTags;
 
   private TagContext.HttpHeaders httpHeaders;
-  private final String customIpHeaderName;
   private final boolean clientIpResolutionEnabled;
   private final boolean clientIpWithoutAppSec;
   private boolean collectIpHeaders;
@@ -54,9 +59,10 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
     return CACHE.computeIfAbsent(key, Functions.LowerCase.INSTANCE);
   }
 
-  protected ContextInterpreter(Map<String, String> taggedHeaders, Config config) {
+  protected ContextInterpreter(
+      Map<String, String> taggedHeaders, HeaderClassifier classifier, Config config) {
     this.taggedHeaders = taggedHeaders;
-    this.customIpHeaderName = config.getTraceClientIpHeader();
+    this.classifier = classifier;
     this.clientIpResolutionEnabled = config.isTraceClientIpResolverEnabled();
     this.clientIpWithoutAppSec = config.isClientIpEnabled();
     reset();
@@ -65,114 +71,122 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
   public abstract static class Factory {
 
     public ContextInterpreter create(Map<String, String> tagsMapping) {
-      return construct(cleanMapping(tagsMapping));
+      return create(tagsMapping, HeaderClassifier.create(tagsMapping, Config.get()));
     }
 
-    protected abstract ContextInterpreter construct(Map<String, String> tagsMapping);
-
-    protected Map<String, String> cleanMapping(Map<String, String> taggedHeaders) {
-      final Map<String, String> cleanedMapping = new HashMap<>(taggedHeaders.size() * 4 / 3);
-      for (Map.Entry<String, String> association : taggedHeaders.entrySet()) {
-        cleanedMapping.put(
-            association.getKey().trim().toLowerCase(), association.getValue().trim().toLowerCase());
-      }
-      return cleanedMapping;
+    ContextInterpreter create(Map<String, String> tagsMapping, HeaderClassifier classifier) {
+      return construct(cleanMapping(tagsMapping), classifier);
     }
+
+    protected abstract ContextInterpreter construct(
+        Map<String, String> tagsMapping, HeaderClassifier classifier);
   }
 
-  protected final boolean handledForwarding(String key, String value) {
-    if (value == null || !collectIpHeaders) {
-      return false;
+  static Map<String, String> cleanMapping(Map<String, String> taggedHeaders) {
+    final Map<String, String> cleanedMapping = new HashMap<>(taggedHeaders.size() * 4 / 3);
+    for (Map.Entry<String, String> association : taggedHeaders.entrySet()) {
+      cleanedMapping.put(
+          association.getKey().trim().toLowerCase(), association.getValue().trim().toLowerCase());
     }
+    return cleanedMapping;
+  }
 
-    if (FORWARDED_KEY.equalsIgnoreCase(key)) {
-      getHeaders().forwarded = value;
+  @Override
+  public boolean accept(String key, String value) {
+    if (null == key || key.isEmpty()) {
       return true;
     }
-    if (FORWARDED_FOR_KEY.equalsIgnoreCase(key)) {
-      getHeaders().forwardedFor = value;
-      return true;
+    if (LOG_EXTRACT_HEADER_NAMES) {
+      log.debug("Header: {}", key);
     }
-    return false;
+    HeaderClassifier.Header header = classifier.classify(key);
+    return null == header || accept(header, key, value);
   }
 
-  protected final boolean handledXForwarding(String key, String value) {
-    if (value == null || !collectIpHeaders) {
+  /**
+   * Handles a header the {@link HeaderClassifier} knows about.
+   *
+   * @return false if the context is invalid and no more headers should be visited
+   */
+  protected abstract boolean accept(HeaderClassifier.Header header, String key, String value);
+
+  /**
+   * Records the header if it is one of the headers collected to resolve the client ip.
+   *
+   * @return true if the header was recorded
+   */
+  protected final boolean handledIpHeaders(HeaderClassifier.Header header, String value) {
+    if (value == null) {
       return false;
     }
-
-    if (X_FORWARDED_PROTO_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedProto = value;
+    final int id = header.id;
+    if (id == USER_AGENT) {
+      getHeaders().userAgent = value;
       return true;
     }
-    if (X_FORWARDED_HOST_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedHost = value;
-      return true;
-    }
-    if (X_FORWARDED_FOR_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedFor = value;
-      return true;
-    }
-    if (X_FORWARDED_PORT_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedPort = value;
-      return true;
-    }
-    if (X_FORWARDED_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwarded = value;
-      return true;
-    }
-    return false;
-  }
-
-  protected final boolean handledUserAgent(String key, String value) {
-    if (value == null || !USER_AGENT_KEY.equalsIgnoreCase(key)) {
-      return false;
-    }
-
-    getHeaders().userAgent = value;
-    return true;
-  }
-
-  protected final boolean handledIpHeaders(String key, String value) {
-    if (key == null || key.isEmpty()) {
-      return false;
+    if (collectIpHeaders) {
+      switch (id) {
+        case FORWARDED:
+          getHeaders().forwarded = value;
+          return true;
+        case FORWARDED_FOR:
+          getHeaders().forwardedFor = value;
+          return true;
+        case X_FORWARDED_PROTO:
+          getHeaders().xForwardedProto = value;
+          return true;
+        case X_FORWARDED_HOST:
+          getHeaders().xForwardedHost = value;
+          return true;
+        case X_FORWARDED_FOR:
+          getHeaders().xForwardedFor = value;
+          return true;
+        case X_FORWARDED_PORT:
+          getHeaders().xForwardedPort = value;
+          return true;
+        case X_FORWARDED:
+          getHeaders().xForwarded = value;
+          return true;
+        default:
+      }
     }
 
-    if (null != value && customIpHeaderName != null && customIpHeaderName.equalsIgnoreCase(key)) {
+    if (header.customIp) {
       getHeaders().customIpHeader = value;
       return true;
     }
 
-    if (value == null || !collectIpHeaders) {
-      return false;
-    }
-
-    // May be ends with 'ip' ?
-    char last = Character.toLowerCase(key.charAt(key.length() - 1));
-    if (last == 'p') {
-      if (X_CLUSTER_CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().xClusterClientIp = value;
-        return true;
-      }
-      if (X_REAL_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().xRealIp = value;
-        return true;
-      }
-      if (CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().clientIp = value;
-        return true;
-      }
-      if (TRUE_CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().trueClientIp = value;
-        return true;
+    if (collectIpHeaders) {
+      switch (id) {
+        case X_CLUSTER_CLIENT_IP:
+          getHeaders().xClusterClientIp = value;
+          return true;
+        case X_REAL_IP:
+          getHeaders().xRealIp = value;
+          return true;
+        case CLIENT_IP:
+          getHeaders().clientIp = value;
+          return true;
+        case TRUE_CLIENT_IP:
+          getHeaders().trueClientIp = value;
+          return true;
+        case VIA:
+          getHeaders().via = value;
+          return true;
+        default:
       }
     }
+    return false;
+  }
 
-    if (VIA_KEY.equalsIgnoreCase(key)) {
-      getHeaders().via = value;
-      return true;
+  /** Records the value of a header mapped to a tag, if the header is mapped. */
+  protected final void handleTaggedHeader(HeaderClassifier.Header header, String value) {
+    if (null != header.tag && null != value) {
+      if (tags.isEmpty()) {
+        tags = new TreeMap<>();
+      }
+      tags.put(header.tag, HttpCodec.decode(value));
     }
-    return false;
   }
 
   public ContextInterpreter reset() {
@@ -2,13 +2,13 @@ package datadog.trace.core.propagation;
 
 import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
 import static datadog.trace.core.propagation.XRayHttpCodec.XRayContextInterpreter.handleXRayTraceHeader;
-import static datadog.trace.core.propagation.XRayHttpCodec.X_AMZN_TRACE_ID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import datadog.trace.api.Config;
 import datadog.trace.api.DDId;
 import datadog.trace.api.DDTags;
+import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
 import java.util.Map;
@@ -20,13 +20,13 @@ import org.slf4j.LoggerFactory;
 class DatadogHttpCodec {
   private static final Logger log = LoggerFactory.getLogger(DatadogHttpCodec.class);
 
-  private static final String OT_BAGGAGE_PREFIX = "ot-baggage-";
-  private static final String TRACE_ID_KEY = "x-datadog-trace-id";
-  private static final String SPAN_ID_KEY = "x-datadog-parent-id";
-  private static final String SAMPLING_PRIORITY_KEY = "x-datadog-sampling-priority";
-  private static final String ORIGIN_KEY = "x-datadog-origin";
-  private static final String E2E_START_KEY = OT_BAGGAGE_PREFIX + DDTags.TRACE_START_TIME;
-  private static final String DATADOG_TAGS_KEY = "x-datadog-tags";
+  static final String OT_BAGGAGE_PREFIX = "ot-baggage-";
+  static final String TRACE_ID_KEY = "x-datadog-trace-id";
+  static final String SPAN_ID_KEY = "x-datadog-parent-id";
+  static final String SAMPLING_PRIORITY_KEY = "x-datadog-sampling-priority";
+  static final String ORIGIN_KEY = "x-datadog-origin";
+  static final String E2E_START_KEY = OT_BAGGAGE_PREFIX + DDTags.TRACE_START_TIME;
+  static final String DATADOG_TAGS_KEY = "x-datadog-tags";
 
   private DatadogHttpCodec() {
     // This class should not be created. This also makes code coverage checks happy.
@@ -39,19 +39,19 @@ class DatadogHttpCodec {
     @Override
     public <C> void inject(
         final DDSpanContext context, final C carrier, final AgentPropagation.Setter<C> setter) {
+      final CachedHeaders headers = headers(context);
 
-      setter.set(carrier, TRACE_ID_KEY, context.getTraceId().toString());
-      setter.set(carrier, SPAN_ID_KEY, context.getSpanId().toString());
-      if (context.lockSamplingPriority()) {
-        setter.set(carrier, SAMPLING_PRIORITY_KEY, String.valueOf(context.getSamplingPriority()));
+      setter.set(carrier, TRACE_ID_KEY, headers.traceId);
+      setter.set(carrier, SPAN_ID_KEY, headers.spanId);
+      if (headers.samplingPriority != null) {
+        setter.set(carrier, SAMPLING_PRIORITY_KEY, headers.samplingPriority);
       }
       final CharSequence origin = context.getOrigin();
       if (origin != null) {
         setter.set(carrier, ORIGIN_KEY, origin.toString());
       }
-      long e2eStart = context.getEndToEndStartTime();
-      if (e2eStart > 0) {
-        setter.set(carrier, E2E_START_KEY, Long.toString(NANOSECONDS.toMillis(e2eStart)));
+      if (headers.endToEndStart != null) {
+        setter.set(carrier, E2E_START_KEY, headers.endToEndStart);
       }
 
       for (final Map.Entry<String, String> entry : context.baggageItems()) {
@@ -59,11 +59,48 @@ class DatadogHttpCodec {
       }
 
       // inject x-datadog-tags
-      String datadogTags = context.getDatadogTags().headerValue();
-      if (datadogTags != null) {
-        setter.set(carrier, DATADOG_TAGS_KEY, datadogTags);
+      if (headers.datadogTags != null) {
+        setter.set(carrier, DATADOG_TAGS_KEY, headers.datadogTags);
       }
     }
+
+    private static CachedHeaders headers(final DDSpanContext context) {
+      final int samplingPriority =
+          context.lockSamplingPriority() ? context.getSamplingPriority() : PrioritySampling.UNSET;
+      final long endToEndStartTime = context.getEndToEndStartTime();
+      final InjectionCache cache = context.getInjectionCache();
+      CachedHeaders headers = cache.datadog;
+      if (null == headers
+          || headers.samplingPriorityValue != samplingPriority
+          || headers.endToEndStartTime != endToEndStartTime) {
+        cache.datadog = headers = new CachedHeaders(context, samplingPriority, endToEndStartTime);
+      }
+      return headers;
+    }
+  }
+
+  static final class CachedHeaders {
+    final int samplingPriorityValue;
+    final long endToEndStartTime;
+    final String traceId;
+    final String spanId;
+    final String samplingPriority;
+    final String endToEndStart;
+    final String datadogTags;
+
+    CachedHeaders(
+        final DDSpanContext context, final int samplingPriority, final long endToEndStartTime) {
+      this.samplingPriorityValue = samplingPriority;
+      this.endToEndStartTime = endToEndStartTime;
+      this.traceId = context.getTraceId().toString();
+      this.spanId = context.getSpanId().toString();
+      this.samplingPriority =
+          samplingPriority != PrioritySampling.UNSET ? String.valueOf(samplingPriority) : null;
+      this.endToEndStart =
+          endToEndStartTime > 0 ? Long.toString(NANOSECONDS.toMillis(endToEndStartTime)) : null;
+      // the propagated tags only change along with the sampling decision
+      this.datadogTags = context.getDatadogTags().headerValue();
+    }
   }
 
   public static HttpCodec.Extractor newExtractor(final Map<String, String> tagMapping) {
@@ -72,151 +109,114 @@ class DatadogHttpCodec {
 
   public static HttpCodec.Extractor newExtractor(
       final Map<String, String> tagMapping, final Config config) {
+    return newExtractor(tagMapping, config, HeaderClassifier.create(tagMapping, config));
+  }
+
+  static HttpCodec.Extractor newExtractor(
+      final Map<String, String> tagMapping,
+      final Config config,
+      final HeaderClassifier classifier) {
     return new TagContextExtractor(
         tagMapping,
+        classifier,
         new ContextInterpreter.Factory() {
           @Override
-          protected ContextInterpreter construct(Map<String, String> mapping) {
-            return new DatadogContextInterpreter(mapping, config);
+          protected ContextInterpreter construct(
+              Map<String, String> mapping, HeaderClassifier classifier) {
+            return new DatadogContextInterpreter(mapping, classifier, config);
           }
         });
   }
 
   private static class DatadogContextInterpreter extends ContextInterpreter {
 
-    private static final int TRACE_ID = 0;
-    private static final int SPAN_ID = 1;
-    private static final int ORIGIN = 2;
-    private static final int SAMPLING_PRIORITY = 3;
-    private static final int TAGS = 4;
-    private static final int OT_BAGGAGE = 5;
-    private static final int E2E_START = 6;
-    private static final int DD_TAGS = 7;
-    private static final int IGNORE = -1;
-
     private final boolean isAwsPropagationEnabled;
     private final DatadogTags.Factory datadogTagsFactory;
 
-    private DatadogContextInterpreter(Map<String, String> taggedHeaders, Config config) {
-      super(taggedHeaders, config);
+    private DatadogContextInterpreter(
+        Map<String, String> taggedHeaders, HeaderClassifier classifier, Config config) {
+      super(taggedHeaders, classifier, config);
       isAwsPropagationEnabled = config.isAwsPropagationEnabled();
       datadogTagsFactory = DatadogTags.factory(config);
     }
 
     @Override
-    public boolean accept(String key, String value) {
-      if (null == key || key.isEmpty()) {
-        return true;
-      }
-      if (LOG_EXTRACT_HEADER_NAMES) {
-        log.debug("Header: {}", key);
-      }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      char first = Character.toLowerCase(key.charAt(0));
-      switch (first) {
-        case 'x':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-            classification = SAMPLING_PRIORITY;
-          } else if (ORIGIN_KEY.equalsIgnoreCase(key)) {
-            classification = ORIGIN;
-          } else if (isAwsPropagationEnabled && X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
-            handleXRayTraceHeader(this, value);
-            return true;
-          } else if (handledXForwarding(key, value)) {
-            return true;
-          } else if (DATADOG_TAGS_KEY.equalsIgnoreCase(key)) {
-            classification = DD_TAGS;
-          }
-          break;
-        case 'f':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
-            return true;
-          }
-          break;
-        case 'o':
-          lowerCaseKey = toLowerCase(key);
-          if (E2E_START_KEY.equals(lowerCaseKey)) {
-            classification = E2E_START;
-          } else if (lowerCaseKey.startsWith(OT_BAGGAGE_PREFIX)) {
-            classification = OT_BAGGAGE;
-          }
-          break;
-        default:
-      }
-
-      if (handledIpHeaders(key, value)) {
-        return true;
-      }
-
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
-          classification = TAGS;
-        }
-      }
-      if (classification != IGNORE) {
-        try {
-          String firstValue = firstHeaderValue(value);
-          if (null != firstValue) {
-            switch (classification) {
-              case TRACE_ID:
+    protected boolean accept(HeaderClassifier.Header header, String key, String value) {
+      try {
+        switch (header.id) {
+          case HeaderClassifier.DD_TRACE_ID:
+            {
+              String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
                 traceId = DDId.from(firstValue);
-                break;
-              case SPAN_ID:
+              }
+              return true;
+            }
+          case HeaderClassifier.DD_SPAN_ID:
+            {
+              String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
                 spanId = DDId.from(firstValue);
-                break;
-              case ORIGIN:
+              }
+              return true;
+            }
+          case HeaderClassifier.DD_ORIGIN:
+            {
+              String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
                 origin = firstValue;
-                break;
-              case SAMPLING_PRIORITY:
+              }
+              return true;
+            }
+          case HeaderClassifier.DD_SAMPLING_PRIORITY:
+            {
+              String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
                 samplingPriority = Integer.parseInt(firstValue);
-                break;
-              case E2E_START:
+              }
+              return true;
+            }
+          case HeaderClassifier.DD_E2E_START:
+            {
+              String firstValue = firstHeaderValue(value);
+              if (null != firstValue) {
                 endToEndStartTime = extractEndToEndStartTime(firstValue);
-                break;
-              case DD_TAGS:
-                datadogTags = datadogTagsFactory.fromHeaderValue(value);
-                break;
-              case TAGS:
-                {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
-                  }
-                  break;
-                }
-              case OT_BAGGAGE:
-                {
-                  if (baggage.isEmpty()) {
-                    baggage = new TreeMap<>();
-                  }
-                  baggage.put(
-                      lowerCaseKey.substring(OT_BAGGAGE_PREFIX.length()), HttpCodec.decode(value));
-                }
-                break;
-              default:
+              }
+              return true;
             }
-          }
-        } catch (RuntimeException e) {
-          invalidateContext();
-          log.debug("Exception when extracting context", e);
-          return false;
+          case HeaderClassifier.DD_TAGS:
+            if (null != value) {
+              datadogTags = datadogTagsFactory.fromHeaderValue(value);
+            }
+            return true;
+          case HeaderClassifier.OT_BAGGAGE:
+            if (null != value) {
+              if (baggage.isEmpty()) {
+                baggage = new TreeMap<>();
+              }
+              baggage.put(
+                  toLowerCase(key).substring(OT_BAGGAGE_PREFIX.length()), HttpCodec.decode(value));
+            }
+            return true;
+          case HeaderClassifier.XRAY_TRACE_ID:
+            if (isAwsPropagationEnabled) {
+              handleXRayTraceHeader(this, value);
+              return true;
+            }
+            break;
+          default:
+        }
+
+        if (handledIpHeaders(header, value)) {
+          return true;
         }
+        handleTaggedHeader(header, value);
+        return true;
+      } catch (RuntimeException e) {
+        invalidateContext();
+        log.debug("Exception when extracting context", e);
+        return false;
       }
-      return true;
     }
 
     private long extractEndToEndStartTime(String value) {
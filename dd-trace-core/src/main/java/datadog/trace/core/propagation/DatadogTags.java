@@ -3,6 +3,7 @@ package datadog.trace.core.propagation;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_X_DATADOG_TAGS_MAX_LENGTH;
 
 import datadog.trace.api.Config;
+import datadog.trace.api.function.BiConsumer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -57,7 +58,33 @@ public abstract class DatadogTags {
    * tags _dd.p.dm (root span only) based on the current state, or sets only an error tag if the
    * header value exceeds a configured limit.
    */
-  public abstract void fillTagMap(Map<String, String> tagMap);
+  public void fillTagMap(final Map<String, String> tagMap) {
+    forEachTag(
+        new BiConsumer<String, String>() {
+          @Override
+          public void accept(String key, String value) {
+            tagMap.put(key, value);
+          }
+        });
+  }
+
+  /**
+   * Visits the same tags {@link #fillTagMap(Map)} would add, without building a map. Used when
+   * serializing spans so the tags can be written straight out.
+   */
+  public abstract void forEachTag(BiConsumer<String, String> consumer);
+
+  /**
+   * The number of tags {@link #forEachTag(BiConsumer)} visits. A later sampling decision can change
+   * it, so when the count and the tags must agree read both from a {@link #snapshot()}.
+   */
+  public abstract int tagCount();
+
+  /**
+   * Returns tags which sampling decisions made after this call no longer affect, so that {@link
+   * #tagCount()} and {@link #forEachTag(BiConsumer)} called on them always agree.
+   */
+  public abstract DatadogTags snapshot();
 
   public HashMap<String, String> createTagMap() {
     HashMap<String, String> result = new HashMap<>();
@@ -1,11 +1,11 @@
 package datadog.trace.core.propagation;
 
+import datadog.trace.api.function.BiConsumer;
 import datadog.trace.api.sampling.PrioritySampling;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +56,9 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
    * All tags prefixed with `_dd.p.` are extracted from tagSet except for `_dd.p.upstream_services`.
    * TagSet that doesn't respect the format will be dropped and a warning will be logged.
    *
+   * <p>The value is only parsed once the tags are first used, so nothing is parsed for traces which
+   * are dropped without the tags ever being read or injected.
+   *
    * @return a DatadogTags containing only _dd.p.* tags or an error if the header value is invalid
    */
   public DatadogTags fromHeaderValue(String value) {
@@ -67,7 +70,10 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
       // Set _dd.propagation_error:extract_max_size
       return new InvalidDatadogTags(PROPAGATION_ERROR_EXTRACT_MAX_SIZE);
     }
+    return new LazyDatadogTags(value);
+  }
 
+  private DatadogTags parse(String value) {
     List<String> tagPairs = new ArrayList<>(10);
     int len = value.length();
     int tagPos = 0;
@@ -190,6 +196,89 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     return c >= 'a' && c <= 'f' || isDigit(c);
   }
 
+  private static String nextDecisionMakerTagValue(
+      String current, int samplingPriority, int samplingMechanism) {
+    if (samplingPriority > 0) {
+      // protected against possible SamplingMechanism.UNKNOWN (-1) that doesn't comply with the
+      // format
+      return samplingMechanism >= 0 ? "-" + samplingMechanism : current;
+    }
+    // drop decision maker tag
+    return null;
+  }
+
+  // Holds on to the extracted header value until the tags are used
+  private final class LazyDatadogTags extends DatadogTags {
+    private final String value;
+    private volatile DatadogTags parsed;
+    // sampling decisions made before parsing, guarded by this
+    private boolean decided;
+    private String decisionMakerTagValue;
+
+    private LazyDatadogTags(String value) {
+      this.value = value;
+    }
+
+    private DatadogTags parsed() {
+      DatadogTags tags = parsed;
+      if (null == tags) {
+        synchronized (this) {
+          tags = parsed;
+          if (null == tags) {
+            tags = parse(value);
+            if (decided && tags instanceof ValidDatadogTags) {
+              ((ValidDatadogTags) tags).decide(decisionMakerTagValue);
+            }
+            parsed = tags;
+          }
+        }
+      }
+      return tags;
+    }
+
+    @Override
+    public void updateTraceSamplingPriority(
+        int samplingPriority, int samplingMechanism, String serviceName) {
+      DatadogTags tags = parsed;
+      if (null == tags) {
+        synchronized (this) {
+          tags = parsed;
+          if (null == tags) {
+            // record the decision without parsing, the trace may still be dropped
+            if (samplingPriority != PrioritySampling.UNSET) {
+              decisionMakerTagValue =
+                  nextDecisionMakerTagValue(
+                      decisionMakerTagValue, samplingPriority, samplingMechanism);
+              decided = true;
+            }
+            return;
+          }
+        }
+      }
+      tags.updateTraceSamplingPriority(samplingPriority, samplingMechanism, serviceName);
+    }
+
+    @Override
+    public String headerValue() {
+      return parsed().headerValue();
+    }
+
+    @Override
+    public void forEachTag(BiConsumer<String, String> consumer) {
+      parsed().forEachTag(consumer);
+    }
+
+    @Override
+    public int tagCount() {
+      return parsed().tagCount();
+    }
+
+    @Override
+    public DatadogTags snapshot() {
+      return parsed().snapshot();
+    }
+  }
+
   // This implementation is used for errors and doesn't allow any modifications
   private static final class InvalidDatadogTags extends DatadogTags {
     private final String error;
@@ -208,8 +297,18 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     }
 
     @Override
-    public void fillTagMap(Map<String, String> tagMap) {
-      tagMap.put(PROPAGATION_ERROR_TAG_KEY, error);
+    public void forEachTag(BiConsumer<String, String> consumer) {
+      consumer.accept(PROPAGATION_ERROR_TAG_KEY, error);
+    }
+
+    @Override
+    public int tagCount() {
+      return 1;
+    }
+
+    @Override
+    public DatadogTags snapshot() {
+      return this;
     }
   }
 
@@ -221,9 +320,13 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     private final int propagatedTagsSize;
 
     private final boolean isDecisionMakerTagMissing;
+    // snapshots ignore any further sampling decisions
+    private final boolean frozen;
 
     // extracted decision maker tag for easier updates
     private volatile String decisionMakerTagValue;
+    // the last snapshot taken, reused until the decision maker tag changes
+    private volatile ValidDatadogTags snapshot;
 
     private ValidDatadogTags(List<String> tagPairs) {
       assert tagPairs.size() % 2 == 0;
@@ -232,6 +335,15 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
 
       // extract the decision maker tag
       isDecisionMakerTagMissing = !containsTag(tagPairs, DECISION_MAKER_TAG);
+      frozen = false;
+    }
+
+    private ValidDatadogTags(ValidDatadogTags tags, String decisionMakerTagValue) {
+      propagatedTagPairs = tags.propagatedTagPairs;
+      propagatedTagsSize = tags.propagatedTagsSize;
+      isDecisionMakerTagMissing = tags.isDecisionMakerTagMissing;
+      frozen = true;
+      this.decisionMakerTagValue = decisionMakerTagValue;
     }
 
     private int calcTagsLength(List<String> tagPairs) {
@@ -256,17 +368,16 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     public void updateTraceSamplingPriority(
         int samplingPriority, int samplingMechanism, String serviceName) {
 
-      if (samplingPriority != PrioritySampling.UNSET && isDecisionMakerTagMissing) {
-        if (samplingPriority > 0) {
-          // protected against possible SamplingMechanism.UNKNOWN (-1) that doesn't comply with the
-          // format
-          if (samplingMechanism >= 0) {
-            decisionMakerTagValue = "-" + samplingMechanism;
-          }
-        } else {
-          // drop decision maker tag
-          decisionMakerTagValue = null;
-        }
+      if (samplingPriority != PrioritySampling.UNSET && isDecisionMakerTagMissing && !frozen) {
+        decisionMakerTagValue =
+            nextDecisionMakerTagValue(decisionMakerTagValue, samplingPriority, samplingMechanism);
+      }
+    }
+
+    /** Applies the sampling decisions recorded before the tags were parsed. */
+    void decide(String decisionMakerTagValue) {
+      if (isDecisionMakerTagMissing && !frozen) {
+        this.decisionMakerTagValue = decisionMakerTagValue;
       }
     }
 
@@ -317,7 +428,8 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     }
 
     @Override
-    public void fillTagMap(Map<String, String> tagMap) {
+    public void forEachTag(BiConsumer<String, String> consumer) {
+      String decisionMakerTagValue = this.decisionMakerTagValue;
       int newSize = countTagSize(propagatedTagsSize, DECISION_MAKER_TAG, decisionMakerTagValue);
 
       if (newSize > datadogTagsLimit) {
@@ -325,22 +437,45 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
         // Set _dd.propagation_error:inject_max_size if the configured limit is greater than zero,
         // else set _dd.propagation_error:disabled
         if (datadogTagsLimit == 0) {
-          tagMap.put(PROPAGATION_ERROR_TAG_KEY, PROPAGATION_ERROR_DISABLED);
+          consumer.accept(PROPAGATION_ERROR_TAG_KEY, PROPAGATION_ERROR_DISABLED);
         } else {
-          tagMap.put(PROPAGATION_ERROR_TAG_KEY, PROPAGATION_ERROR_INJECT_MAX_SIZE);
+          consumer.accept(PROPAGATION_ERROR_TAG_KEY, PROPAGATION_ERROR_INJECT_MAX_SIZE);
         }
         return;
       }
 
-      Iterator<String> it = propagatedTagPairs.iterator();
-      while (it.hasNext()) {
-        String tagKey = it.next();
-        String tagValue = it.next();
-        tagMap.put(tagKey, tagValue);
+      for (int i = 0; i < propagatedTagPairs.size(); i += 2) {
+        consumer.accept(propagatedTagPairs.get(i), propagatedTagPairs.get(i + 1));
       }
       if (isDecisionMakerTagMissing && decisionMakerTagValue != null) {
-        tagMap.put(DECISION_MAKER_TAG, decisionMakerTagValue);
+        consumer.accept(DECISION_MAKER_TAG, decisionMakerTagValue);
+      }
+    }
+
+    @Override
+    public int tagCount() {
+      String decisionMakerTagValue = this.decisionMakerTagValue;
+      int newSize = countTagSize(propagatedTagsSize, DECISION_MAKER_TAG, decisionMakerTagValue);
+      if (newSize > datadogTagsLimit) {
+        return 1;
+      }
+      return propagatedTagPairs.size() / 2
+          + (isDecisionMakerTagMissing && decisionMakerTagValue != null ? 1 : 0);
+    }
+
+    @Override
+    public DatadogTags snapshot() {
+      if (frozen || !isDecisionMakerTagMissing) {
+        // nothing left that a sampling decision could change
+        return this;
+      }
+      String decisionMakerTagValue = this.decisionMakerTagValue;
+      ValidDatadogTags snapshot = this.snapshot;
+      if (null == snapshot || snapshot.decisionMakerTagValue != decisionMakerTagValue) {
+        snapshot = new ValidDatadogTags(this, decisionMakerTagValue);
+        this.snapshot = snapshot;
       }
+      return snapshot;
     }
   }
 }
@@ -1,7 +1,5 @@
 package datadog.trace.core.propagation;
 
-import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
-
 import datadog.trace.api.Config;
 import datadog.trace.api.DDId;
 import datadog.trace.api.sampling.PrioritySampling;
@@ -23,10 +21,10 @@ class HaystackHttpCodec {
   private static final Logger log = LoggerFactory.getLogger(HaystackHttpCodec.class);
 
   // https://github.com/ExpediaDotCom/haystack-client-java/blob/master/core/src/main/java/com/expedia/www/haystack/client/propagation/DefaultKeyConvention.java
-  private static final String OT_BAGGAGE_PREFIX = "Baggage-";
-  private static final String TRACE_ID_KEY = "Trace-ID";
-  private static final String SPAN_ID_KEY = "Span-ID";
-  private static final String PARENT_ID_KEY = "Parent-ID";
+  static final String OT_BAGGAGE_PREFIX = "Baggage-";
+  static final String TRACE_ID_KEY = "Trace-ID";
+  static final String SPAN_ID_KEY = "Span-ID";
+  static final String PARENT_ID_KEY = "Parent-ID";
 
   private static final String DD_TRACE_ID_BAGGAGE_KEY = OT_BAGGAGE_PREFIX + "Datadog-Trace-Id";
   private static final String DD_SPAN_ID_BAGGAGE_KEY = OT_BAGGAGE_PREFIX + "Datadog-Span-Id";
@@ -61,23 +59,21 @@ class HaystackHttpCodec {
         //  this will preserve the complete UUID/GUID without losing the most significant bit part
         String originalHaystackTraceId =
             getBaggageItemIgnoreCase(context.getBaggageItems(), HAYSTACK_TRACE_ID_BAGGAGE_KEY);
+        final CachedHeaders headers = headers(context);
         String injectedTraceId;
         if (originalHaystackTraceId != null
             && convertUUIDToBigInt(originalHaystackTraceId).equals(context.getTraceId())) {
           injectedTraceId = originalHaystackTraceId;
         } else {
-          injectedTraceId = convertBigIntToUUID(context.getTraceId());
+          injectedTraceId = headers.traceId;
         }
         setter.set(carrier, TRACE_ID_KEY, injectedTraceId);
         context.setTag(HAYSTACK_TRACE_ID_BAGGAGE_KEY, injectedTraceId);
-        setter.set(
-            carrier, DD_TRACE_ID_BAGGAGE_KEY, HttpCodec.encode(context.getTraceId().toString()));
-        setter.set(carrier, SPAN_ID_KEY, convertBigIntToUUID(context.getSpanId()));
-        setter.set(
-            carrier, DD_SPAN_ID_BAGGAGE_KEY, HttpCodec.encode(context.getSpanId().toString()));
-        setter.set(carrier, PARENT_ID_KEY, convertBigIntToUUID(context.getParentId()));
-        setter.set(
-            carrier, DD_PARENT_ID_BAGGAGE_KEY, HttpCodec.encode(context.getParentId().toString()));
+        setter.set(carrier, DD_TRACE_ID_BAGGAGE_KEY, headers.datadogTraceId);
+        setter.set(carrier, SPAN_ID_KEY, headers.spanId);
+        setter.set(carrier, DD_SPAN_ID_BAGGAGE_KEY, headers.datadogSpanId);
+        setter.set(carrier, PARENT_ID_KEY, headers.parentId);
+        setter.set(carrier, DD_PARENT_ID_BAGGAGE_KEY, headers.datadogParentId);
 
         for (final Map.Entry<String, String> entry : context.baggageItems()) {
           setter.set(
@@ -91,6 +87,16 @@ class HaystackHttpCodec {
       }
     }
 
+    private static CachedHeaders headers(final DDSpanContext context) {
+      final InjectionCache cache = context.getInjectionCache();
+      CachedHeaders headers = cache.haystack;
+      if (null == headers) {
+        // the ids never change, so neither do their renderings
+        cache.haystack = headers = new CachedHeaders(context);
+      }
+      return headers;
+    }
+
     private String getBaggageItemIgnoreCase(Map<String, String> baggage, String key) {
       for (final Map.Entry<String, String> mapping : baggage.entrySet()) {
         if (key.equalsIgnoreCase(mapping.getKey())) {
@@ -101,13 +107,38 @@ class HaystackHttpCodec {
     }
   }
 
+  static final class CachedHeaders {
+    final String traceId;
+    final String datadogTraceId;
+    final String spanId;
+    final String datadogSpanId;
+    final String parentId;
+    final String datadogParentId;
+
+    CachedHeaders(final DDSpanContext context) {
+      this.traceId = convertBigIntToUUID(context.getTraceId());
+      this.datadogTraceId = HttpCodec.encode(context.getTraceId().toString());
+      this.spanId = convertBigIntToUUID(context.getSpanId());
+      this.datadogSpanId = HttpCodec.encode(context.getSpanId().toString());
+      this.parentId = convertBigIntToUUID(context.getParentId());
+      this.datadogParentId = HttpCodec.encode(context.getParentId().toString());
+    }
+  }
+
   public static HttpCodec.Extractor newExtractor(final Map<String, String> tagMapping) {
+    return newExtractor(tagMapping, HeaderClassifier.create(tagMapping, Config.get()));
+  }
+
+  static HttpCodec.Extractor newExtractor(
+      final Map<String, String> tagMapping, final HeaderClassifier classifier) {
     return new TagContextExtractor(
         tagMapping,
+        classifier,
         new ContextInterpreter.Factory() {
           @Override
-          protected ContextInterpreter construct(Map<String, String> mapping) {
-            return new HaystackContextInterpreter(mapping);
+          protected ContextInterpreter construct(
+              Map<String, String> mapping, HeaderClassifier classifier) {
+            return new HaystackContextInterpreter(mapping, classifier);
           }
         });
   }
@@ -116,120 +147,50 @@ class HaystackHttpCodec {
 
     private static final String BAGGAGE_PREFIX_LC = "baggage-";
 
-    private static final int TRACE_ID = 0;
-    private static final int SPAN_ID = 1;
-    private static final int PARENT_ID = 2;
-    private static final int TAGS = 3;
-    private static final int BAGGAGE = 4;
-    private static final int IGNORE = -1;
-
-    private HaystackContextInterpreter(Map<String, String> taggedHeaders) {
-      super(taggedHeaders, Config.get());
+    private HaystackContextInterpreter(
+        Map<String, String> taggedHeaders, HeaderClassifier classifier) {
+      super(taggedHeaders, classifier, Config.get());
     }
 
     @Override
-    public boolean accept(String key, String value) {
-      if (null == key || key.isEmpty()) {
-        return true;
-      }
-      if (LOG_EXTRACT_HEADER_NAMES) {
-        log.debug("Header: {}", key);
-      }
-      char first = Character.toLowerCase(key.charAt(0));
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      switch (first) {
-        case 't':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          }
-          break;
-        case 's':
-          if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          }
-          break;
-        case 'p':
-          if (PARENT_ID_KEY.equalsIgnoreCase(key)) {
-            classification = PARENT_ID;
-          }
-          break;
-        case 'x':
-          if (handledXForwarding(key, value)) {
+    protected boolean accept(HeaderClassifier.Header header, String key, String value) {
+      try {
+        switch (header.id) {
+          case HeaderClassifier.HAYSTACK_TRACE_ID:
+            if (null != value) {
+              traceId = convertUUIDToBigInt(value);
+              addBaggageItem(HAYSTACK_TRACE_ID_BAGGAGE_KEY, value);
+            }
             return true;
-          }
-          break;
-        case 'f':
-          if (handledForwarding(key, value)) {
+          case HeaderClassifier.HAYSTACK_SPAN_ID:
+            if (null != value) {
+              spanId = convertUUIDToBigInt(value);
+              addBaggageItem(HAYSTACK_SPAN_ID_BAGGAGE_KEY, value);
+            }
             return true;
-          }
-          break;
-        case 'b':
-          lowerCaseKey = toLowerCase(key);
-          if (lowerCaseKey.startsWith(BAGGAGE_PREFIX_LC)) {
-            classification = BAGGAGE;
-          }
-          break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
+          case HeaderClassifier.HAYSTACK_PARENT_ID:
+            if (null != value) {
+              addBaggageItem(HAYSTACK_PARENT_ID_BAGGAGE_KEY, value);
+            }
             return true;
-          }
-          break;
-        default:
-      }
-
-      if (handledIpHeaders(key, value)) {
-        return true;
-      }
-
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
-          classification = TAGS;
-        }
-      }
-      if (IGNORE != classification) {
-        try {
-          String firstValue = firstHeaderValue(value);
-          if (null != firstValue) {
-            switch (classification) {
-              case TRACE_ID:
-                traceId = convertUUIDToBigInt(value);
-                addBaggageItem(HAYSTACK_TRACE_ID_BAGGAGE_KEY, value);
-                break;
-              case SPAN_ID:
-                spanId = convertUUIDToBigInt(value);
-                addBaggageItem(HAYSTACK_SPAN_ID_BAGGAGE_KEY, value);
-                break;
-              case PARENT_ID:
-                addBaggageItem(HAYSTACK_PARENT_ID_BAGGAGE_KEY, value);
-                break;
-              case TAGS:
-                {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
-                  }
-                  break;
-                }
-              case BAGGAGE:
-                {
-                  addBaggageItem(lowerCaseKey.substring(BAGGAGE_PREFIX_LC.length()), value);
-                  break;
-                }
-              default:
+          case HeaderClassifier.HAYSTACK_BAGGAGE:
+            if (null != value) {
+              addBaggageItem(toLowerCase(key).substring(BAGGAGE_PREFIX_LC.length()), value);
             }
-          }
-        } catch (RuntimeException e) {
-          invalidateContext();
-          log.debug("Exception when extracting context", e);
-          return false;
+            return true;
+          default:
+        }
+
+        if (handledIpHeaders(header, value)) {
+          return true;
         }
+        handleTaggedHeader(header, value);
+        return true;
+      } catch (RuntimeException e) {
+        invalidateContext();
+        log.debug("Exception when extracting context", e);
+        return false;
       }
-      return true;
     }
 
     private void addBaggageItem(String key, String value) {
@@ -0,0 +1,252 @@
+package datadog.trace.core.propagation;
+
+import static datadog.trace.core.propagation.HttpCodec.CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.FORWARDED_FOR_KEY;
+import static datadog.trace.core.propagation.HttpCodec.FORWARDED_KEY;
+import static datadog.trace.core.propagation.HttpCodec.TRUE_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.USER_AGENT_KEY;
+import static datadog.trace.core.propagation.HttpCodec.VIA_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_CLUSTER_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_FOR_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_HOST_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PORT_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PROTO_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_REAL_IP_KEY;
+
+import datadog.trace.api.Config;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classifies the header names understood by any of the {@link HttpCodec} extractors, along with
+ * the configured tagged headers and client ip header, in a single case-insensitive pass over the
+ * name and without allocating.
+ *
+ * <p>The known names are laid out in a table with a hash seed chosen when the classifier is built
+ * so that no two names share a slot, so a lookup hashes the name once and compares it with at
+ * most one candidate. Names which aren't known but start with one of the baggage prefixes are
+ * classified by that prefix.
+ */
+final class HeaderClassifier {
+
+  static final int NONE = 0;
+  static final int DD_TRACE_ID = 1;
+  static final int DD_SPAN_ID = 2;
+  static final int DD_SAMPLING_PRIORITY = 3;
+  static final int DD_ORIGIN = 4;
+  static final int DD_TAGS = 5;
+  static final int DD_E2E_START = 6;
+  static final int OT_BAGGAGE = 7;
+  static final int B3 = 8;
+  static final int B3_TRACE_ID = 9;
+  static final int B3_SPAN_ID = 10;
+  static final int B3_SAMPLED = 11;
+  static final int HAYSTACK_TRACE_ID = 12;
+  static final int HAYSTACK_SPAN_ID = 13;
+  static final int HAYSTACK_PARENT_ID = 14;
+  static final int HAYSTACK_BAGGAGE = 15;
+  static final int XRAY_TRACE_ID = 16;
+  static final int USER_AGENT = 17;
+  static final int FORWARDED = 18;
+  static final int FORWARDED_FOR = 19;
+  static final int X_FORWARDED_PROTO = 20;
+  static final int X_FORWARDED_HOST = 21;
+  static final int X_FORWARDED = 22;
+  static final int X_FORWARDED_FOR = 23;
+  static final int X_FORWARDED_PORT = 24;
+  static final int X_CLUSTER_CLIENT_IP = 25;
+  static final int X_REAL_IP = 26;
+  static final int CLIENT_IP = 27;
+  static final int TRUE_CLIENT_IP = 28;
+  static final int VIA = 29;
+
+  private static final int MAX_SEED_ATTEMPTS = 256;
+
+  /** A classified header name, shared by every lookup so it must not be modified. */
+  static final class Header {
+    /** lower case name or prefix */
+    final String name;
+    /** one of the constants of {@link HeaderClassifier}, {@link #NONE} for plain tagged headers */
+    final int id;
+    /** the tag the header value is recorded as, or null */
+    final String tag;
+    /** whether this is the configured client ip header */
+    final boolean customIp;
+
+    Header(String name, int id, String tag, boolean customIp) {
+      this.name = name;
+      this.id = id;
+      this.tag = tag;
+      this.customIp = customIp;
+    }
+  }
+
+  private final Header[] table;
+  private final int mask;
+  private final int seed;
+  private final Header otBaggage;
+  private final Header haystackBaggage;
+
+  private HeaderClassifier(Header[] table, int seed, Header otBaggage, Header haystackBaggage) {
+    this.table = table;
+    this.mask = table.length - 1;
+    this.seed = seed;
+    this.otBaggage = otBaggage;
+    this.haystackBaggage = haystackBaggage;
+  }
+
+  /**
+   * @param taggedHeaders header names mapped to tag names, as configured
+   * @return a classifier for the headers of every propagation style
+   */
+  static HeaderClassifier create(Map<String, String> taggedHeaders, Config config) {
+    Map<String, Integer> ids = new HashMap<>();
+    ids.put(lowerCase(DatadogHttpCodec.TRACE_ID_KEY), DD_TRACE_ID);
+    ids.put(lowerCase(DatadogHttpCodec.SPAN_ID_KEY), DD_SPAN_ID);
+    ids.put(lowerCase(DatadogHttpCodec.SAMPLING_PRIORITY_KEY), DD_SAMPLING_PRIORITY);
+    ids.put(lowerCase(DatadogHttpCodec.ORIGIN_KEY), DD_ORIGIN);
+    ids.put(lowerCase(DatadogHttpCodec.DATADOG_TAGS_KEY), DD_TAGS);
+    ids.put(lowerCase(DatadogHttpCodec.E2E_START_KEY), DD_E2E_START);
+    ids.put(lowerCase(B3HttpCodec.B3_KEY), B3);
+    ids.put(lowerCase(B3HttpCodec.TRACE_ID_KEY), B3_TRACE_ID);
+    ids.put(lowerCase(B3HttpCodec.SPAN_ID_KEY), B3_SPAN_ID);
+    ids.put(lowerCase(B3HttpCodec.SAMPLING_PRIORITY_KEY), B3_SAMPLED);
+    ids.put(lowerCase(HaystackHttpCodec.TRACE_ID_KEY), HAYSTACK_TRACE_ID);
+    ids.put(lowerCase(HaystackHttpCodec.SPAN_ID_KEY), HAYSTACK_SPAN_ID);
+    ids.put(lowerCase(HaystackHttpCodec.PARENT_ID_KEY), HAYSTACK_PARENT_ID);
+    ids.put(lowerCase(XRayHttpCodec.X_AMZN_TRACE_ID), XRAY_TRACE_ID);
+    ids.put(USER_AGENT_KEY, USER_AGENT);
+    ids.put(FORWARDED_KEY, FORWARDED);
+    ids.put(FORWARDED_FOR_KEY, FORWARDED_FOR);
+    ids.put(X_FORWARDED_PROTO_KEY, X_FORWARDED_PROTO);
+    ids.put(X_FORWARDED_HOST_KEY, X_FORWARDED_HOST);
+    ids.put(X_FORWARDED_KEY, X_FORWARDED);
+    ids.put(X_FORWARDED_FOR_KEY, X_FORWARDED_FOR);
+    ids.put(X_FORWARDED_PORT_KEY, X_FORWARDED_PORT);
+    ids.put(X_CLUSTER_CLIENT_IP_KEY, X_CLUSTER_CLIENT_IP);
+    ids.put(X_REAL_IP_KEY, X_REAL_IP);
+    ids.put(CLIENT_IP_KEY, CLIENT_IP);
+    ids.put(TRUE_CLIENT_IP_KEY, TRUE_CLIENT_IP);
+    ids.put(VIA_KEY, VIA);
+
+    Map<String, String> tags = ContextInterpreter.cleanMapping(taggedHeaders);
+    String customIpHeader = config.getTraceClientIpHeader();
+    customIpHeader = null == customIpHeader ? null : lowerCase(customIpHeader);
+
+    Map<String, Header> headers = new HashMap<>();
+    for (Map.Entry<String, Integer> id : ids.entrySet()) {
+      String name = id.getKey();
+      headers.put(
+          name, new Header(name, id.getValue(), tags.get(name), name.equals(customIpHeader)));
+    }
+    for (Map.Entry<String, String> tag : tags.entrySet()) {
+      String name = tag.getKey();
+      if (!name.isEmpty() && !headers.containsKey(name)) {
+        headers.put(name, new Header(name, prefixId(name), tag.getValue(), false));
+      }
+    }
+    if (null != customIpHeader
+        && !customIpHeader.isEmpty()
+        && !headers.containsKey(customIpHeader)) {
+      headers.put(customIpHeader, new Header(customIpHeader, prefixId(customIpHeader), null, true));
+    }
+
+    // start sparse, seeds without collisions get rare quickly as the table fills up
+    int capacity = Integer.highestOneBit(headers.size() * 4 - 1) << 1;
+    while (true) {
+      for (int seed = 0; seed < MAX_SEED_ATTEMPTS; ++seed) {
+        Header[] table = layout(headers, capacity, seed);
+        if (null != table) {
+          return new HeaderClassifier(
+              table,
+              seed,
+              new Header(lowerCase(DatadogHttpCodec.OT_BAGGAGE_PREFIX), OT_BAGGAGE, null, false),
+              new Header(
+                  lowerCase(HaystackHttpCodec.OT_BAGGAGE_PREFIX), HAYSTACK_BAGGAGE, null, false));
+        }
+      }
+      capacity <<= 1;
+    }
+  }
+
+  /** @return the classification of the header, or null if no extractor has a use for it */
+  Header classify(String key) {
+    Header header = table[hash(key, seed) & mask];
+    if (null != header && matches(key, header.name)) {
+      return header;
+    }
+    if (startsWith(key, otBaggage.name)) {
+      return otBaggage;
+    }
+    if (startsWith(key, haystackBaggage.name)) {
+      return haystackBaggage;
+    }
+    return null;
+  }
+
+  private static Header[] layout(Map<String, Header> headers, int capacity, int seed) {
+    Header[] table = new Header[capacity];
+    int mask = capacity - 1;
+    for (Header header : headers.values()) {
+      int slot = hash(header.name, seed) & mask;
+      if (null != table[slot]) {
+        return null;
+      }
+      table[slot] = header;
+    }
+    return table;
+  }
+
+  private static int prefixId(String name) {
+    if (name.startsWith(lowerCase(DatadogHttpCodec.OT_BAGGAGE_PREFIX))) {
+      return OT_BAGGAGE;
+    }
+    if (name.startsWith(lowerCase(HaystackHttpCodec.OT_BAGGAGE_PREFIX))) {
+      return HAYSTACK_BAGGAGE;
+    }
+    return NONE;
+  }
+
+  private static int hash(String key, int seed) {
+    // the seed picks the multiplier rather than the initial value, so names colliding for one seed
+    // don't collide for every seed
+    int multiplier = 31 + (seed << 1);
+    int h = 0;
+    for (int i = 0; i < key.length(); ++i) {
+      h = multiplier * h + fold(key.charAt(i));
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean matches(String key, String lowerCaseName) {
+    int length = lowerCaseName.length();
+    return key.length() == length && regionMatches(key, lowerCaseName, length);
+  }
+
+  private static boolean startsWith(String key, String lowerCasePrefix) {
+    int length = lowerCasePrefix.length();
+    return key.length() >= length && regionMatches(key, lowerCasePrefix, length);
+  }
+
+  private static boolean regionMatches(String key, String lowerCaseName, int length) {
+    for (int i = 0; i < length; ++i) {
+      if (fold(key.charAt(i)) != lowerCaseName.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static char fold(char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  private static String lowerCase(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
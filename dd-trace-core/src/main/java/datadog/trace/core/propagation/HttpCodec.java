@@ -9,6 +9,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -91,19 +92,21 @@ public class HttpCodec {
   public static Extractor createExtractor(
       final Config config, final Map<String, String> taggedHeaders) {
     final List<Extractor> extractors = new ArrayList<>();
+    // every extractor shares the classifier, so each header only has to be classified once
+    final HeaderClassifier classifier = HeaderClassifier.create(taggedHeaders, config);
     for (final PropagationStyle style : config.getPropagationStylesToExtract()) {
       switch (style) {
         case DATADOG:
-          extractors.add(DatadogHttpCodec.newExtractor(taggedHeaders, config));
+          extractors.add(DatadogHttpCodec.newExtractor(taggedHeaders, config, classifier));
           break;
         case B3:
-          extractors.add(B3HttpCodec.newExtractor(taggedHeaders));
+          extractors.add(B3HttpCodec.newExtractor(taggedHeaders, classifier));
           break;
         case HAYSTACK:
-          extractors.add(HaystackHttpCodec.newExtractor(taggedHeaders));
+          extractors.add(HaystackHttpCodec.newExtractor(taggedHeaders, classifier));
           break;
         case XRAY:
-          extractors.add(XRayHttpCodec.newExtractor(taggedHeaders));
+          extractors.add(XRayHttpCodec.newExtractor(taggedHeaders, classifier));
           break;
         default:
           log.debug("No implementation found to extract propagation style: {}", style);
@@ -130,16 +133,29 @@ public class HttpCodec {
     }
   }
 
+  /**
+   * Extracts the first complete context found by its extractors, in order. When the extractors all
+   * share a {@link HeaderClassifier} the carrier is visited once, with each header classified once
+   * and handed to every extractor's interpreter.
+   */
   public static class CompoundExtractor implements Extractor {
     private final List<Extractor> extractors;
+    private final ThreadLocal<CompoundInterpreter> compoundInterpreter;
 
     public CompoundExtractor(final List<Extractor> extractors) {
       this.extractors = extractors;
+      this.compoundInterpreter = singlePass(extractors);
     }
 
     @Override
     public <C> TagContext extract(
         final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
+      if (null != compoundInterpreter) {
+        final CompoundInterpreter interpreter = compoundInterpreter.get().reset();
+        getter.forEachKey(carrier, interpreter);
+        return interpreter.build();
+      }
+
       TagContext context = null;
 
       for (final Extractor extractor : extractors) {
@@ -152,6 +168,94 @@ public class HttpCodec {
 
       return context;
     }
+
+    private static ThreadLocal<CompoundInterpreter> singlePass(final List<Extractor> extractors) {
+      if (extractors.size() < 2) {
+        return null;
+      }
+      final TagContextExtractor[] tagContextExtractors =
+          new TagContextExtractor[extractors.size()];
+      for (int i = 0; i < tagContextExtractors.length; ++i) {
+        final Extractor extractor = extractors.get(i);
+        if (!(extractor instanceof TagContextExtractor)) {
+          return null;
+        }
+        tagContextExtractors[i] = (TagContextExtractor) extractor;
+        if (tagContextExtractors[i].classifier != tagContextExtractors[0].classifier) {
+          return null;
+        }
+      }
+      return new ThreadLocal<CompoundInterpreter>() {
+        @Override
+        protected CompoundInterpreter initialValue() {
+          final ContextInterpreter[] interpreters =
+              new ContextInterpreter[tagContextExtractors.length];
+          for (int i = 0; i < interpreters.length; ++i) {
+            interpreters[i] = tagContextExtractors[i].newInterpreter();
+          }
+          return new CompoundInterpreter(tagContextExtractors[0].classifier, interpreters);
+        }
+      };
+    }
+  }
+
+  private static final class CompoundInterpreter implements AgentPropagation.KeyClassifier {
+    private final HeaderClassifier classifier;
+    private final ContextInterpreter[] interpreters;
+    private final boolean[] stopped;
+    private int remaining;
+
+    CompoundInterpreter(
+        final HeaderClassifier classifier, final ContextInterpreter[] interpreters) {
+      this.classifier = classifier;
+      this.interpreters = interpreters;
+      this.stopped = new boolean[interpreters.length];
+    }
+
+    CompoundInterpreter reset() {
+      for (final ContextInterpreter interpreter : interpreters) {
+        interpreter.reset();
+      }
+      Arrays.fill(stopped, false);
+      remaining = interpreters.length;
+      return this;
+    }
+
+    @Override
+    public boolean accept(final String key, final String value) {
+      if (null == key || key.isEmpty()) {
+        return true;
+      }
+      if (ContextInterpreter.LOG_EXTRACT_HEADER_NAMES) {
+        log.debug("Header: {}", key);
+      }
+      final HeaderClassifier.Header header = classifier.classify(key);
+      if (null == header) {
+        return true;
+      }
+      for (int i = 0; i < interpreters.length; ++i) {
+        // an interpreter which found the context invalid doesn't want to see any more headers
+        if (!stopped[i] && !interpreters[i].accept(header, key, value)) {
+          stopped[i] = true;
+          if (--remaining == 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    TagContext build() {
+      TagContext context = null;
+      for (final ContextInterpreter interpreter : interpreters) {
+        context = interpreter.build();
+        // Use incomplete TagContext only as last resort
+        if (context instanceof ExtractedContext) {
+          return context;
+        }
+      }
+      return context;
+    }
   }
 
   /** URL encode value */
@@ -0,0 +1,16 @@
+package datadog.trace.core.propagation;
+
+/**
+ * Header values rendered by the {@link HttpCodec} injectors for a span context. A span often
+ * propagates to many downstream calls with the same ids, so the values are rendered on the first
+ * injection and copied afterwards. Values which depend on the sampling decision, including the
+ * propagated tags which change along with it, are rendered again once the decision changes.
+ *
+ * <p>Each style's values are held in an immutable snapshot, so concurrent injections at worst
+ * render the same values twice.
+ */
+public final class InjectionCache {
+  volatile DatadogHttpCodec.CachedHeaders datadog;
+  volatile B3HttpCodec.CachedHeaders b3;
+  volatile HaystackHttpCodec.CachedHeaders haystack;
+}
@@ -1,5 +1,6 @@
 package datadog.trace.core.propagation;
 
+import datadog.trace.api.Config;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.bootstrap.instrumentation.api.TagContext;
 import java.util.Map;
@@ -7,20 +8,35 @@ import java.util.Map;
 public class TagContextExtractor implements HttpCodec.Extractor {
 
   protected final Map<String, String> taggedHeaders;
+  final HeaderClassifier classifier;
+  private final ContextInterpreter.Factory factory;
   private final ThreadLocal<ContextInterpreter> ctxInterpreter;
 
   public TagContextExtractor(
       final Map<String, String> taggedHeaders, final ContextInterpreter.Factory factory) {
+    this(taggedHeaders, HeaderClassifier.create(taggedHeaders, Config.get()), factory);
+  }
+
+  TagContextExtractor(
+      final Map<String, String> taggedHeaders,
+      final HeaderClassifier classifier,
+      final ContextInterpreter.Factory factory) {
     this.taggedHeaders = taggedHeaders;
+    this.classifier = classifier;
+    this.factory = factory;
     this.ctxInterpreter =
         new ThreadLocal<ContextInterpreter>() {
           @Override
           protected ContextInterpreter initialValue() {
-            return factory.create(taggedHeaders);
+            return newInterpreter();
           }
         };
   }
 
+  ContextInterpreter newInterpreter() {
+    return factory.create(taggedHeaders, classifier);
+  }
+
   @Override
   public <C> TagContext extract(final C carrier, final AgentPropagation.ContextVisitor<C> getter) {
     ContextInterpreter interpreter = this.ctxInterpreter.get().reset();
@@ -113,67 +113,41 @@ class XRayHttpCodec {
   }
 
   public static HttpCodec.Extractor newExtractor(Map<String, String> tagMapping) {
+    return newExtractor(tagMapping, HeaderClassifier.create(tagMapping, Config.get()));
+  }
+
+  static HttpCodec.Extractor newExtractor(
+      Map<String, String> tagMapping, HeaderClassifier classifier) {
     return new TagContextExtractor(
         tagMapping,
+        classifier,
         new ContextInterpreter.Factory() {
           @Override
-          protected ContextInterpreter construct(Map<String, String> mapping) {
-            return new XRayContextInterpreter(mapping);
+          protected ContextInterpreter construct(
+              Map<String, String> mapping, HeaderClassifier classifier) {
+            return new XRayContextInterpreter(mapping, classifier);
           }
         });
   }
 
   static class XRayContextInterpreter extends ContextInterpreter {
 
-    private XRayContextInterpreter(Map<String, String> taggedHeaders) {
-      super(taggedHeaders, Config.get());
+    private XRayContextInterpreter(Map<String, String> taggedHeaders, HeaderClassifier classifier) {
+      super(taggedHeaders, classifier, Config.get());
     }
 
     @Override
-    public boolean accept(String key, String value) {
-      if (null == key || key.isEmpty()) {
-        return true;
-      }
-      if (LOG_EXTRACT_HEADER_NAMES) {
-        log.debug("Header: {}", key);
-      }
+    protected boolean accept(HeaderClassifier.Header header, String key, String value) {
       try {
-        char first = Character.toLowerCase(key.charAt(0));
-        switch (first) {
-          case 'x':
-            if (X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
-              handleXRayTraceHeader(this, value);
-              return true;
-            } else if (handledXForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'f':
-            if (handledForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'u':
-            if (handledUserAgent(key, value)) {
-              return true;
-            }
-            break;
-          default:
-        }
-
-        if (handledIpHeaders(key, value)) {
+        if (header.id == HeaderClassifier.XRAY_TRACE_ID) {
+          handleXRayTraceHeader(this, value);
           return true;
         }
 
-        if (!taggedHeaders.isEmpty()) {
-          String mappedKey = taggedHeaders.get(toLowerCase(key));
-          if (null != mappedKey) {
-            if (tags.isEmpty()) {
-              tags = new TreeMap<>();
-            }
-            tags.put(mappedKey, HttpCodec.decode(value));
-          }
+        if (handledIpHeaders(header, value)) {
+          return true;
         }
+        handleTaggedHeader(header, value);
         return true;
       } catch (RuntimeException e) {
         invalidateContext();
@@ -1,6 +1,7 @@
 package datadog.trace.common.metrics
 
 import datadog.trace.core.histogram.Histogram
+import datadog.trace.core.histogram.HistogramFactory
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Requires
 
@@ -94,6 +95,36 @@ class AggregateMetricTest extends DDSpecification {
     aggregate.getTopLevelCount() == 1
   }
 
+  def "latencies are recorded in histograms from the given factory"() {
+    given:
+    Histogram okLatencies = Mock(Histogram)
+    Histogram errorLatencies = Mock(Histogram)
+    HistogramFactory factory = Mock(HistogramFactory)
+    factory.newHistogram() >>> [okLatencies, errorLatencies]
+    AggregateMetric aggregate = new AggregateMetric(factory)
+
+    when:
+    aggregate.recordDurations(3, new AtomicLongArray(1, 2, 3 | ERROR_TAG))
+
+    then:
+    1 * okLatencies.accept(_, 0, 2)
+    1 * errorLatencies.accept(_, 2, 1)
+  }
+
+  def "recording without a buffer reuses the aggregate's own"() {
+    given:
+    AggregateMetric aggregate = new AggregateMetric()
+
+    when:
+    aggregate.recordDurations(3, new AtomicLongArray(1, 2, 3))
+    long[] scratch = aggregate.scratch(Batch.MAX_BATCH_SIZE)
+    aggregate.recordDurations(3, new AtomicLongArray(4, 5, 6))
+
+    then:
+    aggregate.scratch(Batch.MAX_BATCH_SIZE).is(scratch)
+    aggregate.getDuration() == 21
+  }
+
   def "ignore trailing zeros"() {
     given:
     AggregateMetric aggregate = new AggregateMetric()
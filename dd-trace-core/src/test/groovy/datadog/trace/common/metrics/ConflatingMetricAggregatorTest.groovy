@@ -197,6 +197,45 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     count << [10, 100]
   }
 
+  def "aggregate spans published from several threads"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, 1000, reportingInterval, SECONDS)
+    long duration = 100
+    int threads = 4
+    int count = 1000
+    List<CoreSpan> trace = [
+      new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, duration, HTTP_OK)
+    ]
+    aggregator.start()
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    (1..threads).collect {
+      Thread.start {
+        for (int i = 0; i < count; ++i) {
+          aggregator.publish(trace)
+        }
+      }
+    }*.join()
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "spans from every thread are conflated into the same aggregate"
+    1 * writer.finishBucket() >> { latch.countDown() }
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(new MetricKey("resource", "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      value.getHitCount() == threads * count && value.getDuration() == threads * count * duration
+    }
+
+    cleanup:
+    aggregator.close()
+  }
+
   def "test least recently written to aggregate flushed when size limit exceeded"() {
     setup:
     int maxAggregates = 10
@@ -434,6 +473,41 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     aggregator.close()
   }
 
+  def "batches the queue is too full to take are counted and no longer added to"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    // not started, so nothing drains the queue
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, 2, 1, SECONDS)
+    int keys = 8
+
+    when:
+    for (int i = 0; i < keys; ++i) {
+      aggregator.publish([
+        new SimpleSpan("service" + i, "operation", "resource", "type", false, true, false, 0, 100, HTTP_OK)
+      ])
+    }
+
+    then:
+    aggregator.droppedBatches() == keys - aggregator.inbox.size()
+    aggregator.droppedBatches() > 0
+
+    when: "a span has the key of a dropped batch"
+    long dropped = aggregator.droppedBatches()
+    aggregator.publish([
+      new SimpleSpan("service" + (keys - 1), "operation", "resource", "type", false, true, false, 0, 100, HTTP_OK)
+    ])
+
+    then: "it isn't added to the dropped batch"
+    aggregator.droppedBatches() == dropped + 1
+
+    cleanup:
+    aggregator.close()
+  }
+
   def reportAndWaitUntilEmpty(ConflatingMetricsAggregator aggregator) {
     waitUntilEmpty(aggregator)
     aggregator.report()
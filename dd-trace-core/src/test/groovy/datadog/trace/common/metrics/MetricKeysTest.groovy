@@ -0,0 +1,63 @@
+package datadog.trace.common.metrics
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+
+class MetricKeysTest extends DDSpecification {
+
+  def "hash from fields is the same as the key's hash"() {
+    setup:
+    def key = new MetricKey(resource, service, operation, type, 200, synthetics)
+
+    expect:
+    MetricKey.hash(resource, service, operation, type, 200, synthetics) == key.hashCode()
+    key.matches(resource, service, operation, type, 200, synthetics)
+    !key.matches(resource, service, operation, type, 404, synthetics)
+    !key.matches(resource, service, operation, type, 200, !synthetics)
+
+    where:
+    resource                                 | service                               | operation                 | type                       | synthetics
+    "resource"                               | "service"                             | "operation"               | "type"                     | false
+    UTF8BytesString.create("resource")       | UTF8BytesString.create("service")     | "operation"               | null                       | true
+    new StringBuilder("resource")            | "service"                             | new StringBuilder("op")   | UTF8BytesString.create("") | false
+    null                                     | null                                  | null                      | null                       | false
+  }
+
+  def "find tracked keys from their fields"() {
+    setup:
+    def keys = new MetricKeys(16)
+    def key = new MetricKey("resource", "service", "operation", "type", 200, false)
+
+    expect:
+    find(keys, "resource", "service", "operation", "type", 200) == null
+    keys.putIfAbsent(key) == null
+    keys.putIfAbsent(new MetricKey("resource", "service", "operation", "type", 200, false)).is(key)
+    find(keys, "resource", "service", "operation", "type", 200).is(key)
+    find(keys, new StringBuilder("resource"), UTF8BytesString.create("service"), "operation", "type", 200).is(key)
+    find(keys, "resource", "service", "operation", "type", 500) == null
+    find(keys, "other", "service", "operation", "type", 200) == null
+
+    when: "the key is no longer tracked"
+    keys.keySet().remove(key)
+
+    then:
+    find(keys, "resource", "service", "operation", "type", 200) == null
+  }
+
+  def "keys beyond the probed slots are still tracked"() {
+    setup:
+    def keys = new MetricKeys(2)
+    def added = (1..20).collect { new MetricKey("resource-$it", "service", "operation", "type", 200, false) }
+
+    when:
+    added.each { keys.putIfAbsent(it) }
+
+    then:
+    keys.keySet().size() == 20
+    added.every { keys.putIfAbsent(new MetricKey(it.resource, it.service, it.operationName, it.type, 200, false)).is(it) }
+  }
+
+  static MetricKey find(MetricKeys keys, CharSequence resource, CharSequence service, CharSequence operation, CharSequence type, int status) {
+    return keys.find(MetricKey.hash(resource, service, operation, type, status, false), resource, service, operation, type, status, false)
+  }
+}
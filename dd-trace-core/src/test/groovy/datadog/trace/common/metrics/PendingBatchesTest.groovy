@@ -0,0 +1,93 @@
+package datadog.trace.common.metrics
+
+import datadog.trace.test.util.DDSpecification
+
+class PendingBatchesTest extends DDSpecification {
+
+  // a table this small is a single bucket, so every key collides
+  PendingBatches pending = new PendingBatches(PendingBatches.WAYS, 8)
+
+  def "keys colliding in the same slot keep their own batch"() {
+    setup:
+    MetricKey first = key("first")
+    MetricKey second = key("second")
+    Batch firstBatch = pending.newBatch(first)
+    Batch secondBatch = pending.newBatch(second)
+
+    when:
+    pending.put(firstBatch)
+    pending.put(secondBatch)
+
+    then:
+    get(first).is(firstBatch)
+    get(second).is(secondBatch)
+
+    when: "the first key gets a new batch"
+    Batch replacement = pending.newBatch(first)
+    pending.put(replacement)
+
+    then:
+    get(first).is(replacement)
+    get(second).is(secondBatch)
+  }
+
+  def "another key's batch is only evicted when the bucket is full"() {
+    setup:
+    List<MetricKey> keys = (0..PendingBatches.WAYS).collect { key("resource-" + it) }
+    List<Batch> batches = keys.collect { pending.newBatch(it) }
+
+    when:
+    batches.take(PendingBatches.WAYS).each { pending.put(it) }
+
+    then:
+    keys.take(PendingBatches.WAYS).every { get(it) != null }
+
+    when:
+    pending.put(batches.last())
+
+    then:
+    get(keys.last()).is(batches.last())
+    keys.count { get(it) != null } == PendingBatches.WAYS
+  }
+
+  def "consumed batches make room before pending ones are evicted"() {
+    setup:
+    List<MetricKey> keys = (0..PendingBatches.WAYS).collect { key("resource-" + it) }
+    List<Batch> batches = keys.collect { pending.newBatch(it) }
+    batches.take(PendingBatches.WAYS).each { pending.put(it) }
+
+    when:
+    batches[1].contributeTo(new AggregateMetric())
+    pending.put(batches.last())
+
+    then:
+    get(keys.last()).is(batches.last())
+    (0..<PendingBatches.WAYS).findAll { it != 1 }.every { get(keys[it]).is(batches[it]) }
+  }
+
+  def "removed batches are no longer pending"() {
+    setup:
+    MetricKey first = key("first")
+    MetricKey second = key("second")
+    Batch firstBatch = pending.newBatch(first)
+    Batch secondBatch = pending.newBatch(second)
+    pending.put(firstBatch)
+    pending.put(secondBatch)
+
+    when:
+    pending.remove(firstBatch)
+
+    then:
+    get(first) == null
+    get(second).is(secondBatch)
+  }
+
+  private static MetricKey key(String resource) {
+    return new MetricKey(resource, "service", "operation", "type", 200, false)
+  }
+
+  private Batch get(MetricKey key) {
+    return pending.get(key.hashCode(), key.getResource(), key.getService(), key.getOperationName(),
+      key.getType(), key.getHttpStatusCode(), key.isSynthetics())
+  }
+}
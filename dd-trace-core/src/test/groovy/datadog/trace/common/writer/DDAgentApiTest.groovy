@@ -3,6 +3,8 @@ package datadog.trace.common.writer
 import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.ObjectMapper
 import datadog.communication.monitor.Monitoring
+import datadog.communication.monitor.NoOpCounter
+import datadog.communication.monitor.Recording
 import datadog.trace.api.DDId
 import datadog.trace.api.StatsDClient
 import datadog.trace.api.sampling.PrioritySampling
@@ -17,7 +19,9 @@ import datadog.trace.common.writer.ddagent.TraceMapperV0_5
 import datadog.trace.core.DDSpan
 import datadog.trace.core.DDSpanContext
 import datadog.communication.http.OkHttpUtils
+import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.core.monitor.MonitoringImpl
+import datadog.trace.core.monitor.ThreadLocalRecording
 import datadog.communication.serialization.ByteBufferConsumer
 import datadog.communication.serialization.FlushingBuffer
 import datadog.communication.serialization.msgpack.MsgPackWriter
@@ -29,10 +33,12 @@ import org.msgpack.jackson.dataformat.MessagePackFactory
 import spock.lang.Shared
 import spock.lang.Timeout
 import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReference
+import java.util.zip.GZIPInputStream
 
 import static datadog.trace.agent.test.server.http.TestHttpServer.httpServer
 
@@ -187,6 +193,92 @@ class DDAgentApiTest extends DDCoreSpecification {
     agentVersion << ["v0.3/traces", "v0.4/traces", "v0.4/traces"]
   }
 
+  def "content is gzipped when enabled and the agent accepts it"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.send()
+        }
+      }
+    }
+    HttpUrl agentUrl = HttpUrl.get(agent.address.toString())
+    OkHttpClient httpClient = OkHttpUtils.buildHttpClient(agentUrl, 1000)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+      supportsGzipTraces() >> agentAcceptsGzip
+    }
+    def client = new DDAgentApi(httpClient, agentUrl, discovery, monitoring, false, compressionEnabled)
+    def trace = [buildSpan(1L, "service.name", "my-service", null)]
+    trace.each { it.finish() }
+    def payload = prepareTraces("v0.4/traces", [trace])
+
+    expect:
+    client.sendSerializedTraces(payload).success()
+    agent.lastRequest.contentType == "application/msgpack"
+    agent.lastRequest.headers.get("Content-Encoding") == (gzipped ? "gzip" : null)
+    def body = gzipped
+      ? new GZIPInputStream(new ByteArrayInputStream(agent.lastRequest.body)).bytes
+      : agent.lastRequest.body
+    convertList("v0.4/traces", body).size() == 1
+
+    cleanup:
+    agent.close()
+
+    where:
+    compressionEnabled | agentAcceptsGzip | gzipped
+    false              | false            | false
+    false              | true             | false
+    true               | false            | false
+    true               | true             | true
+  }
+
+  def "send time is recorded separately by each sender thread"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          Thread.sleep(10)
+          response.send()
+        }
+      }
+    }
+    HttpUrl agentUrl = HttpUrl.get(agent.address.toString())
+    OkHttpClient httpClient = OkHttpUtils.buildHttpClient(agentUrl, 1000)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+    }
+    Map<Thread, SendTimer> timers = new ConcurrentHashMap<>()
+    Monitoring perThreadMonitoring = Stub(Monitoring) {
+      newCounter(_) >> NoOpCounter.NO_OP
+      newThreadLocalTimer("trace.agent.send.time") >> new ThreadLocalRecording(new ThreadLocal<Recording>() {
+          @Override
+          protected Recording initialValue() {
+            SendTimer timer = new SendTimer(Thread.currentThread())
+            timers.put(Thread.currentThread(), timer)
+            return timer
+          }
+        })
+    }
+    def client = new DDAgentApi(httpClient, agentUrl, discovery, perThreadMonitoring, false)
+    PayloadSendingWorker worker = new PayloadSendingWorker(8, 4, client, Stub(HealthMetrics))
+    worker.start()
+
+    when:
+    for (int i = 0; i < 8; ++i) {
+      assert worker.send(prepareTraces("v0.4/traces", []))
+    }
+
+    then:
+    worker.awaitSent(10, TimeUnit.SECONDS)
+    timers.values().sum { it.recorded } == 8
+    timers.values().every { it.foreignAccesses == 0 && !it.started }
+
+    cleanup:
+    worker.close()
+    agent.close()
+  }
+
   def "Api ResponseListeners see 200 responses"() {
     setup:
     def agentResponse = new AtomicReference<Map>(null)
@@ -404,6 +496,46 @@ class DDAgentApiTest extends DDCoreSpecification {
       traces.isEmpty() ? ByteBuffer.allocate(0) : traceCapture.buffer)
   }
 
+  static class SendTimer extends Recording {
+    final Thread owner
+    int recorded
+    int foreignAccesses
+    boolean started
+
+    SendTimer(Thread owner) {
+      this.owner = owner
+    }
+
+    @Override
+    Recording start() {
+      checkOwner()
+      started = true
+      return this
+    }
+
+    @Override
+    void reset() {
+      checkOwner()
+    }
+
+    @Override
+    void stop() {
+      checkOwner()
+      started = false
+      ++recorded
+    }
+
+    @Override
+    void flush() {
+    }
+
+    private void checkOwner() {
+      if (Thread.currentThread() != owner) {
+        ++foreignAccesses
+      }
+    }
+  }
+
   static class Traces implements ByteBufferConsumer {
     int traceCount
     ByteBuffer buffer
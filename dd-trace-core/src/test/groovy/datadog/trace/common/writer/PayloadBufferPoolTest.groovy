@@ -0,0 +1,88 @@
+package datadog.trace.common.writer
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+
+import java.nio.ByteBuffer
+
+class PayloadBufferPoolTest extends DDSpecification {
+
+  def "buffers are recycled once released"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    PayloadBufferPool pool = new PayloadBufferPool(2, healthMetrics)
+
+    when:
+    ByteBuffer first = pool.acquire(1024)
+
+    then:
+    !first.isDirect()
+    first.capacity() == 4096
+    1 * healthMetrics.onPayloadBufferAcquired(false, 0)
+
+    when:
+    first.put((byte) 1)
+    pool.release(first)
+    ByteBuffer second = pool.acquire(512)
+
+    then: "the released buffer is handed out again, cleared"
+    second.is(first)
+    second.position() == 0
+    second.limit() == second.capacity()
+    1 * healthMetrics.onPayloadBufferAcquired(true, 0)
+  }
+
+  def "pool is bounded"() {
+    setup:
+    PayloadBufferPool pool = new PayloadBufferPool(2, Stub(HealthMetrics))
+
+    when:
+    ByteBuffer first = pool.acquire(16)
+    ByteBuffer second = pool.acquire(16)
+    ByteBuffer third = pool.acquire(16)
+
+    then:
+    first != null
+    second != null
+    third == null
+    pool.allocated() == 2
+
+    when:
+    pool.release(first)
+
+    then:
+    pool.available() == 1
+    pool.acquire(16).is(first)
+  }
+
+  def "buffers which are too small are replaced"() {
+    setup:
+    PayloadBufferPool pool = new PayloadBufferPool(1, Stub(HealthMetrics))
+    ByteBuffer small = pool.acquire(16)
+    pool.release(small)
+
+    when:
+    ByteBuffer large = pool.acquire(5000)
+
+    then:
+    !large.is(small)
+    large.capacity() == 8192
+    pool.allocated() == 1
+  }
+
+  def "buffers are sized from the payload"() {
+    setup:
+    PayloadBufferPool pool = new PayloadBufferPool(1, Stub(HealthMetrics))
+
+    expect:
+    pool.acquire(payloadSize).capacity() == capacity
+
+    where:
+    payloadSize | capacity
+    1           | 4096
+    4096        | 4096
+    4097        | 8192
+    100_000     | 131072
+    1 << 20     | 1 << 20
+  }
+}
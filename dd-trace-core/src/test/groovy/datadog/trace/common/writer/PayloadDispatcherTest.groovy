@@ -19,8 +19,10 @@ import spock.lang.Shared
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 class PayloadDispatcherTest extends DDSpecification {
 
@@ -145,6 +147,68 @@ class PayloadDispatcherTest extends DDSpecification {
     newPayload.droppedTraces() == 0
   }
 
+  def "dropped traces counted by one shard are reported by the next payload of any shard"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentApi api = Mock(DDAgentApi)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery) {
+      it.getTraceEndpoint() >> "v0.4/traces"
+    }
+    PayloadDispatcher.DroppedCounts droppedCounts = new PayloadDispatcher.DroppedCounts()
+    PayloadDispatcher first = new PayloadDispatcher(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, null, droppedCounts)
+    PayloadDispatcher second = new PayloadDispatcher(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, null, droppedCounts)
+
+    when:
+    first.addTrace([])
+    second.addTrace([])
+    first.onDroppedTrace(20)
+    first.onDroppedTrace(2)
+    Payload payload = second.newPayload(1, ByteBuffer.allocate(0))
+
+    then:
+    payload.droppedSpans() == 22
+    payload.droppedTraces() == 2
+    first.newPayload(1, ByteBuffer.allocate(0)).droppedTraces() == 0
+  }
+
+  @Timeout(10)
+  def "shards sharing an api send their payloads concurrently"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery) {
+      it.getTraceEndpoint() >> "v0.4/traces"
+    }
+    CountDownLatch bothSending = new CountDownLatch(2)
+    AtomicInteger overlapping = new AtomicInteger()
+    DDAgentApi api = Stub(DDAgentApi) {
+      sendSerializedTraces(_) >> {
+        bothSending.countDown()
+        if (bothSending.await(5, TimeUnit.SECONDS)) {
+          overlapping.incrementAndGet()
+        }
+        RemoteApi.Response.success(200)
+      }
+    }
+    List<PayloadDispatcher> shards = (0..1).collect {
+      new PayloadDispatcher(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring)
+    }
+
+    List<List<DDSpan>> traces = shards.collect { [realSpan()] }
+
+    when:
+    List<Thread> threads = (0..1).collect { i ->
+      Thread.start {
+        PayloadDispatcher shard = shards[i]
+        shard.addTrace(traces[i])
+        shard.flush()
+      }
+    }
+    threads*.join()
+
+    then:
+    overlapping.get() == 2
+  }
+
 
   def realSpan() {
     CoreTracer tracer = Mock(CoreTracer)
@@ -0,0 +1,86 @@
+package datadog.trace.common.writer
+
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class PayloadSendingWorkerTest extends DDSpecification {
+
+  def conditions = new PollingConditions(timeout: 5, initialDelay: 0, factor: 1.25)
+
+  def "payloads are sent off the calling thread"() {
+    setup:
+    AtomicInteger sent = new AtomicInteger()
+    RemoteApi api = Mock(RemoteApi)
+    api.sendSerializedTraces(_) >> {
+      sent.incrementAndGet()
+      return RemoteApi.Response.success(200)
+    }
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    PayloadSendingWorker worker = new PayloadSendingWorker(4, 2, api, healthMetrics)
+    worker.start()
+
+    when:
+    for (int i = 0; i < 3; ++i) {
+      assert worker.send(payload(1))
+    }
+
+    then:
+    worker.awaitSent(5, TimeUnit.SECONDS)
+    sent.get() == 3
+    0 * healthMetrics.onDroppedPayload(_, _)
+
+    cleanup:
+    worker.close()
+  }
+
+  def "whole payloads are dropped when the sender can't keep up"() {
+    setup:
+    CountDownLatch blocked = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    RemoteApi api = Mock(RemoteApi)
+    api.sendSerializedTraces(_) >> {
+      blocked.countDown()
+      release.await()
+      return RemoteApi.Response.success(200)
+    }
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    PayloadSendingWorker worker = new PayloadSendingWorker(1, 1, api, healthMetrics)
+    worker.start()
+
+    when: "one payload is in flight and another is waiting"
+    worker.send(payload(1))
+    blocked.await()
+    boolean queued = worker.send(payload(2))
+    boolean dropped = !worker.send(payload(3))
+
+    then:
+    queued
+    dropped
+    1 * healthMetrics.onDroppedPayload(3, _)
+
+    when:
+    release.countDown()
+
+    then:
+    worker.awaitSent(5, TimeUnit.SECONDS)
+    conditions.eventually {
+      worker.getQueueSize() == 0
+    }
+
+    cleanup:
+    release.countDown()
+    worker.close()
+  }
+
+  def payload(int traceCount) {
+    Payload payload = Stub(Payload)
+    payload.traceCount() >> traceCount
+    payload.sizeInBytes() >> 100
+    return payload
+  }
+}
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer
 
+import datadog.trace.api.DDId
 import datadog.trace.api.StatsDClient
 import datadog.trace.core.DDSpan
 import datadog.trace.core.monitor.HealthMetrics
@@ -95,14 +96,14 @@ class TraceProcessingWorkerTest extends DDSpecification {
     when: "there is pending work it is completed before a flush"
     // processing this span will throw an exception, but it should be caught
     // and not disrupt the flush
-    worker.primaryQueue.offer([Mock(DDSpan)])
+    worker.primaryQueues[0].offer([Mock(DDSpan)])
     worker.start()
     boolean flushed = worker.flush(10, TimeUnit.SECONDS)
 
     then: "the flush succeeds, triggers a dispatch, and the queue is empty"
     flushed
     flushCount.get() == 1
-    worker.primaryQueue.isEmpty()
+    worker.primaryQueues[0].isEmpty()
 
     cleanup:
     worker.close()
@@ -203,6 +204,49 @@ class TraceProcessingWorkerTest extends DDSpecification {
 
   }
 
+  def "traces of the same trace id are serialized by the same shard"() {
+    setup:
+    int shards = 4
+    List<AtomicInteger> acceptedCounts = (0..<shards).collect { new AtomicInteger() }
+    List<AtomicInteger> flushCounts = (0..<shards).collect { new AtomicInteger() }
+    List<PayloadDispatcher> dispatchers = (0..<shards).collect { i ->
+      PayloadDispatcher dispatcher = Mock(PayloadDispatcher)
+      dispatcher.addTrace(_) >> {
+        acceptedCounts[i].incrementAndGet()
+      }
+      dispatcher.flush() >> {
+        flushCounts[i].incrementAndGet()
+      }
+      return dispatcher
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(64, Stub(HealthMetrics),
+      dispatchers, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS)
+    worker.start()
+    DDSpan root = Stub(DDSpan)
+    root.getTraceId() >> DDId.from(traceId)
+
+    when: "several traces with the same trace id are submitted"
+    for (int i = 0; i < 10; ++i) {
+      worker.publish(root, SAMPLER_KEEP, [root])
+    }
+    boolean flushed = worker.flush(10, TimeUnit.SECONDS)
+
+    then: "all of them are handled by one shard and every shard is flushed"
+    flushed
+    worker.getShardCount() == shards
+    acceptedCounts.count { it.get() == 10 } == 1
+    acceptedCounts.sum { it.get() } == 10
+    flushCounts.every { it.get() == 1 }
+
+    cleanup:
+    worker.close()
+
+    where:
+    traceId << [1L, 2L, 3L, 4L, 0xCAFEBABE12345678L]
+  }
+
   def "flush of full queue after worker thread stopped will not flush but will return"() {
     setup:
     PayloadDispatcher countingDispatcher = Mock(PayloadDispatcher)
@@ -214,7 +258,7 @@ class TraceProcessingWorkerTest extends DDSpecification {
     worker.start()
     worker.close()
     int queueSize = 0
-    while (worker.primaryQueue.offer([Mock(DDSpan)])) {
+    while (worker.primaryQueues[0].offer([Mock(DDSpan)])) {
       queueSize++
     }
 
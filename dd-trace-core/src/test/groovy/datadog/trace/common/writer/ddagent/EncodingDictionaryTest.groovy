@@ -0,0 +1,72 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.common.writer.ddagent.EncodingDictionary.NOT_FOUND
+
+class EncodingDictionaryTest extends DDSpecification {
+
+  def "codes are assigned in insertion order"() {
+    setup:
+    EncodingDictionary dictionary = new EncodingDictionary()
+    List<String> keys = (0..<1000).collect { "key-" + it }
+
+    when:
+    List<Integer> codes = keys.collect { dictionary.add(it) }
+
+    then:
+    codes == (0..<1000).toList()
+    dictionary.size() == 1000
+    (0..<1000).every { dictionary.get(keys[it]) == it }
+    // equal but not the same instance
+    dictionary.get(new String("key-500")) == 500
+    dictionary.get("missing") == NOT_FOUND
+  }
+
+  def "strings and UTF8BytesStrings are distinct keys"() {
+    setup:
+    EncodingDictionary dictionary = new EncodingDictionary()
+    UTF8BytesString utf8 = UTF8BytesString.create("value")
+
+    when:
+    dictionary.add(utf8)
+
+    then:
+    dictionary.get(utf8) == 0
+    dictionary.get(UTF8BytesString.create("value")) == 0
+    dictionary.get("value") == NOT_FOUND
+  }
+
+  def "retaining keeps the first keys and their codes"() {
+    setup:
+    EncodingDictionary dictionary = new EncodingDictionary()
+    (0..<200).each { dictionary.add(it) }
+
+    when:
+    dictionary.retain(retained)
+
+    then:
+    dictionary.size() == retained
+    (0..<200).every { dictionary.get(it) == (it < retained ? it : NOT_FOUND) }
+    dictionary.add("next") == retained
+
+    where:
+    retained << [0, 1, 10, 200]
+  }
+
+  def "clear removes all keys"() {
+    setup:
+    EncodingDictionary dictionary = new EncodingDictionary()
+    dictionary.add("a")
+    dictionary.add("b")
+
+    when:
+    dictionary.clear()
+
+    then:
+    dictionary.size() == 0
+    dictionary.get("a") == NOT_FOUND
+    dictionary.add("b") == 0
+  }
+}
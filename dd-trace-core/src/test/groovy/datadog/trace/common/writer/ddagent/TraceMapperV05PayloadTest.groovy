@@ -17,6 +17,7 @@ import org.msgpack.core.MessagePack
 import org.msgpack.core.MessageUnpacker
 
 import java.nio.ByteBuffer
+import java.nio.channels.Channels
 import java.nio.channels.WritableByteChannel
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -128,6 +129,78 @@ class TraceMapperV05PayloadTest extends DDSpecification {
     100 << 10  | 100 << 10      | 1000       | false
   }
 
+  def "test dictionary prefix retained across payloads"() {
+    setup:
+    List<List<TraceGenerator.PojoSpan>> traces = generateRandomTraces(traceCount, lowCardinality)
+    TraceMapperV0_5 traceMapper = new TraceMapperV0_5(10 << 10, bufferSize, retainedEntries)
+    PayloadVerifier verifier = new PayloadVerifier(traces, traceMapper)
+    MsgPackWriter packer = new MsgPackWriter(new FlushingBuffer(bufferSize, verifier))
+    when:
+    boolean tracesFitInBuffer = true
+    for (List<TraceGenerator.PojoSpan> trace : traces) {
+      if (!packer.format(trace, traceMapper)) {
+        verifier.skipLargeTrace()
+        tracesFitInBuffer = false
+      }
+    }
+    packer.flush()
+
+    then:
+    if (tracesFitInBuffer) {
+      verifier.verifyTracesConsumed()
+    }
+
+    where:
+    bufferSize | traceCount | lowCardinality | retainedEntries
+    10 << 10   | 100        | true           | 16
+    10 << 10   | 100        | true           | 10000
+    10 << 10   | 100        | false          | 16
+    10 << 10   | 100        | false          | 10000
+    100 << 10  | 1000       | true           | 16
+    100 << 10  | 1000       | false          | 10000
+  }
+
+  def "detached payload keeps its dictionary when the mapper is reset"() {
+    setup:
+    List<List<TraceGenerator.PojoSpan>> traces = generateRandomTraces(2, false)
+    TraceMapperV0_5 traceMapper = new TraceMapperV0_5()
+    List<Payload> payloads = []
+    MsgPackWriter packer = new MsgPackWriter(new FlushingBuffer(1 << 20, new ByteBufferConsumer() {
+        @Override
+        void accept(int messageCount, ByteBuffer buffer) {
+          ByteBuffer body = ByteBuffer.allocate(buffer.remaining())
+          body.put(buffer)
+          body.flip()
+          payloads.add(traceMapper.newPayload().withBody(messageCount, body).detach())
+          traceMapper.reset()
+        }
+      }))
+
+    when: "the second payload is written over the dictionary of the first"
+    for (List<TraceGenerator.PojoSpan> trace : traces) {
+      packer.format(trace, traceMapper)
+      packer.flush()
+    }
+
+    then:
+    payloads.size() == 2
+    dictionaryOf(payloads[0]).contains(traces[0][0].getResourceName().toString())
+    dictionaryOf(payloads[1]).contains(traces[1][0].getResourceName().toString())
+  }
+
+  private static List<String> dictionaryOf(Payload payload) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+    payload.writeTo(Channels.newChannel(bytes))
+    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(bytes.toByteArray())
+    assertEquals(2, unpacker.unpackArrayHeader())
+    List<String> dictionary = []
+    int dictionarySize = unpacker.unpackArrayHeader()
+    for (int i = 0; i < dictionarySize; ++i) {
+      dictionary.add(unpacker.unpackString())
+    }
+    return dictionary
+  }
+
   private static final class PayloadVerifier implements ByteBufferConsumer, WritableByteChannel {
 
     private final List<List<TraceGenerator.PojoSpan>> expectedTraces
@@ -21,6 +21,7 @@ import org.msgpack.jackson.dataformat.MessagePackFactory
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
+import java.util.zip.GZIPInputStream
 
 import static datadog.trace.agent.test.server.http.TestHttpServer.httpServer
 
@@ -161,6 +162,40 @@ class DDIntakeApiTest extends DDCoreSpecification {
     }
   }
 
+  def "content is gzipped when enabled"() {
+    setup:
+    def path = buildIntakePath(trackType, apiVersion)
+    def intake = httpServer {
+      handlers {
+        post(path) {
+          response.send()
+        }
+      }
+    }
+
+    HttpUrl hostUrl = HttpUrl.get(intake.address.toString())
+    def client = DDIntakeApi.builder()
+      .hostUrl(hostUrl)
+      .trackType(trackType)
+      .apiKey(apiKey)
+      .compressionEnabled(true)
+      .build()
+    def payload = prepareTraces(trackType, [])
+
+    expect:
+    client.sendSerializedTraces(payload).success()
+    intake.lastRequest.contentType == "application/msgpack"
+    intake.lastRequest.headers.get("Content-Encoding") == "gzip"
+    convertMap(new GZIPInputStream(new ByteArrayInputStream(intake.lastRequest.body)).bytes) == [:]
+
+    cleanup:
+    intake.close()
+
+    where:
+    trackType             | apiVersion
+    TrackType.CITESTCYCLE | "v2"
+  }
+
   static Map<String, Object> convertMap(byte[] bytes) {
     return msgPackMapper.readValue(bytes, new TypeReference<TreeMap<String, Object>>() {})
   }
@@ -0,0 +1,86 @@
+package datadog.trace.core
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+import java.util.concurrent.CountDownLatch
+
+class PendingSpansTest extends DDCoreSpecification {
+
+  def tracer = tracerBuilder().writer(new ListWriter()).build()
+
+  def cleanup() {
+    tracer?.close()
+  }
+
+  def "drain returns spans most recently added first"() {
+    setup:
+    def pendingSpans = new PendingSpans()
+    def spans = (1..count).collect { tracer.buildSpan("span-$it").start() as DDSpan }
+
+    when:
+    spans.each { pendingSpans.add(it) }
+
+    then:
+    !pendingSpans.isEmpty() || count == 0
+    pendingSpans.asList() == spans.reverse()
+
+    when:
+    def drained = pendingSpans.drain()
+
+    then:
+    drained == spans.reverse()
+    drained.size() == count
+    pendingSpans.isEmpty()
+    pendingSpans.drain().isEmpty()
+
+    where:
+    count << [0, 1, 8, 9, 24, 25, 248, 249, 504, 505, 1000]
+  }
+
+  def "drained spans can be sorted"() {
+    setup:
+    def pendingSpans = new PendingSpans()
+    def spans = (1..100).collect { tracer.buildSpan("span-$it").start() as DDSpan }
+    spans.each { pendingSpans.add(it) }
+
+    when:
+    def drained = pendingSpans.drain()
+    Collections.sort(drained, { a, b -> a.operationName.toString() <=> b.operationName.toString() } as Comparator)
+
+    then:
+    drained as Set == spans as Set
+    drained == spans.sort(false) { it.operationName.toString() }
+  }
+
+  def "spans added concurrently are all drained exactly once"() {
+    setup:
+    def pendingSpans = new PendingSpans()
+    def threads = 8
+    def perThread = 500
+    def spans = (1..threads * perThread).collect { tracer.buildSpan("span").start() as DDSpan }
+    def start = new CountDownLatch(1)
+    def drained = []
+
+    when:
+    def producers = (0..<threads).collect { t ->
+      Thread.start {
+        start.await()
+        for (int i = 0; i < perThread; ++i) {
+          pendingSpans.add(spans[t * perThread + i])
+        }
+      }
+    }
+    start.countDown()
+    while (producers.any { it.alive }) {
+      drained.addAll(pendingSpans.drain())
+    }
+    producers*.join()
+    drained.addAll(pendingSpans.drain())
+
+    then:
+    drained.size() == spans.size()
+    drained.toSet().size() == spans.size()
+    pendingSpans.isEmpty()
+  }
+}
@@ -375,6 +375,80 @@ class PendingTraceBufferTest extends DDSpecification {
     }
   }
 
+  def "trace which is too new doesn't hold up the ones behind it"() {
+    setup:
+    buffer.start()
+    def tooNew = new TestElement(false)
+    def ready = new TestElement(true)
+
+    when:
+    buffer.enqueue(tooNew)
+    buffer.enqueue(ready)
+
+    then:
+    new PollingConditions(timeout: 1, initialDelay: 0, delay: 0.05, factor: 1).eventually {
+      assert ready.writes.get() == 1
+    }
+    tooNew.writes.get() == 0
+
+    when:
+    buffer.flush()
+
+    then:
+    tooNew.writes.get() == 1
+  }
+
+  def "sharded buffer flushes every shard"() {
+    setup:
+    def sharded = PendingTraceBuffer.delaying(SystemTimeSource.INSTANCE, StatsDClient.NO_OP)
+    sharded.start()
+    def elements = (1..20).collect { new TestElement(false) }
+
+    when:
+    elements.each { sharded.enqueue(it) }
+    sharded.flush()
+
+    then:
+    elements.every { it.writes.get() == 1 }
+
+    cleanup:
+    sharded.close()
+  }
+
+  static class TestElement implements PendingTraceBuffer.Element {
+    final boolean ready
+    final AtomicInteger writes = new AtomicInteger()
+
+    TestElement(boolean ready) {
+      this.ready = ready
+    }
+
+    @Override
+    long oldestFinishedTime() {
+      return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis())
+    }
+
+    @Override
+    boolean lastReferencedNanosAgo(long nanos) {
+      return ready
+    }
+
+    @Override
+    void write() {
+      writes.incrementAndGet()
+    }
+
+    @Override
+    DDSpan getRootSpan() {
+      return null
+    }
+
+    @Override
+    boolean setEnqueued(boolean enqueued) {
+      return true
+    }
+  }
+
   def addContinuation(DDSpan span) {
     def scope = scopeManager.activate(span, ScopeSource.INSTRUMENTATION, true)
     continuations << scope.capture()
@@ -0,0 +1,155 @@
+package datadog.trace.core
+
+import datadog.trace.api.function.BiConsumer
+import datadog.trace.test.util.DDSpecification
+
+class TagMapTest extends DDSpecification {
+
+  def "behaves like a map"() {
+    setup:
+    TagMap map = new TagMap(2)
+    Map<String, Object> expected = [:]
+
+    when:
+    for (int i = 0; i < count; ++i) {
+      map.put("key" + i, i)
+      expected.put("key" + i, i)
+    }
+
+    then:
+    map.size() == count
+    map == expected
+    new HashMap<>(map) == expected
+    (0..<count).every { map.get("key" + it) == it }
+    !map.containsKey("missing")
+    map.get("missing") == null
+
+    when:
+    def previous = map.put("key0", "replaced")
+
+    then:
+    count == 0 || previous == 0
+    count == 0 || map.get("key0") == "replaced"
+
+    where:
+    count << [0, 1, 5, 20, 100]
+  }
+
+  def "removing keys keeps the remaining keys reachable"() {
+    setup:
+    TagMap map = new TagMap()
+    Map<String, Object> expected = [:]
+    for (int i = 0; i < 50; ++i) {
+      map.put("key" + i, i)
+      expected.put("key" + i, i)
+    }
+
+    when:
+    for (int i = 0; i < 50; i += step) {
+      assert map.remove("key" + i) == i
+      expected.remove("key" + i)
+    }
+
+    then:
+    map.size() == expected.size()
+    map == expected
+    expected.keySet().every { map.containsKey(it) }
+
+    where:
+    step << [1, 2, 3, 7]
+  }
+
+  def "removing through views visits every remaining key once"() {
+    setup:
+    TagMap map = new TagMap()
+    Map<String, Object> expected = [:]
+    for (int i = 0; i < 50; ++i) {
+      map.put("key" + i, i)
+      expected.put("key" + i, i)
+    }
+    Set<String> visited = []
+    boolean revisited = false
+
+    when:
+    map.entrySet().removeIf {
+      revisited |= !visited.add(it.key)
+      return (it.value as int) % step == 0
+    }
+    expected.entrySet().removeIf { (it.value as int) % step == 0 }
+
+    then:
+    !revisited
+    visited.size() == 50
+    map == expected
+    expected.keySet().every { map.containsKey(it) }
+
+    when:
+    map.keySet().remove("key1")
+    map.values().removeIf { (it as int) % 5 == 0 }
+    expected.remove("key1")
+    expected.values().removeIf { (it as int) % 5 == 0 }
+
+    then:
+    map == expected
+    map.size() == expected.size()
+
+    where:
+    step << [1, 2, 3, 7]
+  }
+
+  def "iterator remove needs a current entry"() {
+    setup:
+    TagMap map = new TagMap()
+    map.put("a", 1)
+    Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator()
+
+    when:
+    it.remove()
+
+    then:
+    thrown(IllegalStateException)
+
+    when:
+    it.next()
+    it.remove()
+
+    then:
+    map.isEmpty()
+    !it.hasNext()
+  }
+
+  def "visits every tag"() {
+    setup:
+    TagMap map = new TagMap()
+    map.put("a", 1)
+    map.put("b", "two")
+    map.put("c", 3.0d)
+    Map<String, Object> visited = [:]
+
+    when:
+    map.forEachTag(new BiConsumer<String, Object>() {
+        @Override
+        void accept(String key, Object value) {
+          visited.put(key, value)
+        }
+      })
+
+    then:
+    visited == ["a": 1, "b": "two", "c": 3.0d]
+  }
+
+  def "clear empties the map"() {
+    setup:
+    TagMap map = new TagMap()
+    map.put("a", 1)
+    map.put("b", 2)
+
+    when:
+    map.clear()
+
+    then:
+    map.isEmpty()
+    map.get("a") == null
+    map.entrySet().isEmpty()
+  }
+}
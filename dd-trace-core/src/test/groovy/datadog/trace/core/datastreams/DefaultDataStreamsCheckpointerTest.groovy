@@ -349,6 +349,56 @@ class DefaultDataStreamsCheckpointerTest extends DDCoreSpecification {
     checkpointer.close()
   }
 
+  def "Points from several threads are merged into one group per hash"() {
+    given:
+    def conditions = new PollingConditions(timeout: 1)
+    def features = Stub(DDAgentFeaturesDiscovery) {
+      supportsDataStreams() >> true
+    }
+    def timeSource = new ControllableTimeSource()
+    def sink = Mock(Sink)
+    def payloadWriter = new CapturingPayloadWriter()
+    def threadCount = 4
+    def pointsPerThread = 100
+
+    when:
+    def checkpointer = new DefaultDataStreamsCheckpointer(sink, features, timeSource, wellKnownTags, payloadWriter, DEFAULT_BUCKET_DURATION_NANOS)
+    checkpointer.start()
+    def threads = (1..threadCount).collect { index ->
+      Thread.start {
+        for (int i = 0; i < pointsPerThread; ++i) {
+          checkpointer.accept(new StatsPoint(["type:testType", "topic:testTopic"], 1, 2, timeSource.currentTimeNanos, SECONDS.toNanos(index), 0))
+        }
+      }
+    }
+    threads*.join()
+    timeSource.advance(DEFAULT_BUCKET_DURATION_NANOS)
+    checkpointer.report()
+
+    then:
+    conditions.eventually {
+      assert checkpointer.inbox.isEmpty()
+      assert payloadWriter.buckets.size() == 1
+    }
+
+    with(payloadWriter.buckets.get(0)) {
+      groups.size() == 1
+
+      with(groups.iterator().next()) {
+        hash == 1
+        parentHash == 2
+        pathwayLatency.max() >= threadCount
+        pathwayLatency.max() < threadCount + 0.1
+        pathwayLatency.valueAtQuantile(0) >= 0.99
+        pathwayLatency.valueAtQuantile(0) < 1.01
+      }
+    }
+
+    cleanup:
+    payloadWriter.close()
+    checkpointer.close()
+  }
+
   def "feature upgrade"() {
     given:
     def conditions = new PollingConditions(timeout: 1)
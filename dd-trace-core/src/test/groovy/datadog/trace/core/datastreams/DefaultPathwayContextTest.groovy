@@ -7,6 +7,9 @@ import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
 import datadog.trace.bootstrap.instrumentation.api.PathwayContext
 import datadog.trace.bootstrap.instrumentation.api.StatsPoint
 import datadog.trace.core.test.DDCoreSpecification
+import datadog.trace.util.FNV64Hash
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 import spock.lang.Requires
 
 import static datadog.trace.api.config.GeneralConfig.PRIMARY_TAG
@@ -434,6 +437,33 @@ class DefaultPathwayContextTest extends DDCoreSpecification {
     pointConsumer.points[0].hash != pointConsumer.points[1].hash
   }
 
+  def "Hash matches hashing the concatenated service, env, primary tag and hashable tags"() {
+    given:
+    injectSysConfig(PRIMARY_TAG, "region-1")
+    def timeSource = new ControllableTimeSource()
+    def context = new DefaultPathwayContext(timeSource, wellKnownTags)
+
+    when:
+    context.setCheckpoint(new LinkedHashMap<>(["group": "group", "partition": "1", "topic": "topic", "type": "kafka"]), pointConsumer)
+    timeSource.advance(25)
+    context.setCheckpoint(new LinkedHashMap<>(["type": "internal"]), pointConsumer)
+
+    then:
+    pointConsumer.points.size() == 2
+    pointConsumer.points[0].hash == pathwayHash(nodeHash("servicetestingregion-1group:grouptopic:topictype:kafka"), 0)
+    pointConsumer.points[1].hash == pathwayHash(nodeHash("servicetestingregion-1type:internal"), pointConsumer.points[0].hash)
+  }
+
+  static long nodeHash(String node) {
+    return FNV64Hash.generateHash(node, FNV64Hash.Version.v1)
+  }
+
+  static long pathwayHash(long nodeHash, long parentHash) {
+    def buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+    buffer.putLong(nodeHash).putLong(parentHash)
+    return FNV64Hash.generateHash(buffer.array(), FNV64Hash.Version.v1)
+  }
+
   class Base64MapContextVisitor implements AgentPropagation.ContextVisitor<Map<String, String>> {
     @Override
     void forEachKey(Map<String, String> carrier, AgentPropagation.KeyClassifier classifier) {
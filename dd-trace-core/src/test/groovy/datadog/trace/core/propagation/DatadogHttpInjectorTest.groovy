@@ -72,6 +72,57 @@ class DatadogHttpInjectorTest extends DDCoreSpecification {
     "${TRACE_ID_MAX - 1}" | "$TRACE_ID_MAX"       | SAMPLER_KEEP     | DEFAULT           | null
   }
 
+  def "injected headers are rendered again once the sampling decision changes"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext mockedContext =
+      new DDSpanContext(
+      DDId.from("1"),
+      DDId.from("2"),
+      DDId.ZERO,
+      null,
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      UNSET,
+      null,
+      [:],
+      false,
+      "fakeType",
+      0,
+      tracer.pendingTraceFactory.create(DDId.ONE),
+      null,
+      null,
+      NoopPathwayContext.INSTANCE,
+      false,
+      DatadogTags.factory().fromHeaderValue("_dd.p.usr=123"))
+    final Map<String, String> first = [:]
+    final Map<String, String> second = [:]
+    final Map<String, String> third = [:]
+
+    when:
+    injector.inject(mockedContext, first, MapSetter.INSTANCE)
+    injector.inject(mockedContext, second, MapSetter.INSTANCE)
+
+    then:
+    first == second
+    first[TRACE_ID_KEY].is(second[TRACE_ID_KEY])
+    first[DATADOG_TAGS_KEY].is(second[DATADOG_TAGS_KEY])
+    !first.containsKey(SAMPLING_PRIORITY_KEY)
+
+    when:
+    mockedContext.setSamplingPriority(USER_KEEP, MANUAL)
+    injector.inject(mockedContext, third, MapSetter.INSTANCE)
+
+    then:
+    third[SAMPLING_PRIORITY_KEY] == "$USER_KEEP"
+    third[DATADOG_TAGS_KEY] == "_dd.p.usr=123,_dd.p.dm=-4"
+
+    cleanup:
+    tracer.close()
+  }
+
   def "inject http headers with end-to-end"() {
     setup:
     def writer = new ListWriter()
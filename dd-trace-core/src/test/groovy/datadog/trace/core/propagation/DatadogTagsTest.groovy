@@ -20,6 +20,7 @@ class DatadogTagsTest extends DDCoreSpecification {
     then:
     datadogTags.headerValue() == expectedHeaderValue
     datadogTags.createTagMap() == tags
+    datadogTags.tagCount() == tags.size()
 
     where:
     headerValue                                                                                                                  | expectedHeaderValue                        | tags
@@ -80,6 +81,7 @@ class DatadogTagsTest extends DDCoreSpecification {
     then:
     datadogTags.headerValue() == expectedHeaderValue
     datadogTags.createTagMap() == tags
+    datadogTags.tagCount() == tags.size()
 
     where:
     originalTagSet                                              | priority     | mechanism  | expectedHeaderValue                                         | tags
@@ -108,6 +110,57 @@ class DatadogTagsTest extends DDCoreSpecification {
     ",_dd.p.dm=Value"                                           | SAMPLER_KEEP | AGENT_RATE | null                                                        | ["_dd.propagation_error": "decoding_error"]
   }
 
+  def updateDatadogTagsSamplingMechanismOnceParsed() {
+    setup:
+    def datadogTags = DatadogTags.factory(512).fromHeaderValue("_dd.p.anytag=value")
+
+    when: "the tags are read before the sampling decision"
+    def tagCount = datadogTags.tagCount()
+    datadogTags.updateTraceSamplingPriority(USER_KEEP, MANUAL, "service-1")
+
+    then:
+    tagCount == 1
+    datadogTags.headerValue() == "_dd.p.anytag=value,_dd.p.dm=-4"
+    datadogTags.createTagMap() == ["_dd.p.anytag": "value", "_dd.p.dm": "-4"]
+  }
+
+  def snapshotIgnoresLaterSamplingDecisions() {
+    setup:
+    def datadogTags = DatadogTags.factory(512).fromHeaderValue("_dd.p.anytag=value")
+
+    when:
+    def before = datadogTags.snapshot()
+    datadogTags.updateTraceSamplingPriority(USER_KEEP, MANUAL, "service-1")
+    def after = datadogTags.snapshot()
+
+    then:
+    before.tagCount() == 1
+    before.createTagMap() == ["_dd.p.anytag": "value"]
+    after.tagCount() == 2
+    after.createTagMap() == ["_dd.p.anytag": "value", "_dd.p.dm": "-4"]
+    after.headerValue() == "_dd.p.anytag=value,_dd.p.dm=-4"
+    datadogTags.snapshot().is(after)
+
+    when:
+    after.updateTraceSamplingPriority(USER_DROP, MANUAL, "service-1")
+
+    then:
+    after.createTagMap() == ["_dd.p.anytag": "value", "_dd.p.dm": "-4"]
+  }
+
+  def updateDatadogTagsSamplingMechanismTwiceBeforeParsing() {
+    setup:
+    def datadogTags = DatadogTags.factory(512).fromHeaderValue("_dd.p.anytag=value")
+
+    when:
+    datadogTags.updateTraceSamplingPriority(SAMPLER_KEEP, AGENT_RATE, "service-1")
+    datadogTags.updateTraceSamplingPriority(USER_KEEP, UNKNOWN, "service-1")
+
+    then:
+    datadogTags.headerValue() == "_dd.p.anytag=value,_dd.p.dm=-1"
+    datadogTags.tagCount() == 2
+  }
+
   def extractionLimitExceeded() {
     setup:
     def tags = "_dd.p.anytag=value"
@@ -134,6 +187,7 @@ class DatadogTagsTest extends DDCoreSpecification {
     then:
     datadogTags.headerValue() == null
     datadogTags.createTagMap() == ["_dd.propagation_error": "inject_max_size"]
+    datadogTags.tagCount() == 1
   }
 
   def injectionLimitExceededLimit0() {
@@ -0,0 +1,62 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.api.Config
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.core.propagation.HeaderClassifier.B3_TRACE_ID
+import static datadog.trace.core.propagation.HeaderClassifier.DD_E2E_START
+import static datadog.trace.core.propagation.HeaderClassifier.DD_TRACE_ID
+import static datadog.trace.core.propagation.HeaderClassifier.HAYSTACK_BAGGAGE
+import static datadog.trace.core.propagation.HeaderClassifier.NONE
+import static datadog.trace.core.propagation.HeaderClassifier.OT_BAGGAGE
+import static datadog.trace.core.propagation.HeaderClassifier.X_FORWARDED_FOR
+import static datadog.trace.core.propagation.HeaderClassifier.XRAY_TRACE_ID
+
+class HeaderClassifierTest extends DDSpecification {
+
+  def "classify #key"() {
+    setup:
+    Config config = Mock(Config) {
+      getTraceClientIpHeader() >> "My-IP"
+    }
+    HeaderClassifier classifier = HeaderClassifier.create(["Some_Header": "Some-Tag", "x-forwarded-for": "xff"], config)
+
+    when:
+    HeaderClassifier.Header header = classifier.classify(key)
+
+    then:
+    header?.id == id
+    header?.tag == tag
+    (header?.customIp ?: false) == customIp
+
+    where:
+    key                   | id              | tag        | customIp
+    "x-datadog-trace-id"  | DD_TRACE_ID     | null       | false
+    "X-DATADOG-TRACE-ID"  | DD_TRACE_ID     | null       | false
+    "X-B3-TraceId"        | B3_TRACE_ID     | null       | false
+    "x-amzn-trace-id"     | XRAY_TRACE_ID   | null       | false
+    "ot-baggage-t0"       | DD_E2E_START    | null       | false
+    "OT-Baggage-Foo"      | OT_BAGGAGE      | null       | false
+    "Baggage-Foo"         | HAYSTACK_BAGGAGE | null       | false
+    "X-Forwarded-For"     | X_FORWARDED_FOR | "xff"      | false
+    "SOME_HEADER"         | NONE            | "some-tag" | false
+    "my-ip"               | NONE            | null       | true
+    "x-datadog-trace-idx" | null            | null       | false
+    "accept"              | null            | null       | false
+  }
+
+  def "many tagged headers get a perfect hash"() {
+    setup:
+    Map<String, String> tagged = [:]
+    for (int i = 0; i < 200; ++i) {
+      tagged.put("header-" + i, "tag-" + i)
+    }
+    HeaderClassifier classifier = HeaderClassifier.create(tagged, Mock(Config))
+
+    expect:
+    for (int i = 0; i < 200; ++i) {
+      assert classifier.classify("Header-" + i).tag == "tag-" + i
+    }
+    classifier.classify("header-200") == null
+  }
+}
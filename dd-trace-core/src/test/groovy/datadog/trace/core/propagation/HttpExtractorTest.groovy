@@ -2,6 +2,7 @@ package datadog.trace.core.propagation
 
 import datadog.trace.api.Config
 import datadog.trace.api.DDId
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation
 import datadog.trace.bootstrap.instrumentation.api.TagContext
 import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
 import datadog.trace.test.util.DDSpecification
@@ -84,4 +85,31 @@ class HttpExtractorTest extends DDSpecification {
     [DATADOG, B3] | "1"               | "2"               | "a"               | outOfRangeTraceId | "1"             | "2"            | true             | false               | false
     // spotless:on
   }
+
+  def "composite extraction visits the carrier once"() {
+    setup:
+    Config config = Mock(Config) {
+      getPropagationStylesToExtract() >> [DATADOG, B3]
+    }
+    HttpCodec.Extractor extractor = HttpCodec.createExtractor(config, ["SOME_HEADER": "some-tag"])
+    def headers = [
+      (B3HttpCodec.TRACE_ID_KEY): "a",
+      (B3HttpCodec.SPAN_ID_KEY) : "b",
+      SOME_HEADER               : "my-interesting-info"
+    ]
+    int visits = 0
+    AgentPropagation.ContextVisitor<Map<String, String>> visitor = { carrier, classifier ->
+      ++visits
+      ContextVisitors.stringValuesMap().forEachKey(carrier, classifier)
+    }
+
+    when:
+    final TagContext context = extractor.extract(headers, visitor)
+
+    then:
+    visits == 1
+    context.traceId == DDId.from("10")
+    context.spanId == DDId.from("11")
+    context.tags == ["some-tag": "my-interesting-info", "b3.traceid": "a", "b3.spanid": "b"]
+  }
 }
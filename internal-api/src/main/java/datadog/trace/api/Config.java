@@ -24,6 +24,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_INSTRUMENT_THE_W
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_MAX_PAYLOAD_SIZE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_METRICS_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_POLL_INTERVAL;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_PROBE_SERIALIZATION_BUDGET;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_UPLOAD_BATCH_SIZE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_UPLOAD_FLUSH_INTERVAL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_DEBUGGER_UPLOAD_TIMEOUT;
@@ -75,15 +76,20 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_SITE;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TELEMETRY_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TELEMETRY_HEARTBEAT_INTERVAL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_PORT;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_AGENT_V05_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANALYTICS_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANNOTATIONS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_COMPRESSION_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_EXECUTORS_ALL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_METHODS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RESOLVER_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SEND_QUEUE_SIZE;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SEND_THREADS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_SERIALIZATION_THREADS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_X_DATADOG_TAGS_MAX_LENGTH;
 import static datadog.trace.api.DDTags.HOST_TAG;
 import static datadog.trace.api.DDTags.INTERNAL_HOST_NAME;
@@ -123,6 +129,7 @@ import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_MAX_PAYLOAD_SIZE;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_METRICS_ENABLED;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_POLL_INTERVAL;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_PROBE_FILE_LOCATION;
+import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_PROBE_SERIALIZATION_BUDGET;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_UPLOAD_BATCH_SIZE;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_UPLOAD_FLUSH_INTERVAL;
 import static datadog.trace.api.config.DebuggerConfig.DEBUGGER_UPLOAD_TIMEOUT;
@@ -153,6 +160,7 @@ import static datadog.trace.api.config.GeneralConfig.TAGS;
 import static datadog.trace.api.config.GeneralConfig.TELEMETRY_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TELEMETRY_HEARTBEAT_INTERVAL;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_BUFFERING_ENABLED;
+import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_COMPACT_HISTOGRAMS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_ENABLED;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_IGNORED_RESOURCES;
 import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_AGGREGATES;
@@ -249,6 +257,7 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.JMS_PROPAGATIO
 import static datadog.trace.api.config.TraceInstrumentationConfig.JMS_PROPAGATION_DISABLED_TOPICS;
 import static datadog.trace.api.config.TraceInstrumentationConfig.KAFKA_CLIENT_BASE64_DECODING_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.KAFKA_CLIENT_PROPAGATION_DISABLED_TOPICS;
+import static datadog.trace.api.config.TraceInstrumentationConfig.LEGACY_INSTALLER_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.LOGS_INJECTION_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.LOGS_MDC_TAGS_INJECTION_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.MESSAGE_BROKER_SPLIT_BY_DESTINATION;
@@ -307,9 +316,11 @@ import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_ARGS;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PATH;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PORT;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_URL;
+import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES;
 import static datadog.trace.api.config.TracerConfig.TRACE_ANALYTICS_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_HEADER;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_RESOLVER_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_COMPRESSION_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_HTTP_SERVER_PATH_RESOURCE_NAME_MAPPING;
 import static datadog.trace.api.config.TracerConfig.TRACE_RATE_LIMIT;
 import static datadog.trace.api.config.TracerConfig.TRACE_REPORT_HOSTNAME;
@@ -318,6 +329,9 @@ import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLE_RATE;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_OPERATION_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_RULES;
 import static datadog.trace.api.config.TracerConfig.TRACE_SAMPLING_SERVICE_RULES;
+import static datadog.trace.api.config.TracerConfig.TRACE_SEND_QUEUE_SIZE;
+import static datadog.trace.api.config.TracerConfig.TRACE_SEND_THREADS;
+import static datadog.trace.api.config.TracerConfig.TRACE_SERIALIZATION_THREADS;
 import static datadog.trace.api.config.TracerConfig.TRACE_STRICT_WRITES_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_X_DATADOG_TAGS_MAX_LENGTH;
 import static datadog.trace.api.config.TracerConfig.WRITER_TYPE;
@@ -452,6 +466,9 @@ public class Config {
   private final Set<PropagationStyle> propagationStylesToExtract;
   private final Set<PropagationStyle> propagationStylesToInject;
   private final int clockSyncPeriod;
+  private final int traceSerializationThreads;
+  private final int traceSendThreads;
+  private final int traceSendQueueSize;
 
   private final String dogStatsDNamedPipe;
   private final int dogStatsDStartDelay;
@@ -478,6 +495,7 @@ public class Config {
   private final boolean tracerMetricsBufferingEnabled;
   private final int tracerMetricsMaxAggregates;
   private final int tracerMetricsMaxPending;
+  private final boolean tracerMetricsCompactHistogramsEnabled;
 
   private final boolean logsInjectionEnabled;
   private final boolean logsMDCTagsInjectionEnabled;
@@ -573,6 +591,7 @@ public class Config {
   private final boolean debuggerVerifyByteCode;
   private final boolean debuggerInstrumentTheWorld;
   private final String debuggerExcludeFile;
+  private final int debuggerProbeSerializationBudget;
 
   private final boolean awsPropagationEnabled;
   private final boolean sqsPropagationEnabled;
@@ -607,6 +626,8 @@ public class Config {
   private final int xDatadogTagsMaxLength;
 
   private final boolean traceAgentV05Enabled;
+  private final int traceAgentV05DictionaryRetainedEntries;
+  private final boolean traceCompressionEnabled;
 
   private final boolean debugEnabled;
   private final String configFileStatus;
@@ -616,6 +637,7 @@ public class Config {
   private final boolean internalExitOnFailure;
 
   private final boolean resolverOutlinePoolEnabled;
+  private final boolean legacyInstallerEnabled;
   private final int resolverOutlinePoolSize;
   private final int resolverTypePoolSize;
   private final boolean resolverUseLoadClassEnabled;
@@ -911,6 +933,14 @@ public class Config {
 
     clockSyncPeriod = configProvider.getInteger(CLOCK_SYNC_PERIOD, DEFAULT_CLOCK_SYNC_PERIOD);
 
+    traceSerializationThreads =
+        configProvider.getInteger(TRACE_SERIALIZATION_THREADS, DEFAULT_TRACE_SERIALIZATION_THREADS);
+
+    traceSendThreads = configProvider.getInteger(TRACE_SEND_THREADS, DEFAULT_TRACE_SEND_THREADS);
+
+    traceSendQueueSize =
+        configProvider.getInteger(TRACE_SEND_QUEUE_SIZE, DEFAULT_TRACE_SEND_QUEUE_SIZE);
+
     dogStatsDNamedPipe = configProvider.getString(DOGSTATSD_NAMED_PIPE);
 
     dogStatsDStartDelay =
@@ -965,6 +995,8 @@ public class Config {
         configProvider.getBoolean(TRACER_METRICS_BUFFERING_ENABLED, false);
     tracerMetricsMaxAggregates = configProvider.getInteger(TRACER_METRICS_MAX_AGGREGATES, 2048);
     tracerMetricsMaxPending = configProvider.getInteger(TRACER_METRICS_MAX_PENDING, 2048);
+    tracerMetricsCompactHistogramsEnabled =
+        configProvider.getBoolean(TRACER_METRICS_COMPACT_HISTOGRAMS_ENABLED, false);
 
     logsInjectionEnabled =
         configProvider.getBoolean(LOGS_INJECTION_ENABLED, DEFAULT_LOGS_INJECTION_ENABLED);
@@ -974,6 +1006,12 @@ public class Config {
 
     traceAgentV05Enabled =
         configProvider.getBoolean(ENABLE_TRACE_AGENT_V05, DEFAULT_TRACE_AGENT_V05_ENABLED);
+    traceAgentV05DictionaryRetainedEntries =
+        configProvider.getInteger(
+            TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES,
+            DEFAULT_TRACE_AGENT_V05_DICTIONARY_RETAINED_ENTRIES);
+    traceCompressionEnabled =
+        configProvider.getBoolean(TRACE_COMPRESSION_ENABLED, DEFAULT_TRACE_COMPRESSION_ENABLED);
 
     traceAnnotations = configProvider.getString(TRACE_ANNOTATIONS, DEFAULT_TRACE_ANNOTATIONS);
 
@@ -1230,6 +1268,9 @@ public class Config {
         configProvider.getBoolean(
             DEBUGGER_INSTRUMENT_THE_WORLD, DEFAULT_DEBUGGER_INSTRUMENT_THE_WORLD);
     debuggerExcludeFile = configProvider.getString(DEBUGGER_EXCLUDE_FILE);
+    debuggerProbeSerializationBudget =
+        configProvider.getInteger(
+            DEBUGGER_PROBE_SERIALIZATION_BUDGET, DEFAULT_DEBUGGER_PROBE_SERIALIZATION_BUDGET);
 
     jdbcPreparedStatementClassName =
         configProvider.getString(JDBC_PREPARED_STATEMENT_CLASS_NAME, "");
@@ -1295,6 +1336,7 @@ public class Config {
     internalExitOnFailure = configProvider.getBoolean(INTERNAL_EXIT_ON_FAILURE, false);
 
     resolverOutlinePoolEnabled = configProvider.getBoolean(RESOLVER_OUTLINE_POOL_ENABLED, true);
+    legacyInstallerEnabled = configProvider.getBoolean(LEGACY_INSTALLER_ENABLED, false);
     resolverOutlinePoolSize =
         configProvider.getInteger(RESOLVER_OUTLINE_POOL_SIZE, DEFAULT_RESOLVER_OUTLINE_POOL_SIZE);
     resolverTypePoolSize =
@@ -1571,6 +1613,18 @@ public class Config {
     return clockSyncPeriod;
   }
 
+  public int getTraceSerializationThreads() {
+    return traceSerializationThreads;
+  }
+
+  public int getTraceSendThreads() {
+    return traceSendThreads;
+  }
+
+  public int getTraceSendQueueSize() {
+    return traceSendQueueSize;
+  }
+
   public String getDogStatsDNamedPipe() {
     return dogStatsDNamedPipe;
   }
@@ -1655,6 +1709,10 @@ public class Config {
     return tracerMetricsMaxPending;
   }
 
+  public boolean isTracerMetricsCompactHistogramsEnabled() {
+    return tracerMetricsCompactHistogramsEnabled;
+  }
+
   public boolean isLogsInjectionEnabled() {
     return logsInjectionEnabled;
   }
@@ -1965,6 +2023,10 @@ public class Config {
     return debuggerExcludeFile;
   }
 
+  public int getDebuggerProbeSerializationBudget() {
+    return debuggerProbeSerializationBudget;
+  }
+
   public String getFinalDebuggerProbeUrl() {
     // by default poll from datadog agent
     return "http://" + agentHost + ":" + agentPort;
@@ -2059,6 +2121,14 @@ public class Config {
     return traceAgentV05Enabled;
   }
 
+  public int getTraceAgentV05DictionaryRetainedEntries() {
+    return traceAgentV05DictionaryRetainedEntries;
+  }
+
+  public boolean isTraceCompressionEnabled() {
+    return traceCompressionEnabled;
+  }
+
   public boolean isDebugEnabled() {
     return debugEnabled;
   }
@@ -2111,6 +2181,10 @@ public class Config {
     return resolverOutlinePoolEnabled;
   }
 
+  public boolean isLegacyInstallerEnabled() {
+    return legacyInstallerEnabled;
+  }
+
   public int getResolverOutlinePoolSize() {
     return resolverOutlinePoolSize;
   }
@@ -2886,6 +2960,12 @@ public class Config {
         + propagationStylesToInject
         + ", clockSyncPeriod="
         + clockSyncPeriod
+        + ", traceSerializationThreads="
+        + traceSerializationThreads
+        + ", traceSendThreads="
+        + traceSendThreads
+        + ", traceSendQueueSize="
+        + traceSendQueueSize
         + ", jmxFetchEnabled="
         + jmxFetchEnabled
         + ", dogStatsDStartDelay="
@@ -2929,6 +3009,8 @@ public class Config {
         + tracerMetricsMaxAggregates
         + ", tracerMetricsMaxPending="
         + tracerMetricsMaxPending
+        + ", tracerMetricsCompactHistogramsEnabled="
+        + tracerMetricsCompactHistogramsEnabled
         + ", logsInjectionEnabled="
         + logsInjectionEnabled
         + ", logsMDCTagsInjectionEnabled="
@@ -3038,6 +3120,8 @@ public class Config {
         + debuggerInstrumentTheWorld
         + ", debuggerExcludeFile="
         + debuggerExcludeFile
+        + ", debuggerProbeSerializationBudget="
+        + debuggerProbeSerializationBudget
         + ", awsPropagationEnabled="
         + awsPropagationEnabled
         + ", sqsPropagationEnabled="
@@ -3076,6 +3160,10 @@ public class Config {
         + xDatadogTagsMaxLength
         + ", traceAgentV05Enabled="
         + traceAgentV05Enabled
+        + ", traceAgentV05DictionaryRetainedEntries="
+        + traceAgentV05DictionaryRetainedEntries
+        + ", traceCompressionEnabled="
+        + traceCompressionEnabled
         + ", debugEnabled="
         + debugEnabled
         + ", configFile='"
@@ -3087,6 +3175,8 @@ public class Config {
         + internalExitOnFailure
         + ", resolverOutlinePoolEnabled="
         + resolverOutlinePoolEnabled
+        + ", legacyInstallerEnabled="
+        + legacyInstallerEnabled
         + ", resolverOutlinePoolSize="
         + resolverOutlinePoolSize
         + ", resolverTypePoolSize="
@@ -16,6 +16,7 @@ public final class AgentThreadFactory implements ThreadFactory {
     TRACE_STARTUP("dd-agent-startup-datadog-tracer"),
     TRACE_MONITOR("dd-trace-monitor"),
     TRACE_PROCESSOR("dd-trace-processor"),
+    TRACE_SENDER("dd-trace-sender"),
     TRACE_CASSANDRA_ASYNC_SESSION("dd-cassandra-session-executor"),
 
     METRICS_AGGREGATOR("dd-metrics-aggregator"),
@@ -73,7 +74,21 @@ public final class AgentThreadFactory implements ThreadFactory {
    * @param runnable work to run on the new thread.
    */
   public static Thread newAgentThread(final AgentThread agentThread, final Runnable runnable) {
-    final Thread thread = new Thread(AGENT_THREAD_GROUP, runnable, agentThread.threadName);
+    return newAgentThread(agentThread, "", runnable);
+  }
+
+  /**
+   * Constructs a new agent {@code Thread} as a daemon with a null ContextClassLoader, used when
+   * several threads of the same kind are running (for example one per shard).
+   *
+   * @param agentThread the agent thread to create.
+   * @param nameSuffix suffix appended to the thread name.
+   * @param runnable work to run on the new thread.
+   */
+  public static Thread newAgentThread(
+      final AgentThread agentThread, final String nameSuffix, final Runnable runnable) {
+    final Thread thread =
+        new Thread(AGENT_THREAD_GROUP, runnable, agentThread.threadName + nameSuffix);
     thread.setDaemon(true);
     thread.setContextClassLoader(null);
     thread.setUncaughtExceptionHandler(
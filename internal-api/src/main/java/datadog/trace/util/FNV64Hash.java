@@ -30,9 +30,42 @@ public class FNV64Hash {
     }
   }
 
+  /** @return the hash of no data, which {@link #continueHash} calls can carry on from */
+  public static long initialHash() {
+    return FNV_INIT;
+  }
+
+  /**
+   * Carries on hashing from a previously computed hash, so that hashing data in pieces gives the
+   * same hash as hashing it all at once.
+   */
+  public static long continueHash(long hash, byte[] data, Version version) {
+    if (version == Version.v1) {
+      return continueFNV1Hash(hash, data, 0, data.length);
+    } else {
+      return continueFNV1AHash(hash, data, 0, data.length);
+    }
+  }
+
+  /** Carries on hashing from a previously computed hash over the 8 little endian bytes of data. */
+  public static long continueHash(long hash, long data, Version version) {
+    for (int shift = 0; shift < 64; shift += 8) {
+      if (version == Version.v1) {
+        hash *= FNV_PRIME;
+        hash ^= 0xffL & (data >>> shift);
+      } else {
+        hash ^= 0xffL & (data >>> shift);
+        hash *= FNV_PRIME;
+      }
+    }
+    return hash;
+  }
+
   private static long generateFNV1Hash(byte[] data, int start, int length) {
-    long hash = FNV_INIT;
+    return continueFNV1Hash(FNV_INIT, data, start, length);
+  }
 
+  private static long continueFNV1Hash(long hash, byte[] data, int start, int length) {
     for (int i = start; i < start + length; i++) {
       hash *= FNV_PRIME;
       hash ^= 0xffL & data[i];
@@ -42,8 +75,10 @@ public class FNV64Hash {
   }
 
   private static long generateFNV1AHash(byte[] data, int start, int length) {
-    long hash = FNV_INIT;
+    return continueFNV1AHash(FNV_INIT, data, start, length);
+  }
 
+  private static long continueFNV1AHash(long hash, byte[] data, int start, int length) {
     for (int i = start; i < start + length; i++) {
       hash ^= 0xffL & data[i];
       hash *= FNV_PRIME;
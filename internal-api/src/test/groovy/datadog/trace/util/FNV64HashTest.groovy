@@ -181,4 +181,23 @@ class FNV64HashTest extends DDSpecification {
     [0x07] * 500 as byte[]                                          | "0289a488a8df69d9" | "c23e9fccd6f70591"
     [0x7f] * 500 as byte[]                                          | "e6be57375ad89b99" | "39e9f18f2f85e221"
   }
+
+  def "Hashing in pieces matches hashing at once"() {
+    given:
+    def head = "service-env".getBytes("UTF-8")
+    def tail = "topic:orders".getBytes("UTF-8")
+    def number = 0x0102030405060708L
+    def numberBytes = [0x08, 0x07, 0x06, 0x05, 0x04, 0x03, 0x02, 0x01] as byte[]
+
+    when:
+    def continued = FNV64Hash.continueHash(FNV64Hash.continueHash(FNV64Hash.initialHash(), head, version), tail, version)
+    def continuedNumber = FNV64Hash.continueHash(FNV64Hash.continueHash(FNV64Hash.initialHash(), head, version), number, version)
+
+    then:
+    continued == FNV64Hash.generateHash(((head as List) + (tail as List)) as byte[], version)
+    continuedNumber == FNV64Hash.generateHash(((head as List) + (numberBytes as List)) as byte[], version)
+
+    where:
+    version << FNV64Hash.Version.values()
+  }
 }
@@ -0,0 +1,202 @@
+package datadog.trace.core.histogram;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Histogram which keeps its bins in a small open-addressed table of primitive arrays, instead of a
+ * dense store per histogram. Values are binned with the same mapping as {@link DDSketchHistogram}
+ * and serialized to the same format, so the two are interchangeable, but a histogram only holding
+ * a few distinct latencies takes a fraction of the memory.
+ *
+ * <p>{@link #clear()} keeps the arrays, so a histogram reused across reporting intervals doesn't
+ * allocate once it has grown to fit its values. Not thread-safe.
+ */
+public final class CompactHistogram implements Histogram {
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final int NO_BIN = Integer.MIN_VALUE;
+
+  private final CompactHistogramFactory factory;
+  private final IndexMapping mapping;
+
+  private int[] bins;
+  private long[] counts;
+  private int size;
+  private long zeroCount;
+  private long totalCount;
+
+  CompactHistogram(CompactHistogramFactory factory) {
+    this.factory = factory;
+    this.mapping = factory.mapping;
+    this.bins = newBins(INITIAL_CAPACITY);
+    this.counts = new long[INITIAL_CAPACITY];
+  }
+
+  @Override
+  public void accept(long value) {
+    accept((double) value);
+  }
+
+  @Override
+  public void accept(double value) {
+    ++totalCount;
+    if (value < mapping.minIndexableValue()) {
+      ++zeroCount;
+    } else {
+      add(mapping.index(Math.min(value, mapping.maxIndexableValue())), 1);
+    }
+  }
+
+  @Override
+  public void accept(long[] values, int offset, int length) {
+    for (int i = offset; i < offset + length; ++i) {
+      accept((double) values[i]);
+    }
+  }
+
+  @Override
+  public void mergeWith(Histogram other) {
+    if (!(other instanceof CompactHistogram)) {
+      throw new IllegalArgumentException("Can't merge " + other + " into a CompactHistogram");
+    }
+    CompactHistogram that = (CompactHistogram) other;
+    for (int i = 0; i < that.bins.length; ++i) {
+      if (that.bins[i] != NO_BIN) {
+        add(that.bins[i], that.counts[i]);
+      }
+    }
+    zeroCount += that.zeroCount;
+    totalCount += that.totalCount;
+  }
+
+  @Override
+  public double valueAtQuantile(double quantile) {
+    if (totalCount == 0) {
+      return 0D;
+    }
+    long rank = (long) (quantile * (totalCount - 1));
+    if (rank < zeroCount) {
+      return 0D;
+    }
+    int[] sorted = sortedBins();
+    long seen = zeroCount;
+    for (int bin : sorted) {
+      seen += countOf(bin);
+      if (seen > rank) {
+        return mapping.value(bin);
+      }
+    }
+    return mapping.value(sorted[sorted.length - 1]);
+  }
+
+  @Override
+  public double max() {
+    if (size == 0) {
+      return 0D;
+    }
+    int max = NO_BIN;
+    for (int bin : bins) {
+      if (bin != NO_BIN && bin > max) {
+        max = bin;
+      }
+    }
+    return mapping.value(max);
+  }
+
+  @Override
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(bins, NO_BIN);
+      Arrays.fill(counts, 0);
+      size = 0;
+    }
+    zeroCount = 0;
+    totalCount = 0;
+  }
+
+  @Override
+  public ByteBuffer serialize() {
+    return factory.serialize(this);
+  }
+
+  void copyTo(DDSketch sketch) {
+    if (zeroCount > 0) {
+      sketch.accept(0, zeroCount);
+    }
+    for (int i = 0; i < bins.length; ++i) {
+      if (bins[i] != NO_BIN) {
+        sketch.accept(mapping.value(bins[i]), counts[i]);
+      }
+    }
+  }
+
+  private void add(int bin, long count) {
+    int mask = bins.length - 1;
+    int slot = hash(bin) & mask;
+    while (bins[slot] != NO_BIN) {
+      if (bins[slot] == bin) {
+        counts[slot] += count;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    bins[slot] = bin;
+    counts[slot] = count;
+    // keep the table at most half full
+    if (++size * 2 > bins.length) {
+      resize(bins.length << 1);
+    }
+  }
+
+  private long countOf(int bin) {
+    int mask = bins.length - 1;
+    int slot = hash(bin) & mask;
+    while (bins[slot] != NO_BIN) {
+      if (bins[slot] == bin) {
+        return counts[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return 0;
+  }
+
+  private int[] sortedBins() {
+    int[] sorted = new int[size];
+    int i = 0;
+    for (int bin : bins) {
+      if (bin != NO_BIN) {
+        sorted[i++] = bin;
+      }
+    }
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  private void resize(int capacity) {
+    int[] oldBins = bins;
+    long[] oldCounts = counts;
+    bins = newBins(capacity);
+    counts = new long[capacity];
+    size = 0;
+    for (int i = 0; i < oldBins.length; ++i) {
+      if (oldBins[i] != NO_BIN) {
+        add(oldBins[i], oldCounts[i]);
+      }
+    }
+  }
+
+  private static int[] newBins(int capacity) {
+    int[] bins = new int[capacity];
+    Arrays.fill(bins, NO_BIN);
+    return bins;
+  }
+
+  private static int hash(int bin) {
+    // bins of similar values are adjacent, spread them so runs don't cluster
+    int h = bin * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
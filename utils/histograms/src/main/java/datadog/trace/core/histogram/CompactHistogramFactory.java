@@ -0,0 +1,31 @@
+package datadog.trace.core.histogram;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.mapping.BitwiseLinearlyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore;
+import java.nio.ByteBuffer;
+
+/**
+ * Creates {@link CompactHistogram}s. The histograms share the index mapping, which is the same as
+ * the one of {@link DDSketchHistogram}, and a sketch used to serialize them.
+ */
+public class CompactHistogramFactory implements HistogramFactory {
+
+  final IndexMapping mapping = new BitwiseLinearlyInterpolatedMapping(1.0 / 128.0);
+  private final DDSketch encoder =
+      new DDSketch(mapping, () -> new CollapsingLowestDenseStore(1024));
+
+  @Override
+  public Histogram newHistogram() {
+    return new CompactHistogram(this);
+  }
+
+  ByteBuffer serialize(CompactHistogram histogram) {
+    synchronized (encoder) {
+      encoder.clear();
+      histogram.copyTo(encoder);
+      return encoder.serialize();
+    }
+  }
+}
@@ -30,6 +30,22 @@ public final class DDSketchHistogram implements Histogram {
     sketch.accept(value);
   }
 
+  @Override
+  public void accept(long[] values, int offset, int length) {
+    for (int i = offset; i < offset + length; ++i) {
+      sketch.accept(values[i]);
+    }
+  }
+
+  @Override
+  public void mergeWith(Histogram other) {
+    if (other instanceof DDSketchHistogram) {
+      sketch.mergeWith(((DDSketchHistogram) other).sketch);
+    } else {
+      throw new IllegalArgumentException("Can't merge " + other + " into a DDSketchHistogram");
+    }
+  }
+
   @Override
   public double valueAtQuantile(double quantile) {
     if (sketch.isEmpty()) {
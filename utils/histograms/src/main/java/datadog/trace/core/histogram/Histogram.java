@@ -8,6 +8,12 @@ public interface Histogram {
 
   void accept(double value);
 
+  /** Records {@code length} values starting at {@code offset}. */
+  void accept(long[] values, int offset, int length);
+
+  /** Adds the values recorded by another histogram created by the same kind of factory. */
+  void mergeWith(Histogram other);
+
   double valueAtQuantile(double quantile);
 
   double max();
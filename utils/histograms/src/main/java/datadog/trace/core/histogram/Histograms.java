@@ -27,6 +27,13 @@ public final class Histograms {
     return load("datadog.trace.core.histogram.DDSketchHistogramFactory");
   }
 
+  HistogramFactory newCompactFactory() {
+    if (loadStub) {
+      return load("datadog.trace.core.histogram.StubHistogram");
+    }
+    return load("datadog.trace.core.histogram.CompactHistogramFactory");
+  }
+
   /**
    * Load reflectively to ensure that DDSketch is never loaded on JDK7
    *
@@ -36,6 +43,15 @@ public final class Histograms {
     return INSTANCE.newFactory();
   }
 
+  /**
+   * Load reflectively to ensure that DDSketch is never loaded on JDK7
+   *
+   * @return a factory of {@link CompactHistogram}s, which serialize to the same format
+   */
+  public static HistogramFactory newCompactHistogramFactory() {
+    return INSTANCE.newCompactFactory();
+  }
+
   private static HistogramFactory load(String name) {
     try {
       return (HistogramFactory) Class.forName(name).getConstructor().newInstance();
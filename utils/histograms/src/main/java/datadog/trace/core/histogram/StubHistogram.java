@@ -11,6 +11,12 @@ public class StubHistogram implements Histogram, HistogramFactory {
   @Override
   public void accept(double value) {}
 
+  @Override
+  public void accept(long[] values, int offset, int length) {}
+
+  @Override
+  public void mergeWith(Histogram other) {}
+
   @Override
   public double valueAtQuantile(double quantile) {
     return 0;
@@ -0,0 +1,117 @@
+import com.datadoghq.sketch.ddsketch.DDSketchProtoBinding
+import com.datadoghq.sketch.ddsketch.proto.DDSketch
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore
+import datadog.trace.core.histogram.CompactHistogram
+import datadog.trace.core.histogram.Histogram
+import datadog.trace.core.histogram.Histograms
+import datadog.trace.test.util.DDSpecification
+
+import java.nio.ByteBuffer
+
+class CompactHistogramTest extends DDSpecification {
+
+  def "compact histogram factory creates compact histograms"() {
+    expect:
+    Histograms.newCompactHistogramFactory().newHistogram() instanceof CompactHistogram
+  }
+
+  def "compact histogram serializes like DDSketch"() {
+    setup:
+    Histogram compact = Histograms.newCompactHistogramFactory().newHistogram()
+    Histogram sketch = Histograms.newHistogramFactory().newHistogram()
+    SplittableRandom random = new SplittableRandom(0)
+    long[] values = new long[size]
+    for (int i = 0; i < size; ++i) {
+      values[i] = random.nextLong(max)
+    }
+
+    when:
+    compact.accept(values, 0, size)
+    sketch.accept(values, 0, size)
+    def decodedCompact = decode(compact.serialize())
+    def decodedSketch = decode(sketch.serialize())
+
+    then:
+    decodedCompact.getCount() == decodedSketch.getCount()
+    for (double quantile : [0D, 0.5D, 0.75D, 0.9D, 0.99D, 1D]) {
+      assert Math.abs(decodedCompact.getValueAtQuantile(quantile) - decodedSketch.getValueAtQuantile(quantile)) <=
+      0.01 * decodedSketch.getValueAtQuantile(quantile)
+      assert Math.abs(compact.valueAtQuantile(quantile) - sketch.valueAtQuantile(quantile)) <=
+      0.01 * sketch.valueAtQuantile(quantile)
+    }
+    Math.abs(compact.max() - sketch.max()) <= 0.01 * sketch.max()
+
+    where:
+    size  | max
+    1     | 1000
+    10    | 1000
+    1000  | 1_000_000
+    10000 | 1_000_000_000
+  }
+
+  def "compact histogram can be reused after clear"() {
+    setup:
+    Histogram histogram = Histograms.newCompactHistogramFactory().newHistogram()
+
+    when:
+    for (int i = 0; i < 1000; ++i) {
+      histogram.accept(i)
+    }
+    histogram.clear()
+
+    then:
+    histogram.max() == 0
+    histogram.valueAtQuantile(0.99) == 0
+    decode(histogram.serialize()).getCount() == 0
+
+    when:
+    histogram.accept([0, 1, 2, 3, 4] as long[], 1, 3)
+    def sketch = decode(histogram.serialize())
+
+    then:
+    sketch.getCount() == 3
+    (int) sketch.getMinValue() == 1
+    (int) sketch.getMaxValue() == 3
+  }
+
+  def "zero is counted"() {
+    setup:
+    Histogram histogram = Histograms.newCompactHistogramFactory().newHistogram()
+
+    when:
+    histogram.accept(0)
+    histogram.accept(0)
+    histogram.accept(10)
+
+    then:
+    histogram.valueAtQuantile(0.5) == 0
+    decode(histogram.serialize()).getCount() == 3
+  }
+
+  def "merged histograms hold the values of both"() {
+    setup:
+    Histogram left = factory.newHistogram()
+    Histogram right = factory.newHistogram()
+
+    when:
+    left.accept([0, 10, 20] as long[], 0, 3)
+    right.accept([20, 30, 1000] as long[], 0, 3)
+    left.mergeWith(right)
+    def sketch = decode(left.serialize())
+
+    then:
+    sketch.getCount() == 6
+    sketch.getMinValue() == 0
+    Math.abs(left.max() - 1000) <= 10
+    Math.abs(left.valueAtQuantile(0.5) - 20) <= 0.2
+
+    where:
+    factory << [Histograms.newCompactHistogramFactory(), Histograms.newHistogramFactory()]
+  }
+
+  def decode(ByteBuffer buffer) {
+    return DDSketchProtoBinding.fromProto({
+      new CollapsingLowestDenseStore(1024)
+    }, DDSketch.parseFrom(buffer))
+  }
+}